@@ -3,16 +3,15 @@ package org.basex;
 import static org.basex.core.Text.*;
 
 import java.io.IOException;
-import java.net.ServerSocket;
 import java.net.Socket;
 import org.basex.core.Main;
 import org.basex.core.Prop;
 import org.basex.io.IO;
 import org.basex.server.ClientSession;
+import org.basex.server.Dispatcher;
 import org.basex.server.LocalSession;
 import org.basex.server.Log;
 import org.basex.server.LoginException;
-import org.basex.server.ServerProcess;
 import org.basex.server.Session;
 import org.basex.util.Args;
 import org.basex.util.Performance;
@@ -38,8 +37,8 @@ public class BaseXServer extends Main implements Runnable {
 
   /** User query. */
   private String commands;
-  /** Server socket. */
-  private ServerSocket server;
+  /** Dispatcher for client connections. */
+  private Dispatcher server;
   /** Flag for server activity. */
   private boolean running;
   /** Stop file. */
@@ -74,7 +73,7 @@ public class BaseXServer extends Main implements Runnable {
     stop = stopFile(port);
 
     try {
-      server = new ServerSocket(port);
+      server = new Dispatcher(port, context, log);
 
       // guarantee correct shutdown...
       Runtime.getRuntime().addShutdownHook(new Thread() {
@@ -104,21 +103,8 @@ public class BaseXServer extends Main implements Runnable {
   @Override
   public final void run() {
     running = true;
-    while(running) {
-      try {
-        final Socket s = server.accept();
-        final ServerProcess sp = new ServerProcess(s, context, log);
-        if(stop.exists()) {
-          if(!stop.delete()) log.write(Util.info(DBNOTDELETED, stop));
-          quit(false);
-        } else if(sp.init()) {
-          context.add(sp);
-        }
-      } catch(final IOException ex) {
-        // socket was closed..
-        break;
-      }
-    }
+    server.run(stop);
+    quit(false);
   }
 
   /**
@@ -1,18 +1,33 @@
 package org.basex.build.xml;
 
 import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 import org.basex.build.Builder;
+import org.basex.build.MemBuilder;
 import org.basex.build.Parser;
 import org.basex.core.Prop;
+import org.basex.data.Data;
 import org.basex.io.IO;
 import org.basex.io.IOFile;
+import org.basex.util.Atts;
+import org.basex.util.TokenBuilder;
 import org.basex.util.Util;
 
 /**
  * This class parses the tokens that are delivered by the
  * {@link XMLScanner} and sends them to the specified database builder.
  *
+ * If more than one thread is available, files are parsed in parallel.
+ * Each file is parsed into a main memory database, the nodes of which are
+ * sent to the builder in the order in which the files were found, so the
+ * resulting database is identical to the result of a sequential import.
+ *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
@@ -29,6 +44,13 @@ public final class DirParser extends Parser {
   /** Element counter. */
   private int c;
 
+  /** Parse tasks, in the order in which the files were found. */
+  private final LinkedList<Task> tasks = new LinkedList<Task>();
+  /** Thread pool (if files are parsed in parallel). */
+  private ExecutorService pool;
+  /** Number of threads. */
+  private int threads;
+
   /**
    * Constructor.
    * @param f file reference
@@ -57,7 +79,16 @@ public final class DirParser extends Parser {
   public void parse(final Builder b) throws IOException {
     b.meta.filesize = 0;
     b.meta.path = IO.get(file.path());
-    parse(b, file);
+
+    final int t = prop.num(Prop.THREADS);
+    threads = t > 0 ? t : Runtime.getRuntime().availableProcessors();
+    if(threads > 1) pool = Executors.newFixedThreadPool(threads);
+    try {
+      parse(b, file);
+      finish(b, 0);
+    } finally {
+      if(pool != null) pool.shutdownNow();
+    }
   }
 
   /**
@@ -71,6 +102,11 @@ public final class DirParser extends Parser {
       for(final IO f : io.children()) parse(b, f);
     } else {
       file = io;
+      // entries of archives are parsed one by one
+      final boolean par = pool != null && io instanceof IOFile &&
+        !((IOFile) io).archive();
+      if(!par) finish(b, 0);
+
       while(io.more()) {
         final String nm = Prop.WIN ? io.name().toLowerCase() : io.name();
         if(filter != null && !filter.matcher(nm).matches()) continue;
@@ -86,14 +122,145 @@ public final class DirParser extends Parser {
           if(path.startsWith(root)) path = path.substring(root.length());
           targ = (targ + path).replace("//", "/");
         }
-        parser = Parser.fileParser(io, prop, targ);
-        parser.parse(b);
+        if(par) {
+          finish(b, threads << 2);
+          final Task task = new Task(io, targ);
+          task.result = pool.submit(task);
+          tasks.add(task);
+        } else {
+          parser = Parser.fileParser(io, prop, targ);
+          parser.parse(b);
+        }
 
         if(Util.debug && (++c & 0x3FF) == 0) Util.error(";");
       }
     }
   }
 
+  /**
+   * Sends the nodes of parsed files to the builder until the number of
+   * remaining tasks is smaller than the specified limit.
+   * @param b builder
+   * @param max maximum number of remaining tasks
+   * @throws IOException I/O exception
+   */
+  private void finish(final Builder b, final int max) throws IOException {
+    while(tasks.size() > max) {
+      final Task task = tasks.removeFirst();
+      final Data data;
+      try {
+        data = task.result.get();
+      } catch(final InterruptedException ex) {
+        throw new IOException(ex.toString());
+      } catch(final ExecutionException ex) {
+        final Throwable th = ex.getCause();
+        if(th instanceof IOException) throw (IOException) th;
+        if(th instanceof RuntimeException) throw (RuntimeException) th;
+        if(th instanceof Error) throw (Error) th;
+        throw new IOException(th.toString());
+      }
+      parser = task.parser;
+      send(data, b);
+    }
+  }
+
+  /**
+   * Sends the nodes of a main memory database to the builder.
+   * @param data data reference
+   * @param b builder
+   * @throws IOException I/O exception
+   */
+  private static void send(final Data data, final Builder b)
+      throws IOException {
+
+    b.encoding(data.meta.encoding);
+    // pre values of the open nodes and of the nodes following them
+    final int[] open = new int[IO.MAXHEIGHT];
+    final int[] end = new int[IO.MAXHEIGHT];
+    final Atts at = new Atts();
+    final int s = data.meta.size;
+    int l = 0;
+    for(int pre = 0; pre < s;) {
+      while(l > 0 && end[l - 1] <= pre) close(data, open[--l], b);
+      final int k = data.kind(pre);
+      final int ps = data.size(pre, k);
+      if(k == Data.DOC) {
+        b.startDoc(data.text(pre, true));
+        open[l] = pre;
+        end[l++] = pre + ps;
+        ++pre;
+      } else if(k == Data.ELEM) {
+        final Atts nsp = data.ns(pre);
+        for(int n = 0; n < nsp.size; ++n) b.startNS(nsp.key[n], nsp.val[n]);
+        final int as = data.attSize(pre, k);
+        at.reset();
+        for(int a = pre + 1; a < pre + as; ++a) {
+          at.add(data.name(a, Data.ATTR), data.text(a, false));
+        }
+        final byte[] nm = data.name(pre, k);
+        if(ps == as) {
+          b.emptyElem(nm, at);
+        } else {
+          b.startElem(nm, at);
+          open[l] = pre;
+          end[l++] = pre + ps;
+        }
+        pre += as;
+      } else {
+        final TokenBuilder tb = new TokenBuilder(data.text(pre, true));
+        if(k == Data.TEXT) b.text(tb);
+        else if(k == Data.COMM) b.comment(tb);
+        else b.pi(tb);
+        ++pre;
+      }
+    }
+    while(l > 0) close(data, open[--l], b);
+  }
+
+  /**
+   * Closes a document or element node.
+   * @param data data reference
+   * @param pre pre value
+   * @param b builder
+   * @throws IOException I/O exception
+   */
+  private static void close(final Data data, final int pre, final Builder b)
+      throws IOException {
+    final int k = data.kind(pre);
+    if(k == Data.DOC) b.endDoc();
+    else b.endElem(data.name(pre, k));
+  }
+
+  /**
+   * Parses a single file into a main memory database.
+   */
+  private final class Task implements Callable<Data> {
+    /** Input. */
+    private final IO io;
+    /** Target path. */
+    private final String targ;
+    /** Parser (assigned when the task is executed). */
+    Parser parser;
+    /** Parsed file. */
+    Future<Data> result;
+
+    /**
+     * Constructor.
+     * @param i input
+     * @param t target path
+     */
+    Task(final IO i, final String t) {
+      io = i;
+      targ = t;
+    }
+
+    @Override
+    public Data call() throws IOException {
+      parser = Parser.fileParser(io, prop, targ);
+      return MemBuilder.build(parser, prop, "");
+    }
+  }
+
   @Override
   public String det() {
     return parser != null ? parser.detail() : "";
@@ -8,6 +8,7 @@ import org.basex.core.cmd.Close;
 import org.basex.data.Data;
 import org.basex.data.Result;
 import org.basex.io.ArrayOutput;
+import org.basex.io.Journal;
 import org.basex.io.NullOutput;
 import org.basex.io.PrintOutput;
 import org.basex.util.Performance;
@@ -117,6 +118,19 @@ public abstract class Command extends Progress {
     return (flags & (User.CREATE | User.WRITE)) != 0;
   }
 
+  /**
+   * Returns the name of the only database that is accessed by the command,
+   * or {@code null} if the command may access other databases as well.
+   * By default, only commands that operate on the current database
+   * are restricted to it.
+   * @param ctx database context
+   * @return name of database, or {@code null}
+   */
+  public String database(final Context ctx) {
+    return (flags & DATAREF) != 0 && ctx.data != null ?
+        ctx.data.meta.name : null;
+  }
+
   /**
    * Checks if the command updates the data reference.
    * @return result of check
@@ -270,9 +284,12 @@ public abstract class Command extends Progress {
     // check concurrency of commands
     boolean ok = false;
     final boolean writing = updating(ctx);
-    ctx.register(writing);
+    final String db = database(ctx);
+    ctx.register(writing, db);
     ok = run(ctx, os);
-    ctx.unregister(writing);
+    ctx.unregister(writing, db);
+    // make updates durable; concurrent commits are synced in one go
+    if(writing) Journal.sync();
     return ok;
   }
 
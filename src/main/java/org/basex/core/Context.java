@@ -23,6 +23,8 @@ public final class Context {
   public final DataPool datas;
   /** Trigger pool. */
   public final TriggerPool triggers;
+  /** Thread pool. */
+  public final ThreadPool threads;
   /** Users. */
   public final Users users;
   /** Database properties. */
@@ -55,6 +57,7 @@ public final class Context {
     prop = new Prop(true);
     datas = new DataPool();
     triggers = new TriggerPool();
+    threads = new ThreadPool();
     sessions = new Sessions();
     lock = new Lock(this);
     users = new Users(true);
@@ -69,6 +72,7 @@ public final class Context {
     prop = new Prop(true);
     datas = ctx.datas;
     triggers = ctx.triggers;
+    threads = ctx.threads;
     sessions = ctx.sessions;
     lock = ctx.lock;
     users = ctx.users;
@@ -80,6 +84,7 @@ public final class Context {
   public synchronized void close() {
     while(sessions.size() > 0) sessions.get(0).exit();
     datas.close();
+    threads.close();
   }
 
   /**
@@ -175,19 +180,37 @@ public final class Context {
   }
 
   /**
-   * Registers a process.
+   * Registers a process, which may access all databases.
    * @param w writing flag
    */
   public void register(final boolean w) {
-    lock.lock(w);
+    register(w, null);
   }
 
   /**
-   * Unregisters a process.
+   * Registers a process.
+   * @param w writing flag
+   * @param db name of the only database that is accessed, or {@code null}
+   */
+  public void register(final boolean w, final String db) {
+    lock.lock(w, db);
+  }
+
+  /**
+   * Unregisters a process, which may access all databases.
    * @param w writing flag
    */
   public void unregister(final boolean w) {
-    lock.unlock(w);
+    unregister(w, null);
+  }
+
+  /**
+   * Unregisters a process.
+   * @param w writing flag
+   * @param db name of the only database that is accessed, or {@code null}
+   */
+  public void unregister(final boolean w, final String db) {
+    lock.unlock(w, db);
   }
 
   /**
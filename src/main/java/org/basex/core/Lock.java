@@ -1,5 +1,6 @@
 package org.basex.core;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import org.basex.util.Util;
 
@@ -8,22 +9,25 @@ import org.basex.util.Util;
  * Supports multiple readers, limited by {@link Prop#PARALLEL},
  * and single writers (readers/writer lock).
  *
+ * Processes can be restricted to a single database. Such processes only
+ * conflict with processes that access the same database, or all databases.
+ * A waiting process will never overtake an earlier process it conflicts with.
+ * Readers of a database still wait for its writers, as no snapshots of
+ * databases are kept.
+ *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
 final class Lock {
   /** Queue for all waiting processes. */
-  private final LinkedList<Object> queue = new LinkedList<Object>();
+  private final LinkedList<Proc> queue = new LinkedList<Proc>();
+  /** Active processes. */
+  private final ArrayList<Proc> active = new ArrayList<Proc>();
   /** Mutex object. */
   private final Object mutex = new Object();
   /** Database context. */
   private final Context ctx;
 
-  /** Number of active readers. */
-  private int readers;
-  /** Writer flag. */
-  private boolean writer;
-
   /**
    * Default constructor.
    * @param c context
@@ -35,47 +39,95 @@ final class Lock {
   /**
    * Modifications before executing a command.
    * @param w writing flag
+   * @param db name of the accessed database, or {@code null} if all
+   * databases may be accessed
    */
-  void lock(final boolean w) {
+  void lock(final boolean w, final String db) {
     synchronized(mutex) {
-      final Object o = new Object();
-      queue.add(o);
+      final Proc p = new Proc(w, db);
+      queue.add(p);
 
       try {
-        while(true) {
-          if(o == queue.get(0) && !writer) {
-            if(w) {
-              if(readers == 0) {
-                writer = true;
-                break;
-              }
-            } else if(readers < Math.max(ctx.prop.num(Prop.PARALLEL), 1)) {
-              ++readers;
-              break;
-            }
-          }
-          mutex.wait();
-        }
+        while(!ready(p)) mutex.wait();
       } catch(final InterruptedException ex) {
         Util.stack(ex);
       }
 
-      queue.remove(0);
+      queue.remove(p);
+      active.add(p);
     }
   }
 
   /**
    * Modifications after executing a command.
    * @param w writing flag
+   * @param db name of the accessed database, or {@code null}
    */
-  synchronized void unlock(final boolean w) {
+  void unlock(final boolean w, final String db) {
     synchronized(mutex) {
-      if(w) {
-        writer = false;
-      } else {
-        --readers;
+      for(int a = 0; a < active.size(); ++a) {
+        if(active.get(a).is(w, db)) {
+          active.remove(a);
+          break;
+        }
       }
       mutex.notifyAll();
     }
   }
+
+  /**
+   * Checks if the specified process can be executed.
+   * @param p process
+   * @return result of check
+   */
+  private boolean ready(final Proc p) {
+    for(final Proc q : queue) {
+      if(q == p) break;
+      if(p.conflicts(q)) return false;
+    }
+    int readers = 0;
+    for(final Proc a : active) {
+      if(p.conflicts(a)) return false;
+      if(!a.writer) ++readers;
+    }
+    return p.writer || readers < Math.max(ctx.prop.num(Prop.PARALLEL), 1);
+  }
+
+  /** Single process. */
+  private static final class Proc {
+    /** Writing flag. */
+    final boolean writer;
+    /** Name of the accessed database, or {@code null}. */
+    final String db;
+
+    /**
+     * Constructor.
+     * @param w writing flag
+     * @param d name of the accessed database
+     */
+    Proc(final boolean w, final String d) {
+      writer = w;
+      db = d;
+    }
+
+    /**
+     * Checks if this process conflicts with the specified process.
+     * @param p process
+     * @return result of check
+     */
+    boolean conflicts(final Proc p) {
+      return (writer || p.writer) &&
+        (db == null || p.db == null || db.equals(p.db));
+    }
+
+    /**
+     * Checks if this process has the specified properties.
+     * @param w writing flag
+     * @param d name of the accessed database
+     * @return result of check
+     */
+    boolean is(final boolean w, final String d) {
+      return writer == w && (db == null ? d == null : db.equals(d));
+    }
+  }
 }
@@ -67,6 +67,8 @@ public final class Prop extends AProp {
 
   /** Server timeout in seconds; deactivated if set to 0. */
   public static final Object[] TIMEOUT = { "TIMEOUT", 0 };
+  /** Maximum number of client connections; unlimited if set to 0. */
+  public static final Object[] MAXCONNECTIONS = { "MAXCONNECTIONS", 0 };
 
   // TRANSIENT OPTIONS ========================================================
 
@@ -103,15 +105,24 @@ public final class Prop extends AProp {
 
   /** Caches the query results. */
   public static final Object[] CACHEQUERY = { "CACHEQUERY", false };
+  /** Maximum number of compiled queries cached by a server session. */
+  public static final Object[] QUERYCACHE = { "QUERYCACHE", 0 };
   /** Writes original files back after updates. */
   public static final Object[] WRITEBACK = { "WRITEBACK", false };
   /** Forces database creation for unknown documents. */
   public static final Object[] FORCECREATE = { "FORCECREATE", false };
   /** Default XQuery version. */
   public static final Object[] XQUERY3 = { "XQUERY3", true };
+  /** Evaluates the first for clause of FLWOR expressions in parallel. */
+  public static final Object[] PARALLELFLWOR = { "PARALLELFLWOR", false };
 
   /** Defines the number of parallel readers. */
   public static final Object[] PARALLEL = { "PARALLEL", 8 };
+  /** Maximum number of parallel threads (0: number of processors). */
+  public static final Object[] THREADS = { "THREADS", 0 };
+  /** Maximum number of cached tuples of order and group by clauses before
+   *  they are written to temporary files (0: no limit). */
+  public static final Object[] SPILLSIZE = { "SPILLSIZE", 0 };
 
   /** Use internal XML parser. */
   public static final Object[] INTPARSE = { "INTPARSE", false };
@@ -141,6 +152,11 @@ public final class Prop extends AProp {
   /** Maximum number of name categories. */
   public static final Object[] CATEGORIES = { "CATEGORIES", 50 };
 
+  /** Size of the page cache, shared by all opened databases (kilobytes). */
+  public static final Object[] BUFFERSIZE = { "BUFFERSIZE", 32768 };
+  /** Flag for mapping database files into memory until they are updated. */
+  public static final Object[] MAPPED = { "MAPPED", false };
+
   /** Flag for creating a main memory database table. */
   public static final Object[] TABLEMEM = { "TABLEMEM", false };
   /** Flag for creating a main memory database. */
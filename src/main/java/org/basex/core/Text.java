@@ -499,6 +499,8 @@ public interface Text {
   String SIZEDISK = LI + "Size: ";
   /** Index info. */
   String IDXENTRIES = LI + "Entries: ";
+  /** Index info. */
+  String IDXSEGMENTS = LI + "Segments: ";
 
   /** Index info. */
   String TRIESTRUC = "Trie";
@@ -648,6 +650,14 @@ public interface Text {
 
   /** Info on used main memory. */
   String INFOMEM = lang("info_mem");
+  /** Info on the page cache. */
+  String INFOBUFFERS = lang("info_buffers");
+  /** Info on buffer hits. */
+  String INFOHITS = lang("info_hits");
+  /** Info on buffer misses. */
+  String INFOMISSES = lang("info_misses");
+  /** Info on replaced buffers. */
+  String INFOEVICTIONS = lang("info_evictions");
 
   /** No document opened. */
   String INFONODB = lang("info_nodb") + DOT;
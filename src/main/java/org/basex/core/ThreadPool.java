@@ -0,0 +1,81 @@
+package org.basex.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of threads for evaluating expressions in parallel. The pool is shared
+ * by all database contexts. Its threads are created on demand and
+ * discarded after some idle time.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class ThreadPool {
+  /** Idle time in seconds before a thread is discarded. */
+  private static final int IDLE = 60;
+  /** Executor ({@code null} if no thread has been requested yet). */
+  private ThreadPoolExecutor pool;
+
+  /**
+   * Returns the executor and adjusts it to the specified number of threads.
+   * @param t maximum number of threads ({@link Prop#THREADS}); if set to 0,
+   * the number of processors is chosen
+   * @return executor
+   */
+  public synchronized ExecutorService get(final int t) {
+    final int n = t > 0 ? t : Runtime.getRuntime().availableProcessors();
+    if(pool == null) {
+      pool = new ThreadPoolExecutor(n, n, IDLE, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          final Thread th = new Worker(r);
+          th.setDaemon(true);
+          return th;
+        }
+      });
+      pool.allowCoreThreadTimeOut(true);
+    } else if(n > pool.getMaximumPoolSize()) {
+      pool.setMaximumPoolSize(n);
+      pool.setCorePoolSize(n);
+    } else if(n < pool.getMaximumPoolSize()) {
+      pool.setCorePoolSize(n);
+      pool.setMaximumPoolSize(n);
+    }
+    return pool;
+  }
+
+  /**
+   * Checks if the current thread belongs to a thread pool. Threads of
+   * the pool must not wait for other threads of the pool, as all of them
+   * may be busy.
+   * @return result of check
+   */
+  public static boolean worker() {
+    return Thread.currentThread() instanceof Worker;
+  }
+
+  /**
+   * Stops all threads.
+   */
+  synchronized void close() {
+    if(pool == null) return;
+    pool.shutdownNow();
+    pool = null;
+  }
+
+  /** Thread of the pool. */
+  private static final class Worker extends Thread {
+    /**
+     * Constructor.
+     * @param r runnable
+     */
+    Worker(final Runnable r) {
+      super(r);
+    }
+  }
+}
@@ -33,6 +33,10 @@ abstract class AQuery extends Command {
 
   /** Query processor. */
   private QueryProcessor qp;
+  /** Query processor that has been parsed before the command is executed. */
+  private QueryProcessor parsed;
+  /** Query string of the parsed processor. */
+  private String parsedQuery;
   /** Parsing time. */
   private long pars;
   /** Compilation time. */
@@ -66,7 +70,7 @@ abstract class AQuery extends Command {
       for(int i = 0; i < runs; ++i) {
         final Performance per = new Performance();
 
-        qp = new QueryProcessor(query, context);
+        qp = processor(query);
         progress(qp);
 
         qp.parse();
@@ -137,7 +141,56 @@ abstract class AQuery extends Command {
    * @return result of check
    */
   protected final boolean updating(final Context ctx, final String qu) {
-    return QueryProcessor.updating(ctx, qu);
+    final QueryProcessor p = parse(ctx, qu);
+    return p == null || p.ctx.updating;
+  }
+
+  /**
+   * Returns the name of the only database that is accessed by the query,
+   * or {@code null}.
+   * @param ctx context reference
+   * @param qu query
+   * @return name of database, or {@code null}
+   */
+  protected final String database(final Context ctx, final String qu) {
+    if(ctx.data == null) return null;
+    final QueryProcessor p = parse(ctx, qu);
+    return p == null || p.ctx.databases ? null : ctx.data.meta.name;
+  }
+
+  /**
+   * Parses the query before the command is executed, unless this has already
+   * been done. The parsed query will be evaluated by the first run.
+   * @param ctx context reference
+   * @param qu query
+   * @return query processor, or {@code null} if the query cannot be parsed
+   */
+  private QueryProcessor parse(final Context ctx, final String qu) {
+    if(!qu.equals(parsedQuery)) {
+      final Performance per = new Performance();
+      parsedQuery = qu;
+      parsed = new QueryProcessor(qu, ctx);
+      try {
+        parsed.parse();
+      } catch(final QueryException ex) {
+        parsed = null;
+      }
+      pars += per.getTime();
+    }
+    return parsed;
+  }
+
+  /**
+   * Returns the query processor that has been parsed for the specified query,
+   * or a new instance.
+   * @param qu query
+   * @return query processor
+   */
+  private QueryProcessor processor(final String qu) {
+    final QueryProcessor p = qu.equals(parsedQuery) ? parsed : null;
+    parsed = null;
+    parsedQuery = null;
+    return p != null ? p : new QueryProcessor(qu, context);
   }
 
   /**
@@ -145,7 +198,7 @@ abstract class AQuery extends Command {
    */
   protected final void queryNodes() {
     try {
-      result = new QueryProcessor(args[0], context).queryNodes();
+      result = processor(args[0]).queryNodes();
     } catch(final QueryException ex) {
       Util.debug(ex);
       error(ex.getMessage());
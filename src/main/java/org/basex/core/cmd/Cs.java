@@ -1,5 +1,6 @@
 package org.basex.core.cmd;
 
+import org.basex.core.Context;
 import org.basex.core.User;
 import org.basex.data.Nodes;
 
@@ -29,4 +30,9 @@ public final class Cs extends AQuery {
     }
     return true;
   }
+
+  @Override
+  public String database(final Context ctx) {
+    return database(ctx, args[0]);
+  }
 }
@@ -35,9 +35,25 @@ public final class InfoDB extends AInfo {
   protected boolean run() throws IOException {
     final boolean create = context.user.perm(User.CREATE);
     out.print(db(context.data.meta, false, true, create));
+    final long[] st = context.data.stats();
+    if(st != null) out.print(buffers(st));
     return true;
   }
 
+  /**
+   * Creates a string with buffer statistics.
+   * @param st number of buffer hits, misses and evictions
+   * @return info string
+   */
+  public static byte[] buffers(final long[] st) {
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add(NL + INFOBUFFERS + NL);
+    format(tb, INFOHITS, Long.toString(st[0]));
+    format(tb, INFOMISSES, Long.toString(st[1]));
+    format(tb, INFOEVICTIONS, Long.toString(st[2]));
+    return tb.finish();
+  }
+
   /**
    * Creates a database information string.
    * @param meta meta data
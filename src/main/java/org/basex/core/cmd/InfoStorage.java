@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 import java.io.IOException;
 import org.basex.core.CommandBuilder;
+import org.basex.core.Context;
 import org.basex.core.User;
 import org.basex.core.Commands.Cmd;
 import org.basex.core.Commands.CmdInfo;
@@ -30,6 +31,14 @@ public final class InfoStorage extends AQuery {
     super(DATAREF | User.READ, arg);
   }
 
+  @Override
+  public String database(final Context ctx) {
+    // queries may access other databases
+    final String start = args.length > 0 ? args[0] : null;
+    return start != null && toInt(start) == Integer.MIN_VALUE ?
+        database(ctx, start) : super.database(ctx);
+  }
+
   @Override
   protected boolean run() throws IOException {
     // get arguments
@@ -49,6 +49,15 @@ public final class Run extends AQuery {
     }
   }
 
+  @Override
+  public String database(final Context ctx) {
+    try {
+      return database(ctx, Token.string(IO.get(args[0]).content()));
+    } catch(final IOException ex) {
+      return null;
+    }
+  }
+
   @Override
   public void build(final CommandBuilder cb) {
     cb.init().arg(0);
@@ -26,4 +26,9 @@ public final class XQuery extends AQuery {
   public boolean updating(final Context ctx) {
     return super.updating(ctx) || updating(ctx, args[0]);
   }
+
+  @Override
+  public String database(final Context ctx) {
+    return database(ctx, args[0]);
+  }
 }
@@ -105,6 +105,8 @@ public abstract class Data {
   protected Index atvindex;
   /** Full-text index instance. */
   protected Index ftxindex;
+  /** Id/pre mapping (created on demand if {@code null}). */
+  protected volatile IdPreMap idmap;
 
   /**
    * Dissolves the references to often used tag names and attributes.
@@ -154,6 +156,15 @@ public abstract class Data {
    */
   public abstract void flush();
 
+  /**
+   * Returns the buffer statistics of the database files, or {@code null} if
+   * the database is kept in main memory.
+   * @return number of buffer hits, misses and evictions
+   */
+  public long[] stats() {
+    return null;
+  }
+
   /**
    * Closes the specified index.
    * @param index index to be closed
@@ -280,14 +291,19 @@ public abstract class Data {
    * @return pre value or -1 if id was not found
    */
   public final int pre(final int id) {
-    // find pre value in table
-    for(int p = Math.max(0, id); p < meta.size; ++p)
-      if(id == id(p)) return p;
-    for(int p = 0, ps = Math.min(meta.size, id); p < ps; ++p)
-      if(id == id(p)) return p;
+    IdPreMap map = idmap;
+    if(map == null) map = idmap();
+    return map.pre(id);
+  }
 
-    // id not found
-    return -1;
+  /**
+   * Returns the id/pre mapping. If no mapping exists, it is created from
+   * the node ids of the table.
+   * @return mapping
+   */
+  private synchronized IdPreMap idmap() {
+    if(idmap == null) idmap = new IdPreMap(this);
+    return idmap;
   }
 
   /**
@@ -505,10 +521,22 @@ public abstract class Data {
       // write namespace uri reference
       table.write1(pre, k == ELEM ? 3 : 11, u);
       // write name reference
-      table.write2(pre, 1, (nsFlag(pre) ? 1 << 15 : 0) |
-        (k == ELEM ? tags : atts).index(nm, null, false));
+      final int n = (k == ELEM ? tags : atts).index(nm, null, false);
+      table.write2(pre, 1, (nsFlag(pre) ? 1 << 15 : 0) | n);
       // write namespace flag
       table.write2(p, 1, (ne || nsFlag(p) ? 1 << 15 : 0) | name(p));
+
+      // add values to the statistics of the new name
+      if(k == ATTR) {
+        atts.index(n, text(pre, false));
+      } else {
+        final int e = pre + size(pre, k);
+        for(int c = pre + attSize(pre, k); c < e;) {
+          final int ck = kind(c);
+          if(ck == TEXT) tags.index(n, text(c, true));
+          c += size(c, ck);
+        }
+      }
     }
   }
 
@@ -522,6 +550,14 @@ public abstract class Data {
     meta.update();
     final byte[] v = k == PI ? trim(concat(name(pre, k), SPACE, val)) : val;
     text(pre, v, k != ATTR);
+
+    // add value to the statistics of the element or attribute name
+    if(k == ATTR) {
+      atts.index(name(pre), v);
+    } else if(k == TEXT) {
+      final int par = parent(pre, k);
+      if(par >= 0 && kind(par) == ELEM) tags.index(name(par), v);
+    }
   }
 
   /**
@@ -563,7 +599,8 @@ public abstract class Data {
       if(kind(p) == DOC) --meta.ndocs;
     }
 
-    // delete node from table structure and reduce document size
+    // update value indexes and delete node from table structure
+    indexDelete(pre, empty ? s + 1 : s);
     table.delete(pre, s);
     updateDist(p, -s);
 
@@ -571,9 +608,17 @@ public abstract class Data {
     ns.updatePreValues(pre, s, false, null);
 
     // restore empty document node
+    final IdPreMap map = idmap;
     if(empty) {
       doc(0, 1, EMPTY);
       table.set(0, buffer());
+      if(map != null) {
+        map.delete(0, s + 1);
+        map.insert(0, meta.lastid, 1);
+      }
+      indexInsert(0, 1);
+    } else if(map != null) {
+      map.delete(pre, s);
     }
   }
 
@@ -597,12 +642,16 @@ public abstract class Data {
    * @param md data instance to copy from
    */
   public final void insert(final int ipre, final int ipar, final Data md) {
+    // appended nodes do not change the pre values of the full-text index
+    final boolean ft = meta.ftindex && ipre == meta.size;
     meta.update();
 
     final int[] preStack = new int[IO.MAXHEIGHT];
+    final int[] nameStack = new int[IO.MAXHEIGHT];
     int l = 0;
 
     final int ms = md.meta.size;
+    final int id = meta.lastid + 1;
     final int buf = Math.min(ms, IO.BLOCKSIZE >> IO.NODEPOWER);
     // resize buffer to cache more entries
     buffer(buf);
@@ -623,7 +672,8 @@ public abstract class Data {
     final NSNode t = ns.current;
     final Set<NSNode> newNodes = new HashSet<NSNode>();
     while(++mpre != ms) {
-      if(mpre != 0 && mpre % buf == 0) insert(ipre + mpre - buf);
+      if(mpre != 0 && mpre % buf == 0)
+        table.insert(ipre + mpre - buf, buffer());
 
       final int mk = md.kind(mpre);
       final int mpar = md.parent(mpre, mk);
@@ -681,6 +731,7 @@ public abstract class Data {
           doc(pre, md.size(mpre, mk), md.text(mpre, true));
           meta.ndocs++;
           ns.open();
+          nameStack[l] = 0;
           preStack[l++] = pre;
           break;
         case ELEM:
@@ -704,15 +755,22 @@ public abstract class Data {
           }
           ns.open();
           byte[] nm = md.name(mpre, mk);
-          elem(dis, tags.index(nm, null, false), md.attSize(mpre, mk),
-              md.size(mpre, mk), ns.uri(nm, true), ne);
+          final int tn = tags.index(nm, null, false);
+          elem(dis, tn, md.attSize(mpre, mk), md.size(mpre, mk),
+              ns.uri(nm, true), ne);
+          nameStack[l] = tn;
           preStack[l++] = pre;
           break;
         case TEXT:
         case COMM:
         case PI:
           // add text
-          text(pre, dis, md.text(mpre, true), mk);
+          final byte[] txt = md.text(mpre, true);
+          text(pre, dis, txt, mk);
+          // add text to the statistics of the parent element
+          final int pn = mk != TEXT ? 0 : mpar >= 0 ? nameStack[l - 1] :
+            ipar >= 0 && kind(ipar) == ELEM ? name(ipar) : 0;
+          if(pn != 0) tags.index(pn, txt);
           break;
         case ATTR:
           // add attribute
@@ -722,8 +780,10 @@ public abstract class Data {
                 md.ns.uri(md.uri(mpre, mk)));
             table.write2(ipar, 1, 1 << 15 | name(ipar));
           }
-          attr(pre, dis, atts.index(nm, null, false), md.text(mpre, false),
-              ns.uri(nm, false), false);
+          final int an = atts.index(nm, null, false);
+          final byte[] av = md.text(mpre, false);
+          attr(pre, dis, an, av, ns.uri(nm, false), false);
+          atts.index(an, av);
           break;
       }
     }
@@ -731,9 +791,12 @@ public abstract class Data {
     while(l > 0) ns.close(preStack[--l]);
     ns.setRoot(t);
 
-    if(bp != 0) insert(ipre + mpre - 1 - (mpre - 1) % buf);
+    if(bp != 0) table.insert(ipre + mpre - 1 - (mpre - 1) % buf, buffer());
     // reset buffer to old size
     buffer(1);
+    // new nodes have ascending ids
+    if(idmap != null) idmap.insert(ipre, id, ms);
+    indexInsert(ipre, ms);
 
     // increase size of ancestors
     int p = ipar;
@@ -749,6 +812,7 @@ public abstract class Data {
 
     // delete old empty root node
     if(size(0, DOC) == 1) delete(0);
+    else if(ft) indexAppend(ipre);
   }
 
   /**
@@ -766,6 +830,26 @@ public abstract class Data {
     }
   }
 
+  /**
+   * Updates the value indexes after nodes have been inserted into the table.
+   * @param pre pre value of the first node
+   * @param s number of nodes
+   */
+  protected abstract void indexInsert(final int pre, final int s);
+
+  /**
+   * Updates the value indexes before nodes are deleted from the table.
+   * @param pre pre value of the first node
+   * @param s number of nodes
+   */
+  protected abstract void indexDelete(final int pre, final int s);
+
+  /**
+   * Updates the full-text index after nodes have been appended to the table.
+   * @param pre pre value of the first node
+   */
+  protected abstract void indexAppend(final int pre);
+
   /**
    * Sets the size value.
    * @param pre pre reference
@@ -837,7 +921,13 @@ public abstract class Data {
    * @param pre insert position
    */
   public final void insert(final int pre) {
-    table.insert(pre, buffer());
+    final byte[] bb = buffer();
+    table.insert(pre, bb);
+    final IdPreMap map = idmap;
+    if(map != null) {
+      final int s = pre + (bb.length >>> IO.NODEPOWER);
+      for(int p = pre; p < s; ++p) map.insert(p, id(p), 1);
+    }
   }
 
   /**
@@ -15,7 +15,7 @@ public interface DataText {
    * be parsed anymore. */
   String STORAGE = "5.91";
   /** Index version; if it's modified, old indexes can't be parsed anymore. */
-  String ISTORAGE = "5.91";
+  String ISTORAGE = "6.9";
 
   /** Database version. */
   String DBSTR = "STORAGE";
@@ -82,6 +82,8 @@ public interface DataText {
   String DBPATH = "PATH";
   /** Tags. */
   String DBNS = "NS";
+  /** Id/pre mapping. */
+  String DBIDMAP = "IDMAP";
 
   // XML SERIALIZATION ========================================================
 
@@ -251,4 +253,6 @@ public interface DataText {
   String DATAFTX = "ftx";
   /** Database - Stopword list. */
   String DATASWL = "swl";
+  /** Database - Journal. */
+  String DATAJRN = "jrn";
 }
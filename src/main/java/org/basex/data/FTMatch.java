@@ -67,6 +67,21 @@ public final class FTMatch implements Iterable<FTStringMatch> {
     return true;
   }
 
+  /**
+   * Returns the distance between the first and last position of all string
+   * matches that are no excludes.
+   * @return distance
+   */
+  public int span() {
+    int s = Integer.MAX_VALUE, e = Integer.MIN_VALUE;
+    for(final FTStringMatch m : this) {
+      if(m.ex) continue;
+      s = Math.min(s, m.s);
+      e = Math.max(e, m.e);
+    }
+    return s <= e ? e - s : 0;
+  }
+
   /**
    * Sorts the matches.
    */
@@ -113,6 +113,25 @@ public final class FTMatches implements Iterable<FTMatch> {
     return size != 0;
   }
 
+  /**
+   * Adds the string matches of the specified match list to all matches.
+   * Matches are removed if their positions are more than the specified
+   * distance apart.
+   * @param all second match list
+   * @param win maximum distance between the first and last position
+   * @return true if matches are left
+   */
+  public boolean and(final FTMatches all, final int win) {
+    int c = 0;
+    for(int a = 0; a < size; ++a) {
+      final FTMatch m = match[a];
+      for(final FTMatch n : all) m.add(n);
+      if(m.span() <= win) match[c++] = m;
+    }
+    size = c;
+    return size != 0;
+  }
+
   @Override
   public Iterator<FTMatch> iterator() {
     return new Iterator<FTMatch>() {
@@ -0,0 +1,341 @@
+package org.basex.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import org.basex.io.DataInput;
+import org.basex.io.DataOutput;
+
+/**
+ * This class maps node ids to pre values. The table is divided into runs of
+ * nodes with ascending ids and pre values. The runs are organized in a
+ * balanced tree (treap) in the order of their pre values. Each tree node
+ * stores the number of nodes in its subtree, so the pre value of a run can be
+ * computed, and runs can be inserted and deleted, in logarithmic time.
+ * Runs are additionally indexed by their first id. The map is stored in the
+ * database meta data.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class IdPreMap {
+  /** Runs, indexed by their first id. */
+  private final TreeMap<Integer, Run> ids = new TreeMap<Integer, Run>();
+  /** Root of the tree, containing all runs in the order of their pre values. */
+  private Run root;
+
+  /** Left tree, returned by {@link #split(Run, int)}. */
+  private Run left;
+  /** Right tree, returned by {@link #split(Run, int)}. */
+  private Run right;
+  /** Offset in the run that has been returned by {@link #find(int)}. */
+  private int off;
+
+  /**
+   * Constructor, creating a map for a table with identical ids and
+   * pre values.
+   * @param size table size
+   */
+  public IdPreMap(final int size) {
+    if(size != 0) append(new Run(0, size));
+  }
+
+  /**
+   * Constructor, creating the map from the ids of the specified table.
+   * @param data data reference
+   */
+  public IdPreMap(final Data data) {
+    final int s = data.meta.size;
+    for(int p = 0; p < s;) {
+      // find run with ascending ids
+      final int id = data.id(p);
+      int q = p + 1;
+      while(q < s && data.id(q) == id + q - p) ++q;
+      append(new Run(id, q - p));
+      p = q;
+    }
+  }
+
+  /**
+   * Constructor, reading the map from disk.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  public IdPreMap(final DataInput in) throws IOException {
+    // runs are stored in the order of their ids
+    final int rows = in.readNum();
+    final Run[] runs = new Run[rows];
+    final long[] srt = new long[rows];
+    for(int r = 0; r < rows; ++r) {
+      final int id = in.readNum();
+      final int pre = in.readNum();
+      runs[r] = new Run(id, in.readNum());
+      srt[r] = (long) pre << 32 | r;
+    }
+    Arrays.sort(srt);
+    for(final long s : srt) append(runs[(int) s]);
+  }
+
+  /**
+   * Writes the map to disk.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  public void write(final DataOutput out) throws IOException {
+    out.writeNum(ids.size());
+    for(final Run r : ids.values()) {
+      out.writeNum(r.id);
+      out.writeNum(start(r));
+      out.writeNum(r.size);
+    }
+  }
+
+  /**
+   * Returns the pre value of the specified id.
+   * @param id node id
+   * @return pre value, or {@code -1} if the id is unknown
+   */
+  public int pre(final int id) {
+    final Map.Entry<Integer, Run> e = ids.floorEntry(id);
+    if(e == null) return -1;
+    final Run r = e.getValue();
+    return id - r.id >= r.size ? -1 : start(r) + id - r.id;
+  }
+
+  /**
+   * Registers the insertion of nodes with ascending ids.
+   * @param pre pre value of the first inserted node
+   * @param id id of the first inserted node
+   * @param c number of inserted nodes
+   */
+  public void insert(final int pre, final int id, final int c) {
+    if(c == 0) return;
+
+    cut(pre);
+    // extend preceding run
+    final Run p = pre == 0 ? null : find(pre - 1);
+    if(p != null && p.id + p.size == id) {
+      resize(p, c);
+    } else {
+      add(pre, new Run(id, c));
+    }
+  }
+
+  /**
+   * Registers the deletion of nodes.
+   * @param pre pre value of the first deleted node
+   * @param c number of deleted nodes
+   */
+  public void delete(final int pre, final int c) {
+    if(c == 0) return;
+
+    cut(pre);
+    cut(pre + c);
+    split(root, pre);
+    final Run l = left;
+    split(right, c);
+    final Run r = right;
+    remove(left);
+    root(merge(l, r));
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Appends a run.
+   * @param r run
+   */
+  private void append(final Run r) {
+    ids.put(r.id, r);
+    root(merge(root, r));
+  }
+
+  /**
+   * Adds a run at the specified pre value, which must be the start of a run
+   * or the end of the table.
+   * @param pre pre value
+   * @param r run
+   */
+  private void add(final int pre, final Run r) {
+    ids.put(r.id, r);
+    split(root, pre);
+    final Run rt = right;
+    root(merge(merge(left, r), rt));
+  }
+
+  /**
+   * Removes all runs of the specified tree from the id index.
+   * @param t tree
+   */
+  private void remove(final Run t) {
+    if(t == null) return;
+    ids.remove(t.id);
+    remove(t.left);
+    remove(t.right);
+  }
+
+  /**
+   * Splits the run containing the specified pre value, unless the pre value
+   * is the start of a run.
+   * @param pre pre value
+   */
+  private void cut(final int pre) {
+    final Run r = find(pre);
+    if(r == null || off == 0) return;
+    final Run n = new Run(r.id + off, r.size - off);
+    resize(r, -n.size);
+    add(pre, n);
+  }
+
+  /**
+   * Returns the run containing the specified pre value and assigns the offset
+   * of the pre value in the run.
+   * @param pre pre value
+   * @return run, or {@code null} if the pre value is out of range
+   */
+  private Run find(final int pre) {
+    int p = pre;
+    Run t = root;
+    while(t != null) {
+      final int ls = sum(t.left);
+      if(p < ls) {
+        t = t.left;
+      } else if(p < ls + t.size) {
+        off = p - ls;
+        return t;
+      } else {
+        p -= ls + t.size;
+        t = t.right;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the pre value of the first node of the specified run.
+   * @param r run
+   * @return pre value
+   */
+  private static int start(final Run r) {
+    int s = sum(r.left);
+    for(Run t = r; t.parent != null; t = t.parent) {
+      if(t.parent.right == t) s += sum(t.parent.left) + t.parent.size;
+    }
+    return s;
+  }
+
+  /**
+   * Changes the size of a run.
+   * @param r run
+   * @param c number of added or removed nodes
+   */
+  private static void resize(final Run r, final int c) {
+    r.size += c;
+    for(Run t = r; t != null; t = t.parent) t.sum += c;
+  }
+
+  /**
+   * Splits a tree into a {@link #left} tree with the specified number of
+   * nodes and a {@link #right} tree. The number of nodes must be a run
+   * boundary.
+   * @param t tree
+   * @param n number of nodes in the left tree
+   */
+  private void split(final Run t, final int n) {
+    if(t == null) {
+      left = null;
+      right = null;
+      return;
+    }
+    final int ls = sum(t.left);
+    if(n <= ls) {
+      split(t.left, n);
+      t.left = right;
+      update(t);
+      right = t;
+    } else {
+      split(t.right, n - ls - t.size);
+      t.right = left;
+      update(t);
+      left = t;
+    }
+  }
+
+  /**
+   * Merges two trees.
+   * @param l left tree
+   * @param r right tree
+   * @return merged tree
+   */
+  private static Run merge(final Run l, final Run r) {
+    if(l == null) return r;
+    if(r == null) return l;
+    if(l.prio > r.prio) {
+      l.right = merge(l.right, r);
+      update(l);
+      return l;
+    }
+    r.left = merge(l, r.left);
+    update(r);
+    return r;
+  }
+
+  /**
+   * Assigns a new root.
+   * @param t tree
+   */
+  private void root(final Run t) {
+    root = t;
+    if(t != null) t.parent = null;
+  }
+
+  /**
+   * Updates the number of nodes and the parent references of a tree.
+   * @param t tree
+   */
+  private static void update(final Run t) {
+    t.sum = sum(t.left) + t.size + sum(t.right);
+    if(t.left != null) t.left.parent = t;
+    if(t.right != null) t.right.parent = t;
+  }
+
+  /**
+   * Returns the number of nodes of a tree.
+   * @param t tree
+   * @return number of nodes
+   */
+  private static int sum(final Run t) {
+    return t == null ? 0 : t.sum;
+  }
+
+  /** Run of nodes with ascending ids and pre values. */
+  private static final class Run {
+    /** First id. */
+    final int id;
+    /** Priority in the tree. */
+    final int prio;
+    /** Number of nodes. */
+    int size;
+    /** Number of nodes in the subtree. */
+    int sum;
+    /** Left subtree. */
+    Run left;
+    /** Right subtree. */
+    Run right;
+    /** Parent. */
+    Run parent;
+
+    /**
+     * Constructor.
+     * @param i first id
+     * @param s number of nodes
+     */
+    Run(final int i, final int s) {
+      id = i;
+      size = s;
+      sum = s;
+      prio = i * 0x9E3779B9;
+    }
+  }
+}
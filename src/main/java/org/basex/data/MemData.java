@@ -91,6 +91,31 @@ public final class MemData extends Data {
   @Override
   public void text(final int pre, final byte[] val, final boolean txt) {
     textOff(pre, index(val, meta.size, txt));
+    dropIndex();
+  }
+
+  @Override
+  protected void indexInsert(final int pre, final int s) {
+    dropIndex();
+  }
+
+  @Override
+  protected void indexDelete(final int pre, final int s) {
+    dropIndex();
+  }
+
+  @Override
+  protected void indexAppend(final int pre) {
+    // no full-text index in main memory
+  }
+
+  /**
+   * Invalidates the value indexes. The pre values of the main memory
+   * structures are not updated, as they also serve as text storage.
+   */
+  private void dropIndex() {
+    meta.textindex = false;
+    meta.attrindex = false;
   }
 
   @Override
@@ -11,6 +11,7 @@ import org.basex.core.Users;
 import org.basex.io.DataInput;
 import org.basex.io.DataOutput;
 import org.basex.io.IO;
+import org.basex.io.Journal;
 import org.basex.util.Util;
 import org.basex.util.ft.Language;
 
@@ -75,6 +76,8 @@ public final class MetaData {
   public boolean uptodate = true;
   /** Dirty flag. */
   public boolean dirty;
+  /** Journal of a disk-based database, or {@code null}. */
+  public Journal journal;
   /** Flag for out-of-dates indexes. */
   public boolean oldindex;
   /** Table size. */
@@ -168,6 +171,17 @@ public final class MetaData {
     return file(name, fn, prop);
   }
 
+  /**
+   * Returns an output stream for rewriting the specified database file.
+   * If a journal exists, the file contents will be written to the journal.
+   * @param fn filename
+   * @return output stream
+   * @throws IOException I/O exception
+   */
+  public DataOutput output(final String fn) throws IOException {
+    return journal != null ? journal.output(fn) : new DataOutput(file(fn));
+  }
+
   /**
    * Creates a database file instance.
    * @param db name of the database
@@ -180,15 +194,13 @@ public final class MetaData {
   }
 
   /**
-   * Notifies the meta structures of an update and invalidates the indexes.
+   * Notifies the meta structures of an update and invalidates the full-text
+   * index. Value indexes are updated by the {@link Data} instances.
    */
   void update() {
     time = System.currentTimeMillis();
     uptodate = false;
     dirty = true;
-    // reset of flags should be skipped as soon as id/pre mapping is supported
-    textindex = false;
-    attrindex = false;
     ftindex = false;
     paths.update();
   }
@@ -104,6 +104,20 @@ public final class PathNode {
     for(final PathNode n : ch) n.addDesc(nodes);
   }
 
+  /**
+   * Returns the number of text nodes below this node.
+   * @return number of text nodes, or {@code -1} if the node has other
+   * children than texts and attributes
+   */
+  public int texts() {
+    int tx = 0;
+    for(final PathNode c : ch) {
+      if(c.kind == Data.TEXT) tx += c.size;
+      else if(c.kind != Data.ATTR) return -1;
+    }
+    return tx;
+  }
+
   /**
    * Returns a readable representation of this node.
    * @param data data reference
@@ -48,7 +48,7 @@ public final class StatsKey {
     cats = new TokenSet();
     kind = Kind.INT;
     min = Double.MAX_VALUE;
-    max = Double.MIN_VALUE;
+    max = -Double.MAX_VALUE;
     leaf = true;
     maxcats = c;
   }
@@ -136,7 +136,8 @@ public final class StatsKey {
     if(kind == Kind.DBL) {
       final double d = toDouble(val);
       if(Double.isNaN(d)) {
-        kind = cats.size() <= maxcats ? Kind.CAT : Kind.TEXT;
+        // categories of numeric statistics are not stored
+        kind = cats != null && cats.size() <= maxcats ? Kind.CAT : Kind.TEXT;
       } else {
         if(min > d) min = d;
         if(max < d) max = d;
@@ -3,10 +3,15 @@ package org.basex.index;
 import static org.basex.core.Text.*;
 import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
+import java.io.File;
 import java.io.IOException;
 import org.basex.data.Data;
+import org.basex.data.IdPreMap;
 import org.basex.io.DataAccess;
+import org.basex.io.DataInput;
+import org.basex.io.DataOutput;
 import org.basex.util.IntList;
+import org.basex.util.IntSet;
 import org.basex.util.Num;
 import org.basex.util.Performance;
 import org.basex.util.TokenBuilder;
@@ -15,16 +20,30 @@ import org.basex.util.TokenBuilder;
  * This class provides access to attribute values and text contents
  * stored on disk.
  *
+ * <p>Updates are absorbed incrementally: the pre values of the index files
+ * are mapped to the current pre values, entries of replaced values are
+ * skipped, and new values are added to a main memory delta index, which
+ * references node ids. The update state is stored in a separate file and
+ * dropped as soon as the index is rebuilt. The index is rebuilt, and the delta
+ * index is merged into the index files, if too many nodes have been
+ * updated (see {@link #full()}).</p>
+ *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
 public final class DiskValues implements Index {
+  /** Minimum number of updated nodes that trigger a rebuild. */
+  private static final int MERGE = 1 << 12;
+  /** Size of an entry in the file with numeric keys. */
+  private static final int NUM = 16;
   /** Number of hash entries. */
   private final int size;
   /** ID references. */
   private final DataAccess idxr;
   /** ID lists. */
   private final DataAccess idxl;
+  /** Numeric keys, sorted by their values ({@code null} if not available). */
+  private final DataAccess idxn;
   /** Value type (texts/attributes). */
   private final boolean text;
   /** Values file. */
@@ -33,6 +52,22 @@ public final class DiskValues implements Index {
   private final IndexCache cache = new IndexCache();
   /** Cached texts. Increases used memory, but speeds up repeated queries. */
   private final byte[][] ctext;
+  /** Name of the update state file. */
+  private final String state;
+
+  /** Mapping from the indexed to the current pre values
+   * ({@code null} if the index has not been updated). */
+  private IdPreMap pres;
+  /** Next id of inserted nodes in the pre value mapping. */
+  private int next;
+  /** Ids of indexed nodes with replaced values. */
+  private IntSet removed;
+  /** Entries with deleted or replaced first nodes; their texts are cached. */
+  private IntSet pinned;
+  /** Delta index, referencing the ids of nodes with new values. */
+  private MemValues delta;
+  /** Indicates if the update state has been changed. */
+  private boolean dirty;
 
   /**
    * Constructor, initializing the index structure.
@@ -55,10 +90,32 @@ public final class DiskValues implements Index {
       throws IOException {
     data = d;
     text = txt;
-    idxl = new DataAccess(d.meta.file(pre + 'l'));
-    idxr = new DataAccess(d.meta.file(pre + 'r'));
+    idxl = new DataAccess(d.meta.file(pre + 'l'), d.meta.prop);
+    idxr = new DataAccess(d.meta.file(pre + 'r'), d.meta.prop);
     size = idxl.read4();
     ctext = new byte[size][];
+    final File num = d.meta.file(pre + 'n');
+    idxn = num.exists() ? new DataAccess(num, d.meta.prop) : null;
+
+    // read update state
+    state = pre + 'd';
+    final File file = d.meta.file(state);
+    if(!file.exists()) return;
+    final DataInput in = new DataInput(file);
+    try {
+      pres = new IdPreMap(in);
+      next = in.readNum();
+      removed = new IntSet();
+      for(final int id : in.readNums()) removed.add(id);
+      pinned = new IntSet();
+      for(final int m : in.readNums()) {
+        pinned.add(m);
+        ctext[m] = in.readBytes();
+      }
+      delta = new MemValues(in);
+    } finally {
+      in.close();
+    }
   }
 
   @Override
@@ -69,8 +126,9 @@ public final class DiskValues implements Index {
     tb.add(SIZEDISK + Performance.format(l, true) + NL);
     final IndexStats stats = new IndexStats(data);
     for(int m = 0; m < size; ++m) {
-      final int oc = idxl.readNum(idxr.read5(m * 5L));
-      if(stats.adding(oc)) stats.add(data.text(idxl.readNum(), text));
+      final long pos = idxr.read5(m * 5L);
+      final int oc = idxl.readNum(pos);
+      if(stats.adding(oc)) stats.add(key(m, pos));
     }
     stats.print(tb);
     return tb.finish();
@@ -80,26 +138,33 @@ public final class DiskValues implements Index {
   public IndexIterator ids(final IndexToken tok) {
     if(tok instanceof RangeToken) return idRange((RangeToken) tok);
 
+    final IntList ids = new IntList();
     final int id = cache.id(tok.get());
-    if(id > 0) return iter(cache.size(id), cache.pointer(id));
-
-    final long pos = get(tok.get());
-    return pos == 0 ? IndexIterator.EMPTY : iter(idxl.readNum(pos), idxl.pos());
+    if(id > 0) {
+      add(ids, cache.size(id), cache.pointer(id));
+    } else {
+      final long pos = get(tok.get());
+      if(pos != 0) add(ids, idxl.readNum(pos), idxl.pos());
+    }
+    if(delta != null && add(ids, delta.id(tok.get()))) ids.sort();
+    return iter(ids);
   }
 
   @Override
   public int nrIDs(final IndexToken it) {
-    if(it instanceof RangeToken) return idRange((RangeToken) it).size();
+    if(it instanceof RangeToken) return nrRange((RangeToken) it);
     final byte[] tok = it.get();
+    // entries of the delta index are added to the (estimated) number of ids
+    final int d = delta != null ? delta.len[delta.id(tok)] : 0;
     final int id = cache.id(tok);
-    if(id > 0) return cache.size(id);
+    if(id > 0) return cache.size(id) + d;
 
     final long pos = get(tok);
-    if(pos == 0) return 0;
+    if(pos == 0) return d;
     final int numPre =  idxl.readNum(pos);
     cache.add(it.get(), numPre, pos + Num.len(numPre));
 
-    return numPre;
+    return numPre + d;
   }
 
   /**
@@ -113,21 +178,163 @@ public final class DiskValues implements Index {
     return idxl.readBytes(v, s);
   }
 
+  // UPDATE OPERATIONS ========================================================
+
+  /**
+   * Indexes nodes that have been inserted into the table.
+   * @param pre pre value of the first node
+   * @param s number of nodes
+   */
+  public void insert(final int pre, final int s) {
+    init(data.meta.size - s);
+    pres.insert(pre, next, s);
+    next += s;
+    final int k = text ? Data.TEXT : Data.ATTR;
+    for(int p = pre; p < pre + s; ++p) {
+      if(data.kind(p) == k && data.textLen(p, text) <= MAXLEN)
+        delta.index(data.text(p, text), data.id(p));
+    }
+  }
+
+  /**
+   * Removes nodes from the index. Must be called before the nodes are
+   * deleted from the table.
+   * @param pre pre value of the first node
+   * @param s number of nodes
+   */
+  public void delete(final int pre, final int s) {
+    init(data.meta.size);
+    final int k = text ? Data.TEXT : Data.ATTR;
+    for(int p = pre; p < pre + s; ++p) {
+      if(data.kind(p) == k && data.textLen(p, text) <= MAXLEN)
+        pin(data.text(p, text));
+    }
+    // deleted nodes will be skipped by the pre value mapping
+    pres.delete(pre, s);
+  }
+
+  /**
+   * Updates the index for a replaced value. Must be called before the
+   * value is replaced in the table.
+   * @param pre pre value
+   * @param old old value
+   * @param val new value
+   */
+  public void replace(final int pre, final byte[] old, final byte[] val) {
+    if(data.kind(pre) != (text ? Data.TEXT : Data.ATTR)) return;
+    init(data.meta.size);
+    final int id = data.id(pre);
+    if(old.length <= MAXLEN) {
+      pin(old);
+      delta.delete(old, id);
+    }
+    removed.add(id);
+    if(val.length <= MAXLEN) delta.index(val, id);
+  }
+
   /**
-   * Iterator method.
+   * Checks if the index should be rebuilt. This is the case if the number of
+   * deleted nodes and replaced and new values exceeds an eighth of the table
+   * size, or {@link #MERGE} if the table is smaller.
+   * @return result of check
+   */
+  public boolean full() {
+    if(pres == null) return false;
+    // the pre value mapping contains the ids of all deleted nodes
+    long c = next - data.meta.size + removed.size();
+    for(int i = 1; i <= delta.size(); ++i) c += delta.len[i];
+    return c > Math.max(MERGE, data.meta.size >>> 3);
+  }
+
+  /**
+   * Writes the update state to disk.
+   * @throws IOException I/O exception
+   */
+  public synchronized void flush() throws IOException {
+    if(!dirty) return;
+    final DataOutput out = data.meta.output(state);
+    pres.write(out);
+    out.writeNum(next);
+    final int[] ids = new int[removed.size()];
+    for(int i = 0; i < ids.length; ++i) ids[i] = removed.key(i + 1);
+    out.writeNums(ids);
+    final int[] ms = new int[pinned.size()];
+    for(int i = 0; i < ms.length; ++i) ms[i] = pinned.key(i + 1);
+    out.writeNums(ms);
+    for(final int m : ms) out.writeToken(ctext[m]);
+    delta.write(out);
+    out.close();
+    dirty = false;
+  }
+
+  /**
+   * Initializes the update state.
+   * @param s table size before the update
+   */
+  private void init(final int s) {
+    dirty = true;
+    if(pres != null) return;
+    pres = new IdPreMap(s);
+    next = s;
+    removed = new IntSet();
+    pinned = new IntSet();
+    delta = new MemValues();
+  }
+
+  /**
+   * Caches the text of the index entry for the specified key. Called before
+   * a node with this key is deleted or replaced.
+   * @param key key
+   */
+  private void pin(final byte[] key) {
+    final int m = index(key);
+    if(m >= 0) pinned.add(m);
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the current pre value of an indexed pre value.
+   * @param p indexed pre value
+   * @return pre value, or {@code -1} if the node has been deleted
+   *   or if its value has been replaced
+   */
+  private int pre(final int p) {
+    if(pres == null) return p;
+    final int pre = pres.pre(p);
+    return pre == -1 || removed.size() != 0 && removed.id(data.id(pre)) != 0 ?
+        -1 : pre;
+  }
+
+  /**
+   * Adds the current pre values of an index entry to the specified list.
+   * @param ids pre values
    * @param s number of pre values
    * @param ps offset
-   * @return iterator
    */
-  private IndexIterator iter(final int s, final long ps) {
-    final IntList ids = new IntList(s);
+  private void add(final IntList ids, final int s, final long ps) {
     long p = ps;
     for(int l = 0, v = 0; l < s; ++l) {
       v += idxl.readNum(p);
       p = idxl.pos();
-      ids.add(v);
+      final int pre = pre(v);
+      if(pre != -1) ids.add(pre);
     }
-    return iter(ids);
+  }
+
+  /**
+   * Adds the pre values of an entry of the delta index to the specified list.
+   * @param ids pre values
+   * @param i delta index entry
+   * @return true if pre values have been added
+   */
+  private boolean add(final IntList ids, final int i) {
+    final int s = ids.size();
+    for(int l = 0; l < delta.len[i]; ++l) {
+      final int pre = data.pre(delta.ids[i][l]);
+      if(pre != -1) ids.add(pre);
+    }
+    return ids.size() != s;
   }
 
   /**
@@ -145,25 +352,116 @@ public final class DiskValues implements Index {
       token(min).length == len;
 
     final IntList ids = new IntList();
+    if(idxn != null) {
+      // find first numeric key in range and add entries until max is exceeded
+      final int ns = (int) (idxn.length() / NUM);
+      for(int l = first(min, false); l < ns && number(l) <= max; ++l) {
+        final long pos = idxr.read5(idxn.read4() * 5L);
+        final int ds = idxl.readNum(pos);
+        add(ids, ds, pos + Num.len(ds));
+      }
+      return iter(delta(ids, min, max).sort());
+    }
+
     for(int l = 0; l < size; ++l) {
-      final int ds = idxl.readNum(idxr.read5(l * 5L));
-      int pre = idxl.readNum();
-      final double v = data.textDbl(pre, text);
+      final long pos = idxr.read5(l * 5L);
+      final int ds = idxl.readNum(pos);
+      final byte[] key = ctext[l];
+      final int pre = key == null ? pre(idxl.readNum()) : 0;
+      final double v = key != null ? toDouble(key) : data.textDbl(pre, text);
 
       if(v >= min && v <= max) {
         // value is in range
-        for(int d = 0; d < ds; ++d) {
-          ids.add(pre);
-          pre += idxl.readNum();
-        }
-      } else if(simple && v > max && data.textLen(pre, text) == len) {
+        add(ids, ds, pos + Num.len(ds));
+      } else if(simple && v > max &&
+          (key != null ? key.length : data.textLen(pre, text)) == len) {
         // if limits are integers, if min, max and current value have the same
         // string length, and if current value is larger than max, test can be
         // skipped, as all remaining values will be bigger
         break;
       }
     }
-    return iter(ids.sort());
+    return iter(delta(ids, min, max).sort());
+  }
+
+  /**
+   * Returns the number of ids in the specified range. If numeric keys are
+   * available, the number is computed from the accumulated numbers of ids of
+   * the first keys that reach the minimum and exceed the maximum, and the pre
+   * values are not decoded. The number of ids of the delta index is added.
+   * @param tok index term
+   * @return number of ids
+   */
+  private int nrRange(final RangeToken tok) {
+    if(idxn == null) return idRange(tok).size();
+
+    final double min = tok.min;
+    final double max = tok.max;
+    int n = ids(first(max, true)) - ids(first(min, false));
+    if(delta != null) {
+      for(int i = 1; i <= delta.size(); ++i) {
+        final double v = toDouble(delta.key(i));
+        if(v >= min && v <= max) n += delta.len[i];
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Returns the offset of the first numeric key that is greater than or equal
+   * to the specified value, or greater than the value if {@code gt} is true.
+   * @param v value
+   * @param gt return first key greater than the value
+   * @return offset
+   */
+  private int first(final double v, final boolean gt) {
+    int l = 0, h = (int) (idxn.length() / NUM);
+    while(l < h) {
+      final int m = l + h >>> 1;
+      final double d = number(m);
+      if(d < v || gt && d == v) l = m + 1;
+      else h = m;
+    }
+    return l;
+  }
+
+  /**
+   * Returns the accumulated number of ids of all numeric keys before the
+   * specified offset.
+   * @param n offset of the numeric key
+   * @return number of ids
+   */
+  private int ids(final int n) {
+    return n == 0 ? 0 : idxn.read4(n * (long) NUM - 4);
+  }
+
+  /**
+   * Adds the pre values of the delta index entries in the specified range.
+   * @param ids pre values
+   * @param min minimum value
+   * @param max maximum value
+   * @return pre values
+   */
+  private IntList delta(final IntList ids, final double min,
+      final double max) {
+    if(delta != null) {
+      for(int i = 1; i <= delta.size(); ++i) {
+        final double v = toDouble(delta.key(i));
+        if(v >= min && v <= max) add(ids, i);
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Returns the value of the specified numeric key. The file pointer is
+   * moved to the offset of the key entry.
+   * @param n offset of the numeric key
+   * @return value
+   */
+  private double number(final int n) {
+    final long hi = idxn.read4(n * (long) NUM);
+    return Double.longBitsToDouble(hi << 32 | idxn.read4() & 0xFFFFFFFFL);
   }
 
   /**
@@ -191,28 +489,50 @@ public final class DiskValues implements Index {
    * @return id offset
    */
   private long get(final byte[] key) {
+    final int m = index(key);
+    return m < 0 ? 0 : idxr.read5(m * 5L);
+  }
+
+  /**
+   * Returns the index of the entry for the specified token,
+   * or {@code -1} if the token is not found.
+   * @param key token to be found
+   * @return entry index
+   */
+  private int index(final byte[] key) {
     int l = 0, h = size - 1;
     while(l <= h) {
       final int m = l + h >>> 1;
-      final long pos = idxr.read5(m * 5L);
-      idxl.readNum(pos);
-      final int pre = idxl.readNum();
-      byte[] txt = ctext[m];
-      if(ctext[m] == null) {
-        txt = data.text(pre, text);
-        ctext[m] = txt;
-      }
-      final int d = diff(txt, key);
-      if(d == 0) return pos;
+      final int d = diff(key(m, idxr.read5(m * 5L)), key);
+      if(d == 0) return m;
       if(d < 0) l = m + 1;
       else h = m - 1;
     }
-    return 0;
+    return -1;
+  }
+
+  /**
+   * Returns the text of the specified entry. Texts are cached, and they are
+   * taken from the first node of the entry.
+   * @param m entry index
+   * @param pos id offset
+   * @return text
+   */
+  private byte[] key(final int m, final long pos) {
+    byte[] txt = ctext[m];
+    if(txt == null) {
+      idxl.readNum(pos);
+      txt = data.text(pre(idxl.readNum()), text);
+      ctext[m] = txt;
+    }
+    return txt;
   }
 
   @Override
   public synchronized void close() throws IOException {
+    if(pres != null) flush();
     idxl.close();
     idxr.close();
+    if(idxn != null) idxn.close();
   }
 }
@@ -1,18 +1,25 @@
 package org.basex.index;
 
 import static org.basex.core.Text.*;
-import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.basex.core.Prop;
 import org.basex.core.cmd.DropDB;
 import org.basex.data.Data;
 import org.basex.io.DataOutput;
 import org.basex.io.IO;
+import org.basex.util.ByteList;
 import org.basex.util.IntList;
 import org.basex.util.Num;
 import org.basex.util.Performance;
 import org.basex.util.TokenBuilder;
+import org.basex.util.TokenList;
 import org.basex.util.ft.FTFlag;
 import org.basex.util.ft.FTLexer;
 import org.basex.util.ft.FTOpt;
@@ -23,17 +30,25 @@ import org.basex.util.Util;
 
 /**
  * This class contains common methods for full-text index builders.
+ * If more than one thread is available, texts are tokenized in parallel,
+ * and the resulting tokens are indexed in the order of their pre values.
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
 public abstract class FTBuilder extends IndexBuilder {
+  /** Number of nodes tokenized by a single task. */
+  private static final int BLOCK = 1 << 12;
   /** Word parser. */
   protected final FTLexer lex;
   /** Current lexer position. */
   protected int pos;
   /** Scoring mode; see {@link Prop#SCORING}. */
   protected final int scm;
+  /** Segment id. */
+  protected final int id;
+  /** File prefix of the segment. */
+  protected final String pref;
   /** Number of indexed tokens. */
   protected long ntok;
   /** Number of cached index structures. */
@@ -48,9 +63,11 @@ public abstract class FTBuilder extends IndexBuilder {
   /** Container for number of documents with token i. IDF: n(i). */
   private int[] ntoken;
   /** Maximum scoring value. */
-  private int max;
+  int max;
   /** Minimum scoring value. */
-  private int min;
+  int min;
+  /** First pre value to be indexed. */
+  private final int start;
   /** Current token. */
   private int token;
   /** Current frequency. */
@@ -63,16 +80,36 @@ public abstract class FTBuilder extends IndexBuilder {
    * @throws IOException IOException
    */
   public static FTBuilder get(final Data d) throws IOException {
-    return d.meta.wildcards ? new FTTrieBuilder(d) : new FTFuzzyBuilder(d);
+    return get(d, 0, 0);
+  }
+
+  /**
+   * Returns a new full-text index builder for a single index segment.
+   * @param d data reference
+   * @param i segment id
+   * @param s first pre value to be indexed
+   * @return index builder
+   * @throws IOException IOException
+   */
+  static FTBuilder get(final Data d, final int i, final int s)
+      throws IOException {
+    return d.meta.wildcards ? new FTTrieBuilder(d, i, s) :
+      new FTFuzzyBuilder(d, i, s);
   }
 
   /**
    * Constructor.
    * @param d data reference
+   * @param i segment id
+   * @param s first pre value to be indexed
    * @throws IOException IOException
    */
-  protected FTBuilder(final Data d) throws IOException {
+  protected FTBuilder(final Data d, final int i, final int s)
+      throws IOException {
     super(d);
+    id = i;
+    pref = FTIndex.prefix(i);
+    start = s;
 
     final Prop prop = d.meta.prop;
     final FTOpt opt = new FTOpt();
@@ -93,6 +130,19 @@ public abstract class FTBuilder extends IndexBuilder {
     lex = new FTLexer(opt);
   }
 
+  @Override
+  public final Index build() throws IOException {
+    index();
+    return new FTSegments(data, open());
+  }
+
+  /**
+   * Opens the index segment that has been built.
+   * @return index segment
+   * @throws IOException I/O exception
+   */
+  abstract FTIndex open() throws IOException;
+
   /**
    * Extracts and indexes words from the specified data reference.
    * @throws IOException IO exception
@@ -104,32 +154,31 @@ public abstract class FTBuilder extends IndexBuilder {
     final Performance perf = Util.debug ? new Performance() : null;
     Util.debug(det());
 
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0xFFFF) == 0) check();
-
-      final int k = data.kind(pre);
-      if(k != Data.TEXT) {
-        if(scm == 1 && k == Data.DOC) unit.add(pre);
-        continue;
+    if(threads == 1) {
+      for(int p = start; p < size; p += BLOCK) {
+        index(new Tokens(p, Math.min(p + BLOCK, size)).call());
       }
-      if(scm == 2) unit.add(pre);
-
-      pos = -1;
-      final StopWords sw = lex.ftOpt().sw;
-      lex.init(data.text(pre, true));
-      while(lex.hasNext()) {
-        final byte[] tok = lex.nextToken();
-        ++pos;
-        // skip too long and stopword tokens
-        if(tok.length <= MAXLEN && (sw.size() == 0 || sw.id(tok) == 0)) {
-          // check if main memory is exhausted
-          if((ntok++ & 0xFFF) == 0 && scm == 0 && memFull()) {
-            // currently no frequency support for tfidf based scoring
-            writeIndex(csize++);
-            Performance.gc(2);
+    } else {
+      // tokenize blocks in parallel; keep a limited number of blocks in memory
+      final ExecutorService pool = Executors.newFixedThreadPool(threads);
+      final LinkedList<Future<Tokens>> queue = new LinkedList<Future<Tokens>>();
+      try {
+        for(int p = start; p < size || !queue.isEmpty();) {
+          while(p < size && queue.size() < threads << 1) {
+            queue.add(pool.submit(new Tokens(p, Math.min(p + BLOCK, size))));
+            p += BLOCK;
           }
-          index(tok);
+          index(queue.removeFirst().get());
         }
+      } catch(final InterruptedException ex) {
+        throw new IOException(ex.toString());
+      } catch(final ExecutionException ex) {
+        final Throwable th = ex.getCause();
+        if(th instanceof RuntimeException) throw (RuntimeException) th;
+        if(th instanceof Error) throw (Error) th;
+        throw new IOException(th.toString());
+      } finally {
+        pool.shutdownNow();
       }
     }
 
@@ -145,17 +194,50 @@ public abstract class FTBuilder extends IndexBuilder {
     token = 0;
     write();
 
-    // set meta data
-    if(scm > 0) {
-      data.meta.maxscore = max;
-      data.meta.minscore = min;
+    // set meta data; scoring values of other segments are stored separately
+    if(id == 0) {
+      if(scm > 0) {
+        data.meta.maxscore = max;
+        data.meta.minscore = min;
+      }
+      data.meta.ftindex = true;
     }
-    data.meta.ftindex = true;
     data.meta.dirty = true;
 
     Util.gc(perf);
   }
 
+  /**
+   * Indexes the tokens of a single block.
+   * @param t tokens
+   * @throws IOException I/O exception
+   */
+  private void index(final Tokens t) throws IOException {
+    final int ts = t.toks.size();
+    int i = 0;
+    for(pre = t.start; pre < t.end; ++pre) {
+      if((pre & 0xFFFF) == 0) check();
+
+      final int k = data.kind(pre);
+      if(k != Data.TEXT) {
+        if(scm == 1 && k == Data.DOC) unit.add(pre);
+        continue;
+      }
+      if(scm == 2) unit.add(pre);
+
+      for(; i < ts && t.pres.get(i) == pre; ++i) {
+        pos = t.poss.get(i);
+        // check if main memory is exhausted
+        if((ntok++ & 0xFFF) == 0 && scm == 0 && memFull()) {
+          // currently no frequency support for tfidf based scoring
+          writeIndex(csize++);
+          Performance.gc(2);
+        }
+        index(t.toks.get(i));
+      }
+    }
+  }
+
   /**
    * Calculates the tf-idf data for a single token.
    * @param vpre pre values for a token
@@ -230,7 +312,25 @@ public abstract class FTBuilder extends IndexBuilder {
 
   /**
    * Writes full-text data for a single token to disk.<br/>
-   * Format: {@code score? pre1 pos1 pre2 pos2 ... (0 score)? pre...}
+   * Format: {@code groups size bytes max? (pre offset max?)*
+   * (score? pre num bytes pos1 ...)*}
+   * <ul>
+   * <li>{@code groups} is the number of distinct pre values,
+   * {@code size} the byte size of the subsequent skip pointers, and
+   * {@code bytes} the byte size of all entries.</li>
+   * <li>If scoring is enabled, {@code max} is the maximum scoring value
+   * of all entries.</li>
+   * <li>The pre values are divided into blocks of {@link FTIndex#SKIP}
+   * entries. A skip pointer, consisting of the first pre value, the
+   * byte offset and the optional maximum scoring value of the block, is
+   * stored for each block except the first one.</li>
+   * <li>Each entry contains the optional scoring value, the pre value,
+   * the number of positions, the byte size of the positions and the
+   * positions of the token. Pre values are stored as distances to the
+   * previous value of the same block. The byte sizes allow readers to
+   * fetch single blocks, and to skip the positions of entries that are not
+   * part of the result.</li>
+   * </ul>
    * @param out DataOutput for disk access
    * @param vpre compressed pre values
    * @param vpos compressed pos values
@@ -239,36 +339,62 @@ public abstract class FTBuilder extends IndexBuilder {
   protected final void writeFTData(final DataOutput out, final byte[] vpre,
       final byte[] vpos) throws IOException {
 
-    int np = 4, pp = 4, lp = -1, lu = -1;
+    final ByteList entries = new ByteList();
+    final IntList skips = new IntList();
+    int np = 4, pp = 4, lp = 0, lu = -1, sc = 0, sm = 0, g = 0;
     final int ns = Num.size(vpre);
     while(np < ns) {
+      final int p = Num.read(vpre, np);
       if(scm > 0) {
-        final int p = Num.read(vpre, np);
-        if(lp != p) {
-          // new pre value: find document root
-          int u = unit.sortedIndexOf(p);
-          if(u < 0) u = -u - 1;
-          if(lu != u) {
-            // new unit: store scoring
-            final int s = Scoring.tfIDF(freq.get(fc++),
-                maxfreq[u], unit.size(), ntoken[token]);
-            if(max < s) max = s;
-            if(min > s) min = s;
-            if(np != 4) out.write(0);
-            out.writeNum(s);
-            lu = u;
-          }
-          lp = p;
+        // find document root
+        int u = unit.sortedIndexOf(p);
+        if(u < 0) u = -u - 1;
+        if(lu != u) {
+          // new unit: compute scoring
+          sc = Scoring.tfIDF(freq.get(fc++), maxfreq[u], unit.size(),
+              ntoken[token]);
+          if(max < sc) max = sc;
+          if(min > sc) min = sc;
+          lu = u;
         }
       }
-
-      // full-text data is stored here, with -scoreU, pre1, pos1, ...,
-      // -scoreU, preU, posU
-      for(final int l = np + Num.len(vpre, np); np < l; ++np)
-        out.write(vpre[np]);
-      for(final int l = pp + Num.len(vpos, pp); pp < l; ++pp)
-        out.write(vpos[pp]);
+      // start new block
+      if(g++ % FTIndex.SKIP == 0) {
+        if(np != 4) {
+          skips.add(p);
+          skips.add(entries.size());
+          if(scm > 0) skips.add(0);
+        }
+        lp = 0;
+      }
+      if(scm > 0) {
+        entries.add(Num.num(sc));
+        // update maximum scoring values of the token and the current block
+        if(sm < sc) sm = sc;
+        final int s = skips.size() - 1;
+        if(s != -1 && skips.get(s) < sc) skips.set(sc, s);
+      }
+      entries.add(Num.num(p - lp));
+      lp = p;
+
+      // count positions of the current pre value
+      int n = 0;
+      for(; np < ns && Num.read(vpre, np) == p; np += Num.len(vpre, np)) ++n;
+      entries.add(Num.num(n));
+      final int ps = pp;
+      while(--n >= 0) pp += Num.len(vpos, pp);
+      entries.add(Num.num(pp - ps));
+      entries.add(vpos, ps, pp);
     }
+
+    int ss = 0;
+    for(int s = 0; s < skips.size(); ++s) ss += Num.len(skips.get(s));
+    out.writeNum(g);
+    out.writeNum(ss);
+    out.writeNum(entries.size());
+    if(scm > 0) out.writeNum(sm);
+    for(int s = 0; s < skips.size(); ++s) out.writeNum(skips.get(s));
+    out.writeBytes(entries.toArray());
     ++token;
   }
 
@@ -306,11 +432,61 @@ public abstract class FTBuilder extends IndexBuilder {
    */
   abstract void write() throws IOException;
 
+  /**
+   * Tokenizes the texts of a block of nodes.
+   */
+  private final class Tokens implements Callable<Tokens> {
+    /** First pre value. */
+    final int start;
+    /** Pre value after the last node. */
+    final int end;
+    /** Pre values of the tokens. */
+    final IntList pres = new IntList();
+    /** Positions of the tokens. */
+    final IntList poss = new IntList();
+    /** Tokens. */
+    final TokenList toks = new TokenList();
+
+    /**
+     * Constructor.
+     * @param s first pre value
+     * @param e pre value after the last node
+     */
+    Tokens(final int s, final int e) {
+      start = s;
+      end = e;
+    }
+
+    @Override
+    public Tokens call() {
+      // lexers are stateful: use a new instance for each block
+      final FTLexer lx = threads == 1 ? lex : new FTLexer(lex.ftOpt());
+      final StopWords sw = lx.ftOpt().sw;
+      for(int p = start; p < end; ++p) {
+        if(data.kind(p) != Data.TEXT) continue;
+        int ps = -1;
+        lx.init(data.text(p, true));
+        while(lx.hasNext()) {
+          final byte[] tok = lx.nextToken();
+          ++ps;
+          // skip too long and stopword tokens
+          if(tok.length <= MAXLEN && (sw.size() == 0 || sw.id(tok) == 0)) {
+            pres.add(p);
+            poss.add(ps);
+            toks.add(tok);
+          }
+        }
+      }
+      return this;
+    }
+  }
+
   @Override
   public final void abort() {
-    DropDB.drop(data.meta.name, DATAFTX + ".*" + IO.BASEXSUFFIX,
+    // the files of all segments are deleted if the first segment is built
+    DropDB.drop(data.meta.name, pref + ".*" + IO.BASEXSUFFIX,
         data.meta.prop);
-    data.meta.ftindex = false;
+    if(id == 0) data.meta.ftindex = false;
   }
 
   @Override
@@ -1,7 +1,6 @@
 package org.basex.index;
 
 import static org.basex.core.Text.*;
-import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 import static org.basex.util.ft.FTFlag.*;
 import java.io.IOException;
@@ -10,6 +9,7 @@ import org.basex.core.cmd.AInfo;
 import org.basex.data.Data;
 import org.basex.data.DataText;
 import org.basex.io.DataAccess;
+import org.basex.util.IntList;
 import org.basex.util.Levenshtein;
 import org.basex.util.Num;
 import org.basex.util.Performance;
@@ -63,15 +63,19 @@ final class FTFuzzy extends FTIndex {
   /**
    * Constructor, initializing the index structure.
    * @param d data reference
+   * @param id segment id
+   * @param mn minimum scoring value
+   * @param mx maximum scoring value
    * @throws IOException IO Exception
    */
-  protected FTFuzzy(final Data d) throws IOException {
-    super(d);
+  protected FTFuzzy(final Data d, final int id, final int mn, final int mx)
+      throws IOException {
+    super(d, id, mn, mx);
 
     // cache token length index
-    inY = new DataAccess(d.meta.file(DATAFTX + 'y'));
-    inZ = new DataAccess(d.meta.file(DATAFTX + 'z'));
-    inX = new DataAccess(d.meta.file(DATAFTX + 'x'));
+    inY = new DataAccess(d.meta.file(pref + 'y'));
+    inZ = new DataAccess(d.meta.file(pref + 'z'));
+    inX = new DataAccess(d.meta.file(pref + 'x'));
     for(int i = 0; i < tp.length; ++i) tp[i] = -1;
     int is = inX.read1();
     while(--is >= 0) {
@@ -133,7 +137,8 @@ final class FTFuzzy extends FTIndex {
     tb.addExt("- %: %" + NL, CREATEDC, AInfo.flag(data.meta.diacritics));
     if(data.meta.language != null)
       tb.addExt("- %: %" + NL, CREATELN, data.meta.language);
-    final long l = inX.length() + inY.length() + inZ.length();
+    final long l = inX.length() + inY.length() + inZ.length() +
+      grams.length();
     tb.add(SIZEDISK + Performance.format(l, true) + NL);
 
     final IndexStats stats = new IndexStats(data);
@@ -147,6 +152,7 @@ final class FTFuzzy extends FTIndex {
     inX.close();
     inY.close();
     inZ.close();
+    grams.close();
   }
 
   /**
@@ -222,7 +228,9 @@ final class FTFuzzy extends FTIndex {
 
   /**
    * Performs a fuzzy search for token, with e maximal number
-   * of errors e.
+   * of errors e. If possible, the candidate terms are retrieved from the
+   * n-gram term dictionary. Otherwise, all terms with a similar length are
+   * compared.
    * @param tok token looking for
    * @param k number of errors allowed
    * @param f fast evaluation
@@ -231,10 +239,20 @@ final class FTFuzzy extends FTIndex {
   private IndexIterator fuzzy(final byte[] tok, final int k, final boolean f) {
     FTIndexIterator it = FTIndexIterator.EMP;
     final int tl = tok.length;
+    final int err = data.meta.prop.num(Prop.LSERROR);
+    final IntList ids = grams.fuzzy(tok, err);
+    if(ids != null) {
+      for(int i = 0; i < ids.size(); ++i) {
+        final byte[] t = grams.token(ids.get(i));
+        if(Math.abs(t.length - tl) > k || !ls.similar(t, tok, err)) continue;
+        it = FTIndexIterator.union(
+            iter(grams.pointer(), grams.size(), inZ, f), it);
+      }
+      return it;
+    }
+
     final int e = Math.min(tp.length, tl + k);
     int s = Math.max(1, tl - k) - 1;
-
-    final int err = data.meta.prop.num(Prop.LSERROR);
     while(++s <= e) {
       int p = tp[s];
       if(p == -1) continue;
@@ -1,6 +1,5 @@
 package org.basex.index;
 
-import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 import java.io.IOException;
 import org.basex.data.Data;
@@ -30,16 +29,18 @@ final class FTFuzzyBuilder extends FTBuilder {
   /**
    * Constructor.
    * @param d data reference
+   * @param i segment id
+   * @param s first pre value to be indexed
    * @throws IOException IOException
    */
-  protected FTFuzzyBuilder(final Data d) throws IOException {
-    super(d);
+  protected FTFuzzyBuilder(final Data d, final int i, final int s)
+      throws IOException {
+    super(d, i, s);
   }
 
   @Override
-  public FTIndex build() throws IOException {
-    index();
-    return new FTFuzzy(data);
+  FTIndex open() throws IOException {
+    return new FTFuzzy(data, id, min, max);
   }
 
   @Override
@@ -70,14 +71,15 @@ final class FTFuzzyBuilder extends FTBuilder {
     if(!merge) return;
 
     // merges temporary index files
-    final DataOutput outX = new DataOutput(data.meta.file(DATAFTX + 'x'));
-    final DataOutput outY = new DataOutput(data.meta.file(DATAFTX + 'y'));
-    final DataOutput outZ = new DataOutput(data.meta.file(DATAFTX + 'z'));
+    final DataOutput outX = new DataOutput(data.meta.file(pref + 'x'));
+    final DataOutput outY = new DataOutput(data.meta.file(pref + 'y'));
+    final DataOutput outZ = new DataOutput(data.meta.file(pref + 'z'));
+    final FTGramsBuilder grams = new FTGramsBuilder(data, pref);
     final IntList ind = new IntList();
 
     // open all temporary sorted lists
     final FTList[] v = new FTList[csize];
-    for(int b = 0; b < csize; ++b) v[b] = new FTFuzzyList(data, b);
+    for(int b = 0; b < csize; ++b) v[b] = new FTFuzzyList(data, pref + b);
 
     final IntList il = new IntList();
     while(check(v)) {
@@ -104,17 +106,22 @@ final class FTFuzzyBuilder extends FTBuilder {
       }
 
       // write token
-      outY.writeBytes(v[min].tok);
+      final byte[] tok = v[min].tok;
+      outY.writeBytes(tok);
       // pointer on full-text data
-      outY.write5(outZ.size());
+      final long off = outZ.size();
+      outY.write5(off);
       // merge and write data size
-      outY.write4(merge(outZ, il, v));
+      final int s = merge(outZ, il, v);
+      outY.write4(s);
+      grams.add(tok, off, s);
     }
     writeInd(outX, ind, ind.get(ind.size() - 2) + 1, (int) outY.size());
 
     outX.close();
     outY.close();
     outZ.close();
+    grams.close();
   }
 
   /**
@@ -140,10 +147,12 @@ final class FTFuzzyBuilder extends FTBuilder {
 
   @Override
   protected void writeIndex(final int cs) throws IOException {
-    final String s = DATAFTX + (merge ? cs : "");
+    final String s = pref + (merge ? cs : "");
     final DataOutput outX = new DataOutput(data.meta.file(s + 'x'));
     final DataOutput outY = new DataOutput(data.meta.file(s + 'y'));
     final DataOutput outZ = new DataOutput(data.meta.file(s + 'z'));
+    // the term dictionary is only built for the final index
+    final FTGramsBuilder grams = merge ? null : new FTGramsBuilder(data, pref);
 
     final IntList ind = new IntList();
     long dr = 0;
@@ -165,7 +174,9 @@ final class FTFuzzyBuilder extends FTBuilder {
       // write pointer on full-text data
       outY.write5(dr);
       // write full-text data size (number of pre values)
-      outY.write4(t.nextNumPre());
+      final int np = t.nextNumPre();
+      outY.write4(np);
+      if(grams != null) grams.add(key, dr, np);
       // write compressed pre and pos arrays
       writeFTData(outZ, t.nextPres(), t.nextPoss());
 
@@ -177,6 +188,7 @@ final class FTFuzzyBuilder extends FTBuilder {
     outX.close();
     outY.close();
     outZ.close();
+    if(grams != null) grams.close();
     tree.initFT();
   }
 }
@@ -1,6 +1,5 @@
 package org.basex.index;
 
-import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 import java.io.File;
 import java.io.IOException;
@@ -28,13 +27,13 @@ final class FTFuzzyList extends FTList {
   /**
    * Constructor, initializing the index structure.
    * @param d data reference
-   * @param cf current file
+   * @param f file prefix
    * @throws IOException IO Exception
    */
-  protected FTFuzzyList(final Data d, final int cf) throws IOException {
-    super(d, cf, 'y', 'z');
+  protected FTFuzzyList(final Data d, final String f) throws IOException {
+    super(d, f, 'y', 'z');
     for(int i = 0; i < tp.length; ++i) tp[i] = -1;
-    sizes = d.meta.file(DATAFTX + cf + 'x');
+    sizes = d.meta.file(f + 'x');
     final DataAccess li = new DataAccess(sizes);
     int is = li.read1();
     while(--is >= 0) {
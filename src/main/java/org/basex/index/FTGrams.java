@@ -0,0 +1,372 @@
+package org.basex.index;
+
+import static org.basex.util.Token.*;
+import java.io.IOException;
+import java.util.Arrays;
+import org.basex.data.Data;
+import org.basex.data.DataText;
+import org.basex.io.DataAccess;
+import org.basex.util.IntList;
+import org.basex.util.Num;
+import org.basex.util.TokenBuilder;
+import org.basex.util.TokenList;
+import org.basex.util.TokenSet;
+
+/**
+ * <p>This class provides access to the n-gram term dictionary of the
+ * full-text index, which is used to find the candidates of fuzzy and
+ * wildcard queries without scanning all index terms. All terms are split
+ * into bigrams, which are built from the lower-case and normalized
+ * characters of a term. A start and an end character are added to each
+ * term. The two files start with the prefix {@link DataText#DATAFTX}:</p>
+ *
+ * <ul>
+ * <li>File <b>d</b> contains all terms in the order of the main index:<br/>
+ * Structure: {@code [t, p, s] ...}<br/>
+ * {@code t} is the term [{@link Num}-prefixed bytes].<br/>
+ * {@code p} is the pointer on the full-text data of the term [long].<br/>
+ * {@code s} is the number of pre values [int].<br/>
+ * The offset of an entry in this file serves as term id.</li>
+ * <li>File <b>g</b> contains the ids of all terms containing a bigram:<br/>
+ * Structure: {@code n, [g, c, b, i1, ..., ic] ...}<br/>
+ * {@code n} is the number of bigrams [{@link Num}].<br/>
+ * {@code g} is the bigram [{@link Num}-prefixed bytes].<br/>
+ * {@code c} is the number of term ids [{@link Num}].<br/>
+ * {@code b} is the byte size of the subsequent term ids [{@link Num}].<br/>
+ * {@code i1, ..., ic} are the term ids, stored as distances to the
+ * previous id [{@link Num}].</li>
+ * </ul>
+ *
+ * <p>The bigram directory is kept in main memory, whereas terms and term
+ * ids are read on demand.</p>
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class FTGrams {
+  /** Character that marks the start of a term. */
+  private static final int START = 1;
+  /** Character that marks the end of a term. */
+  private static final int END = 2;
+  /** Maximum number of bigrams that are affected by a single error
+   * (a transposition of two characters). */
+  private static final int ERRGRAMS = 3;
+
+  /** Terms. */
+  private final DataAccess inD;
+  /** Term ids. */
+  private final DataAccess inG;
+  /** Bigrams. */
+  private final TokenSet grams = new TokenSet();
+  /** Number of term ids per bigram. */
+  private final IntList counts = new IntList();
+  /** Offsets of the term ids of all bigrams. */
+  private long[] offsets = new long[1];
+
+  /**
+   * Constructor, initializing the bigram directory.
+   * @param d data reference
+   * @param p file prefix
+   * @throws IOException I/O exception
+   */
+  FTGrams(final Data d, final String p) throws IOException {
+    inD = new DataAccess(d.meta.file(p + 'd'));
+    inG = new DataAccess(d.meta.file(p + 'g'));
+    counts.add(0);
+    final int n = inG.readNum();
+    for(int g = 0; g < n; ++g) {
+      final int i = grams.add(inG.readToken());
+      counts.add(inG.readNum());
+      final int s = inG.readNum();
+      if(i == offsets.length) offsets = Arrays.copyOf(offsets, i << 1);
+      offsets[i] = inG.pos();
+      inG.cursor(offsets[i] + s);
+    }
+  }
+
+  /**
+   * Returns the ids of all terms that may be similar to the specified
+   * token, as defined by {@link org.basex.util.Levenshtein#similar}.
+   * The returned terms will be a superset of the similar terms.
+   * @param tok token
+   * @param err number of allowed errors ({@code 0}: dynamic calculation)
+   * @return term ids, or {@code null} if the number of candidates cannot
+   * be reduced via the bigrams
+   */
+  IntList fuzzy(final byte[] tok, final int err) {
+    int tl = 0;
+    for(int t = 0; t < tok.length; t += cl(tok, t)) ++tl;
+    // short and long tokens will only be compared for equality
+    final int k = tl < 4 || tl > 50 ? 0 : err != 0 ? err : Math.max(1, tl >> 2);
+
+    // each error removes a limited number of bigrams. If the remaining
+    // number is positive, each similar term will contain at least one of
+    // the bigrams with the smallest number of terms
+    final TokenList gr = new TokenList();
+    grams(tok, 0, tok.length, true, true, gr);
+    final int m = gr.size(), min = m - k * ERRGRAMS;
+    if(min <= 0) return null;
+
+    final int[] gi = new int[m];
+    for(int g = 0; g < m; ++g) gi[g] = grams.id(gr.get(g));
+    sort(gi);
+    final IntList il = new IntList();
+    for(int g = 0; g <= m - min; ++g) {
+      if(gi[g] == 0) continue;
+      final int c = counts.get(gi[g]);
+      inG.cursor(offsets[gi[g]]);
+      for(int n = 0, id = 0; n < c; ++n) il.add(id += inG.readNum());
+    }
+    return distinct(il);
+  }
+
+  /**
+   * Returns the ids of all terms that may match the specified wildcard
+   * pattern. The returned terms will be a superset of the matching terms.
+   * @param tok wildcard pattern
+   * @return term ids, or {@code null} if the pattern contains no bigrams or
+   * is invalid
+   */
+  IntList wc(final byte[] tok) {
+    // collect bigrams of all literal segments
+    final TokenList gr = new TokenList();
+    final TokenBuilder tb = new TokenBuilder();
+    boolean start = true;
+    final int tl = tok.length;
+    for(int t = 0; t < tl;) {
+      if(tok[t] == '.') {
+        final int e = wildcard(tok, t);
+        if(e == -1) return null;
+        grams(tb.finish(), 0, tb.size(), start, false, gr);
+        tb.reset();
+        start = false;
+        t = e;
+      } else {
+        if(tok[t] == '\\' && ++t == tl) return null;
+        tb.addByte(tok[t++]);
+      }
+    }
+    grams(tb.finish(), 0, tb.size(), start, true, gr);
+    if(gr.size() == 0) return null;
+
+    // intersect the ids of all bigrams, starting with the smallest list
+    final int m = gr.size();
+    final int[] gi = new int[m];
+    for(int g = 0; g < m; ++g) {
+      gi[g] = grams.id(gr.get(g));
+      if(gi[g] == 0) return new IntList();
+    }
+    sort(gi);
+    IntList il = ids(gi[0]);
+    for(int g = 1; g < m && il.size() != 0; ++g) {
+      if(gi[g] == gi[g - 1]) continue;
+      final IntList res = new IntList();
+      final int c = counts.get(gi[g]);
+      inG.cursor(offsets[gi[g]]);
+      int i = 0, id = 0;
+      for(int n = 0; n < c && i < il.size(); ++n) {
+        id += inG.readNum();
+        while(i < il.size() && il.get(i) < id) ++i;
+        if(i < il.size() && il.get(i) == id) res.add(id);
+      }
+      il = res;
+    }
+    return il;
+  }
+
+  /**
+   * Returns the ids of all terms.
+   * @return term ids
+   */
+  IntList terms() {
+    final IntList il = new IntList();
+    final long l = inD.length();
+    for(long p = 0; p < l;) {
+      il.add((int) p);
+      final int tl = inD.readNum(p);
+      p += Num.len(tl) + tl + 9;
+    }
+    return il;
+  }
+
+  /**
+   * Returns the term with the specified id.
+   * @param id term id
+   * @return term
+   */
+  byte[] token(final int id) {
+    return inD.readToken(id);
+  }
+
+  /**
+   * Returns the pointer on the full-text data of the term that has been
+   * read by the last call of {@link #token}.
+   * @return pointer
+   */
+  long pointer() {
+    return inD.read5();
+  }
+
+  /**
+   * Returns the number of pre values of the term that has been read by the
+   * last call of {@link #token}, followed by {@link #pointer}.
+   * @return number of pre values
+   */
+  int size() {
+    return inD.read4();
+  }
+
+  /**
+   * Returns the size of the dictionary on disk.
+   * @return size
+   */
+  long length() {
+    return inD.length() + inG.length();
+  }
+
+  /**
+   * Closes the dictionary.
+   * @throws IOException I/O exception
+   */
+  void close() throws IOException {
+    inD.close();
+    inG.close();
+  }
+
+  /**
+   * Checks if the specified token matches a wildcard pattern. The syntax and
+   * semantics are the same as in query evaluation.
+   * @param t token
+   * @param q pattern
+   * @param tp token position
+   * @param qp pattern position
+   * @return result of check
+   */
+  static boolean wc(final byte[] t, final byte[] q, final int tp,
+      final int qp) {
+
+    int ql = qp;
+    int tl = tp;
+    while(ql < q.length) {
+      if(q[ql] == '.') {
+        final int e = wildcard(q, ql);
+        if(e == -1) return false;
+        // minimum/maximum number of occurrence
+        final byte c = ql + 1 < q.length ? q[ql + 1] : 0;
+        int n = 0;
+        int m = Integer.MAX_VALUE;
+        if(c == '?') {
+          m = 1;
+        } else if(c == '+') {
+          n = 1;
+        } else if(c == '{') {
+          int i = ql + 2;
+          for(; q[i] != ','; ++i) n = n * 10 + q[i] - '0';
+          m = 0;
+          for(++i; q[i] != '}'; ++i) m = m * 10 + q[i] - '0';
+        } else if(c != '*') {
+          m = 1;
+          n = 1;
+        }
+        ql = e;
+        // recursively evaluates wildcards (non-greedy)
+        while(!wc(t, q, tl + n, ql)) if(tl + ++n > t.length) return false;
+        if(n > m) return false;
+        tl += n;
+      } else {
+        if(q[ql] == '\\' && ++ql == q.length) return false;
+        if(tl >= t.length || t[tl++] != q[ql++]) return false;
+      }
+    }
+    return tl == t.length;
+  }
+
+  /**
+   * Adds the distinct bigrams of the specified token to a list.
+   * @param tok token
+   * @param s start offset
+   * @param e end offset
+   * @param start add start character
+   * @param end add end character
+   * @param list list
+   */
+  static void grams(final byte[] tok, final int s, final int e,
+      final boolean start, final boolean end, final TokenList list) {
+
+    int l = start ? START : 0;
+    for(int t = s; t <= e; t += t < e ? cl(tok, t) : 1) {
+      final int c = t < e ? norm(lc(cp(tok, t))) : end ? END : 0;
+      if(l != 0 && c != 0) {
+        final byte[] g = new TokenBuilder(8).add(l).add(c).finish();
+        if(!list.contains(g)) list.add(g);
+      }
+      l = c;
+    }
+  }
+
+  /**
+   * Returns the offset after the wildcard at the specified position.
+   * @param q pattern
+   * @param p position of the wildcard
+   * @return offset, or {@code -1} if the wildcard is invalid
+   */
+  private static int wildcard(final byte[] q, final int p) {
+    final int ql = q.length;
+    final byte c = p + 1 < ql ? q[p + 1] : 0;
+    if(c == '?' || c == '*' || c == '+') return p + 2;
+    if(c != '{') return p + 1;
+    // .{m,n}
+    int i = p + 2;
+    while(i < ql && digit(q[i])) ++i;
+    if(i == ql || q[i++] != ',') return -1;
+    while(i < ql && digit(q[i])) ++i;
+    return i < ql && q[i] == '}' ? i + 1 : -1;
+  }
+
+  /**
+   * Returns the ids of the terms containing the specified bigram.
+   * @param g bigram id
+   * @return term ids
+   */
+  private IntList ids(final int g) {
+    final int c = counts.get(g);
+    final IntList il = new IntList(c);
+    inG.cursor(offsets[g]);
+    int id = 0;
+    for(int n = 0; n < c; ++n) {
+      id += inG.readNum();
+      il.add(id);
+    }
+    return il;
+  }
+
+  /**
+   * Sorts the specified bigram ids by their number of terms.
+   * Ids of unknown bigrams ({@code 0}) are moved to the beginning.
+   * @param gi bigram ids
+   */
+  private void sort(final int[] gi) {
+    for(int i = 1; i < gi.length; ++i) {
+      final int g = gi[i];
+      final int c = counts.get(g);
+      int j = i;
+      for(; j > 0 && counts.get(gi[j - 1]) > c; --j) gi[j] = gi[j - 1];
+      gi[j] = g;
+    }
+  }
+
+  /**
+   * Sorts the specified ids and removes duplicates.
+   * @param il ids
+   * @return sorted ids
+   */
+  private static IntList distinct(final IntList il) {
+    final int[] a = il.toArray();
+    Arrays.sort(a);
+    final IntList res = new IntList(a.length);
+    for(int i = 0; i < a.length; ++i) {
+      if(i == 0 || a[i] != a[i - 1]) res.add(a[i]);
+    }
+    return res;
+  }
+}
@@ -0,0 +1,100 @@
+package org.basex.index;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.basex.data.Data;
+import org.basex.io.DataOutput;
+import org.basex.util.ByteList;
+import org.basex.util.Num;
+import org.basex.util.TokenList;
+import org.basex.util.TokenSet;
+
+/**
+ * This class builds the n-gram term dictionary of the full-text index.
+ * The terms are written to disk while the main index is written, and the
+ * term ids of all bigrams are collected in main memory and written at the
+ * end. The file format is described in the {@link FTGrams} class.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class FTGramsBuilder {
+  /** Data reference. */
+  private final Data data;
+  /** File prefix. */
+  private final String pref;
+  /** Terms. */
+  private final DataOutput outD;
+  /** Bigrams. */
+  private final TokenSet grams = new TokenSet();
+  /** Compressed term ids of all bigrams. */
+  private ByteList[] ids = new ByteList[8];
+  /** Number of term ids of all bigrams. */
+  private int[] counts = new int[8];
+  /** Last term ids of all bigrams. */
+  private int[] last = new int[8];
+
+  /**
+   * Constructor.
+   * @param d data reference
+   * @param p file prefix
+   * @throws IOException I/O exception
+   */
+  FTGramsBuilder(final Data d, final String p) throws IOException {
+    data = d;
+    pref = p;
+    outD = new DataOutput(d.meta.file(p + 'd'));
+  }
+
+  /**
+   * Adds a term. Terms must be added in the order of the main index.
+   * @param tok term
+   * @param off pointer on the full-text data
+   * @param size number of pre values
+   * @throws IOException I/O exception
+   */
+  void add(final byte[] tok, final long off, final int size)
+      throws IOException {
+
+    final int id = (int) outD.size();
+    outD.writeToken(tok);
+    outD.write5(off);
+    outD.write4(size);
+
+    final TokenList gr = new TokenList();
+    FTGrams.grams(tok, 0, tok.length, true, true, gr);
+    for(final byte[] g : gr) {
+      int i = grams.add(g);
+      if(i < 0) {
+        i = -i;
+      } else if(i == ids.length) {
+        ids = Arrays.copyOf(ids, i << 1);
+        counts = Arrays.copyOf(counts, i << 1);
+        last = Arrays.copyOf(last, i << 1);
+      }
+      if(ids[i] == null) ids[i] = new ByteList();
+      ids[i].add(Num.num(id - last[i]));
+      last[i] = id;
+      ++counts[i];
+    }
+  }
+
+  /**
+   * Writes the term ids of all bigrams and closes the dictionary.
+   * @throws IOException I/O exception
+   */
+  void close() throws IOException {
+    outD.close();
+    final DataOutput outG = new DataOutput(data.meta.file(pref + 'g'));
+    final int gs = grams.size();
+    outG.writeNum(gs);
+    for(int i = 1; i <= gs; ++i) {
+      outG.writeToken(grams.key(i));
+      outG.writeNum(counts[i]);
+      final byte[] b = ids[i].toArray();
+      outG.writeNum(b.length);
+      outG.writeBytes(b);
+    }
+    outG.close();
+  }
+}
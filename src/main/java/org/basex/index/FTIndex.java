@@ -1,10 +1,11 @@
 package org.basex.index;
 
+import static org.basex.data.DataText.*;
 import java.io.IOException;
 import org.basex.data.Data;
 import org.basex.data.FTMatches;
 import org.basex.io.DataAccess;
-import org.basex.util.IntList;
+import org.basex.util.Num;
 
 /**
  * This abstract class defines methods for the available full-text indexes.
@@ -13,6 +14,8 @@ import org.basex.util.IntList;
  * @author Christian Gruen
  */
 public abstract class FTIndex implements Index {
+  /** Number of pre values between two skip pointers. */
+  static final int SKIP = 128;
   /** Cache for number of hits and data reference per token. */
   final IndexCache cache = new IndexCache();
   /** Values file. */
@@ -23,104 +26,309 @@ public abstract class FTIndex implements Index {
   final double max;
   /** Minimum scoring value. */
   final double min;
+  /** N-gram term dictionary. */
+  final FTGrams grams;
+  /** File prefix of the segment. */
+  final String pref;
 
   /**
-   * Returns a new full-text index instance.
+   * Returns a new full-text index instance, including all index segments.
    * @param d data reference
-   * @param wild wildcard index
    * @return index instance
    * @throws IOException IOException
    */
-  public static FTIndex get(final Data d, final boolean wild)
+  public static Index get(final Data d) throws IOException {
+    return new FTSegments(d, get(d, 0, d.meta.minscore, d.meta.maxscore));
+  }
+
+  /**
+   * Returns a single index segment.
+   * @param d data reference
+   * @param id segment id
+   * @param mn minimum scoring value
+   * @param mx maximum scoring value
+   * @return index instance
+   * @throws IOException IOException
+   */
+  static FTIndex get(final Data d, final int id, final int mn, final int mx)
       throws IOException {
-    return wild ? new FTTrie(d) : new FTFuzzy(d);
+    return d.meta.wildcards ? new FTTrie(d, id, mn, mx) :
+      new FTFuzzy(d, id, mn, mx);
+  }
+
+  /**
+   * Returns the file prefix of the specified index segment.
+   * @param id segment id
+   * @return prefix
+   */
+  static String prefix(final int id) {
+    return id == 0 ? DATAFTX : DATAFTX + id + '_';
   }
 
   /**
    * Constructor.
    * @param d data reference
+   * @param id segment id
+   * @param mn minimum scoring value
+   * @param mx maximum scoring value
+   * @throws IOException I/O exception
    */
-  FTIndex(final Data d) {
+  FTIndex(final Data d, final int id, final int mn, final int mx)
+      throws IOException {
     data = d;
+    pref = prefix(id);
     scm = d.meta.scoring;
-    max = Math.log(data.meta.maxscore + 1);
-    min = Math.log(data.meta.minscore - 1);
+    max = Math.log(mx + 1);
+    min = Math.log(mn - 1);
+    grams = new FTGrams(d, pref);
   }
 
   /**
    * Returns an iterator for an index entry.
+   * The entry is decoded lazily; see {@link FTBuilder#writeFTData} for
+   * the storage format.
    * @param p pointer on data
    * @param s number of pre/pos entries
    * @param da data source
    * @param fast fast evaluation
    * @return iterator
    */
-  final synchronized FTIndexIterator iter(final long p, final int s,
+  final FTIndexIterator iter(final long p, final int s,
       final DataAccess da, final boolean fast) {
+    return new Postings(p, s, da, fast);
+  }
 
-    // cache results
-    da.cursor(p);
-    final IntList vals = new IntList();
-    for(int c = 0, lp = 0; c < s;) {
-      if(lp == 0) {
-        if(scm > 0) vals.add(da.readNum());
-        lp = da.readNum();
-        vals.add(lp);
+  /**
+   * Normalizes a scoring value from the index.
+   * @param s scoring value
+   * @return normalized value
+   */
+  final double normalize(final int s) {
+    return (Math.log(s) - min) / (max - min);
+  }
+
+  /**
+   * Lazy iterator on the full-text data of a single token. As several
+   * iterators may read from the same data source, each access is
+   * synchronized. Entries are fetched block-wise and decoded in main memory,
+   * and positions are only decoded for the entries that are requested.
+   */
+  private final class Postings extends FTIndexIterator {
+    /** Data source. */
+    private final DataAccess da;
+    /** Fast evaluation. */
+    private final boolean fast;
+    /** Number of pre values. */
+    private final int groups;
+    /** Offset of the skip pointers. */
+    private final long skip;
+    /** Offset of the first entry. */
+    private final long entries;
+    /** Byte size of all entries. */
+    private final int bytes;
+    /** Maximum scoring value. */
+    private final int smax;
+    /** Current matches. */
+    private final FTMatches all = new FTMatches(toknum);
+
+    /** First pre values of the blocks (lazily read). */
+    private int[] spres;
+    /** Offsets of the blocks (lazily read). */
+    private int[] soffs;
+    /** Maximum scoring values of the blocks (lazily read). */
+    private int[] smaxs;
+    /** Current block. */
+    private byte[] buf;
+    /** Offset of the next entry in the current block. */
+    private int off;
+    /** Offset of the positions of the current entry. */
+    private int poff;
+    /** Number of positions of the current entry ({@code 0}: decoded). */
+    private int pn;
+    /** Number of pre values that have been read. */
+    private int g;
+    /** Current pre value. */
+    private int pre;
+    /** Current scoring value. */
+    private double sc = -1;
+
+    /**
+     * Constructor.
+     * @param p pointer on data
+     * @param s number of pre/pos entries
+     * @param d data source
+     * @param f fast evaluation
+     */
+    Postings(final long p, final int s, final DataAccess d, final boolean f) {
+      da = d;
+      fast = f;
+      size = s;
+
+      if(s == 0) {
+        groups = 0;
+        skip = 0;
+        entries = 0;
+        bytes = 0;
+        smax = 0;
+      } else {
+        synchronized(FTIndex.this) {
+          da.cursor(p);
+          groups = da.readNum();
+          final int ss = da.readNum();
+          bytes = da.readNum();
+          smax = scm > 0 ? da.readNum() : 0;
+          skip = da.pos();
+          entries = skip + ss;
+        }
       }
-      final int pr = lp;
-      vals.add(da.readNum());
-      while(++c < s) {
-        lp = da.readNum();
-        vals.add(lp);
-        if(lp != pr) break;
-        vals.add(da.readNum());
+    }
+
+    @Override
+    public boolean more() {
+      if(g == groups) return false;
+
+      // pre values are reset at the beginning of each block
+      if(g % SKIP == 0) {
+        load(g / SKIP);
+        pre = 0;
       }
+      if(scm > 0) sc = normalize(num());
+      pre += num();
+      // positions are decoded on demand
+      pn = num();
+      final int ps = num();
+      poff = off;
+      off += ps;
+      ++g;
+      return true;
     }
 
-    return new FTIndexIterator() {
-      final FTMatches all = new FTMatches(toknum);
-      int c, pre, lpre;
-      double sc = -1;
-
-      @Override
-      public synchronized boolean more() {
-        if(c == vals.size()) return false;
-        if(lpre == 0) {
-          if(scm > 0) sc = (Math.log(vals.get(c++)) - min) / (max - min);
-          lpre = vals.get(c++);
-          size = s;
-        }
-        pre = lpre;
+    @Override
+    public boolean advance(final int p) {
+      // skip pointers refer to the blocks 1 .. bs
+      final int b = g / SKIP;
+      if(b < (groups - 1) / SKIP) {
+        final int t = block(b, p) - 1;
+        if(t >= b) g = (t + 1) * SKIP;
+      }
+      while(more()) if(pre >= p) return true;
+      return false;
+    }
 
-        all.reset(toknum);
-        all.or(vals.get(c++));
+    @Override
+    public double bound() {
+      return scm > 0 ? normalize(smax) : super.bound();
+    }
 
-        while(c < vals.size() && (lpre = vals.get(c++)) == pre) {
-          final int n = vals.get(c++);
-          if(!fast) all.or(n);
+    @Override
+    public double bound(final int p) {
+      if(scm == 0) return super.bound();
+      // the maximum of the first block is not stored
+      final int b = block(0, p);
+      return normalize(b == 0 ? smax : smaxs[b - 1]);
+    }
+
+    @Override
+    public int block(final int p) {
+      final int b = block(0, p), bs = (groups - 1) / SKIP;
+      return b < bs ? spres[b] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the block that contains the specified pre value.
+     * @param b first block to be checked
+     * @param p pre value
+     * @return block, or {@code 0} if the pre value is contained in the
+     * first block or is smaller than the first pre value
+     */
+    private int block(final int b, final int p) {
+      final int bs = (groups - 1) / SKIP;
+      if(b >= bs) return b;
+      skips(bs);
+      // find last block that starts with a pre value not greater than p
+      int l = b, h = bs - 1, t = b - 1;
+      while(l <= h) {
+        final int m = l + h >>> 1;
+        if(spres[m] <= p) {
+          t = m;
+          l = m + 1;
+        } else {
+          h = m - 1;
         }
-        return true;
       }
+      return t + 1;
+    }
 
-      @Override
-      public synchronized FTMatches matches() {
-        return all;
+    /**
+     * Reads the skip pointers, if necessary.
+     * @param bs number of skip pointers
+     */
+    private void skips(final int bs) {
+      if(spres != null) return;
+      spres = new int[bs];
+      soffs = new int[bs];
+      if(scm > 0) smaxs = new int[bs];
+      synchronized(FTIndex.this) {
+        da.cursor(skip);
+        for(int i = 0; i < bs; ++i) {
+          spres[i] = da.readNum();
+          soffs[i] = da.readNum();
+          if(scm > 0) smaxs[i] = da.readNum();
+        }
       }
+    }
 
-      @Override
-      public synchronized int next() {
-        return pre;
+    /**
+     * Reads the entries of the specified block.
+     * @param b block
+     */
+    private void load(final int b) {
+      final int bs = (groups - 1) / SKIP;
+      if(bs > 0) skips(bs);
+      final int s = b == 0 ? 0 : soffs[b - 1], e = b < bs ? soffs[b] : bytes;
+      synchronized(FTIndex.this) {
+        buf = da.readBytes(entries + s, e - s);
       }
+      off = 0;
+    }
 
-      @Override
-      public synchronized int indexSize() {
-        return s;
-      }
+    /**
+     * Decodes the next number of the current block.
+     * @return number
+     */
+    private int num() {
+      final int n = Num.read(buf, off);
+      off += Num.len(buf, off);
+      return n;
+    }
 
-      @Override
-      public synchronized double score() {
-        return sc;
+    @Override
+    public FTMatches matches() {
+      if(pn != 0) {
+        all.reset(toknum);
+        final int o = off;
+        off = poff;
+        all.or(num());
+        if(!fast) while(--pn > 0) all.or(num());
+        off = o;
+        pn = 0;
       }
-    };
+      return all;
+    }
+
+    @Override
+    public int next() {
+      return pre;
+    }
+
+    @Override
+    public int indexSize() {
+      return size;
+    }
+
+    @Override
+    public double score() {
+      return sc;
+    }
   }
 }
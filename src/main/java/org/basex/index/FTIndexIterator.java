@@ -28,6 +28,8 @@ public abstract class FTIndexIterator extends IndexIterator {
     public int indexSize() { return 1; }
     @Override
     public double score() { return -1; }
+    @Override
+    public double bound() { return 0; }
   };
 
   /**
@@ -36,6 +38,46 @@ public abstract class FTIndexIterator extends IndexIterator {
    */
   public abstract FTMatches matches();
 
+  /**
+   * Skips all entries with pre values smaller than the specified value.
+   * The iterator will be moved at least one entry forward.
+   * @param pre pre value
+   * @return true if another entry was found
+   */
+  public boolean advance(final int pre) {
+    while(more()) if(next() >= pre) return true;
+    return false;
+  }
+
+  /**
+   * Returns an upper bound for the scoring values of all entries.
+   * Bounds are only available if scoring values are stored in the index.
+   * @return upper bound
+   */
+  public double bound() {
+    return Double.MAX_VALUE;
+  }
+
+  /**
+   * Returns an upper bound for the scoring values of all entries that are
+   * stored in the same block as the specified pre value.
+   * @param pre pre value
+   * @return upper bound
+   */
+  public double bound(final int pre) {
+    return bound();
+  }
+
+  /**
+   * Returns the first pre value of the block following the block that
+   * contains the specified pre value.
+   * @param pre pre value
+   * @return pre value, or {@link Integer#MAX_VALUE} if no block follows
+   */
+  public int block(final int pre) {
+    return Integer.MAX_VALUE;
+  }
+
   /**
    * Sets the unique token number. Used for visualization.
    * @param tn number of tokens
@@ -95,6 +137,11 @@ public abstract class FTIndexIterator extends IndexIterator {
         return i1.indexSize() + i2.indexSize();
       }
 
+      @Override
+      public double bound() {
+        return Math.max(i1.bound(), i2.bound());
+      }
+
       @Override
       public double score() {
         return Scoring.union(i1.score(), i2.score());
@@ -103,39 +150,60 @@ public abstract class FTIndexIterator extends IndexIterator {
   }
 
   /**
-   * Merges two index array iterators.
+   * Merges two index array iterators. If no word distance is specified,
+   * the matches of the first iterator are added to the matches of the
+   * second iterator, and entries are skipped if the positions of all
+   * matches are more than the specified window apart.
    * @param i1 first index array iterator to merge
    * @param i2 second index array iterator to merge
    * @param dis word distance. Ignored if {@code 0}
+   * @param win maximum distance between the first and last position
    * @return IndexArrayIterator
    */
   public static FTIndexIterator intersect(final FTIndexIterator i1,
-      final FTIndexIterator i2, final int dis) {
+      final FTIndexIterator i2, final int dis, final int win) {
 
     return new FTIndexIterator() {
-      FTIndexIterator r, s;
-
       @Override
       public boolean more() {
-        int c = 0;
+        return i1.more() && i2.more() && find();
+      }
+
+      @Override
+      public boolean advance(final int pre) {
+        return i1.advance(pre) && i2.advance(pre) && find();
+      }
+
+      /**
+       * Finds the next common entry, starting from the current entries.
+       * The iterator with the smaller pre value is advanced to the pre value
+       * of the other iterator, skipping all entries in between.
+       * @return result of check
+       */
+      private boolean find() {
         while(true) {
-          if(c <= 0) r = i1.more() ? i1 : null;
-          if(c >= 0) s = i2.more() ? i2 : null;
-          if(r == null || s == null) return false;
-          c = r.next() - s.next();
-          if(c == 0 && (dis == 0 || r.matches().phrase(s.matches(), dis)))
+          final int c = i1.next() - i2.next();
+          if(c < 0) {
+            if(!i1.advance(i2.next())) return false;
+          } else if(c > 0) {
+            if(!i2.advance(i1.next())) return false;
+          } else if(dis == 0 ? i2.matches().and(i1.matches(), win) :
+              i1.matches().phrase(i2.matches(), dis)) {
             return true;
+          } else if(!i1.more() || !i2.more()) {
+            return false;
+          }
         }
       }
 
       @Override
       public FTMatches matches() {
-        return r.matches();
+        return dis == 0 ? i2.matches() : i1.matches();
       }
 
       @Override
       public int next() {
-        return r.next();
+        return i1.next();
       }
 
       @Override
@@ -149,6 +217,21 @@ public abstract class FTIndexIterator extends IndexIterator {
         return Math.min(i1.indexSize(), i2.indexSize());
       }
 
+      @Override
+      public double bound() {
+        return Scoring.intersect(i1.bound(), i2.bound());
+      }
+
+      @Override
+      public double bound(final int pre) {
+        return Scoring.intersect(i1.bound(pre), i2.bound(pre));
+      }
+
+      @Override
+      public int block(final int pre) {
+        return Math.min(i1.block(pre), i2.block(pre));
+      }
+
       @Override
       public double score() {
         return Scoring.intersect(i1.score(), i2.score());
@@ -1,6 +1,5 @@
 package org.basex.index;
 
-import static org.basex.data.DataText.*;
 import java.io.File;
 import java.io.IOException;
 import org.basex.data.Data;
@@ -39,15 +38,15 @@ abstract class FTList {
   /**
    * Constructor, initializing the index structure.
    * @param d data
-   * @param p prefix
+   * @param p file prefix
    * @param ss structure
    * @param ds structure
    * @throws IOException I/O exception
    */
-  protected FTList(final Data d, final int p, final char ss, final char ds)
-      throws IOException {
-    files = d.meta.file(DATAFTX + p + ss);
-    filed = d.meta.file(DATAFTX + p + ds);
+  protected FTList(final Data d, final String p, final char ss,
+      final char ds) throws IOException {
+    files = d.meta.file(p + ss);
+    filed = d.meta.file(p + ds);
     str = new DataAccess(files);
     dat = new DataAccess(filed);
   }
@@ -66,11 +65,25 @@ abstract class FTList {
       pov = NOINTS;
       close();
     } else {
+      // temporary data is written without scoring values;
+      // see FTBuilder#writeFTData for the storage format
       prv = new int[size];
       pov = new int[size];
-      for(int j = 0; j < size; ++j) {
-        prv[j] = dat.readNum();
-        pov[j] = dat.readNum();
+      final int groups = dat.readNum();
+      final int ss = dat.readNum();
+      // skip byte size of entries
+      dat.readNum();
+      dat.cursor(dat.pos() + ss);
+      for(int g = 0, j = 0, pre = 0; g < groups; ++g) {
+        if(g % FTIndex.SKIP == 0) pre = 0;
+        pre += dat.readNum();
+        int n = dat.readNum();
+        // skip byte size of positions
+        dat.readNum();
+        for(; n > 0; --n) {
+          prv[j] = pre;
+          pov[j++] = dat.readNum();
+        }
       }
     }
   }
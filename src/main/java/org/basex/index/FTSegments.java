@@ -0,0 +1,305 @@
+package org.basex.index;
+
+import static org.basex.core.Text.*;
+import static org.basex.data.DataText.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.basex.core.cmd.DropDB;
+import org.basex.data.Data;
+import org.basex.data.FTMatches;
+import org.basex.io.DataAccess;
+import org.basex.io.DataOutput;
+import org.basex.io.IO;
+import org.basex.util.IntList;
+import org.basex.util.TokenBuilder;
+import org.basex.util.Util;
+
+/**
+ * <p>This class provides access to a full-text index that consists of several
+ * immutable segments. The first segment is created by a full index build.
+ * As nodes that are appended to the end of a database do not change the
+ * pre values of existing nodes, they are indexed in a new segment instead
+ * of invalidating the index. Segments cover disjoint, ascending ranges of
+ * pre values; query results are computed by concatenating the results of
+ * all segments.</p>
+ *
+ * <p>Segments are merged by a log-structured policy: after a segment has
+ * been appended, the last two segments are rebuilt as a single segment as
+ * long as the older segment is smaller than {@link #MERGE} times the newer
+ * one. The files of the first segment start with the prefix
+ * {@link org.basex.data.DataText#DATAFTX}; the files of all other segments
+ * are prefixed with {@link FTIndex#prefix}. If more than one segment
+ * exists, file <b>s</b> contains the following segments:<br/>
+ * Structure: {@code n, [i, p, min, max] ...}<br/>
+ * {@code n} is the number of additional segments [{@link
+ * org.basex.util.Num}].<br/>
+ * {@code i} is the id of a segment [{@link org.basex.util.Num}].<br/>
+ * {@code p} is the first pre value of a segment [{@link
+ * org.basex.util.Num}].<br/>
+ * {@code min, max} are the minimum and maximum scoring values [int].</p>
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class FTSegments implements Index {
+  /** Size ratio between two segments that prevents a merge. */
+  private static final int MERGE = 2;
+  /** Data reference. */
+  private final Data data;
+  /** Segment ids. */
+  private final IntList ids = new IntList();
+  /** First pre values of the segments. */
+  private final IntList pres = new IntList();
+  /** Minimum scoring values of the segments. */
+  private final IntList mins = new IntList();
+  /** Maximum scoring values of the segments. */
+  private final IntList maxs = new IntList();
+  /** Segments. */
+  private FTIndex[] segs = new FTIndex[1];
+
+  /**
+   * Constructor, opening all segments.
+   * @param d data reference
+   * @param ix first segment
+   * @throws IOException I/O exception
+   */
+  FTSegments(final Data d, final FTIndex ix) throws IOException {
+    data = d;
+    add(ix, 0, 0, d.meta.minscore, d.meta.maxscore);
+
+    final File f = d.meta.file(DATAFTX + 's');
+    if(!f.exists()) return;
+    final DataAccess in = new DataAccess(f);
+    try {
+      for(int n = in.readNum(); n > 0; --n) {
+        final int id = in.readNum(), pre = in.readNum();
+        final int mn = in.read4(), mx = in.read4();
+        add(FTIndex.get(d, id, mn, mx), id, pre, mn, mx);
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Indexes all nodes that have been appended to the database in a new
+   * segment, and merges segments if necessary.
+   * @param pre pre value of the first appended node
+   * @throws IOException I/O exception
+   */
+  public void append(final int pre) throws IOException {
+    final int n = ids.size();
+    build(n, ids.get(n - 1) + 1, pre);
+
+    // merge the last two segments if they have similar sizes
+    for(int s = ids.size() - 1; s > 0; --s) {
+      final int last = data.meta.size - pres.get(s);
+      if(pres.get(s) - pres.get(s - 1) >= last * MERGE) break;
+      build(s - 1, s == 1 ? 0 : ids.get(s) + 1, pres.get(s - 1));
+    }
+    write();
+  }
+
+  /**
+   * Builds a segment for all nodes starting from the specified pre value,
+   * and replaces all existing segments starting from the specified position.
+   * @param s position of the segment
+   * @param id id of the new segment
+   * @param pre first pre value
+   * @throws IOException I/O exception
+   */
+  private void build(final int s, final int id, final int pre)
+      throws IOException {
+
+    // the first segment is rebuilt from scratch, deleting all files
+    if(id == 0) close();
+    final FTBuilder b = FTBuilder.get(data, id, pre);
+    b.index();
+    final FTIndex ix = b.open();
+
+    for(int i = ids.size() - 1; i >= s; --i) {
+      if(id != 0) {
+        segs[i].close();
+        DropDB.drop(data.meta.name, FTIndex.prefix(ids.get(i)) + ".*" +
+            IO.BASEXSUFFIX, data.meta.prop);
+      }
+      ids.pop();
+      pres.pop();
+      mins.pop();
+      maxs.pop();
+    }
+    add(ix, id, pre, b.min, b.max);
+  }
+
+  /**
+   * Adds a segment.
+   * @param ix index segment
+   * @param id segment id
+   * @param pre first pre value
+   * @param mn minimum scoring value
+   * @param mx maximum scoring value
+   */
+  private void add(final FTIndex ix, final int id, final int pre,
+      final int mn, final int mx) {
+    final int s = ids.size();
+    if(s == segs.length) segs = Arrays.copyOf(segs, s << 1);
+    segs[s] = ix;
+    ids.add(id);
+    pres.add(pre);
+    mins.add(mn);
+    maxs.add(mx);
+  }
+
+  /**
+   * Writes the list of segments to disk.
+   * @throws IOException I/O exception
+   */
+  private void write() throws IOException {
+    final File f = data.meta.file(DATAFTX + 's');
+    final int n = ids.size();
+    if(n == 1) {
+      if(f.exists() && !f.delete()) throw new IOException(
+          Util.info(DBNOTDELETED, f));
+      return;
+    }
+    final DataOutput out = new DataOutput(f);
+    try {
+      out.writeNum(n - 1);
+      for(int s = 1; s < n; ++s) {
+        out.writeNum(ids.get(s));
+        out.writeNum(pres.get(s));
+        out.write4(mins.get(s));
+        out.write4(maxs.get(s));
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  @Override
+  public byte[] info() {
+    final TokenBuilder tb = new TokenBuilder(segs[0].info());
+    final int n = ids.size();
+    if(n > 1) tb.add(IDXSEGMENTS + n + NL);
+    return tb.finish();
+  }
+
+  @Override
+  public IndexIterator ids(final IndexToken tok) {
+    final int n = ids.size();
+    if(n == 1) return segs[0].ids(tok);
+    final FTIndexIterator[] its = new FTIndexIterator[n];
+    for(int s = 0; s < n; ++s) its[s] = (FTIndexIterator) segs[s].ids(tok);
+    return new Segments(its, pres.toArray());
+  }
+
+  @Override
+  public int nrIDs(final IndexToken tok) {
+    int c = 0;
+    final int n = ids.size();
+    for(int s = 0; s < n; ++s) c += segs[s].nrIDs(tok);
+    return c;
+  }
+
+  @Override
+  public void close() throws IOException {
+    final int n = ids.size();
+    for(int s = 0; s < n; ++s) segs[s].close();
+  }
+
+  /**
+   * Iterator on the results of all segments. As the segments cover
+   * ascending ranges of pre values, the results are concatenated.
+   */
+  private static final class Segments extends FTIndexIterator {
+    /** Iterators of all segments. */
+    private final FTIndexIterator[] its;
+    /** First pre values of the segments. */
+    private final int[] pres;
+    /** Current segment. */
+    private int c;
+
+    /**
+     * Constructor.
+     * @param i iterators
+     * @param p first pre values
+     */
+    Segments(final FTIndexIterator[] i, final int[] p) {
+      its = i;
+      pres = p;
+    }
+
+    @Override
+    public boolean more() {
+      for(; c < its.length; ++c) if(its[c].more()) return true;
+      return false;
+    }
+
+    @Override
+    public boolean advance(final int p) {
+      // skip segments that only contain smaller pre values
+      while(c + 1 < its.length && pres[c + 1] <= p) ++c;
+      if(c < its.length && its[c].advance(p)) return true;
+      ++c;
+      return more();
+    }
+
+    @Override
+    public double bound() {
+      double b = 0;
+      for(final FTIndexIterator it : its) b = Math.max(b, it.bound());
+      return b;
+    }
+
+    @Override
+    public double bound(final int p) {
+      return its[segment(p)].bound(p);
+    }
+
+    @Override
+    public int block(final int p) {
+      final int s = segment(p);
+      final int b = its[s].block(p);
+      return s + 1 < its.length ? Math.min(b, pres[s + 1]) : b;
+    }
+
+    /**
+     * Returns the segment that contains the specified pre value.
+     * @param p pre value
+     * @return segment
+     */
+    private int segment(final int p) {
+      int s = its.length - 1;
+      while(s > 0 && pres[s] > p) --s;
+      return s;
+    }
+
+    @Override
+    public FTMatches matches() {
+      return its[c].matches();
+    }
+
+    @Override
+    public int next() {
+      return its[c].next();
+    }
+
+    @Override
+    public double score() {
+      return its[c].score();
+    }
+
+    @Override
+    public void tokenNum(final byte tn) {
+      for(final FTIndexIterator it : its) it.tokenNum(tn);
+    }
+
+    @Override
+    public int indexSize() {
+      int s = 0;
+      for(final FTIndexIterator it : its) s += it.indexSize();
+      return s;
+    }
+  }
+}
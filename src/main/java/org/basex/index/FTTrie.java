@@ -1,7 +1,6 @@
 package org.basex.index;
 
 import static org.basex.core.Text.*;
-import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 import static org.basex.util.ft.FTFlag.*;
 import java.io.IOException;
@@ -59,13 +58,17 @@ final class FTTrie extends FTIndex {
   /**
    * Constructor, initializing the index structure.
    * @param d data reference
+   * @param id segment id
+   * @param mn minimum scoring value
+   * @param mx maximum scoring value
    * @throws IOException IO Exception
    */
-  protected FTTrie(final Data d) throws IOException {
-    super(d);
-    inA = new DataAccess(d.meta.file(DATAFTX + 'a'));
-    inB = new DataAccess(d.meta.file(DATAFTX + 'b'));
-    inC = new DataAccess(d.meta.file(DATAFTX + 'c'));
+  protected FTTrie(final Data d, final int id, final int mn, final int mx)
+      throws IOException {
+    super(d, id, mn, mx);
+    inA = new DataAccess(d.meta.file(pref + 'a'));
+    inB = new DataAccess(d.meta.file(pref + 'b'));
+    inC = new DataAccess(d.meta.file(pref + 'c'));
   }
 
   @Override
@@ -104,8 +107,14 @@ final class FTTrie extends FTIndex {
 
     // support wildcards
     if(lex.ftOpt().is(WC)) {
+      // patterns with a single wildcard are evaluated on the trie
       final int pw = indexOf(token, '.');
-      if(pw != -1) return wc(token, pw, false);
+      int d = 0;
+      for(final byte b : token) if(b == '.') ++d;
+      if(pw > 0 && d == 1 && !contains(token, '{') && !contains(token, '\\'))
+        return wc(token, pw, false);
+      // other patterns: retrieve candidates from the n-gram dictionary
+      if(pw != -1 || contains(token, '\\')) return wc(token, grams.wc(token));
     }
 
     // return cached or new result
@@ -119,6 +128,7 @@ final class FTTrie extends FTIndex {
     inB.close();
     inC.close();
     inA.close();
+    grams.close();
   }
 
   /**
@@ -178,7 +188,8 @@ final class FTTrie extends FTIndex {
     tb.addExt("- %: %" + NL, CREATEDC, AInfo.flag(data.meta.diacritics));
     if(data.meta.language != null)
       tb.addExt("- %: %" + NL, CREATELN, data.meta.language);
-    final long l = inA.length() + inB.length() + inC.length();
+    final long l = inA.length() + inB.length() + inC.length() +
+      grams.length();
     tb.add(SIZEDISK + Performance.format(l, true) + NL);
 
     final IndexStats stats = new IndexStats(data);
@@ -395,6 +406,25 @@ final class FTTrie extends FTIndex {
    */
   private byte[] valuesFound;
 
+  /**
+   * Returns the terms of the specified candidates that match a wildcard
+   * pattern.
+   * @param token wildcard pattern
+   * @param ids ids of the candidate terms, or {@code null} if all terms
+   * need to be checked
+   * @return result iterator
+   */
+  private FTIndexIterator wc(final byte[] token, final IntList ids) {
+    if(ids == null) return wc(token, grams.terms());
+    FTIndexIterator it = FTIndexIterator.EMP;
+    for(int i = 0; i < ids.size(); ++i) {
+      if(!FTGrams.wc(grams.token(ids.get(i)), token, 0, 0)) continue;
+      it = FTIndexIterator.union(
+          iter(grams.pointer(), grams.size(), inB, false), it);
+    }
+    return it;
+  }
+
   /**
    * Method for wildcards search in trie.
    * @param token search token
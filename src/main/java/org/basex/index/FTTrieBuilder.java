@@ -1,6 +1,5 @@
 package org.basex.index;
 
-import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -40,16 +39,18 @@ final class FTTrieBuilder extends FTBuilder {
   /**
    * Constructor.
    * @param d data reference
+   * @param i segment id
+   * @param s first pre value to be indexed
    * @throws IOException IOException
    */
-  protected FTTrieBuilder(final Data d) throws IOException {
-    super(d);
+  protected FTTrieBuilder(final Data d, final int i, final int s)
+      throws IOException {
+    super(d, i, s);
   }
 
   @Override
-  public FTIndex build() throws IOException {
-    index();
-    return new FTTrie(data);
+  FTIndex open() throws IOException {
+    return new FTTrie(data, id, min, max);
   }
 
   @Override
@@ -77,13 +78,14 @@ final class FTTrieBuilder extends FTBuilder {
 
     // merges temporary index files
     writeIndex(csize++);
-    final DataOutput outB = new DataOutput(data.meta.file(DATAFTX + 'b'));
-    final DataOutput outT = new DataOutput(data.meta.file(DATAFTX + 't'));
+    final DataOutput outB = new DataOutput(data.meta.file(pref + 'b'));
+    final DataOutput outT = new DataOutput(data.meta.file(pref + 't'));
+    final FTGramsBuilder grams = new FTGramsBuilder(data, pref);
     final IntList ind = new IntList();
 
     // open all temporary sorted lists
     final FTList[] v = new FTList[csize];
-    for(int b = 0; b < csize; ++b) v[b] = new FTTrieList(data, b);
+    for(int b = 0; b < csize; ++b) v[b] = new FTTrieList(data, pref + b);
 
     final IntList il = new IntList();
     while(check(v)) {
@@ -109,16 +111,21 @@ final class FTTrieBuilder extends FTBuilder {
       }
 
       // write token to disk
-      outT.writeToken(v[min].tok);
+      final byte[] tok = v[min].tok;
+      outT.writeToken(tok);
       // merge and write data size
-      outT.write4(merge(outB, il, v));
+      final long off = outB.size();
+      final int s = merge(outB, il, v);
+      outT.write4(s);
       // write pointer on full-text data
       outT.write5(outB.size());
+      grams.add(tok, off, s);
     }
 
     outT.writeToken(EMPTY);
     outT.close();
     outB.close();
+    grams.close();
 
     // write trie index structure to disk, split in subtrees
     writeSplitTrie(ind);
@@ -132,7 +139,8 @@ final class FTTrieBuilder extends FTBuilder {
     if(scm == 0) hash.init();
     else hash.initIter();
 
-    final DataOutput outB = new DataOutput(data.meta.file(DATAFTX + 'b'));
+    final DataOutput outB = new DataOutput(data.meta.file(pref + 'b'));
+    final FTGramsBuilder grams = new FTGramsBuilder(data, pref);
     while(hash.more()) {
       final int p = hash.next();
       final byte[] tok = hash.key();
@@ -141,15 +149,17 @@ final class FTTrieBuilder extends FTBuilder {
       // write compressed pre and pos arrays
       writeFTData(outB, hash.pre[p], hash.pos[p]);
       index.insertSorted(tok, ds, cpre);
+      grams.add(tok, cpre, ds);
     }
     outB.close();
+    grams.close();
     hash = null;
 
     final TokenList tokens = index.tokens;
     final IntArrayList next = index.next;
 
-    final DataOutput outA = new DataOutput(data.meta.file(DATAFTX + 'a'));
-    final DataOutput outC = new DataOutput(data.meta.file(DATAFTX + 'c'));
+    final DataOutput outA = new DataOutput(data.meta.file(pref + 'a'));
+    final DataOutput outC = new DataOutput(data.meta.file(pref + 'c'));
 
     // write root node (token length and bytes)
     outA.write1(1);
@@ -185,9 +195,9 @@ final class FTTrieBuilder extends FTBuilder {
    * @throws IOException I/O exception
    */
   private void writeSplitTrie(final IntList roots) throws IOException {
-    final DataOutput outA = new DataOutput(data.meta.file(DATAFTX + 'a'));
-    final DataOutput outC = new DataOutput(data.meta.file(DATAFTX + 'c'));
-    final DataAccess outT = new DataAccess(data.meta.file(DATAFTX + 't'));
+    final DataOutput outA = new DataOutput(data.meta.file(pref + 'a'));
+    final DataOutput outC = new DataOutput(data.meta.file(pref + 'c'));
+    final DataAccess outT = new DataAccess(data.meta.file(pref + 't'));
     final int[] root = new int[roots.size()];
     int rp = 0;
 
@@ -234,14 +244,14 @@ final class FTTrieBuilder extends FTBuilder {
 
     // finally update root node
     final RandomAccessFile tmp =
-      new RandomAccessFile(data.meta.file(DATAFTX + 'a'), "rw");
+      new RandomAccessFile(data.meta.file(pref + 'a'), "rw");
     tmp.seek(2);
     for(final int r : root) {
       tmp.writeInt(r);
       tmp.seek(tmp.getFilePointer() + 1);
     }
     tmp.close();
-    DropDB.drop(data.meta.name, DATAFTX + 't' + IO.BASEXSUFFIX,
+    DropDB.drop(data.meta.name, pref + 't' + IO.BASEXSUFFIX,
         data.meta.prop);
   }
 
@@ -314,7 +324,7 @@ final class FTTrieBuilder extends FTBuilder {
    */
   @Override
   protected void writeIndex(final int cs) throws IOException {
-    final String f = DATAFTX + (merge ? cs : "");
+    final String f = pref + (merge ? cs : "");
     final DataOutput outA = new DataOutput(data.meta.file(f + 'a'));
     final DataOutput outB = new DataOutput(data.meta.file(f + 'b'));
 
@@ -13,11 +13,11 @@ final class FTTrieList extends FTList {
   /**
    * Constructor, initializing the index structure.
    * @param d data reference
-   * @param cf current file
+   * @param f file prefix
    * @throws IOException IO Exception
    */
-  FTTrieList(final Data d, final int cf) throws IOException {
-    super(d, cf, 'a', 'b');
+  FTTrieList(final Data d, final String f) throws IOException {
+    super(d, f, 'a', 'b');
     next();
   }
 
@@ -2,7 +2,14 @@ package org.basex.index;
 
 import static org.basex.core.Text.*;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.basex.core.Progress;
+import org.basex.core.Prop;
 import org.basex.data.Data;
 import org.basex.util.Performance;
 import org.basex.util.Util;
@@ -23,6 +30,8 @@ public abstract class IndexBuilder extends Progress {
   protected int pre;
   /** Merge flag. */
   protected boolean merge;
+  /** Maximum number of parallel threads. */
+  protected final int threads;
 
   /** Runtime for memory consumption. */
   private final Runtime rt = Runtime.getRuntime();
@@ -53,18 +62,67 @@ public abstract class IndexBuilder extends Progress {
    * @throws IOException I/O exception
    */
   protected final boolean memFull() throws IOException {
+    final boolean full = memFull(cc);
+    cc = full ? 30 : cc - 1;
+    return full;
+  }
+
+  /**
+   * Checks if enough memory is left to continue index building.
+   * An exception is thrown if memory is exhausted again although the
+   * specified counter, which is decremented with each check, has not
+   * dropped below zero.
+   * @param c number of remaining checks
+   * @return result of check
+   * @throws IOException I/O exception
+   */
+  protected final boolean memFull(final int c) throws IOException {
     final boolean full = rt.totalMemory() - rt.freeMemory() >= maxMem;
     if(full) {
-      if(cc >= 0) throw new IOException(PROCMEM + PROCMEMCREATE);
+      if(c >= 0) throw new IOException(PROCMEM + PROCMEMCREATE);
       if(Util.debug) Util.error("!");
       merge = true;
-      cc = 30;
-    } else {
-      --cc;
     }
     return full;
   }
 
+  /**
+   * Adds the specified number of processed nodes to the current parsing value.
+   * Called by parallel workers.
+   * @param c number of processed nodes
+   */
+  protected final synchronized void advance(final int c) {
+    pre += c;
+  }
+
+  /**
+   * Runs the specified tasks in parallel and waits until all of them have
+   * been finished. The first exception thrown by a task is passed on.
+   * @param tasks tasks to be run
+   * @throws IOException I/O exception
+   */
+  protected final void run(final ArrayList<Callable<Void>> tasks)
+      throws IOException {
+
+    final int ts = tasks.size();
+    if(ts == 0) return;
+    final ExecutorService pool =
+      Executors.newFixedThreadPool(Math.min(ts, threads));
+    try {
+      for(final Future<Void> f : pool.invokeAll(tasks)) f.get();
+    } catch(final InterruptedException ex) {
+      throw new IOException(ex.toString());
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof IOException) throw (IOException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+      throw new IOException(th.toString());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   /**
    * Constructor.
    * @param d reference
@@ -72,6 +130,8 @@ public abstract class IndexBuilder extends Progress {
   protected IndexBuilder(final Data d) {
     data = d;
     size = data.meta.size;
+    final int t = d.meta.prop.num(Prop.THREADS);
+    threads = t > 0 ? t : rt.availableProcessors();
     if(rt.totalMemory() - rt.freeMemory() >= rt.maxMemory() >> 1)
       Performance.gc(2);
   }
@@ -1,6 +1,9 @@
 package org.basex.index;
 
+import java.io.IOException;
 import java.util.Arrays;
+import org.basex.io.DataInput;
+import org.basex.io.DataOutput;
 import org.basex.util.Array;
 import org.basex.util.TokenSet;
 import org.basex.util.Token;
@@ -19,6 +22,33 @@ public final class MemValues extends TokenSet implements Index {
   /** ID array lengths. */
   int[] len = new int[CAP];
 
+  /**
+   * Default constructor.
+   */
+  public MemValues() {
+  }
+
+  /**
+   * Constructor, reading the index from disk.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  MemValues(final DataInput in) throws IOException {
+    super(in);
+    ids = new int[keys.length][];
+    len = new int[keys.length];
+    for(int i = 1; i < size; ++i) {
+      ids[i] = in.readNums();
+      len[i] = ids[i].length;
+    }
+  }
+
+  @Override
+  public void write(final DataOutput out) throws IOException {
+    super.write(out);
+    for(int i = 1; i < size; ++i) out.writeNums(Arrays.copyOf(ids[i], len[i]));
+  }
+
   /**
    * Indexes the specified keys and values.
    * @param key key
@@ -32,13 +62,32 @@ public final class MemValues extends TokenSet implements Index {
     } else {
       i = -i;
       final int l = len[i];
-      if(l == ids[i].length) ids[i] = Arrays.copyOf(ids[i], l << 1);
+      if(l == ids[i].length) ids[i] = Arrays.copyOf(ids[i], l + 1 << 1);
       ids[i][l] = id;
     }
     len[i]++;
     return i;
   }
 
+  /**
+   * Removes the specified id from the entry of the specified key.
+   * @param key key
+   * @param id id value
+   */
+  void delete(final byte[] key, final int id) {
+    final int i = id(key);
+    if(i == 0) return;
+    final int[] is = ids[i];
+    final int l = len[i];
+    for(int j = 0; j < l; ++j) {
+      if(is[j] == id) {
+        System.arraycopy(is, j + 1, is, j, l - j - 1);
+        --len[i];
+        return;
+      }
+    }
+  }
+
   @Override
   public IndexIterator ids(final IndexToken tok) {
     final int i = id(tok.get());
@@ -76,6 +76,7 @@ public final class Names extends TokenSet {
    * @param v value, used for statistics
    */
   public void index(final int i, final byte[] v) {
+    if(stat[i] == null) stat[i] = new StatsKey(cats);
     stat[i].add(v);
   }
 
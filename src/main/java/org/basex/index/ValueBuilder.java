@@ -4,6 +4,9 @@ import static org.basex.core.Text.*;
 import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
 import org.basex.core.cmd.DropDB;
 import org.basex.data.Data;
 import org.basex.io.DataAccess;
@@ -12,6 +15,7 @@ import org.basex.io.IO;
 import org.basex.util.IntList;
 import org.basex.util.Num;
 import org.basex.util.Performance;
+import org.basex.util.StringList;
 import org.basex.util.TokenBuilder;
 import org.basex.util.Util;
 
@@ -31,18 +35,27 @@ import org.basex.util.Util;
  *   structure. Instead, they can be found by following the id references to
  *   the main table.
  * </li>
+ * <li> {@code DATATXT/ATV + 'n'}: contains all numeric keys, sorted by their
+ *   values, which allows range queries in logarithmic time. Each entry
+ *   consists of the 8-byte double value, the 4-byte offset of the key, and
+ *   the 4-byte number of ids of all keys up to the current entry.</li>
  * </ul>
  *
+ * If more than one thread is available, the table is divided into partitions
+ * with consecutive pre values, which are indexed in parallel. If main memory
+ * is exhausted, the temporary indexes of all partitions are written to disk.
+ * Finally, all sorted indexes are merged in the order of their pre values.
+ *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
 public final class ValueBuilder extends IndexBuilder {
-  /** Temporary value tree. */
-  private ValueTree index = new ValueTree();
+  /** Minimum number of nodes per partition. */
+  private static final int PART = 1 << 15;
   /** Index type (attributes/texts). */
   private final boolean text;
-  /** Number of cached index structures. */
-  private int csize;
+  /** Number of memory overflows, causing all partitions to be written. */
+  private volatile int spills;
 
   /**
    * Constructor.
@@ -62,38 +75,50 @@ public final class ValueBuilder extends IndexBuilder {
     final Performance perf = Util.debug ? new Performance() : null;
     Util.debug(det());
 
+    // index partitions in parallel
     final String f = text ? DATATXT : DATAATV;
-    final int k = text ? Data.TEXT : Data.ATTR;
-
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0x0FFF) == 0) {
-        check();
-        // check if main memory is exhausted
-        if(memFull()) {
-          write(f + csize++, false);
-          index = new ValueTree();
-          Performance.gc(2);
-        }
-      }
-      // skip too long tokens
-      if(data.kind(pre) == k && data.textLen(pre, text) <= MAXLEN)
-        index.index(data.text(pre, text), pre);
+    final int ps = Math.max(1, Math.min(threads, size / PART));
+    final Partition[] parts = new Partition[ps];
+    final ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for(int p = 0; p < ps; ++p) {
+      parts[p] = new Partition(f + p + '_', (int) ((long) size * p / ps),
+          (int) ((long) size * (p + 1) / ps));
+      tasks.add(parts[p]);
     }
+    run(tasks);
 
-    if(csize == 0) {
-      write(f, true);
+    if(spills == 0 && ps == 1) {
+      write(f, parts[0].index, true);
     } else {
-      write(f + csize, false);
-      index = null;
-      Performance.gc(1);
-      ++csize;
-
-      final int sz = merge();
+      // write remaining values to disk if memory has been exhausted
+      if(spills != 0) {
+        tasks.clear();
+        for(final Partition p : parts) {
+          tasks.add(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+              p.spill();
+              return null;
+            }
+          });
+        }
+        run(tasks);
+        Performance.gc(1);
+      }
+      // merge sorted indexes in the order of their pre values
+      final ArrayList<ValueMerge> vm = new ArrayList<ValueMerge>();
+      for(final Partition p : parts) {
+        for(final String r : p.runs) vm.add(new ValueMerge(data, text, r));
+        if(p.index.size() != 0) vm.add(new ValueMerge(p.index));
+      }
+      final int sz = merge(vm.toArray(new ValueMerge[vm.size()]));
       final DataAccess outL = new DataAccess(data.meta.file(f + 'l'));
       outL.writeInt(sz);
       outL.close();
     }
 
+    numbers(f);
+
     if(text) data.meta.textindex = true;
     else data.meta.attrindex = true;
 
@@ -102,19 +127,18 @@ public final class ValueBuilder extends IndexBuilder {
   }
 
   /**
-   * Merges cached index files.
+   * Merges temporary indexes.
+   * @param vm temporary indexes, sorted by their pre values
    * @return returns number of indexed tokens
    * @throws IOException I/O exception
    */
-  private int merge() throws IOException {
+  private int merge(final ValueMerge[] vm) throws IOException {
     final String f = text ? DATATXT : DATAATV;
     final DataOutput outL = new DataOutput(data.meta.file(f + 'l'));
     final DataOutput outR = new DataOutput(data.meta.file(f + 'r'));
     outL.write4(0);
 
-    final ValueMerge[] vm = new ValueMerge[csize];
-    for(int i = 0; i < csize; ++i) vm[i] = new ValueMerge(data, text, i);
-
+    final int csize = vm.length;
     int min;
     int sz = 0;
     final IntList ml = new IntList();
@@ -196,6 +220,46 @@ public final class ValueBuilder extends IndexBuilder {
     outL.write(pres, 4, is - 4);
   }
 
+  /**
+   * Writes the numeric keys, sorted by their values.
+   * @param f file prefix
+   * @throws IOException I/O exception
+   */
+  private void numbers(final String f) throws IOException {
+    final DataAccess inL = new DataAccess(data.meta.file(f + 'l'));
+    final DataAccess inR = new DataAccess(data.meta.file(f + 'r'));
+    final int sz = inL.read4();
+    final IntList keys = new IntList();
+    final int[] ids = new int[sz];
+    double[] vals = new double[1];
+    for(int m = 0; m < sz; ++m) {
+      ids[m] = inL.readNum(inR.read5(m * 5L));
+      final double v = data.textDbl(inL.readNum(), text);
+      if(v != v) continue;
+      final int ks = keys.size();
+      if(ks == vals.length) vals = Arrays.copyOf(vals, ks << 1);
+      vals[ks] = v;
+      keys.add(m);
+    }
+    inL.close();
+    inR.close();
+
+    // sort keys by their values
+    final int ks = keys.size();
+    vals = Arrays.copyOf(vals, ks);
+    keys.sort(vals, true);
+    final DataOutput outN = new DataOutput(data.meta.file(f + 'n'));
+    int c = 0;
+    for(int k = 0; k < ks; ++k) {
+      final int m = keys.get(k);
+      c += ids[m];
+      outN.write8(Double.doubleToLongBits(vals[k]));
+      outN.write4(m);
+      outN.write4(c);
+    }
+    outN.close();
+  }
+
   /**
    * Checks if any unprocessed pre values are remaining.
    * @param vm merge value array
@@ -207,12 +271,14 @@ public final class ValueBuilder extends IndexBuilder {
   }
 
   /**
-   * Writes the current value tree to disk.
+   * Writes the specified value tree to disk.
    * @param name name
+   * @param index value tree
    * @param all writes the complete tree
    * @throws IOException I/O exception
    */
-  private void write(final String name, final boolean all) throws IOException {
+  private void write(final String name, final ValueTree index,
+      final boolean all) throws IOException {
     // write positions and references
     final DataOutput outL = new DataOutput(data.meta.file(name + 'l'));
     final DataOutput outR = new DataOutput(data.meta.file(name + 'r'));
@@ -238,14 +304,7 @@ public final class ValueBuilder extends IndexBuilder {
         }
       } else {
         // write integer with number of bytes and compressed pre values to disk
-        final byte[] tmp = new byte[4 + is];
-        Num.size(tmp, 4);
-        for(int ip = 4, o = 0; ip < is; ip += Num.len(pres, ip)) {
-          final int p = Num.read(pres, ip);
-          Num.add(tmp, p - o);
-          o = p;
-        }
-        outL.write(tmp, 0, Num.size(tmp));
+        outL.write(index.diffs(i));
       }
     }
     outL.close();
@@ -260,6 +319,79 @@ public final class ValueBuilder extends IndexBuilder {
     }
   }
 
+  /**
+   * Indexes the values of a single partition.
+   */
+  private final class Partition implements Callable<Void> {
+    /** File prefix for temporary indexes. */
+    final String name;
+    /** Names of temporary indexes written to disk. */
+    final StringList runs = new StringList();
+    /** First pre value. */
+    final int start;
+    /** Pre value after the last node. */
+    final int end;
+    /** Temporary value tree. */
+    ValueTree index = new ValueTree();
+
+    /**
+     * Constructor.
+     * @param n file prefix
+     * @param s first pre value
+     * @param e pre value after the last node
+     */
+    Partition(final String n, final int s, final int e) {
+      name = n;
+      start = s;
+      end = e;
+    }
+
+    @Override
+    public Void call() throws IOException {
+      final int k = text ? Data.TEXT : Data.ATTR;
+      int sp = spills, c = 0, l = start;
+      for(int p = start; p < end; ++p) {
+        if((p & 0x0FFF) == 0) {
+          advance(p - l);
+          l = p;
+          check();
+          if(sp != spills) {
+            // memory has been exhausted by another partition
+            sp = spills;
+            spill();
+            c = 30;
+          } else {
+            // check if main memory is exhausted
+            final boolean full = memFull(c);
+            if(full) {
+              synchronized(ValueBuilder.this) { sp = ++spills; }
+              spill();
+            }
+            c = full ? 30 : c - 1;
+          }
+        }
+        // skip too long tokens
+        if(data.kind(p) == k && data.textLen(p, text) <= MAXLEN)
+          index.index(data.text(p, text), p);
+      }
+      advance(end - l);
+      return null;
+    }
+
+    /**
+     * Writes the current value tree to disk.
+     * @throws IOException I/O exception
+     */
+    void spill() throws IOException {
+      if(index.size() == 0) return;
+      final String n = name + runs.size();
+      write(n, index, false);
+      runs.add(n);
+      index = new ValueTree();
+      Performance.gc(2);
+    }
+  }
+
   @Override
   public void abort() {
     final String f = text ? DATATXT : DATAATV;
@@ -1,6 +1,6 @@
 package org.basex.index;
 
-import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
 import java.io.IOException;
 import org.basex.core.cmd.DropDB;
 import org.basex.data.Data;
@@ -8,7 +8,8 @@ import org.basex.io.DataInput;
 import org.basex.io.IO;
 
 /**
- * This class provides data for merging temporary value indexes.
+ * This class provides data for merging temporary value indexes, which have
+ * either been written to disk or are still kept in main memory.
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
@@ -22,6 +23,8 @@ final class ValueMerge {
   private final Data data;
   /** Index instance. */
   private final DiskValues v;
+  /** Value tree (if index is kept in main memory). */
+  private final ValueTree tree;
 
   /** Current token. */
   byte[] token;
@@ -29,25 +32,53 @@ final class ValueMerge {
   byte[] pre;
 
   /**
-   * Constructor.
+   * Constructor, opening a temporary index on disk.
    * @param d data reference
    * @param txt text flag
-   * @param i merge id
+   * @param pr file prefix
    * @throws IOException I/O exception
    */
-  ValueMerge(final Data d, final boolean txt, final int i) throws IOException {
-    pref = (txt ? DATATXT : DATAATV) + i;
+  ValueMerge(final Data d, final boolean txt, final String pr)
+      throws IOException {
+    pref = pr;
     di = new DataInput(d.meta.file(pref + 't'));
     v = new DiskValues(d, txt, pref);
+    tree = null;
     data = d;
     next();
   }
 
+  /**
+   * Constructor, iterating a value tree in main memory.
+   * @param vt value tree
+   * @throws IOException I/O exception
+   */
+  ValueMerge(final ValueTree vt) throws IOException {
+    pref = null;
+    di = null;
+    v = null;
+    data = null;
+    tree = vt;
+    tree.init();
+    next();
+  }
+
   /**
    * Jumps to the next text.
    * @throws IOException I/O exception
    */
   void next() throws IOException {
+    if(tree != null) {
+      if(tree.more()) {
+        final int i = tree.next();
+        token = tree.tokens.get(i);
+        pre = tree.diffs(i);
+      } else {
+        pre = EMPTY;
+      }
+      return;
+    }
+
     pre = v.nextPres();
     if(pre.length != 0) {
       token = di.readBytes();
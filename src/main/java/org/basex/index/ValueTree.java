@@ -1,5 +1,6 @@
 package org.basex.index;
 
+import java.util.Arrays;
 import org.basex.util.BoolList;
 import org.basex.util.IntList;
 import org.basex.util.TokenIntMap;
@@ -141,6 +142,25 @@ class ValueTree {
     return ln;
   }
 
+  /**
+   * Returns the pre values of the specified node as compressed distances,
+   * preceded by the number of bytes.
+   * @param n node
+   * @return distances
+   */
+  final byte[] diffs(final int n) {
+    final byte[] prs = pres.get(n);
+    final int is = Num.size(prs);
+    final byte[] tmp = new byte[4 + is];
+    Num.size(tmp, 4);
+    for(int ip = 4, o = 0; ip < is; ip += Num.len(prs, ip)) {
+      final int p = Num.read(prs, ip);
+      Num.add(tmp, p - o);
+      o = p;
+    }
+    return Arrays.copyOf(tmp, Num.size(tmp));
+  }
+
   // PRIVATE METHODS ==========================================================
 
   /**
@@ -13,4 +13,13 @@ final class Buffer {
   long pos = -1;
   /** Dirty flag. */
   boolean dirty;
+
+  /** Flag for buffers that have been accessed more than once. */
+  boolean hot;
+  /** Previous buffer in the replacement queue. */
+  Buffer prev;
+  /** Next buffer in the replacement queue. */
+  Buffer next;
+  /** Next buffer in the hash bucket. */
+  Buffer hash;
 }
@@ -1,24 +1,89 @@
 package org.basex.io;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 /**
- * This class provides a simple, clock-based buffer management.
+ * This class provides a scan-resistant buffer management, based on the
+ * 2Q replacement strategy (Johnson and Shasha, VLDB 1994):
+ * <ul>
+ * <li>Blocks that are referenced for the first time are placed in a FIFO
+ *   queue ({@code A1in}). If they are replaced, their positions are
+ *   remembered in a ghost queue ({@code A1out}).</li>
+ * <li>Blocks that are requested again while being remembered in the ghost
+ *   queue are placed in an LRU list ({@code Am}).</li>
+ * </ul>
+ * A single sequential scan will thus only replace buffers of the FIFO queue,
+ * whereas frequently accessed blocks are kept in main memory.
+ *
+ * <p>Buffers are allocated on demand. Each instance owns at least
+ * {@link #MIN} buffers; additional buffers are taken from a memory budget
+ * that is shared by all instances (see {@link org.basex.core.Prop#BUFFERSIZE}).
+ * Allocated buffers are returned to the budget via {@link #release()}.</p>
  *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
 final class Buffers {
-  /** Number of buffers (must be 2 ^ n). */
-  private static final int BUFFERS = 4;
+  /** Minimum number of buffers per instance. */
+  static final int MIN = 4;
+  /** Number of buffers currently allocated from the shared budget. */
+  private static int shared;
+
+  /** Maximum number of shared buffers. */
+  private final int max;
   /** Buffers. */
-  private final Buffer[] buf = new Buffer[BUFFERS];
-  /** Current buffer offset. */
-  private int c;
+  private Buffer[] buf = new Buffer[MIN];
+  /** Number of allocated buffers. */
+  private int size;
+  /** Hash buckets, indexed by the buffer positions. */
+  private Buffer[] bucket = new Buffer[MIN << 1];
+  /** Current buffer. */
+  private Buffer cur;
+  /** Indicates if the current buffer needs to be indexed. */
+  private boolean index;
+
+  /** First (most recent) buffer of the FIFO queue. */
+  private Buffer inHead;
+  /** Last buffer of the FIFO queue. */
+  private Buffer inTail;
+  /** Number of buffers in the FIFO queue. */
+  private int inSize;
+  /** First (most recently used) buffer of the LRU list. */
+  private Buffer amHead;
+  /** Last (least recently used) buffer of the LRU list. */
+  private Buffer amTail;
+
+  /** Ghost queue: positions of buffers that have been removed from the FIFO
+   * queue (circular array). */
+  private long[] ghosts = new long[MIN];
+  /** Positions in the ghost queue. */
+  private final HashSet<Long> ghost = new HashSet<Long>();
+  /** Offset of the oldest entry in the ghost queue. */
+  private int gstart;
+
+  /** Number of buffer hits. */
+  private long hits;
+  /** Number of buffer misses. */
+  private long misses;
+  /** Number of replaced buffers. */
+  private long evictions;
 
   /**
-   * Constructor.
+   * Constructor, creating a fixed number of {@link #MIN} buffers.
    */
   Buffers() {
-    for(int b = 0; b < BUFFERS; ++b) buf[b] = new Buffer();
+    this(0);
+  }
+
+  /**
+   * Constructor, specifying the size of the shared memory budget.
+   * @param kb maximum size of all shared buffers (in kilobytes)
+   */
+  Buffers(final int kb) {
+    max = (int) Math.min(Integer.MAX_VALUE, (long) kb * 1024 / IO.BLOCKSIZE);
+    cur = alloc();
+    in(cur);
   }
 
   /**
@@ -26,7 +91,7 @@ final class Buffers {
    * @return buffers
    */
   Buffer[] all() {
-    return buf;
+    return Arrays.copyOf(buf, size);
   }
 
   /**
@@ -34,20 +99,268 @@ final class Buffers {
    * @return current buffer
    */
   Buffer current() {
-    return buf[c];
+    return cur;
   }
 
   /**
-   * Chooses a buffer and sets the offset.
+   * Chooses a buffer for the specified position and sets the offset. If the
+   * position is not buffered yet, a buffer is chosen that can be replaced.
+   * In this case, the disk offset of the returned buffer will still point to
+   * the old position, and the buffer may be dirty: the caller is responsible
+   * for writing back the old contents, assigning the new position and reading
+   * the new contents.
    * @param p buffer pointer
    * @return true if cursor has changed
    */
   boolean cursor(final long p) {
-    final int o = c;
-    do {
-      if(buf[c].pos == p) return false;
-    } while((c = c + 1 & BUFFERS - 1) != o);
-    c = o + 1 & BUFFERS - 1;
+    final Buffer c = cur;
+    if(c.pos == p) {
+      ++hits;
+      return false;
+    }
+    if(index) {
+      add(c);
+      index = false;
+    }
+
+    // find buffer in hash table
+    Buffer b = bucket[hash(p)];
+    while(b != null && b.pos != p) b = b.hash;
+    if(b != null) {
+      ++hits;
+      // move hot buffers to the head of the LRU list
+      if(b.hot && b != amHead) {
+        unlink(b);
+        am(b);
+      }
+      cur = b;
+      return false;
+    }
+
+    ++misses;
+    if(size < MIN || reserve()) {
+      b = alloc();
+    } else {
+      b = victim();
+      if(b.pos >= 0) ++evictions;
+      remove(b);
+      unlink(b);
+      if(!b.hot && b.pos >= 0) {
+        // remember position of replaced buffer
+        if(ghost.size() == ghosts.length) {
+          ghost.remove(ghosts[gstart]);
+          gstart = (gstart + 1) % ghosts.length;
+        }
+        ghosts[(gstart + ghost.size()) % ghosts.length] = b.pos;
+        ghost.add(b.pos);
+      }
+    }
+    // blocks that have recently been replaced are considered to be hot
+    if(ghost.remove(p)) am(b);
+    else in(b);
+
+    cur = b;
+    index = true;
+    return true;
+  }
+
+  /**
+   * Assigns a new position to the specified buffer. Other buffers with the
+   * same position are invalidated.
+   * @param b buffer
+   * @param p new position
+   */
+  void assign(final Buffer b, final long p) {
+    if(b == cur && index) index = false;
+    else remove(b);
+    b.pos = p;
+    add(b);
+  }
+
+  /**
+   * Returns all shared buffers to the memory budget. Called when the
+   * underlying file is closed.
+   */
+  void release() {
+    final int s = Math.max(0, size - MIN);
+    if(s != 0) synchronized(Buffers.class) { shared -= s; }
+    size = Math.min(size, MIN);
+  }
+
+  /**
+   * Adds the number of buffer hits, misses and evictions to the specified
+   * array.
+   * @param st statistics (length: 3)
+   */
+  void stats(final long[] st) {
+    st[0] += hits;
+    st[1] += misses;
+    st[2] += evictions;
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Tries to reserve a new buffer from the shared memory budget.
+   * @return true if a buffer was reserved
+   */
+  private boolean reserve() {
+    synchronized(Buffers.class) {
+      if(shared >= max) return false;
+      ++shared;
+    }
+    if(size == buf.length) grow();
     return true;
   }
+
+  /**
+   * Extends the buffer array and the hash table.
+   */
+  private void grow() {
+    final int s = size << 1;
+    buf = Arrays.copyOf(buf, s);
+    // resize ghost queue
+    final long[] g = new long[s];
+    final int gs = ghost.size();
+    for(int i = 0; i < gs; ++i) g[i] = ghosts[(gstart + i) % ghosts.length];
+    ghosts = g;
+    gstart = 0;
+    // rehash buffers
+    bucket = new Buffer[s << 1];
+    for(int i = 0; i < size; ++i) {
+      final Buffer b = buf[i];
+      b.hash = null;
+      if(b.pos >= 0 && (b != cur || !index)) put(b);
+    }
+  }
+
+  /**
+   * Allocates a new buffer.
+   * @return buffer
+   */
+  private Buffer alloc() {
+    final Buffer b = new Buffer();
+    buf[size++] = b;
+    return b;
+  }
+
+  /**
+   * Chooses a buffer that can be replaced. Buffers from the FIFO queue will
+   * be chosen if the queue exceeds a quarter of all buffers, or if the LRU
+   * list is empty.
+   * @return buffer
+   */
+  private Buffer victim() {
+    final boolean fifo = inSize > Math.max(1, size >>> 2) || amTail == null;
+    Buffer b = last(fifo ? inTail : amTail);
+    if(b == null) b = last(fifo ? amTail : inTail);
+    return b;
+  }
+
+  /**
+   * Returns the specified buffer or its predecessor, if it is the current
+   * buffer.
+   * @param b buffer
+   * @return buffer or {@code null}
+   */
+  private Buffer last(final Buffer b) {
+    return b == cur ? b.prev : b;
+  }
+
+  /**
+   * Adds a buffer to the hash table. Stale buffers with the same position
+   * are invalidated.
+   * @param b buffer
+   */
+  private void add(final Buffer b) {
+    if(b.pos < 0) return;
+    Buffer o = bucket[hash(b.pos)];
+    while(o != null && o.pos != b.pos) o = o.hash;
+    if(o != null) {
+      remove(o);
+      o.pos = -1;
+      o.dirty = false;
+    }
+    put(b);
+  }
+
+  /**
+   * Adds a buffer to its hash bucket.
+   * @param b buffer
+   */
+  private void put(final Buffer b) {
+    final int h = hash(b.pos);
+    b.hash = bucket[h];
+    bucket[h] = b;
+  }
+
+  /**
+   * Removes a buffer from the hash table.
+   * @param b buffer
+   */
+  private void remove(final Buffer b) {
+    if(b.pos < 0) return;
+    final int h = hash(b.pos);
+    Buffer o = bucket[h];
+    if(o == b) {
+      bucket[h] = b.hash;
+    } else {
+      while(o != null && o.hash != b) o = o.hash;
+      if(o != null) o.hash = b.hash;
+    }
+    b.hash = null;
+  }
+
+  /**
+   * Returns the hash bucket for the specified position.
+   * @param p position
+   * @return bucket offset
+   */
+  private int hash(final long p) {
+    final long h = p / IO.BLOCKSIZE ^ p;
+    return ((int) (h ^ h >>> 32) * 0x9E3779B9 >>> 8) & bucket.length - 1;
+  }
+
+  /**
+   * Adds a buffer to the head of the FIFO queue.
+   * @param b buffer
+   */
+  private void in(final Buffer b) {
+    b.hot = false;
+    b.prev = null;
+    b.next = inHead;
+    if(inHead != null) inHead.prev = b;
+    else inTail = b;
+    inHead = b;
+    ++inSize;
+  }
+
+  /**
+   * Adds a buffer to the head of the LRU list.
+   * @param b buffer
+   */
+  private void am(final Buffer b) {
+    b.hot = true;
+    b.prev = null;
+    b.next = amHead;
+    if(amHead != null) amHead.prev = b;
+    else amTail = b;
+    amHead = b;
+  }
+
+  /**
+   * Removes a buffer from its queue or list.
+   * @param b buffer
+   */
+  private void unlink(final Buffer b) {
+    if(b.prev != null) b.prev.next = b.next;
+    else if(b.hot) amHead = b.next;
+    else inHead = b.next;
+    if(b.next != null) b.next.prev = b.prev;
+    else if(b.hot) amTail = b.prev;
+    else inTail = b.prev;
+    if(!b.hot) --inSize;
+    b.prev = null;
+    b.next = null;
+  }
 }
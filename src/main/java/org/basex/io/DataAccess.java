@@ -3,6 +3,7 @@ package org.basex.io;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import org.basex.core.Prop;
 import org.basex.util.Num;
 import org.basex.util.Util;
 
@@ -14,13 +15,21 @@ import org.basex.util.Util;
  */
 public final class DataAccess {
   /** Buffer manager. */
-  private final Buffers bm = new Buffers();
+  private final Buffers bm;
   /** Reference to the data input stream. */
   private final RandomAccessFile file;
   /** File length. */
   private long len;
   /** Offset. */
   private int off;
+  /** Memory mapping, or {@code null} if the file is accessed via buffers. */
+  private MappedAccess mm;
+  /** Current file position in the memory mapping. */
+  private long mpos;
+  /** Journal, or {@code null} if blocks are written in place. */
+  private Journal journal;
+  /** Name of the database file in the journal. */
+  private String name;
 
   /**
    * Constructor, initializing the file reader.
@@ -28,11 +37,39 @@ public final class DataAccess {
    * @throws IOException IO Exception
    */
   public DataAccess(final File f) throws IOException {
+    bm = new Buffers();
     file = new RandomAccessFile(f, "rw");
     len = file.length();
     cursor(0);
   }
 
+  /**
+   * Constructor, initializing the file reader. Additional buffers will be
+   * allocated from the memory budget specified by {@link Prop#BUFFERSIZE}.
+   * If {@link Prop#MAPPED} is enabled, the file will be mapped into memory
+   * until it is modified for the first time.
+   * @param f the file to be read
+   * @param pr database properties
+   * @throws IOException IO Exception
+   */
+  public DataAccess(final File f, final Prop pr) throws IOException {
+    bm = new Buffers(pr.num(Prop.BUFFERSIZE));
+    file = new RandomAccessFile(f, "rw");
+    len = file.length();
+    buffer(0);
+    if(pr.is(Prop.MAPPED)) mm = new MappedAccess(file);
+  }
+
+  /**
+   * Assigns a journal, to which all modified blocks will be written.
+   * @param jr journal
+   * @param nm name of the database file
+   */
+  public void journal(final Journal jr, final String nm) {
+    journal = jr;
+    name = nm;
+  }
+
   /**
    * Flushes the buffered data.
    * @throws IOException I/O exception
@@ -47,7 +84,18 @@ public final class DataAccess {
    */
   public synchronized void close() throws IOException {
     flush();
+    mm = null;
     file.close();
+    bm.release();
+  }
+
+  /**
+   * Adds the number of buffer hits, misses and evictions to the specified
+   * array.
+   * @param st statistics (length: 3)
+   */
+  public synchronized void stats(final long[] st) {
+    bm.stats(st);
   }
 
   /**
@@ -55,7 +103,7 @@ public final class DataAccess {
    * @return text as byte array
    */
   public long pos() {
-    return bm.current().pos + off;
+    return mm != null ? mpos : bm.current().pos + off;
   }
 
   /**
@@ -139,12 +187,32 @@ public final class DataAccess {
     return readToken();
   }
 
+  /**
+   * Reads a token from disk. In contrast to {@link #readToken(long)},
+   * this method can be called by concurrent threads: if the file is mapped
+   * into memory, the token is read without synchronization and without moving
+   * the file pointer. Otherwise, the position of the file pointer is
+   * undefined after the call.
+   * @param p text position
+   * @return text as byte array
+   */
+  public byte[] token(final long p) {
+    final MappedAccess m = mm;
+    return m != null ? m.readToken(p) : readToken(p);
+  }
+
   /**
    * Reads the next token from disk.
    * @return text as byte array
    */
   public synchronized byte[] readToken() {
     int l = readNum();
+    if(mm != null) {
+      final byte[] b = new byte[l];
+      mm.read(mpos, b);
+      mpos += l;
+      return b;
+    }
     int ll = IO.BLOCKSIZE - off;
     final byte[] b = new byte[l];
     Buffer bf = bm.current();
@@ -183,7 +251,12 @@ public final class DataAccess {
    */
   public synchronized byte[] readBytes(final int l) {
     final byte[] b = new byte[l];
-    for(int i = 0; i < b.length; ++i) b[i] = (byte) read();
+    if(mm != null) {
+      mm.read(mpos, b);
+      mpos += l;
+    } else {
+      for(int i = 0; i < b.length; ++i) b[i] = (byte) read();
+    }
     return b;
   }
 
@@ -193,6 +266,7 @@ public final class DataAccess {
    * @param v byte array to be appended
    */
   public void writeBytes(final long p, final byte[] v) {
+    unmap();
     cursor(p);
     writeNum(v.length);
     for(final byte b : v) write(b);
@@ -201,9 +275,18 @@ public final class DataAccess {
   /**
    * Sets the disk cursor.
    * @param p read position
+   */
+  public void cursor(final long p) {
+    if(mm != null) mpos = p;
+    else buffer(p);
+  }
+
+  /**
+   * Sets the disk cursor and returns the buffer for the specified position.
+   * @param p read position
    * @return buffer
    */
-  public Buffer cursor(final long p) {
+  private Buffer buffer(final long p) {
     off = (int) (p & IO.BLOCKSIZE - 1);
 
     final boolean ch = bm.cursor(p - off);
@@ -212,8 +295,11 @@ public final class DataAccess {
       try {
         if(bf.dirty) writeBlock(bf);
         bf.pos = p - off;
-        file.seek(bf.pos);
-        file.readFully(bf.data, 0, (int) Math.min(len - bf.pos, IO.BLOCKSIZE));
+        if(journal == null || !journal.read(name, bf.pos, bf.data)) {
+          file.seek(bf.pos);
+          file.readFully(bf.data, 0,
+              (int) Math.min(len - bf.pos, IO.BLOCKSIZE));
+        }
       } catch(final IOException ex) {
         Util.stack(ex);
       }
@@ -245,8 +331,13 @@ public final class DataAccess {
    * @throws IOException I/O exception
    */
   private void writeBlock(final Buffer bf) throws IOException {
-    file.seek(bf.pos);
-    file.write(bf.data);
+    if(journal != null) {
+      journal.block(name, bf.pos, bf.data);
+    } else {
+      file.seek(bf.pos);
+      file.write(bf.data);
+    }
+    bf.dirty = false;
   }
 
   /**
@@ -271,6 +362,7 @@ public final class DataAccess {
    * @return next byte
    */
   private int read() {
+    if(mm != null) return mm.read1(mpos++);
     final Buffer bf = off == IO.BLOCKSIZE ? next() : bm.current();
     return bf.data[off++] & 0xFF;
   }
@@ -291,6 +383,7 @@ public final class DataAccess {
    * @param v value to be written
    */
   public void writeInt(final int v) {
+    unmap();
     write(v >>> 24);
     write(v >>> 16);
     write(v >>>  8);
@@ -303,6 +396,15 @@ public final class DataAccess {
    */
   private Buffer next() {
     off = 0;
-    return cursor(bm.current().pos + IO.BLOCKSIZE);
+    return buffer(bm.current().pos + IO.BLOCKSIZE);
+  }
+
+  /**
+   * Switches from memory mapped to buffered access before data is written.
+   */
+  private void unmap() {
+    if(mm == null) return;
+    mm = null;
+    buffer(mpos);
   }
 }
@@ -125,6 +125,15 @@ public final class IOFile extends IO {
     return more ^= true;
   }
 
+  /**
+   * Checks if the file is an archive, the entries of which are
+   * successively returned by {@link #more}.
+   * @return result of check
+   */
+  public boolean archive() {
+    return zip() || path.endsWith(GZSUFFIX);
+  }
+
   /**
    * Matches the current file against various file suffixes.
    * @return result of check
@@ -0,0 +1,389 @@
+package org.basex.io;
+
+import static org.basex.data.DataText.*;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import org.basex.data.MetaData;
+import org.basex.util.Util;
+
+/**
+ * <p>This class provides a write-ahead journal for database updates.</p>
+ *
+ * <p>Modified blocks of the database files and rewritten meta data files
+ * are appended to the journal instead of being written in place.
+ * Blocks that are requested again are read from the journal.
+ * The records of an update are terminated by a commit record, which
+ * contains a checksum of all records of the transaction.</p>
+ *
+ * <p>The journal is synchronized with the disk after the global lock has been
+ * released ({@link #sync}). If several updates have been committed in the
+ * meantime, a single synchronization will make all of them durable.</p>
+ *
+ * <p>The journaled contents are copied to the database files if the journal
+ * exceeds a maximum size, if an index structure is rebuilt, or if the
+ * database is closed. If a database is opened that has not been closed
+ * properly, all committed transactions will be replayed, and incomplete
+ * transactions will be discarded.</p>
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class Journal {
+  /** Record: block. */
+  private static final int BLOCK = 1;
+  /** Record: file. */
+  private static final int FILE = 2;
+  /** Record: commit. */
+  private static final int COMMIT = 3;
+  /** Journal size that triggers a checkpoint. */
+  private static final long MAX = 1 << 26;
+
+  /** Journals with commits of the current thread that have not been synced. */
+  private static final ThreadLocal<ArrayList<Journal>> PENDING =
+    new ThreadLocal<ArrayList<Journal>>() {
+      @Override
+      protected ArrayList<Journal> initialValue() {
+        return new ArrayList<Journal>();
+      }
+    };
+
+  /** Meta data. */
+  private final MetaData meta;
+  /** Journal file. */
+  private final File file;
+  /** Checksum of the current transaction. */
+  private final CRC32 crc = new CRC32();
+  /** Journal offsets and lengths of the blocks, indexed by files and
+   * file positions. */
+  private final HashMap<String, HashMap<Long, long[]>> blocks =
+    new HashMap<String, HashMap<Long, long[]>>();
+  /** Contents of the rewritten files. */
+  private final HashMap<String, byte[]> files = new HashMap<String, byte[]>();
+  /** Lock for synchronizing the journal with the disk. */
+  private final Object lock = new Object();
+
+  /** Journal access, or {@code null} if nothing has been journaled. */
+  private RandomAccessFile jrn;
+  /** Journal size. */
+  private long size;
+  /** Journal size after the last commit. */
+  private long committed;
+  /** Journal size after the last synchronization (guarded by {@link #lock}). */
+  private long synced;
+
+  /**
+   * Constructor. Committed transactions of an existing journal are
+   * written back to the database files.
+   * @param md meta data
+   * @throws IOException I/O exception
+   */
+  public Journal(final MetaData md) throws IOException {
+    meta = md;
+    file = md.file(DATAJRN);
+    if(file.exists()) recover();
+  }
+
+  /**
+   * Appends a block to the journal.
+   * @param name name of the database file
+   * @param pos file position
+   * @param data block contents
+   * @throws IOException I/O exception
+   */
+  public synchronized void block(final String name, final long pos,
+      final byte[] data) throws IOException {
+
+    final ByteArrayOutputStream bo = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bo);
+    out.write(BLOCK);
+    out.writeUTF(name);
+    out.writeLong(pos);
+    out.writeInt(data.length);
+    final long off = size + out.size();
+    out.write(data);
+    append(bo.toByteArray());
+
+    HashMap<Long, long[]> map = blocks.get(name);
+    if(map == null) {
+      map = new HashMap<Long, long[]>();
+      blocks.put(name, map);
+    }
+    map.put(pos, new long[] { off, data.length });
+  }
+
+  /**
+   * Reads a journaled block.
+   * @param name name of the database file
+   * @param pos file position
+   * @param data array for the block contents
+   * @return {@code true} if the block was found in the journal
+   * @throws IOException I/O exception
+   */
+  public synchronized boolean read(final String name, final long pos,
+      final byte[] data) throws IOException {
+
+    final HashMap<Long, long[]> map = blocks.get(name);
+    final long[] b = map != null ? map.get(pos) : null;
+    if(b == null) return false;
+    jrn.seek(b[0]);
+    jrn.readFully(data, 0, (int) b[1]);
+    return true;
+  }
+
+  /**
+   * Returns an output stream for rewriting the specified file.
+   * The contents are appended to the journal when the stream is closed.
+   * @param name name of the database file
+   * @return output stream
+   */
+  public DataOutput output(final String name) {
+    return new DataOutput(new ByteArrayOutputStream() {
+      @Override
+      public void close() throws IOException {
+        file(name, toByteArray());
+      }
+    });
+  }
+
+  /**
+   * Commits all records that have been appended since the last commit.
+   * The journal will be synced with the disk by a subsequent call of
+   * {@link #sync}.
+   * @throws IOException I/O exception
+   */
+  public synchronized void commit() throws IOException {
+    if(size == committed) return;
+    crc.update(COMMIT);
+    final int c = (int) crc.getValue();
+    append(new byte[] { COMMIT, (byte) (c >>> 24), (byte) (c >>> 16),
+        (byte) (c >>> 8), (byte) c });
+    crc.reset();
+    committed = size;
+
+    final ArrayList<Journal> pending = PENDING.get();
+    if(!pending.contains(this)) pending.add(this);
+  }
+
+  /**
+   * Checks if the journal has exceeded its maximum size.
+   * @return result of check
+   */
+  public synchronized boolean full() {
+    return size > MAX;
+  }
+
+  /**
+   * Syncs all journals with the disk that contain commits of the current
+   * thread.
+   */
+  public static void sync() {
+    final ArrayList<Journal> pending = PENDING.get();
+    if(pending.isEmpty()) return;
+    for(final Journal j : pending) {
+      try {
+        j.force();
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+    }
+    pending.clear();
+  }
+
+  /**
+   * Copies all journaled contents to the database files and truncates
+   * the journal.
+   * @throws IOException I/O exception
+   */
+  public void checkpoint() throws IOException {
+    synchronized(lock) {
+      synchronized(this) {
+        if(size == 0) return;
+        commit();
+        jrn.getChannel().force(false);
+
+        for(final Map.Entry<String, HashMap<Long, long[]>> e :
+          blocks.entrySet()) {
+          final RandomAccessFile out =
+            new RandomAccessFile(meta.file(e.getKey()), "rw");
+          try {
+            for(final Map.Entry<Long, long[]> b : e.getValue().entrySet()) {
+              final long[] v = b.getValue();
+              final byte[] data = new byte[(int) v[1]];
+              jrn.seek(v[0]);
+              jrn.readFully(data);
+              out.seek(b.getKey());
+              out.write(data);
+            }
+            out.getChannel().force(false);
+          } finally {
+            out.close();
+          }
+        }
+        for(final Map.Entry<String, byte[]> e : files.entrySet()) {
+          write(meta.file(e.getKey()), e.getValue());
+        }
+
+        jrn.setLength(0);
+        jrn.getChannel().force(false);
+        blocks.clear();
+        files.clear();
+        size = 0;
+        committed = 0;
+        synced = 0;
+      }
+    }
+  }
+
+  /**
+   * Checkpoints and deletes the journal.
+   * @throws IOException I/O exception
+   */
+  public void close() throws IOException {
+    checkpoint();
+    synchronized(this) {
+      if(jrn == null) return;
+      jrn.close();
+      jrn = null;
+      file.delete();
+    }
+  }
+
+  /**
+   * Syncs the journal with the disk. Commits of other threads, which have
+   * been appended in the meantime, are synced as well.
+   * @throws IOException I/O exception
+   */
+  private void force() throws IOException {
+    synchronized(lock) {
+      final RandomAccessFile ra;
+      final long end;
+      synchronized(this) {
+        if(synced >= committed) return;
+        ra = jrn;
+        end = committed;
+      }
+      ra.getChannel().force(false);
+      synced = end;
+    }
+  }
+
+  /**
+   * Appends a file record to the journal.
+   * @param name name of the database file
+   * @param data file contents
+   * @throws IOException I/O exception
+   */
+  private synchronized void file(final String name, final byte[] data)
+      throws IOException {
+
+    final ByteArrayOutputStream bo = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bo);
+    out.write(FILE);
+    out.writeUTF(name);
+    out.writeInt(data.length);
+    out.write(data);
+    append(bo.toByteArray());
+    files.put(name, data);
+  }
+
+  /**
+   * Appends a record to the journal.
+   * @param rec record
+   * @throws IOException I/O exception
+   */
+  private void append(final byte[] rec) throws IOException {
+    if(jrn == null) jrn = new RandomAccessFile(file, "rw");
+    jrn.seek(size);
+    jrn.write(rec);
+    if(rec[0] != COMMIT) crc.update(rec);
+    size += rec.length;
+  }
+
+  /**
+   * Replays all committed transactions of an existing journal.
+   * Records of an incomplete transaction are discarded.
+   * @throws IOException I/O exception
+   */
+  private void recover() throws IOException {
+    final CRC32 chk = new CRC32();
+    final DataInputStream in = new DataInputStream(new CheckedInputStream(
+        new BufferedInputStream(new FileInputStream(file)), chk));
+    final HashMap<String, RandomAccessFile> outs =
+      new HashMap<String, RandomAccessFile>();
+    final ArrayList<Object[]> recs = new ArrayList<Object[]>();
+    try {
+      while(true) {
+        final int t = in.read();
+        if(t == BLOCK || t == FILE) {
+          final String name = in.readUTF();
+          final long pos = t == BLOCK ? in.readLong() : -1;
+          final byte[] data = new byte[in.readInt()];
+          in.readFully(data);
+          recs.add(new Object[] { name, pos, data });
+        } else if(t == COMMIT) {
+          final int c = (int) chk.getValue();
+          if(in.readInt() != c) break;
+          chk.reset();
+          for(final Object[] r : recs) {
+            final String name = (String) r[0];
+            final long pos = (Long) r[1];
+            final byte[] data = (byte[]) r[2];
+            if(pos == -1) {
+              write(meta.file(name), data);
+            } else {
+              RandomAccessFile out = outs.get(name);
+              if(out == null) {
+                out = new RandomAccessFile(meta.file(name), "rw");
+                outs.put(name, out);
+              }
+              out.seek(pos);
+              out.write(data);
+            }
+          }
+          recs.clear();
+        } else {
+          break;
+        }
+      }
+    } catch(final EOFException ex) {
+      // incomplete transaction
+    } finally {
+      in.close();
+      for(final RandomAccessFile out : outs.values()) {
+        out.getChannel().force(false);
+        out.close();
+      }
+    }
+    file.delete();
+  }
+
+  /**
+   * Writes and syncs the specified file.
+   * @param f file
+   * @param data contents
+   * @throws IOException I/O exception
+   */
+  private static void write(final File f, final byte[] data)
+      throws IOException {
+    final FileOutputStream out = new FileOutputStream(f);
+    try {
+      out.write(data);
+      out.getChannel().force(false);
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package org.basex.io;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * This class provides read-only access to a file that is mapped into memory.
+ * As a single mapping is limited to 2 GB, the file is divided into segments.
+ * Segments are aligned to the block size, so multi-byte values in tables
+ * never cross segment boundaries.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class MappedAccess {
+  /** Segment size (power of two). */
+  private static final int POWER = 30;
+  /** Segment size. */
+  private static final long SEGMENT = 1L << POWER;
+  /** Mapped segments. */
+  private final MappedByteBuffer[] maps;
+
+  /**
+   * Constructor, mapping the complete file.
+   * @param file file to be mapped
+   * @throws IOException I/O exception
+   */
+  MappedAccess(final RandomAccessFile file) throws IOException {
+    final long len = file.length();
+    final FileChannel fc = file.getChannel();
+    maps = new MappedByteBuffer[(int) (len + SEGMENT - 1 >>> POWER)];
+    for(int m = 0; m < maps.length; ++m) {
+      final long o = (long) m << POWER;
+      maps[m] = fc.map(MapMode.READ_ONLY, o, Math.min(SEGMENT, len - o));
+    }
+  }
+
+  /**
+   * Reads a byte value.
+   * @param p file offset
+   * @return integer value
+   */
+  int read1(final long p) {
+    return maps[(int) (p >>> POWER)].get(off(p)) & 0xFF;
+  }
+
+  /**
+   * Reads a short value, which must not cross segment boundaries.
+   * @param p file offset
+   * @return integer value
+   */
+  int read2(final long p) {
+    return maps[(int) (p >>> POWER)].getShort(off(p)) & 0xFFFF;
+  }
+
+  /**
+   * Reads an integer value, which must not cross segment boundaries.
+   * @param p file offset
+   * @return integer value
+   */
+  int read4(final long p) {
+    return maps[(int) (p >>> POWER)].getInt(off(p));
+  }
+
+  /**
+   * Reads a 5-byte value, which must not cross segment boundaries.
+   * @param p file offset
+   * @return long value
+   */
+  long read5(final long p) {
+    final MappedByteBuffer mb = maps[(int) (p >>> POWER)];
+    final int o = off(p);
+    return (long) (mb.get(o) & 0xFF) << 32 | mb.getInt(o + 1) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Reads a token, which is prefixed by its compressed length.
+   * @param p file offset
+   * @return token
+   */
+  byte[] readToken(final long p) {
+    long o = p;
+    final int v = read1(o++);
+    int l;
+    switch(v & 0xC0) {
+    case 0:
+      l = v;
+      break;
+    case 0x40:
+      l = (v - 0x40 << 8) + read1(o++);
+      break;
+    case 0x80:
+      l = (v - 0x80 << 24) + (read1(o++) << 16) + (read1(o++) << 8) +
+        read1(o++);
+      break;
+    default:
+      l = (read1(o++) << 24) + (read1(o++) << 16) + (read1(o++) << 8) +
+        read1(o++);
+      break;
+    }
+    final byte[] b = new byte[l];
+    read(o, b);
+    return b;
+  }
+
+  /**
+   * Copies bytes to the specified array.
+   * @param p file offset
+   * @param b byte array
+   */
+  void read(final long p, final byte[] b) {
+    long o = p;
+    int i = 0;
+    while(i < b.length) {
+      final MappedByteBuffer mb = maps[(int) (o >>> POWER)];
+      final int l = (int) Math.min(b.length - i, SEGMENT - off(o));
+      // duplicate buffer to leave the position of the shared mapping untouched
+      final ByteBuffer bb = mb.duplicate();
+      bb.position(off(o));
+      bb.get(b, i, l);
+      i += l;
+      o += l;
+    }
+  }
+
+  /**
+   * Returns the offset in the segment.
+   * @param p file offset
+   * @return segment offset
+   */
+  private static int off(final long p) {
+    return (int) (p & SEGMENT - 1);
+  }
+}
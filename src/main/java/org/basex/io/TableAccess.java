@@ -40,6 +40,13 @@ public abstract class TableAccess {
    */
   public abstract void close() throws IOException;
 
+  /**
+   * Adds the number of buffer hits, misses and evictions to the specified
+   * array.
+   * @param st statistics (length: 3)
+   */
+  public void stats(final long[] st) { }
+
   /**
    * Reads a byte value and returns it as an integer value.
    * @param p pre value
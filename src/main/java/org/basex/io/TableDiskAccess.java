@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.Arrays;
 
+import org.basex.core.Prop;
 import org.basex.data.MetaData;
 import org.basex.util.Array;
 import org.basex.util.BitArray;
@@ -21,12 +22,16 @@ public final class TableDiskAccess extends TableAccess {
   static final int ENTRIES = IO.BLOCKSIZE >>> IO.NODEPOWER;
 
   /** Buffer manager. */
-  private final Buffers bm = new Buffers();
+  private final Buffers bm;
   /** Current buffer. */
   private Buffer bf;
 
   /** File storing all blocks. */
   private final RandomAccessFile data;
+  /** Memory mapping, or {@code null} if blocks are accessed via buffers. */
+  private MappedAccess mm;
+  /** File offset of the current block in the memory mapping. */
+  private long moff;
 
   /** FirstPre values (sorted ascending; length={@link #allBlocks}). */
   private int[] fpres;
@@ -47,6 +52,16 @@ public final class TableDiskAccess extends TableAccess {
   /** Index of the current block number in the {@link #pages} array. */
   private int index = -1;
 
+  /** Version of the table, incremented by each write operation. */
+  private volatile int version;
+  /** Reader cursors, assigned to the current thread. */
+  private final ThreadLocal<Cursor> cursors = new ThreadLocal<Cursor>() {
+    @Override
+    protected Cursor initialValue() {
+      return new Cursor();
+    }
+  };
+
   /**
    * Constructor.
    * @param md meta data
@@ -57,6 +72,7 @@ public final class TableDiskAccess extends TableAccess {
       throws IOException {
 
     super(md, pf);
+    bm = new Buffers(md.prop.num(Prop.BUFFERSIZE));
 
     // read meta and index data
     final DataInput in = new DataInput(meta.file(pf + 'i'));
@@ -79,6 +95,7 @@ public final class TableDiskAccess extends TableAccess {
 
     // initialize data file
     data = new RandomAccessFile(meta.file(pf), "rw");
+    if(md.prop.is(Prop.MAPPED)) mm = new MappedAccess(data);
     readBlock(0, 0, blocks > 1 ? fpres[1] : md.size);
   }
 
@@ -87,7 +104,7 @@ public final class TableDiskAccess extends TableAccess {
     for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
 
     if(!dirty) return;
-    final DataOutput out = new DataOutput(meta.file(pref + 'i'));
+    final DataOutput out = meta.output(pref + 'i');
     out.writeNum(allBlocks);
     out.writeNum(blocks);
     out.writeNums(fpres);
@@ -100,41 +117,58 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public synchronized void close() throws IOException {
     flush();
+    mm = null;
     data.close();
+    bm.release();
   }
 
   @Override
-  public synchronized int read1(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bf.data;
+  public synchronized void stats(final long[] st) {
+    bm.stats(st);
+  }
+
+  @Override
+  public int read1(final int pre, final int off) {
+    final Cursor c = reader(pre);
+    final int o = off + (pre - c.fpre << IO.NODEPOWER);
+    if(c.mm != null) return c.mm.read1(c.moff + o);
+    final byte[] b = c.data;
     return b[o] & 0xFF;
   }
 
   @Override
-  public synchronized int read2(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bf.data;
+  public int read2(final int pre, final int off) {
+    final Cursor c = reader(pre);
+    final int o = off + (pre - c.fpre << IO.NODEPOWER);
+    if(c.mm != null) return c.mm.read2(c.moff + o);
+    final byte[] b = c.data;
     return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
   }
 
   @Override
-  public synchronized int read4(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bf.data;
+  public int read4(final int pre, final int off) {
+    final Cursor c = reader(pre);
+    final int o = off + (pre - c.fpre << IO.NODEPOWER);
+    if(c.mm != null) return c.mm.read4(c.moff + o);
+    final byte[] b = c.data;
     return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
       ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
   }
 
   @Override
-  public synchronized long read5(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bf.data;
+  public long read5(final int pre, final int off) {
+    final Cursor c = reader(pre);
+    final int o = off + (pre - c.fpre << IO.NODEPOWER);
+    if(c.mm != null) return c.mm.read5(c.moff + o);
+    final byte[] b = c.data;
     return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
       ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
   }
 
   @Override
   public void write1(final int pre, final int off, final int v) {
+    unmap();
+    ++version;
     final int o = off + cursor(pre);
     final byte[] b = bf.data;
     b[o] = (byte) v;
@@ -143,6 +177,8 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write2(final int pre, final int off, final int v) {
+    unmap();
+    ++version;
     final int o = off + cursor(pre);
     final byte[] b = bf.data;
     b[o] = (byte) (v >>> 8);
@@ -152,6 +188,8 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write4(final int pre, final int off, final int v) {
+    unmap();
+    ++version;
     final int o = off + cursor(pre);
     final byte[] b = bf.data;
     b[o]     = (byte) (v >>> 24);
@@ -163,6 +201,8 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write5(final int pre, final int off, final long v) {
+    unmap();
+    ++version;
     final int o = off + cursor(pre);
     final byte[] b = bf.data;
     b[o]     = (byte) (v >>> 32);
@@ -177,6 +217,8 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void delete(final int first, final int nr) {
+    unmap();
+    ++version;
     // mark index as dirty and get first block
     dirty = true;
     cursor(first);
@@ -245,6 +287,8 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public void insert(final int pre, final byte[] entries) {
     if(entries.length == 0) return;
+    unmap();
+    ++version;
 
     // number of records to be inserted:
     final int nr = entries.length >>> IO.NODEPOWER;
@@ -319,6 +363,8 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void set(final int pre, final byte[] entries) {
+    unmap();
+    ++version;
     dirty = true;
     final int nr = entries.length >>> IO.NODEPOWER;
     for(int l = 0, i = pre; i < pre + nr; ++i, l += 1 << IO.NODEPOWER) {
@@ -339,7 +385,8 @@ public final class TableDiskAccess extends TableAccess {
     int fp = fpre;
     int np = npre;
 
-    if(pre < fp || pre >= np) {
+    // the current buffer may have been replaced by a reader
+    if(pre < fp || pre >= np || bf.pos != pages[index]) {
       final int last = blocks - 1;
       int l = 0;
       int h = last;
@@ -372,18 +419,98 @@ public final class TableDiskAccess extends TableAccess {
     npre = n;
 
     final int b = pages[i];
+    if(mm != null) {
+      moff = (long) b * IO.BLOCKSIZE;
+      return;
+    }
     final boolean ch = bm.cursor(b);
     bf = bm.current();
-    if(ch) {
-      try {
-        if(bf.dirty) writeBlock(bf);
-        bf.pos = b;
-        data.seek(bf.pos * IO.BLOCKSIZE);
-        data.readFully(bf.data);
-      } catch(final IOException ex) {
-        Util.stack(ex);
+    if(ch) load(bf, b);
+  }
+
+  /**
+   * Writes back the old contents of a replaced buffer and reads the
+   * specified block.
+   * @param buf buffer
+   * @param b block to be read
+   */
+  private void load(final Buffer buf, final int b) {
+    try {
+      if(buf.dirty) writeBlock(buf);
+      buf.pos = b;
+      final Journal jr = meta.journal;
+      if(jr != null && jr.read(pref, buf.pos * IO.BLOCKSIZE, buf.data)) return;
+      data.seek(buf.pos * IO.BLOCKSIZE);
+      data.readFully(buf.data);
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+  }
+
+  /**
+   * Returns the reader cursor of the current thread, pointing to the block
+   * that contains the specified entry.
+   * @param pre pre value
+   * @return cursor
+   */
+  private Cursor reader(final int pre) {
+    final Cursor c = cursors.get();
+    if(c.version != version || pre < c.fpre || pre >= c.npre) {
+      final MappedAccess m = mm;
+      if(m != null) {
+        // mapped files are read-only: no synchronization required
+        c.moff = (long) pages[locate(c, pre)] * IO.BLOCKSIZE;
+      } else {
+        synchronized(this) {
+          final int b = pages[locate(c, pre)];
+          final boolean ch = bm.cursor(b);
+          final Buffer buf = bm.current();
+          if(ch) load(buf, b);
+          System.arraycopy(buf.data, 0, c.data, 0, IO.BLOCKSIZE);
+        }
+      }
+      c.mm = m;
+      c.version = version;
+    }
+    return c;
+  }
+
+  /**
+   * Searches for the block containing the specified entry and assigns its
+   * boundaries to the specified cursor.
+   * @param c cursor
+   * @param pre pre value
+   * @return index of the block in the {@link #pages} array
+   */
+  private int locate(final Cursor c, final int pre) {
+    final int last = blocks - 1;
+    int l = 0;
+    int h = last;
+    while(l <= h) {
+      final int m = h + l >>> 1;
+      final int fp = fpres[m];
+      final int np = m == last ? fp + ENTRIES : fpres[m + 1];
+      if(pre < fp) {
+        h = m - 1;
+      } else if(pre >= np) {
+        l = m + 1;
+      } else {
+        c.fpre = fp;
+        c.npre = np;
+        return m;
       }
     }
+    throw Util.notexpected("Data Access out of bounds [pre:" + pre +
+        ", indexSize:" + blocks + "]");
+  }
+
+  /**
+   * Switches from memory mapped to buffered access before data is written.
+   */
+  private void unmap() {
+    if(mm == null) return;
+    mm = null;
+    readBlock(index, fpre, npre);
   }
 
   /**
@@ -392,8 +519,13 @@ public final class TableDiskAccess extends TableAccess {
    * @throws IOException I/O exception
    */
   private void writeBlock(final Buffer buf) throws IOException {
-    data.seek(buf.pos * IO.BLOCKSIZE);
-    data.write(buf.data);
+    final Journal jr = meta.journal;
+    if(jr != null) {
+      jr.block(pref, buf.pos * IO.BLOCKSIZE, buf.data);
+    } else {
+      data.seek(buf.pos * IO.BLOCKSIZE);
+      data.write(buf.data);
+    }
     buf.dirty = false;
   }
 
@@ -459,7 +591,7 @@ public final class TableDiskAccess extends TableAccess {
     flushCurrentBuffer();
 
     // find an empty block:
-    bf.pos = pagemap.nextClearBit(0);
+    bm.assign(bf, pagemap.nextClearBit(0));
 
     // if block number is bigger than the total number of blocks, it's a new:
     if(bf.pos >= allBlocks) allBlocks = (int) bf.pos + 1;
@@ -469,6 +601,26 @@ public final class TableDiskAccess extends TableAccess {
     ++blocks;
   }
 
+  /**
+   * Reader cursor. Each thread reads table entries from its own cursor, which
+   * references a block of the memory mapping, or a copy of a buffered block.
+   * Cursors are invalidated by write operations.
+   */
+  private static final class Cursor {
+    /** Copy of the current block. */
+    final byte[] data = new byte[IO.BLOCKSIZE];
+    /** Memory mapping, or {@code null} if the block has been copied. */
+    MappedAccess mm;
+    /** File offset of the block in the memory mapping. */
+    long moff;
+    /** Pre value of the first entry in the block. */
+    int fpre = -1;
+    /** First pre value of the next block. */
+    int npre = -1;
+    /** Table version. */
+    int version = -1;
+  }
+
   // TEST METHODS =============================================================
 
   /**
@@ -126,11 +126,16 @@ public final class QueryContext extends Progress {
   public Updates updates = new Updates(false);
   /** Indicates if this query performs updates. */
   public boolean updating;
+  /** Indicates if this query may access databases other than the
+   * context database. */
+  public boolean databases;
 
   /** Compilation flag: current node has leaves. */
   public boolean leaf;
   /** Compilation flag: GFLWOR clause performs grouping. */
   public boolean grouping;
+  /** Evaluation flag: query is evaluated by a parallel thread. */
+  public boolean parallel;
 
   /** String container for query background information. */
   private final TokenBuilder info = new TokenBuilder();
@@ -164,6 +169,34 @@ public final class QueryContext extends Progress {
     if(ctx.query != null) baseURI = Uri.uri(token(ctx.query.url()));
   }
 
+  /**
+   * Constructor, creating a copy of the specified context for the evaluation
+   * of a compiled expression by a parallel thread. Resources, namespaces and
+   * the current variables are shared with the original context.
+   * @param ctx query context
+   */
+  public QueryContext(final QueryContext ctx) {
+    resource = ctx.resource;
+    context = ctx.context;
+    nodes = ctx.nodes;
+    ftopt = ctx.ftopt;
+    xquery3 = ctx.xquery3;
+    inf = false;
+    copy(ctx);
+    ns = ctx.ns;
+    decFormats = ctx.decFormats;
+    stop = ctx.stop;
+    thes = ctx.thes;
+    vars.add(ctx.vars);
+    value = ctx.value;
+    pos = ctx.pos;
+    size = ctx.size;
+    date = ctx.date;
+    dtm = ctx.dtm;
+    time = ctx.time;
+    parallel = true;
+  }
+
   /**
    * Parses the specified query.
    * @param q input query
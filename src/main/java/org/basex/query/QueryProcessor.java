@@ -122,7 +122,18 @@ public final class QueryProcessor extends Progress {
    */
   public void bind(final String n, final String o, final String t)
       throws QueryException {
+    bind(n, value(o, t));
+  }
 
+  /**
+   * Converts a string to an expression of the specified type, which can then
+   * be bound to a global variable.
+   * @param o string to be converted
+   * @param t data type
+   * @return resulting expression
+   * @throws QueryException query exception
+   */
+  public Expr value(final String o, final String t) throws QueryException {
     Object obj = o;
     if(t != null && !t.isEmpty()) {
       final QNm type = new QNm(Token.token(t));
@@ -131,7 +142,7 @@ public final class QueryProcessor extends Progress {
       if(typ != null) obj = typ.e(o, null);
       else NOTYPE.thrw(null, type);
     }
-    bind(n, obj);
+    return obj instanceof Expr ? (Expr) obj : FunJava.type(obj).e(obj, null);
   }
 
   /**
@@ -3,6 +3,7 @@ package org.basex.query;
 import static org.basex.query.util.Err.*;
 import static org.basex.util.Token.*;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import org.basex.core.User;
 import org.basex.core.Commands.CmdPerm;
@@ -12,6 +13,7 @@ import org.basex.core.cmd.Open;
 import org.basex.data.Data;
 import org.basex.data.Nodes;
 import org.basex.io.IO;
+import org.basex.query.expr.Spill;
 import org.basex.query.item.DBNode;
 import org.basex.query.item.DBNodeSeq;
 import org.basex.query.item.Item;
@@ -24,7 +26,8 @@ import org.basex.util.Array;
 import org.basex.util.InputInfo;
 
 /**
- * This class provides access to resources.
+ * This class provides access to resources. Resources may be opened by
+ * several threads if expressions are evaluated in parallel.
  *
  * @author BaseX Team 2005-11, BSD License
  */
@@ -46,6 +49,9 @@ public final class QueryResources {
   /** Number of collections. */
   private int colls;
 
+  /** Temporary files. */
+  private final ArrayList<Spill> spills = new ArrayList<Spill>();
+
   /**
    * Constructor.
    * @param qc query context
@@ -82,12 +88,46 @@ public final class QueryResources {
    * @throws IOException I/O exception
    */
   void close() throws IOException {
+    closeSpills();
     for(int d = globalData ? 1 : 0; d < datas; ++d) {
       Close.close(data[d], ctx.context);
     }
     datas = 0;
   }
 
+  /**
+   * Registers a temporary file.
+   * @param sp temporary file
+   */
+  public synchronized void add(final Spill sp) {
+    spills.add(sp);
+  }
+
+  /**
+   * Removes a temporary file that has been closed.
+   * @param sp temporary file
+   */
+  public synchronized void remove(final Spill sp) {
+    spills.remove(sp);
+  }
+
+  /**
+   * Closes and deletes all temporary files that have not been closed yet,
+   * e.g. because the query was stopped before all results were requested.
+   */
+  public synchronized void closeSpills() {
+    while(!spills.isEmpty()) spills.get(spills.size() - 1).close();
+  }
+
+  /**
+   * Returns the number of databases that have been opened by the query.
+   * The database of the initial context set is not counted.
+   * @return number of databases
+   */
+  public int opened() {
+    return globalData ? datas - 1 : datas;
+  }
+
   /**
    * Opens a new database or returns a reference to an already opened database.
    * @param name name of database
@@ -95,7 +135,7 @@ public final class QueryResources {
    * @return database instance
    * @throws QueryException query exception
    */
-  public Data data(final byte[] name, final InputInfo ii)
+  public synchronized Data data(final byte[] name, final InputInfo ii)
       throws QueryException {
 
     // check if a database with the same name has already been opened
@@ -123,8 +163,8 @@ public final class QueryResources {
    * @return data reference
    * @throws QueryException query exception
    */
-  public Data data(final byte[] input, final boolean col, final InputInfo ii)
-      throws QueryException {
+  public synchronized Data data(final byte[] input, final boolean col,
+      final InputInfo ii) throws QueryException {
 
     // check if a database with the same name has already been opened
     final String in = string(input);
@@ -152,7 +192,7 @@ public final class QueryResources {
    * @return collection iterator
    * @throws QueryException query exception
    */
-  public Iter collection(final byte[] input, final InputInfo ii)
+  public synchronized Iter collection(final byte[] input, final InputInfo ii)
       throws QueryException {
 
     // no collection specified.. return default collection/current context set
@@ -219,7 +259,8 @@ public final class QueryResources {
    * @param inputs documents
    * @throws QueryException query exception
    */
-  public void addCollection(final byte[] name, final byte[][] inputs)
+  public synchronized void addCollection(final byte[] name,
+      final byte[][] inputs)
       throws QueryException {
 
     final int ns = inputs.length;
@@ -56,6 +56,14 @@ public interface QueryText {
   /** Optimization info. */
   String OPTWHERE = "rewriting where clause to predicate(s)";
   /** Optimization info. */
+  String OPTHASHJOIN = "rewriting % to hash join";
+  /** Optimization info. */
+  String OPTLIMIT = "limiting ordered results to % item(s)";
+  /** Optimization info. */
+  String OPTTOPK = "retrieving % full-text result(s) with highest scores";
+  /** Optimization info. */
+  String OPTPARALLEL = "evaluating for clause in parallel: %";
+  /** Optimization info. */
   String OPTVAR = "removing variable %";
   /** Optimization info. */
   String OPTPREF = "skipping namespace test for \"%\"";
@@ -70,6 +78,8 @@ public interface QueryText {
   /** Optimization info. */
   String OPTRNGINDEX = "applying range index";
   /** Optimization info. */
+  String OPTSTATS = "answering % from statistics";
+  /** Optimization info. */
   String OPTNOINDEX = "removing path with no index results";
   /** Optimization info. */
   String OPTBIND = "binding static variable %";
@@ -225,7 +225,7 @@ public final class CmpG extends Cmp {
    * @return result of check
    * @throws QueryException query exception
    */
-  private boolean eval(final Item a, final Item b) throws QueryException {
+  boolean eval(final Item a, final Item b) throws QueryException {
     if(a.type != b.type && !a.unt() && !b.unt() && !(a.str() && b.str()) &&
         !(a.num() && b.num())) XPTYPECMP.thrw(input, a.type, b.type);
     return op.op.e(input, a, b);
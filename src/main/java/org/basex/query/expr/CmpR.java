@@ -146,10 +146,10 @@ public final class CmpR extends Single {
     final StatsKey key = key(ic, text);
     if(key == null) return false;
 
-    // estimate costs for range access; all values out of range: no results
+    // compute costs for range access; all values out of range: no results
     rt = new RangeToken(text, Math.max(min, key.min), Math.min(max, key.max));
     ic.costs = rt.min > rt.max || rt.max < key.min || rt.min > key.max ? 0 :
-      Math.max(1, ic.data.meta.size / 5);
+      ic.data.nrIDs(rt);
 
     // use index if costs are zero, or if min/max is not infinite
     return ic.costs == 0 || min != Double.NEGATIVE_INFINITY &&
@@ -175,14 +175,16 @@ public final class CmpR extends Single {
   }
 
   /**
-   * Retrieves the statistics key for the tag/attribute name.
+   * Retrieves the statistics key for the tag/attribute name. The statistics
+   * may be used if the database has been updated: new values extend the
+   * value range and the kind of the contents, and the range of deleted values
+   * is retained.
    * @param ic index context
    * @param text text flag
    * @return key
    */
   private StatsKey key(final IndexContext ic, final boolean text) {
-    // statistics are not up-to-date
-    if(!ic.data.meta.uptodate || ic.data.ns.size() != 0) return null;
+    if(ic.data.ns.size() != 0) return null;
 
     final AxisPath path = (AxisPath) expr;
     final int st = path.step.length;
@@ -38,6 +38,10 @@ public abstract class Expr extends ExprInfo {
     VAR,
     /** XQuery 3.0 expression. */
     X30,
+    /** Expression stores evaluation state in the expression tree and must
+     *  not be evaluated by several threads at the same time (e.g.: order
+     *  by clauses, full-text expressions). */
+    SEQ,
   }
 
   /**
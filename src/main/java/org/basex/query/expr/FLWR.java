@@ -1,8 +1,11 @@
 package org.basex.query.expr;
 
 import static org.basex.query.QueryText.*;
+import java.util.Arrays;
+import org.basex.core.Prop;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
+import org.basex.query.item.Empty;
 import org.basex.query.item.Item;
 import org.basex.query.iter.Iter;
 import org.basex.query.util.Var;
@@ -40,9 +43,43 @@ public final class FLWR extends GFLWOR {
         return fl[0].expr;
       }
     }
+
+    // evaluate first for clause in parallel
+    if(ctx.context.prop.is(Prop.PARALLELFLWOR) && parallel()) {
+      ctx.compInfo(OPTPARALLEL, fl[0]);
+      return new Parallel(this);
+    }
     return this;
   }
 
+  /**
+   * Returns the expression that will be evaluated for each item of the
+   * first for clause.
+   * @return expression
+   */
+  Expr body() {
+    if(fl.length > 1) return new FLWR(
+        Arrays.copyOfRange(fl, 1, fl.length), where, ret, input);
+    return where != null ? new If(input, where, ret, Empty.SEQ) : ret;
+  }
+
+  /**
+   * Checks if the first for clause can be evaluated in parallel. This is the
+   * case if the clause has no positional or score variable, and if the
+   * remaining clauses perform no updates, create no new nodes, have no side
+   * effects, and store no evaluation state.
+   * @return result of check
+   */
+  private boolean parallel() {
+    if(!(fl[0] instanceof For) || !fl[0].simple(false) ||
+        ((For) fl[0]).join != null) return false;
+    for(final Use u : new Use[] { Use.UPD, Use.CNS, Use.CTX, Use.SEQ }) {
+      for(int f = 1; f < fl.length; ++f) if(fl[f].uses(u)) return false;
+      if(where != null && where.uses(u) || ret.uses(u)) return false;
+    }
+    return true;
+  }
+
   @Override
   public Iter iter(final QueryContext ctx) {
     return new Iter() {
@@ -58,6 +58,10 @@ public class Filter extends Preds {
     // no predicates.. return root
     if(pred.length == 0) return root;
 
+    // only the first items of an ordered expression are requested
+    if(pred[0] instanceof Pos && root instanceof GFLWOR)
+      ((GFLWOR) root).limit(((Pos) pred[0]).max, ctx);
+
     // evaluate return type
     final SeqType t = root.type();
     type = SeqType.get(t.type, t.zeroOrOne() ? SeqType.Occ.ZO : SeqType.Occ.ZM);
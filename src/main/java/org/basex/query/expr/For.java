@@ -26,6 +26,9 @@ public final class For extends ForLet {
   final Var pos;
   /** Full-text score. */
   final Var score;
+  /** Equality join with the outer clauses, evaluated via a hash table
+   * (the first operand is probed, the second is built on this variable). */
+  CmpG join;
 
   /**
    * Constructor.
@@ -64,12 +67,19 @@ public final class For extends ForLet {
     if(pos   != null) ctx.vars.add(pos);
     if(score != null) ctx.vars.add(score);
 
+    if(join != null) {
+      for(int e = 0; e < join.expr.length; ++e) {
+        join.expr[e] = checkUp(join.expr[e], ctx).comp(ctx);
+      }
+      // number of results is unknown
+      if(size != 0) size = -1;
+    }
     return this;
   }
 
   @Override
   protected boolean bind(final QueryContext ctx) throws QueryException {
-    return simple(true) && super.bind(ctx);
+    return join == null && simple(true) && super.bind(ctx);
   }
 
   @Override
@@ -77,6 +87,7 @@ public final class For extends ForLet {
     final Var v = var.copy();
     final Var p = pos != null ? pos.copy() : null;
     final Var s = score != null ? score.copy() : null;
+    final HashJoin hj = join != null ? new HashJoin(join) : null;
 
     return new Iter() {
       /** Variable stack size. */
@@ -97,7 +108,7 @@ public final class For extends ForLet {
 
       @Override
       public long size() {
-        return expr.size();
+        return hj != null ? -1 : expr.size();
       }
 
       @Override
@@ -123,7 +134,7 @@ public final class For extends ForLet {
       private void init() throws QueryException {
         if(ir == null) {
           vs = ctx.vars.size();
-          ir = ctx.iter(expr);
+          ir = hj != null ? hj.iter(ctx, expr, var) : ctx.iter(expr);
           ctx.vars.add(v);
           if(p != null) ctx.vars.add(p);
           if(s != null) ctx.vars.add(s);
@@ -156,6 +167,32 @@ public final class For extends ForLet {
       score != null && score.eq(v);
   }
 
+  @Override
+  public boolean uses(final Use u) {
+    return super.uses(u) || join != null && join.uses(u);
+  }
+
+  @Override
+  public int count(final Var v) {
+    return super.count(v) + (join != null ? join.count(v) : 0);
+  }
+
+  @Override
+  public boolean removable(final Var v) {
+    return super.removable(v) && (join == null ||
+        join.expr[0].removable(v) && (var.eq(v) || join.expr[1].removable(v)));
+  }
+
+  @Override
+  public Expr remove(final Var v) {
+    if(join != null) {
+      join.expr[0] = join.expr[0].remove(v);
+      // the build key references the variable of this clause
+      if(!var.eq(v)) join.expr[1] = join.expr[1].remove(v);
+    }
+    return super.remove(v);
+  }
+
   @Override
   public void plan(final Serializer ser) throws IOException {
     ser.openElement(this, VAR, token(var.toString()));
@@ -163,6 +200,7 @@ public final class For extends ForLet {
     if(score != null) ser.attribute(Token.token(SCORE),
         token(score.toString()));
     expr.plan(ser);
+    if(join != null) join.plan(ser);
     ser.closeElement();
   }
 
@@ -171,6 +209,8 @@ public final class For extends ForLet {
     final StringBuilder sb = new StringBuilder(FOR + " " + var + " ");
     if(pos != null) sb.append(AT + " " + pos + " ");
     if(score != null) sb.append(SCORE + " " + score + " ");
-    return sb.append(IN + " " + expr).toString();
+    sb.append(IN + " " + expr);
+    if(join != null) sb.append(" " + WHERE + " " + join);
+    return sb.toString();
   }
 }
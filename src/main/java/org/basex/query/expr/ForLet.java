@@ -62,7 +62,7 @@ public abstract class ForLet extends Single {
   abstract boolean shadows(final Var v);
 
   @Override
-  public final boolean uses(final Use u) {
+  public boolean uses(final Use u) {
     return u == Use.VAR || super.uses(u);
   }
 }
@@ -28,6 +28,8 @@ public final class Func extends Single {
   public final boolean declared;
   /** Updating flag. */
   public boolean updating;
+  /** Flag for skipping recursive calls in {@link #uses}. */
+  private boolean checking;
 
   /**
    * Function constructor.
@@ -72,6 +74,15 @@ public final class Func extends Single {
     return this;
   }
 
+  @Override
+  public boolean uses(final Use u) {
+    if(checking || expr == null) return false;
+    checking = true;
+    final boolean use = super.uses(u);
+    checking = false;
+    return use;
+  }
+
   @Override
   public Iter iter(final QueryContext ctx) throws QueryException {
     // evaluate function and reset variable scope
@@ -74,7 +74,7 @@ public final class FuncCall extends Arr {
     // move variables to stack
     final int s = ctx.vars.size();
     for(int a = 0; a < al; ++a) {
-      ctx.vars.add(func.args[a].bind(args[a], ctx).copy());
+      ctx.vars.add(func.args[a].copy().bind(args[a], ctx));
     }
     // evaluate function and reset variable scope
     final ItemCache ir = ItemCache.get(ctx.iter(func));
@@ -84,7 +84,10 @@ public final class FuncCall extends Arr {
 
   @Override
   public boolean uses(final Use u) {
-    return u == Use.UPD ? func.updating : super.uses(u);
+    if(u == Use.UPD) return func.updating;
+    // check function body for constructors, side effects and state
+    return super.uses(u) || func != null &&
+      (u == Use.CTX || u == Use.CNS || u == Use.SEQ) && func.uses(u);
   }
 
   @Override
@@ -6,6 +6,7 @@ import java.io.IOException;
 import org.basex.data.Serializer;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
+import org.basex.query.ft.FTIndexAccess;
 import org.basex.query.func.FunDef;
 import org.basex.query.item.Empty;
 import org.basex.query.item.SeqType;
@@ -23,6 +24,8 @@ import org.basex.util.InputInfo;
  * @author Christian Gruen
  */
 public class GFLWOR extends ParseExpr {
+  /** Maximum number of items for the limited evaluation of order clauses. */
+  private static final long MAXLIMIT = 1 << 20;
   /** Return expression. */
   protected Expr ret;
   /** For/Let expression. */
@@ -76,6 +79,7 @@ public class GFLWOR extends ParseExpr {
   @Override
   public Expr comp(final QueryContext ctx) throws QueryException {
     compForLet(ctx);
+    compJoin(ctx);
     compWhere(ctx);
 
     final boolean grp = ctx.grouping;
@@ -202,6 +206,100 @@ public class GFLWOR extends ParseExpr {
     }
   }
 
+  /**
+   * Rewrites equality tests between the variable of a for clause and
+   * the variables of outer clauses to hash joins. The inner for clause
+   * must not depend on the outer clauses.
+   * @param ctx query context
+   */
+  private void compJoin(final QueryContext ctx) {
+    if(where == null) return;
+
+    Expr[] tests = where instanceof And ? ((And) where).expr :
+      new Expr[] { where };
+    for(int f = 1; f < fl.length; ++f) {
+      if(!(fl[f] instanceof For)) continue;
+      final For fr = (For) fl[f];
+      if(fr.join != null || !fr.simple(false) || fr.uses(Use.CNS) ||
+          loop(fr.expr, f)) continue;
+
+      for(int t = 0; t < tests.length; ++t) {
+        final CmpG cmp = join(tests[t], f);
+        if(cmp == null) continue;
+        ctx.compInfo(OPTHASHJOIN, tests[t]);
+        fr.join = cmp;
+        tests = Array.delete(tests, t);
+        break;
+      }
+    }
+    where = tests.length == 0 ? null : tests.length == 1 ? tests[0] :
+      new And(input, tests);
+  }
+
+  /**
+   * Checks if the specified test is an equality join between the variable of
+   * the specified for clause and the variables of outer clauses.
+   * @param test test of the where clause
+   * @param f index of the for clause
+   * @return join comparison (probe and build key), or {@code null}
+   */
+  private CmpG join(final Expr test, final int f) {
+    if(!(test instanceof CmpG)) return null;
+    final CmpG cmp = (CmpG) test;
+    if(cmp.op != CmpG.Op.EQ) return null;
+
+    final Var v = fl[f].var;
+    for(int e = 0; e < 2; ++e) {
+      final Expr key = cmp.expr[e];
+      final Expr probe = cmp.expr[1 - e];
+      // build key may only reference the variable of the for clause;
+      // probe may only reference variables of outer clauses
+      if(key.count(v) == 0 || loop(key, f) ||
+          uses(key, f + 1, fl.length) || key.uses(Use.CNS) ||
+          probe.count(v) != 0 || !loop(probe, f) ||
+          uses(probe, f + 1, fl.length) || probe.uses(Use.CNS)) continue;
+      return new CmpG(cmp.input, probe, key, CmpG.Op.EQ);
+    }
+    return null;
+  }
+
+  /**
+   * Checks if the specified expression depends on the iterations of the
+   * clauses before the specified clause, i.e., if it references variables of
+   * for clauses, or of let clauses that depend on for clauses.
+   * @param e expression
+   * @param l index of the clause
+   * @return result of check
+   */
+  private boolean loop(final Expr e, final int l) {
+    for(int f = 0; f < l; ++f) {
+      if(uses(e, f, f + 1) && (fl[f] instanceof For || loop(fl[f].expr, f)))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks if the specified expression references variables that are
+   * declared by the specified range of clauses.
+   * @param e expression
+   * @param s index of the first clause
+   * @param l index after the last clause
+   * @return result of check
+   */
+  private boolean uses(final Expr e, final int s, final int l) {
+    for(int f = s; f < l; ++f) {
+      final ForLet c = fl[f];
+      if(e.count(c.var) != 0) return true;
+      if(c instanceof For) {
+        final For fr = (For) c;
+        if(fr.pos != null && e.count(fr.pos) != 0 ||
+           fr.score != null && e.count(fr.score) != 0) return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Optimizes a where clause.
    * @param ctx query context
@@ -231,8 +329,10 @@ public class GFLWOR extends ParseExpr {
         if(fl[f] instanceof For) fr = f;
         // predicate is found that uses the current variable
         if(tests[t].count(fl[f].var) != 0) {
-          // stop rewriting if no most inner FOR clause is defined
-          if(fr == -1) return;
+          // stop rewriting if no most inner FOR clause is defined, or if
+          // the inner input of a hash join would depend on outer clauses
+          if(fr == -1 || ((For) fl[fr]).join != null && loop(tests[t], fr))
+            return;
           // attach predicate to the corresponding FOR clause, and stop
           tar[t] = fr;
           break;
@@ -269,11 +369,18 @@ public class GFLWOR extends ParseExpr {
     for(int f = 0; f < fl.length; ++f) iter[f] = ctx.iter(fl[f]);
 
     // evaluate pre grouping tuples
-    final int s = (int) size();
+    final int s = order != null && order.limit != 0 ? -1 : (int) size();
     final ValueList vl = s >= 0 ? new ValueList(s) : new ValueList();
-    if(order != null) order.init(vl, s);
+    if(order != null) order.init(vl, s, ctx);
     if(group != null) group.init(fl, order);
-    iter(ctx, vl, iter, 0);
+    try {
+      iter(ctx, vl, iter, 0);
+    } catch(final QueryException ex) {
+      // delete temporary files
+      if(group != null) group.gp.close();
+      if(order != null) order.close();
+      throw ex;
+    }
     ctx.vars.reset(vs);
 
     for(final ForLet aFl : fl) ctx.vars.add(aFl.var);
@@ -306,14 +413,41 @@ public class GFLWOR extends ParseExpr {
           // order by will be handled in group by otherwise
           order.add(ctx);
           vl.add(ret.value(ctx));
+          order.prune(ctx);
         }
       }
     }
   }
 
+  /**
+   * Limits the number of returned items of an ordered expression.
+   * This method is called if only the first results will be requested.
+   * @param l maximum number of items
+   * @param ctx query context
+   */
+  public final void limit(final long l, final QueryContext ctx) {
+    // skip grouped expressions and limits that will not save memory
+    if(order == null || group != null || l < 1 || l > MAXLIMIT ||
+        order.limit != 0 && order.limit <= l) return;
+    ctx.compInfo(OPTLIMIT, l);
+    order.limit = l;
+
+    // single for clause, ordered by score: only retrieve the index results
+    // with the highest scores, if each tuple yields exactly one item
+    if(fl.length != 1 || !(fl[0] instanceof For) || where != null ||
+        !ret.type().one()) return;
+    final For fr = (For) fl[0];
+    if(fr.pos == null && order.score(fr) && FTIndexAccess.limit(fr.expr, l))
+      ctx.compInfo(OPTTOPK, l);
+  }
+
   @Override
   public final boolean uses(final Use u) {
-    return u == Use.VAR || ret.uses(u);
+    if(u == Use.VAR) return true;
+    // sorted and grouped tuples are stored in the clauses
+    if(u == Use.SEQ && (order != null || group != null)) return true;
+    for(final ForLet f : fl) if(f.uses(u)) return true;
+    return where != null && where.uses(u) || ret.uses(u);
   }
 
   @Override
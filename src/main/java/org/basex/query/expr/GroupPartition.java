@@ -1,6 +1,7 @@
 package org.basex.query.expr;
 
 import java.util.ArrayList;
+import org.basex.core.Prop;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
 import org.basex.query.item.Value;
@@ -21,6 +22,9 @@ import org.basex.util.TokenSet;
  * @author Michael Seiferle
  */
 final class GroupPartition {
+  /** Number of hash partitions that are written to disk. */
+  private static final int PARTS = 64;
+
   /** Input information. */
   private final InputInfo input;
   /** Order by specifier. */
@@ -40,7 +44,16 @@ final class GroupPartition {
   /** Resulting sequence for non-grouping variables. */
   private final ArrayList<ItemCache[]> items;
   /** HashValue, position (with overflow bucket). */
-  private final IntMap<IntList> hashes = new IntMap<IntList>();
+  private IntMap<IntList> hashes = new IntMap<IntList>();
+
+  /** Maximum number of cached tuples ({@code 0}: no limit). */
+  private int spill;
+  /** Number of cached tuples. */
+  private int tuples;
+  /** Hash partitions, which have been written to disk. */
+  private Spill[] spills;
+  /** Number of tuples of the hash partitions. */
+  private int[] sizes;
 
   /** flag indicates variable caching. */
   private boolean cachedVars;
@@ -117,49 +130,121 @@ final class GroupPartition {
       if(val.size() > 1) XGRP.thrw(input);
       vals[i] = val;
     }
-
     final GroupNode gn = new GroupNode(vals);
+
+    // partitions have been written to disk: add tuple to its partition
+    final int ngl = ngv.length;
+    if(spills != null) {
+      final Value[] ngvals = new Value[ngl];
+      for(int i = 0; i < ngl; ++i) ngvals[i] = ngv[i].value(ctx);
+      write(gn, ngvals);
+      return;
+    }
+
+    // Adds the current non-grouping variable bindings to the p-th partition.
+    final ItemCache[] sq = items(partition(gn));
+    for(int i = 0; i < ngl; ++i) sq[i].add(ngv[i].iter(ctx));
+
+    // write partitions to disk if too many tuples have been cached
+    if(spill != 0 && ++tuples >= spill) write(ctx);
+  }
+
+  /**
+   * Returns the position of the partition of the specified group node.
+   * A new partition is created if no matching partition exists.
+   * @param gn group node
+   * @return position of the partition
+   * @throws QueryException query exception
+   */
+  private int partition(final GroupNode gn) throws QueryException {
     final int h = gn.hash();
     final IntList ps = hashes.get(h);
-    int p = -1;
     if(ps != null) {
       for(int i = 0; i < ps.size(); ++i) {
         final int pp = ps.get(i);
-        if(gn.eq(part.get(pp))) {
-          p = pp;
-          break;
-        }
+        if(gn.eq(part.get(pp))) return pp;
       }
     }
-    if(p < 0) {
-      p = part.size();
-      part.add(gn);
-
-      IntList pos = hashes.get(h);
-      if(pos == null) {
-        pos = new IntList(1);
-        hashes.add(h, pos);
-      }
-      pos.add(p);
+    final int p = part.size();
+    part.add(gn);
+
+    IntList pos = hashes.get(h);
+    if(pos == null) {
+      pos = new IntList(1);
+      hashes.add(h, pos);
     }
+    pos.add(p);
+    return p;
+  }
 
-    // no non-grouping variables exist
+  /**
+   * Returns the cached non-grouping variable bindings of the specified
+   * partition, or {@code null} if no non-grouping variables exist.
+   * @param p position of the partition
+   * @return cached bindings
+   */
+  private ItemCache[] items(final int p) {
     final int ngl = ngv.length;
-    if(ngl == 0) return;
+    if(ngl == 0) return null;
 
-    // Adds the current non-grouping variable bindings to the p-th partition.
-    if(p == items.size()) items.add(new ItemCache[ngl]);
-    final ItemCache[] sq = items.get(p);
-
-    for(int i = 0; i < ngl; ++i) {
-      ItemCache ir = sq[i];
-      final Iter iter = ngv[i].iter(ctx);
-      if(ir == null) {
-        ir = new ItemCache();
-        sq[i] = ir;
-      }
-      ir.add(iter);
+    if(p == items.size()) {
+      final ItemCache[] sq = new ItemCache[ngl];
+      for(int i = 0; i < ngl; ++i) sq[i] = new ItemCache();
+      items.add(sq);
     }
+    return items.get(p);
+  }
+
+  /**
+   * Writes all cached partitions to hash partitions on disk.
+   * @param ctx query context
+   * @throws QueryException query exception
+   */
+  private void write(final QueryContext ctx) throws QueryException {
+    spills = new Spill[PARTS];
+    sizes = new int[PARTS];
+    for(int i = 0; i < PARTS; ++i) spills[i] = new Spill(ctx, input);
+
+    final int ngl = ngv.length;
+    for(int p = 0; p < part.size(); ++p) {
+      final Value[] ngvals = new Value[ngl];
+      for(int i = 0; i < ngl; ++i) ngvals[i] = items.get(p)[i].finish();
+      write(part.get(p), ngvals);
+    }
+    clear();
+  }
+
+  /**
+   * Writes a tuple to its hash partition on disk.
+   * @param gn group node
+   * @param ngvals values of the non-grouping variables
+   * @throws QueryException query exception
+   */
+  private void write(final GroupNode gn, final Value[] ngvals)
+      throws QueryException {
+    final int s = (gn.hash() & Integer.MAX_VALUE) % PARTS;
+    final Spill sp = spills[s];
+    for(final Value v : gn.vals) sp.write(v);
+    for(final Value v : ngvals) sp.write(v);
+    sizes[s]++;
+  }
+
+  /**
+   * Closes and deletes the hash partitions on disk.
+   */
+  void close() {
+    if(spills == null) return;
+    for(final Spill sp : spills) if(sp != null) sp.close();
+    spills = null;
+  }
+
+  /**
+   * Removes all cached partitions.
+   */
+  private void clear() {
+    part.clear();
+    hashes = new IntMap<IntList>();
+    if(items != null) items.clear();
   }
 
   /**
@@ -169,6 +254,7 @@ final class GroupPartition {
   private void cacheVars(final QueryContext ctx) {
     for(int i = 0; i < ngv.length; ++i) ngv[i] = ctx.vars.get(ngv[i]);
     for(int i = 0; i < gv.length; ++i) gv[i] = ctx.vars.get(gv[i]);
+    spill = ctx.context.prop.num(Prop.SPILLSIZE);
     cachedVars = true;
   }
 
@@ -183,7 +269,45 @@ final class GroupPartition {
     final ItemCache ir = new ItemCache();
     final ValueList vl = new ValueList();
     if(pggv == null) cacheRet(ctx);
-    if(order != null) order.init(vl, -1);
+    if(order != null) order.init(vl, -1, ctx);
+
+    if(spills == null) {
+      ret(ctx, ret, ir, vl);
+    } else {
+      // read and group hash partitions one by one
+      final int gl = gv.length;
+      final int ngl = ngv.length;
+      try {
+        for(final Spill sp : spills) sp.finish();
+        for(int s = 0; s < PARTS; ++s) {
+          final Spill sp = spills[s];
+          for(int t = 0; t < sizes[s]; ++t) {
+            final Value[] vals = new Value[gl];
+            for(int i = 0; i < gl; ++i) vals[i] = sp.value();
+            final ItemCache[] sq = items(partition(new GroupNode(vals)));
+            for(int i = 0; i < ngl; ++i) sq[i].add(sp.value().iter());
+          }
+          sp.close();
+          ret(ctx, ret, ir, vl);
+          clear();
+        }
+      } finally {
+        close();
+      }
+    }
+    return order != null ? ctx.iter(order) : ir;
+  }
+
+  /**
+   * Evaluates the return expression for all cached partitions.
+   * @param ctx context
+   * @param ret return expression
+   * @param ir results, if no order is specified
+   * @param vl values to be sorted
+   * @throws QueryException query exception
+   */
+  private void ret(final QueryContext ctx, final Expr ret,
+      final ItemCache ir, final ValueList vl) throws QueryException {
 
     for(int i = 0; i < part.size(); ++i) {
       final GroupNode gn = part.get(i);
@@ -198,9 +322,9 @@ final class GroupPartition {
       if(order != null) {
         order.add(ctx);
         vl.add(ret.value(ctx));
+        order.prune(ctx);
       } else ir.add(ctx.iter(ret));
     }
-    return order != null ? ctx.iter(order) : ir;
   }
 
   /**
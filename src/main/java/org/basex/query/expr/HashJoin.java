@@ -0,0 +1,258 @@
+package org.basex.query.expr;
+
+import java.util.Arrays;
+import org.basex.query.QueryContext;
+import org.basex.query.QueryException;
+import org.basex.query.item.Atm;
+import org.basex.query.item.Item;
+import org.basex.query.item.Type;
+import org.basex.query.iter.ItemCache;
+import org.basex.query.iter.Iter;
+import org.basex.query.util.Var;
+import org.basex.util.IntList;
+import org.basex.util.IntMap;
+import org.basex.util.Token;
+
+/**
+ * Hash table for evaluating an equality join between two for clauses.
+ * The items of the inner clause are hashed on their atomized join keys;
+ * the keys of the outer clauses are probed against the table.
+ *
+ * All candidates are verified with the general comparison, which preserves
+ * the semantics of the original where clause (including type errors):
+ * untyped and string keys are hashed on their string values, numeric keys
+ * and untyped keys that can be cast to doubles are hashed on their double
+ * values, and all other keys are compared sequentially.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class HashJoin {
+  /** Join comparison (probe and build key). */
+  private final CmpG cmp;
+
+  /** Items of the build side. */
+  private ItemCache items;
+  /** Keys of the build side. */
+  private Item[] keys = new Item[1];
+  /** Item positions of the keys. */
+  private int[] pos = new int[1];
+  /** Number of keys. */
+  private int size;
+
+  /** Keys, indexed by string hashes. */
+  private final IntMap<IntList> strs = new IntMap<IntList>();
+  /** Keys, indexed by numeric hashes. */
+  private final IntMap<IntList> nums = new IntMap<IntList>();
+  /** String keys. */
+  private final IntList str = new IntList();
+  /** Numeric keys. */
+  private final IntList num = new IntList();
+  /** Untyped keys that cannot be cast to numbers. */
+  private final IntList unt = new IntList();
+  /** Other keys. */
+  private final IntList other = new IntList();
+
+  /**
+   * Constructor.
+   * @param c join comparison
+   */
+  HashJoin(final CmpG c) {
+    cmp = c;
+  }
+
+  /**
+   * Returns the items of the build side that match the current probe keys.
+   * The hash table is created with the first call.
+   * @param ctx query context
+   * @param expr build expression
+   * @param var build variable
+   * @return matching items, in their original order
+   * @throws QueryException query exception
+   */
+  ItemCache iter(final QueryContext ctx, final Expr expr, final Var var)
+      throws QueryException {
+
+    if(items == null) build(ctx, expr, var);
+
+    // collect positions of all matching items
+    final IntList match = new IntList();
+    final Iter ir = ctx.iter(cmp.expr[0]);
+    Item it;
+    while((it = ir.next()) != null) probe(atom(it), match);
+    match.sort();
+
+    final ItemCache ic = new ItemCache();
+    for(int m = 0; m < match.size(); ++m) {
+      final int p = match.get(m);
+      if(m == 0 || p != match.get(m - 1)) ic.add(items.item[p]);
+    }
+    return ic;
+  }
+
+  /**
+   * Builds the hash table.
+   * @param ctx query context
+   * @param expr build expression
+   * @param var build variable
+   * @throws QueryException query exception
+   */
+  private void build(final QueryContext ctx, final Expr expr, final Var var)
+      throws QueryException {
+
+    items = new ItemCache();
+    final int vs = ctx.vars.size();
+    final Iter ir = ctx.iter(expr);
+    final Var v = var.copy();
+    ctx.vars.add(v);
+    Item it;
+    while((it = ir.next()) != null) {
+      v.bind(it, ctx);
+      final int p = (int) items.size();
+      items.add(it);
+      final Iter kr = ctx.iter(cmp.expr[1]);
+      Item k;
+      while((k = kr.next()) != null) add(atom(k), p);
+    }
+    ctx.vars.reset(vs);
+  }
+
+  /**
+   * Adds a key to the hash table.
+   * @param k key
+   * @param p position of the build item
+   */
+  private void add(final Item k, final int p) {
+    if(size == keys.length) {
+      keys = Arrays.copyOf(keys, size << 1);
+      pos = Arrays.copyOf(pos, size << 1);
+    }
+    final int i = size++;
+    keys[i] = k;
+    pos[i] = p;
+
+    if(k.unt()) {
+      add(strs, Token.hash(k.atom()), i);
+      final double d = dbl(k);
+      if(d == d) add(nums, hash(d), i);
+      else unt.add(i);
+    } else if(k.str()) {
+      add(strs, Token.hash(k.atom()), i);
+      str.add(i);
+    } else if(numeric(k)) {
+      add(nums, hash(dbl(k)), i);
+      num.add(i);
+    } else {
+      other.add(i);
+    }
+  }
+
+  /**
+   * Adds the positions of the build items that match the specified key.
+   * @param k probe key
+   * @param match matching positions
+   * @throws QueryException query exception
+   */
+  private void probe(final Item k, final IntList match) throws QueryException {
+    if(k.unt()) {
+      probe(k, strs.get(Token.hash(k.atom())), match);
+      final double d = dbl(k);
+      if(d == d) probe(k, nums.get(hash(d)), match);
+      else probe(k, num, match);
+      probe(k, other, match);
+    } else if(k.str()) {
+      probe(k, strs.get(Token.hash(k.atom())), match);
+      probe(k, num, match);
+      probe(k, other, match);
+    } else if(numeric(k)) {
+      probe(k, nums.get(hash(dbl(k))), match);
+      probe(k, unt, match);
+      probe(k, str, match);
+      probe(k, other, match);
+    } else {
+      for(int i = 0; i < size; ++i) {
+        if(cmp.eval(k, keys[i])) match.add(pos[i]);
+      }
+    }
+  }
+
+  /**
+   * Compares the probe key with the specified build keys.
+   * @param k probe key
+   * @param il indexes of the build keys (may be {@code null})
+   * @param match matching positions
+   * @throws QueryException query exception
+   */
+  private void probe(final Item k, final IntList il, final IntList match)
+      throws QueryException {
+
+    if(il == null) return;
+    for(int i = 0; i < il.size(); ++i) {
+      final int c = il.get(i);
+      if(cmp.eval(k, keys[c])) match.add(pos[c]);
+    }
+  }
+
+  /**
+   * Adds an index to the specified hash map.
+   * @param map hash map
+   * @param h hash value
+   * @param i index
+   */
+  private static void add(final IntMap<IntList> map, final int h,
+      final int i) {
+    IntList il = map.get(h);
+    if(il == null) {
+      il = new IntList(1);
+      map.add(h, il);
+    }
+    il.add(i);
+  }
+
+  /**
+   * Atomizes nodes to untyped items, which avoids repeated atomizations.
+   * @param it item
+   * @return atomized item
+   */
+  private static Item atom(final Item it) {
+    return it.node() ? new Atm(it.atom()) : it;
+  }
+
+  /**
+   * Checks if the specified item is numeric and can be hashed on its double
+   * value. Float values are compared with reduced precision and are
+   * compared sequentially instead.
+   * @param it item
+   * @return result of check
+   */
+  private static boolean numeric(final Item it) {
+    return it.num() && it.type != Type.FLT;
+  }
+
+  /**
+   * Returns the double value of the specified item, or {@code NaN} if
+   * it cannot be cast to a double.
+   * @param it item
+   * @return double value
+   */
+  private double dbl(final Item it) {
+    try {
+      return it.dbl(cmp.input);
+    } catch(final QueryException ex) {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * Returns a hash value for the specified double.
+   * @param d double value
+   * @return hash value
+   */
+  private static int hash(final double d) {
+    // equal values yield the same hash; spread bits of integer values
+    final long l = Double.doubleToLongBits(d == 0 ? 0 : d);
+    int h = (int) (l ^ l >>> 32);
+    h ^= h >>> 20 ^ h >>> 12;
+    return h ^ h >>> 7 ^ h >>> 4;
+  }
+}
@@ -2,15 +2,19 @@ package org.basex.query.expr;
 
 import static org.basex.query.QueryTokens.*;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import org.basex.core.Prop;
 import org.basex.data.Serializer;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
 import org.basex.query.item.Item;
+import org.basex.query.item.Value;
 import org.basex.query.iter.Iter;
 import org.basex.query.util.ValueList;
 import org.basex.query.util.Var;
 import org.basex.util.InputInfo;
+import org.basex.util.IntList;
 import org.basex.util.TokenBuilder;
 
 /**
@@ -20,10 +24,22 @@ import org.basex.util.TokenBuilder;
  * @author Christian Gruen
  */
 public final class Order extends ParseExpr {
+  /** Minimum number of cached tuples before tuples are discarded. */
+  private static final int MINPRUNE = 64;
+  /** Maximum number of sorted runs that are merged at the same time. */
+  static final int MERGE = 32;
   /** Sort list. */
   final OrderBy[] ob;
   /** Values to be sorted. */
   ValueList vl;
+  /** Maximum number of returned items ({@code 0}: no limit). */
+  long limit;
+  /** Maximum number of cached tuples ({@code 0}: no limit). */
+  private int spill;
+  /** Sorted runs, which have been written to disk. */
+  private ArrayList<Spill> runs;
+  /** Number of tuples of the sorted runs. */
+  private IntList sizes;
 
  /**
    * Constructor.
@@ -41,8 +57,22 @@ public final class Order extends ParseExpr {
     return this;
   }
 
+  /**
+   * Checks if the tuples are only ordered by the scores of the specified
+   * for clause in descending order.
+   * @param fr for clause
+   * @return result of check
+   */
+  boolean score(final For fr) {
+    // the last order specifier enforces stable sorting
+    return ob.length == 2 && ob[0] instanceof OrderByExpr &&
+      ((OrderByExpr) ob[0]).score(fr);
+  }
+
   @Override
-  public Iter iter(final QueryContext ctx) {
+  public Iter iter(final QueryContext ctx) throws QueryException {
+    if(runs != null) return merge(ctx);
+
     return new Iter() {
       int e, p = -1;
       int[] order;
@@ -53,9 +83,7 @@ public final class Order extends ParseExpr {
         if(order == null) {
           // enumerate sort array and sort entries
           e = vl.size();
-          order = new int[e];
-          for(int i = 0; i < e; ++i) order[i] = i;
-          sort(order, 0, e);
+          order = sorted(e);
         }
 
         while(true) {
@@ -72,14 +100,105 @@ public final class Order extends ParseExpr {
     };
   }
 
+  /**
+   * Returns an iterator, which merges the sorted runs on disk and the
+   * sorted tuples in main memory. If there are more than {@link #MERGE} runs,
+   * they are first merged in several passes.
+   * @param ctx query context
+   * @return iterator
+   * @throws QueryException query exception
+   */
+  private Iter merge(final QueryContext ctx) throws QueryException {
+    final Merge m;
+    try {
+      while(runs.size() > MERGE) pass(ctx);
+      m = new Merge(runs, sizes, 0, runs.size(), sorted(vl.size()));
+    } catch(final QueryException ex) {
+      close();
+      throw ex;
+    }
+    runs = null;
+    sizes = null;
+
+    return new Iter() {
+      Iter ir;
+
+      @Override
+      public Item next() throws QueryException {
+        try {
+          while(true) {
+            if(ir != null) {
+              final Item i = ir.next();
+              if(i != null) return i;
+              ir = null;
+            } else {
+              final Value v = m.next(null);
+              if(v == null) return null;
+              ir = v.iter(ctx);
+            }
+          }
+        } catch(final QueryException ex) {
+          m.close();
+          throw ex;
+        }
+      }
+    };
+  }
+
+  /**
+   * Performs a merge pass: groups of {@link #MERGE} consecutive runs are
+   * merged into single runs. As the order of the runs is retained, stable
+   * sorting is preserved.
+   * @param ctx query context
+   * @throws QueryException query exception
+   */
+  private void pass(final QueryContext ctx) throws QueryException {
+    final ArrayList<Spill> rs = runs;
+    final IntList ss = sizes;
+    runs = new ArrayList<Spill>();
+    sizes = new IntList();
+
+    final Item[] keys = new Item[ob.length - 1];
+    try {
+      for(int r = 0; r < rs.size(); r += MERGE) {
+        final int e = Math.min(r + MERGE, rs.size());
+        final Spill sp = new Spill(ctx, input);
+        runs.add(sp);
+        final Merge m = new Merge(rs, ss, r, e, new int[0]);
+        int s = 0;
+        for(Value v; (v = m.next(keys)) != null; ++s) {
+          for(final Item k : keys) sp.write(k);
+          sp.write(v);
+        }
+        sp.finish();
+        sizes.add(s);
+      }
+    } catch(final QueryException ex) {
+      for(final Spill sp : rs) sp.close();
+      throw ex;
+    }
+  }
+
   /**
    * Initializes the order expressions.
    * @param v value list
    * @param s expected size
+   * @param ctx query context
    */
-  void init(final ValueList v, final int s) {
+  void init(final ValueList v, final int s, final QueryContext ctx) {
     for(int o = 0; o < ob.length - 1; ++o) ob[o].init(s);
     vl = v;
+    spill = ctx.context.prop.num(Prop.SPILLSIZE);
+    close();
+  }
+
+  /**
+   * Closes and deletes the sorted runs on disk that have not been merged yet.
+   */
+  void close() {
+    if(runs != null) for(final Spill sp : runs) sp.close();
+    runs = null;
+    sizes = null;
   }
 
   /**
@@ -91,6 +210,90 @@ public final class Order extends ParseExpr {
     for(int o = 0; o < ob.length - 1; ++o) ob[o].add(ctx);
   }
 
+  /**
+   * Reduces the number of cached tuples, if necessary.
+   * @param ctx query context
+   * @throws QueryException query exception
+   */
+  void prune(final QueryContext ctx) throws QueryException {
+    final int e = vl.size();
+    if(limit != 0) {
+      if(e >= Math.max(limit << 1, MINPRUNE)) discard(e);
+    } else if(spill != 0 && e >= spill) {
+      write(e, ctx);
+    }
+  }
+
+  /**
+   * Discards all tuples that cannot contribute to the limited result.
+   * This is done as soon as the number of cached tuples exceeds twice the
+   * limit: the tuples are sorted, and only the leading tuples that yield
+   * the requested number of items are kept. As the remaining tuples are
+   * renumbered in their sorted order, stable sorting is preserved.
+   * @param e number of cached tuples
+   * @throws QueryException query exception
+   */
+  private void discard(final int e) throws QueryException {
+    final int[] o = sorted(e);
+
+    // choose leading tuples, skipping tuples with empty results
+    final Value[] vals = new Value[e];
+    int n = 0;
+    long c = 0;
+    for(int i = 0; i < e && c < limit; ++i) {
+      final Value v = vl.get(o[i]);
+      if(v.size() == 0) continue;
+      o[n] = o[i];
+      vals[n++] = v;
+      c += v.size();
+    }
+    for(int k = 0; k < ob.length - 1; ++k) ob[k].keep(o, n);
+    vl.reset();
+    for(int i = 0; i < n; ++i) vl.add(vals[i]);
+  }
+
+  /**
+   * Writes all cached tuples to disk as sorted run.
+   * @param e number of cached tuples
+   * @param ctx query context
+   * @throws QueryException query exception
+   */
+  private void write(final int e, final QueryContext ctx)
+      throws QueryException {
+
+    final int[] o = sorted(e);
+    final Spill sp = new Spill(ctx, input);
+    if(runs == null) {
+      runs = new ArrayList<Spill>();
+      sizes = new IntList();
+    }
+    runs.add(sp);
+    sizes.add(e);
+
+    final int k = ob.length - 1;
+    for(int i = 0; i < e; ++i) {
+      for(int j = 0; j < k; ++j) sp.write(ob[j].get(o[i]));
+      sp.write(vl.get(o[i]));
+    }
+    sp.finish();
+
+    for(int j = 0; j < k; ++j) ob[j].init(e);
+    vl.reset();
+  }
+
+  /**
+   * Returns the sorted positions of the cached tuples.
+   * @param e number of cached tuples
+   * @return sorted positions
+   * @throws QueryException query exception
+   */
+  private int[] sorted(final int e) throws QueryException {
+    final int[] o = new int[e];
+    for(int i = 0; i < e; ++i) o[i] = i;
+    sort(o, 0, e);
+    return o;
+  }
+
   @Override
   public boolean uses(final Use u) {
     for(final OrderBy o : ob) if(o.uses(u)) return true;
@@ -188,12 +391,8 @@ public final class Order extends ParseExpr {
       throws QueryException {
 
     for(int k = 0; k < ob.length; ++k) {
-      final OrderBy or = ob[k];
-      final Item m = or.get(o[a]);
-      final Item n = it[k];
-      final int c = m == null ? n == null ? 0 : or.lst ? -1 : 1 :
-        n == null ? or.lst ? 1 : -1 : m.diff(input, n);
-      if(c != 0) return or.desc ? -c : c;
+      final int c = d(ob[k], ob[k].get(o[a]), it[k]);
+      if(c != 0) return c;
     }
     return 0;
   }
@@ -208,15 +407,27 @@ public final class Order extends ParseExpr {
    */
   private int d(final int[] o, final int a, final int b) throws QueryException {
     for(final OrderBy l : ob) {
-      final Item m = l.get(o[a]);
-      final Item n = l.get(o[b]);
-      final int c = m == null ? n == null ? 0 : l.lst ? -1 : 1 :
-        n == null ? l.lst ? 1 : -1 : m.diff(input, n);
-      if(c != 0) return l.desc ? -c : c;
+      final int c = d(l, l.get(o[a]), l.get(o[b]));
+      if(c != 0) return c;
     }
     return 0;
   }
 
+  /**
+   * Returns the difference of two items.
+   * @param or order specifier
+   * @param m first item (may be {@code null})
+   * @param n second item (may be {@code null})
+   * @return result
+   * @throws QueryException query exception
+   */
+  private int d(final OrderBy or, final Item m, final Item n)
+      throws QueryException {
+    final int c = m == null ? n == null ? 0 : or.lst ? -1 : 1 :
+      n == null ? or.lst ? 1 : -1 : m.diff(input, n);
+    return or.desc ? -c : c;
+  }
+
   /**
    * Returns the index of the median of the three indexed integers.
    * @param o order array
@@ -256,6 +467,139 @@ public final class Order extends ParseExpr {
     o[b] = c;
   }
 
+  /**
+   * Merges sorted runs on disk and, optionally, sorted tuples in main memory,
+   * which are treated as last run. If two tuples are equal, the tuple of
+   * the earlier run is returned first, which preserves stable sorting.
+   * Runs are closed as soon as they have been read.
+   */
+  private final class Merge {
+    /** Runs on disk. */
+    private final Spill[] rs;
+    /** Number of tuples of the runs on disk. */
+    private final int[] ss;
+    /** Sorted tuples in main memory. */
+    private final int[] o;
+    /** Current keys of all runs. */
+    private final Item[][] keys;
+    /** Current values of all runs. */
+    private final Value[] vals;
+    /** Current positions of all runs. */
+    private final int[] pos;
+    /** Heap with run indexes. */
+    private final int[] heap;
+    /** Size of the heap. */
+    private int hs;
+
+    /**
+     * Constructor.
+     * @param runs runs on disk
+     * @param sizes number of tuples of the runs on disk
+     * @param s first run to be merged
+     * @param e last run to be merged (exclusive)
+     * @param so sorted tuples in main memory
+     * @throws QueryException query exception
+     */
+    Merge(final ArrayList<Spill> runs, final IntList sizes, final int s,
+        final int e, final int[] so) throws QueryException {
+
+      final int r = e - s;
+      rs = runs.subList(s, e).toArray(new Spill[r]);
+      ss = new int[r];
+      for(int i = 0; i < r; ++i) ss[i] = sizes.get(s + i);
+      o = so;
+      keys = new Item[r + 1][ob.length - 1];
+      vals = new Value[r + 1];
+      pos = new int[r + 1];
+      heap = new int[r + 1];
+      for(int i = 0; i <= r; ++i) if(read(i)) heap[hs++] = i;
+      for(int i = hs >>> 1; --i >= 0;) down(i);
+    }
+
+    /**
+     * Returns the value of the smallest tuple and advances its run.
+     * @param k array for the keys of the tuple (may be {@code null})
+     * @return value, or {@code null} if all tuples have been returned
+     * @throws QueryException query exception
+     */
+    Value next(final Item[] k) throws QueryException {
+      if(hs == 0) return null;
+      final int h = heap[0];
+      final Value v = vals[h];
+      if(k != null) System.arraycopy(keys[h], 0, k, 0, k.length);
+      if(!read(h)) heap[0] = heap[--hs];
+      down(0);
+      return v;
+    }
+
+    /**
+     * Closes all runs.
+     */
+    void close() {
+      for(final Spill sp : rs) sp.close();
+      hs = 0;
+    }
+
+    /**
+     * Reads the next tuple of the specified run.
+     * @param r index of the run
+     * @return {@code true} if a tuple was found
+     * @throws QueryException query exception
+     */
+    private boolean read(final int r) throws QueryException {
+      final int k = keys[r].length;
+      final int p = pos[r]++;
+      if(r < rs.length) {
+        final Spill sp = rs[r];
+        if(p == ss[r]) {
+          sp.close();
+          return false;
+        }
+        for(int i = 0; i < k; ++i) keys[r][i] = sp.item();
+        vals[r] = sp.value();
+      } else {
+        if(p == o.length) return false;
+        for(int i = 0; i < k; ++i) keys[r][i] = ob[i].get(o[p]);
+        vals[r] = vl.get(o[p]);
+      }
+      return true;
+    }
+
+    /**
+     * Moves an entry of the heap down to its correct position.
+     * @param i position of the entry
+     * @throws QueryException query exception
+     */
+    private void down(final int i) throws QueryException {
+      int p = i;
+      final int r = heap[p];
+      while(true) {
+        int c = (p << 1) + 1;
+        if(c >= hs) break;
+        if(c + 1 < hs && d(heap[c + 1], heap[c]) < 0) ++c;
+        if(d(heap[c], r) >= 0) break;
+        heap[p] = heap[c];
+        p = c;
+      }
+      heap[p] = r;
+    }
+
+    /**
+     * Compares the current keys of two runs.
+     * @param a first run
+     * @param b second run
+     * @return result
+     * @throws QueryException query exception
+     */
+    private int d(final int a, final int b) throws QueryException {
+      for(int k = 0; k < keys[a].length; ++k) {
+        final int c = Order.this.d(ob[k], keys[a][k], keys[b][k]);
+        if(c != 0) return c;
+      }
+      return a - b;
+    }
+  }
+
   @Override
   public void plan(final Serializer ser) throws IOException {
     ser.openElement(this);
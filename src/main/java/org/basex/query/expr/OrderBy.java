@@ -39,6 +39,13 @@ public abstract class OrderBy extends ParseExpr {
    */
   abstract void add(final QueryContext ctx) throws QueryException;
 
+  /**
+   * Only keeps the specified items, in the given order.
+   * @param o item indexes
+   * @param n number of items to keep
+   */
+  abstract void keep(final int[] o, final int n);
+
   /**
    * Returns the specified item.
    * @param i item index
@@ -5,6 +5,7 @@ import java.io.IOException;
 import org.basex.data.Serializer;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
+import org.basex.query.func.FunDef;
 import org.basex.query.item.Item;
 import org.basex.query.item.Str;
 import org.basex.query.iter.ItemCache;
@@ -46,6 +47,24 @@ public final class OrderByExpr extends OrderBy {
     return this;
   }
 
+  /**
+   * Checks if the items are ordered by the scores of the specified for clause
+   * in descending order.
+   * @param fr for clause
+   * @return result of check
+   */
+  boolean score(final For fr) {
+    if(!desc) return false;
+    // order by $score
+    if(expr instanceof VarRef) {
+      return fr.score != null && ((VarRef) expr).var.eq(fr.score);
+    }
+    // order by ft:score($var)
+    if(!expr.isFun(FunDef.SCORE)) return false;
+    final Expr e = ((Arr) expr).expr[0];
+    return e instanceof VarRef && ((VarRef) e).var.eq(fr.var);
+  }
+
   @Override
   void init(final int s) {
     if(seq == null) seq = s > 0 ? new ItemCache(s) : new ItemCache();
@@ -62,6 +81,14 @@ public final class OrderByExpr extends OrderBy {
     seq.add(it);
   }
 
+  @Override
+  void keep(final int[] o, final int n) {
+    final Item[] it = new Item[n];
+    for(int i = 0; i < n; ++i) it[i] = seq.get(o[i]);
+    seq.size(0);
+    for(final Item i : it) seq.add(i);
+  }
+
   @Override
   Item get(final int i) {
     return seq.get(i);
@@ -38,6 +38,9 @@ public final class OrderByStable extends OrderBy {
   @Override
   void add(final QueryContext ctx) { }
 
+  @Override
+  void keep(final int[] o, final int n) { }
+
   @Override
   Item get(final int i) {
     return Itr.get(i);
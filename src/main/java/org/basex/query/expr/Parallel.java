@@ -0,0 +1,177 @@
+package org.basex.query.expr;
+
+import static org.basex.query.util.Err.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.basex.core.Prop;
+import org.basex.core.ThreadPool;
+import org.basex.data.Serializer;
+import org.basex.query.QueryContext;
+import org.basex.query.QueryException;
+import org.basex.query.iter.ItemCache;
+import org.basex.query.iter.Iter;
+import org.basex.query.util.Var;
+import org.basex.query.util.VarList;
+import org.basex.util.Util;
+
+/**
+ * Parallel evaluation of a FLWOR expression ({@link Prop#PARALLELFLWOR}).
+ * The items of the first for clause are split into chunks, and the remaining
+ * clauses are evaluated for each chunk by a separate thread, using a copy of
+ * the query context. The threads are taken from the pool of the database
+ * context. The results of all chunks are returned in their original order.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class Parallel extends ParseExpr {
+  /** Number of chunks per thread. */
+  private static final int CHUNKS = 4;
+  /** FLWOR expression. */
+  private final FLWR flwr;
+
+  /**
+   * Constructor.
+   * @param f FLWOR expression
+   */
+  Parallel(final FLWR f) {
+    super(f.input);
+    flwr = f;
+    type = f.type;
+    size = f.size;
+  }
+
+  @Override
+  public Expr comp(final QueryContext ctx) {
+    return this;
+  }
+
+  @Override
+  public Iter iter(final QueryContext ctx) throws QueryException {
+    // expressions are evaluated sequentially by parallel threads
+    if(ctx.parallel || ThreadPool.worker()) return ctx.iter(flwr);
+
+    final For fr = (For) flwr.fl[0];
+    final ItemCache items = ItemCache.get(ctx.iter(fr.expr));
+    final Expr body = flwr.body();
+    final int is = (int) items.size();
+    final int t = ctx.context.prop.num(Prop.THREADS);
+    final ExecutorService pool = ctx.context.threads.get(t);
+    final int ts = Math.min(is, t > 0 ? t : Runtime.getRuntime().
+        availableProcessors());
+    if(ts < 2) return eval(ctx, ctx, fr.var, body, items, 0, is);
+
+    // evaluate lazily bound variables, which would otherwise be assigned
+    // by several threads at the same time
+    final VarList global = ctx.vars.global();
+    for(int g = 0; g < global.size; ++g) global.vars[g].value(ctx);
+    final VarList local = ctx.vars.local();
+    for(int l = 0; l < local.size; ++l) {
+      if(flwr.count(local.vars[l]) != 0) local.vars[l].value(ctx);
+    }
+
+    final int cs = (is + ts * CHUNKS - 1) / (ts * CHUNKS);
+    final ArrayList<QueryContext> ctxs = new ArrayList<QueryContext>();
+    final ArrayList<Future<ItemCache>> results =
+      new ArrayList<Future<ItemCache>>();
+    try {
+      for(int s = 0; s < is; s += cs) {
+        final QueryContext qc = new QueryContext(ctx);
+        final int st = s, en = Math.min(is, s + cs);
+        ctxs.add(qc);
+        results.add(pool.submit(new Callable<ItemCache>() {
+          @Override
+          public ItemCache call() throws QueryException {
+            return eval(qc, ctx, fr.var, body, items, st, en);
+          }
+        }));
+      }
+      final ItemCache ic = new ItemCache();
+      for(final Future<ItemCache> f : results) ic.add(f.get());
+      return ic;
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof QueryException) throw (QueryException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof StackOverflowError) {
+        Util.debug(th);
+        throw XPSTACK.thrw(input);
+      }
+      if(th instanceof Error) throw (Error) th;
+      throw Util.notexpected(th);
+    } catch(final InterruptedException ex) {
+      throw Util.notexpected(ex);
+    } finally {
+      // stop remaining evaluations; running threads are not interrupted,
+      // as this would close the channels of opened files
+      for(final QueryContext qc : ctxs) qc.stop();
+      for(final Future<ItemCache> f : results) f.cancel(false);
+    }
+  }
+
+  /**
+   * Evaluates the specified expression for a chunk of items.
+   * @param qc query context of the current thread
+   * @param ctx original query context
+   * @param var variable of the for clause
+   * @param body expression to be evaluated
+   * @param items items of the for clause
+   * @param s first item
+   * @param e last item (exclusive)
+   * @return resulting items
+   * @throws QueryException query exception
+   */
+  private static ItemCache eval(final QueryContext qc, final QueryContext ctx,
+      final Var var, final Expr body, final ItemCache items, final int s,
+      final int e) throws QueryException {
+
+    final Var v = var.copy();
+    final int vs = qc.vars.size();
+    qc.vars.add(v);
+    final ItemCache ic = new ItemCache();
+    for(int i = s; i < e; ++i) {
+      ctx.checkStop();
+      v.bind(items.item[i], qc);
+      ic.add(qc.iter(body));
+    }
+    qc.vars.reset(vs);
+    return ic;
+  }
+
+  @Override
+  public boolean uses(final Use u) {
+    return flwr.uses(u);
+  }
+
+  @Override
+  public int count(final Var v) {
+    return flwr.count(v);
+  }
+
+  @Override
+  public boolean removable(final Var v) {
+    return flwr.removable(v);
+  }
+
+  @Override
+  public Expr remove(final Var v) {
+    flwr.remove(v);
+    return this;
+  }
+
+  @Override
+  public void plan(final Serializer ser) throws IOException {
+    ser.openElement(this);
+    flwr.plan(ser);
+    ser.closeElement();
+  }
+
+  @Override
+  public String toString() {
+    return flwr.toString();
+  }
+}
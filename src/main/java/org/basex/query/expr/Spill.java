@@ -0,0 +1,260 @@
+package org.basex.query.expr;
+
+import static org.basex.query.util.Err.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import org.basex.core.Prop;
+import org.basex.core.Text;
+import org.basex.data.Data;
+import org.basex.io.DataInput;
+import org.basex.io.DataOutput;
+import org.basex.query.QueryContext;
+import org.basex.query.QueryException;
+import org.basex.query.QueryResources;
+import org.basex.query.item.Atm;
+import org.basex.query.item.Bln;
+import org.basex.query.item.DBNode;
+import org.basex.query.item.Dbl;
+import org.basex.query.item.Dec;
+import org.basex.query.item.Empty;
+import org.basex.query.item.Item;
+import org.basex.query.item.Itr;
+import org.basex.query.item.Str;
+import org.basex.query.item.Type;
+import org.basex.query.item.Value;
+import org.basex.query.iter.ItemCache;
+import org.basex.query.iter.Iter;
+import org.basex.util.InputInfo;
+
+/**
+ * Temporary file, which caches the tuples of order and group by clauses
+ * if they exceed the main memory threshold ({@link Prop#SPILLSIZE}).
+ * Items are written and read in the order in which they are added.
+ *
+ * Strings, untyped atomics, integers, doubles, decimals, booleans and
+ * database nodes are serialized to disk. All other items (such as
+ * constructed nodes) are kept in main memory and referenced by their
+ * position.
+ *
+ * All files are registered with the query resources, which delete them
+ * when the query is closed, even if they have not been read completely.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class Spill {
+  /** Item kind: missing item. */
+  private static final int NULL = 0;
+  /** Item kind: string. */
+  private static final int STR = 1;
+  /** Item kind: untyped atomic. */
+  private static final int ATM = 2;
+  /** Item kind: integer. */
+  private static final int ITR = 3;
+  /** Item kind: double. */
+  private static final int DBL = 4;
+  /** Item kind: decimal. */
+  private static final int DEC = 5;
+  /** Item kind: boolean. */
+  private static final int BLN = 6;
+  /** Item kind: database node. */
+  private static final int NODE = 7;
+  /** Item kind: main memory reference. */
+  private static final int REF = 8;
+  /** File suffix. */
+  private static final String SUFFIX = ".spill";
+  /** Item types. */
+  private static final Type[] TYPES = Type.values();
+
+  /** Input info. */
+  private final InputInfo input;
+  /** Query resources. */
+  private final QueryResources resource;
+  /** Temporary file. */
+  private final File file;
+  /** Output stream. */
+  private DataOutput out;
+  /** Input stream. */
+  private DataInput in;
+
+  /** Items kept in main memory. */
+  private final ArrayList<Item> items = new ArrayList<Item>();
+  /** Data references of database nodes. */
+  private final ArrayList<Data> data = new ArrayList<Data>();
+
+  /**
+   * Constructor, creating a temporary file.
+   * @param ctx query context
+   * @param ii input info
+   * @throws QueryException query exception
+   */
+  Spill(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    input = ii;
+    resource = ctx.resource;
+    try {
+      file = File.createTempFile(Text.NAME, SUFFIX, new File(Prop.TMP));
+    } catch(final IOException ex) {
+      throw SPILLERR.thrw(ii, ex);
+    }
+    resource.add(this);
+    try {
+      out = new DataOutput(file);
+    } catch(final IOException ex) {
+      close();
+      SPILLERR.thrw(ii, ex);
+    }
+  }
+
+  /**
+   * Writes a value.
+   * @param v value
+   * @throws QueryException query exception
+   */
+  void write(final Value v) throws QueryException {
+    try {
+      out.writeNum((int) v.size());
+      final Iter ir = v.iter();
+      Item it;
+      while((it = ir.next()) != null) write(it);
+    } catch(final IOException ex) {
+      SPILLERR.thrw(input, ex);
+    }
+  }
+
+  /**
+   * Writes an item, which may be {@code null}.
+   * @param it item
+   * @throws QueryException query exception
+   */
+  void write(final Item it) throws QueryException {
+    try {
+      final Class<?> c = it == null ? null : it.getClass();
+      if(c == null) {
+        out.write1(NULL);
+      } else if(c == Str.class && it.type == Type.STR) {
+        out.write1(STR);
+        out.writeToken(it.atom());
+      } else if(c == Atm.class) {
+        out.write1(ATM);
+        out.writeToken(it.atom());
+      } else if(c == Itr.class) {
+        out.write1(ITR);
+        out.writeNum(it.type.ordinal());
+        out.write8(it.itr(input));
+      } else if(c == Dbl.class) {
+        out.write1(DBL);
+        out.write8(Double.doubleToRawLongBits(it.dbl(input)));
+      } else if(c == Dec.class && it.type == Type.DEC) {
+        out.write1(DEC);
+        out.writeToken(it.atom());
+      } else if(c == Bln.class) {
+        out.write1(BLN);
+        out.writeBool(it.bool(input));
+      } else if(c == DBNode.class && it.score() == 0) {
+        final DBNode n = (DBNode) it;
+        int d = data.indexOf(n.data);
+        if(d == -1) {
+          d = data.size();
+          data.add(n.data);
+        }
+        out.write1(NODE);
+        out.writeNum(d);
+        out.writeNum(n.pre);
+      } else {
+        out.write1(REF);
+        out.writeNum(items.size());
+        items.add(it);
+      }
+    } catch(final IOException ex) {
+      SPILLERR.thrw(input, ex);
+    }
+  }
+
+  /**
+   * Finishes the output. The file will be opened for reading when the
+   * first value is requested, so no file handle is kept in the meantime.
+   * @throws QueryException query exception
+   */
+  void finish() throws QueryException {
+    try {
+      out.close();
+      out = null;
+    } catch(final IOException ex) {
+      SPILLERR.thrw(input, ex);
+    }
+  }
+
+  /**
+   * Reads the next value.
+   * @return value
+   * @throws QueryException query exception
+   */
+  Value value() throws QueryException {
+    try {
+      final int s = in().readNum();
+      if(s == 0) return Empty.SEQ;
+      if(s == 1) return item();
+      final ItemCache ic = new ItemCache(s);
+      for(int i = 0; i < s; ++i) ic.add(item());
+      return ic.finish();
+    } catch(final IOException ex) {
+      throw SPILLERR.thrw(input, ex);
+    }
+  }
+
+  /**
+   * Reads the next item.
+   * @return item, or {@code null}
+   * @throws QueryException query exception
+   */
+  Item item() throws QueryException {
+    try {
+      final DataInput di = in();
+      switch(di.read()) {
+        case STR:  return Str.get(di.readBytes());
+        case ATM:  return new Atm(di.readBytes());
+        case ITR:
+          final Type t = TYPES[di.readNum()];
+          return Itr.get(di.read8(), t);
+        case DBL:  return Dbl.get(Double.longBitsToDouble(di.read8()));
+        case DEC:  return new Dec(di.readBytes());
+        case BLN:  return Bln.get(di.readBool());
+        case NODE:
+          final Data d = data.get(di.readNum());
+          return new DBNode(d, di.readNum());
+        case REF:  return items.get(di.readNum());
+        default:   return null;
+      }
+    } catch(final IOException ex) {
+      throw SPILLERR.thrw(input, ex);
+    }
+  }
+
+  /**
+   * Returns the input stream, which is opened if necessary.
+   * @return input stream
+   * @throws IOException I/O exception
+   */
+  private DataInput in() throws IOException {
+    if(in == null) in = new DataInput(file);
+    return in;
+  }
+
+  /**
+   * Closes and deletes the temporary file. This method may be called
+   * several times.
+   */
+  public void close() {
+    try {
+      if(out != null) out.close();
+      if(in != null) in.close();
+    } catch(final IOException ex) {
+      // ignore errors: the file will be deleted anyway
+    }
+    out = null;
+    in = null;
+    file.delete();
+    resource.remove(this);
+  }
+}
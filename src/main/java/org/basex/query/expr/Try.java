@@ -94,6 +94,8 @@ public final class Try extends Single {
 
   @Override
   public boolean uses(final Use u) {
+    // caught errors are stored in the expression
+    if(u == Use.SEQ) return true;
     for(final Catch c : ctch) if(c.uses(u)) return true;
     return super.uses(u);
   }
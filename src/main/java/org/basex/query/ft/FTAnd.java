@@ -21,6 +21,8 @@ import org.basex.util.ft.Scoring;
 public final class FTAnd extends FTExpr {
   /** Flags for negative operators. */
   boolean[] neg;
+  /** Maximum distance between the positions of all matches. */
+  int win = Integer.MAX_VALUE;
 
   /**
    * Constructor.
@@ -74,17 +76,18 @@ public final class FTAnd extends FTExpr {
             return null;
           }
 
+          // skip entries with smaller pre values
           final int d = it[0].pre - it[i].pre;
           if(neg[i]) {
             if(d >= 0) {
               if(d == 0) it[0] = ir[0].next();
-              it[i] = ir[i].next();
+              it[i] = d == 0 ? ir[i].next() : ir[i].advance(it[0].pre);
               i = -1;
             }
           } else {
             if(d != 0) {
-              if(d < 0) i = 0;
-              it[i] = ir[i].next();
+              if(d < 0) it[0] = ir[0].advance(it[i].pre);
+              else it[i] = ir[i].advance(it[0].pre);
               i = -1;
             }
           }
@@ -115,7 +118,8 @@ public final class FTAnd extends FTExpr {
 
     for(final FTMatch s1 : i1.all) {
       for(final FTMatch s2 : i2.all) {
-        all.add(new FTMatch().add(s1).add(s2));
+        final FTMatch m = new FTMatch().add(s1).add(s2);
+        if(m.span() <= win) all.add(m);
       }
     }
     i1.score(Scoring.and(i1.score(), i2.score()));
@@ -7,11 +7,15 @@ import org.basex.data.Serializer;
 import org.basex.query.IndexContext;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
+import org.basex.query.expr.Expr;
 import org.basex.query.expr.Simple;
 import org.basex.query.item.FTNode;
 import org.basex.query.item.ANode;
 import org.basex.query.iter.FTIter;
 import org.basex.query.iter.NodeIter;
+import org.basex.query.path.Axis;
+import org.basex.query.path.AxisPath;
+import org.basex.query.path.Test;
 import org.basex.util.InputInfo;
 
 /**
@@ -25,6 +29,10 @@ public final class FTIndexAccess extends Simple {
   private final FTExpr ftexpr;
   /** Index context. */
   private final IndexContext ictx;
+  /** Maximum number of returned nodes ({@code 0}: no limit). */
+  private int limit;
+  /** Node test of the parent step, which is applied to the results. */
+  private Test parent;
 
   /**
    * Constructor.
@@ -40,9 +48,41 @@ public final class FTIndexAccess extends Simple {
     ictx = ic;
   }
 
+  /**
+   * Limits the results of the specified expression to the specified number
+   * of nodes with the highest scores. This method is called if the results
+   * will be ordered by their scores in descending order, and if only the
+   * first results will be requested. The expression must be an index access
+   * or a path with an index access and a single parent step, and scores
+   * must have been stored in the index.
+   * @param expr expression
+   * @param l maximum number of nodes
+   * @return {@code true} if the results will be limited
+   */
+  public static boolean limit(final Expr expr, final long l) {
+    Expr e = expr;
+    Test t = null;
+    if(e instanceof AxisPath) {
+      // the scores of the parent nodes are derived from their text nodes
+      final AxisPath path = (AxisPath) e;
+      if(path.step.length != 1 || !path.step[0].simple(Axis.PARENT))
+        return false;
+      e = path.root;
+      t = path.step[0].test;
+    }
+    if(!(e instanceof FTIndexAccess)) return false;
+    final FTIndexAccess ia = (FTIndexAccess) e;
+    if(ia.ictx.data.meta.scoring == 0 || !FTTopK.supports(ia.ftexpr))
+      return false;
+    ia.limit = (int) l;
+    ia.parent = t;
+    return true;
+  }
+
   @Override
   public NodeIter iter(final QueryContext ctx) throws QueryException {
-    final FTIter ir = ftexpr.iter(ctx);
+    final FTIter ir = limit != 0 ? new FTTopK(ftexpr, limit, parent, ctx) :
+      ftexpr.iter(ctx);
 
     return new NodeIter() {
       @Override
@@ -52,7 +52,7 @@ public final class FTMildNot extends FTExpr {
           if(d < 0) break;
 
           if(d > 0) {
-            it2 = i2.next();
+            it2 = i2.advance(it1.pre);
           } else {
             if(mildnot(it1, it2).all.size != 0) break;
             it1 = i1.next();
@@ -146,6 +146,27 @@ public final class FTTokenizer {
     return c;
   }
 
+  /**
+   * Checks if the specified wildcard pattern is valid.
+   * @param q query token
+   * @return result of check
+   */
+  static boolean valid(final byte[] q) {
+    final int ql = q.length;
+    for(int i = 0; i < ql; ++i) {
+      if(q[i] == '\\') {
+        if(++i == ql) return false;
+      } else if(q[i] == '.' && i + 1 < ql && q[i + 1] == '{') {
+        i += 2;
+        while(i < ql && digit(q[i])) ++i;
+        if(i == ql || q[i] != ',') return false;
+        while(++i < ql && digit(q[i]));
+        if(i == ql || q[i] != '}') return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Performs a wildcard search.
    * @param ii input info
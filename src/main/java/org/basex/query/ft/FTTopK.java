@@ -0,0 +1,349 @@
+package org.basex.query.ft;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import org.basex.data.FTMatch;
+import org.basex.data.FTMatches;
+import org.basex.query.QueryContext;
+import org.basex.query.QueryException;
+import org.basex.query.item.ANode;
+import org.basex.query.item.DBNode;
+import org.basex.query.item.FTNode;
+import org.basex.query.iter.FTIter;
+import org.basex.query.path.Test;
+import org.basex.util.IntList;
+import org.basex.util.IntSet;
+import org.basex.util.ft.Scoring;
+
+/**
+ * Top-k evaluation of index-based full-text expressions, which returns the
+ * nodes with the highest scores in document order. The operands of a
+ * disjunction are traversed with the Block-Max WAND algorithm: the upper
+ * bounds of the operands, and of the index blocks containing the current
+ * candidate, are compared with the smallest score of the current top-k
+ * nodes, and all nodes that cannot exceed this score are skipped.
+ *
+ * If a parent test is specified, the parent nodes are ranked instead, which
+ * adopt the highest score of their text nodes. In this case, the best text
+ * node of each of the top-k parents is returned.
+ *
+ * If several nodes have the same score, the first nodes in document order
+ * are returned. As a result, the returned nodes are identical to the first
+ * nodes of the result of a stable sort.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class FTTopK extends FTIter {
+  /** Tolerance for rounding errors in the computation of upper bounds. */
+  private static final double EPS = 1e-9;
+  /** Disjunction, or {@code null} if a single operand is evaluated. */
+  private final FTOr or;
+  /** Operands. */
+  private final FTExpr[] expr;
+  /** Maximum number of returned nodes. */
+  private final int k;
+  /** Node test of the parent step ({@code null}: no parent step). */
+  private final Test parent;
+  /** Query context. */
+  private final QueryContext ctx;
+
+  /** Min-heap, containing the worst node at the top. */
+  private FTNode[] heap;
+  /** Scores of the heap entries. */
+  private double[] scores;
+  /** Keys of the heap entries (pre values of the nodes or their parents). */
+  private int[] keys;
+  /** Keys of all nodes that have been added to the heap. */
+  private final IntSet ids = new IntSet();
+  /** Heap positions, indexed by the key ids ({@code -1}: removed). */
+  private final IntList pos = new IntList();
+  /** Heap size. */
+  private int hs;
+
+  /** Resulting nodes, sorted by their pre values. */
+  private FTNode[] nodes;
+  /** Current result. */
+  private int n;
+
+  /**
+   * Constructor.
+   * @param e expression
+   * @param l maximum number of returned nodes
+   * @param p node test of the parent step (may be {@code null})
+   * @param c query context
+   */
+  FTTopK(final FTExpr e, final int l, final Test p, final QueryContext c) {
+    or = e instanceof FTOr ? (FTOr) e : null;
+    expr = or != null ? e.expr : new FTExpr[] { e };
+    k = l;
+    parent = p;
+    ctx = c;
+    final int s = Math.min(l, 1 << 4);
+    heap = new FTNode[s];
+    scores = new double[s];
+    keys = new int[s];
+  }
+
+  /**
+   * Checks if the specified expression can be evaluated by this class.
+   * @param e expression
+   * @return result of check
+   */
+  static boolean supports(final FTExpr e) {
+    if(e instanceof FTWords) return true;
+    if(!(e instanceof FTOr)) return false;
+    for(final FTExpr o : e.expr) if(!(o instanceof FTWords)) return false;
+    return true;
+  }
+
+  @Override
+  public FTNode next() throws QueryException {
+    if(nodes == null) nodes = topk();
+    return n < nodes.length ? nodes[n++] : null;
+  }
+
+  /**
+   * Computes the nodes with the highest scores.
+   * @return nodes, sorted by their pre values
+   * @throws QueryException query exception
+   */
+  private FTNode[] topk() throws QueryException {
+    final int es = expr.length;
+    final FTIter[] ir = new FTIter[es];
+    final FTNode[] it = new FTNode[es];
+    for(int e = 0; e < es; ++e) {
+      ir[e] = expr[e].iter(ctx);
+      it[e] = ir[e].next();
+    }
+
+    double min = Double.NEGATIVE_INFINITY;
+    while(true) {
+      ctx.checkStop();
+
+      // find pivot: smallest pre value for which the combined bounds of
+      // all operands with smaller or equal pre values exceed the minimum
+      int pivot = -1;
+      for(int p = next(it, -1); p != -1; p = next(it, p)) {
+        double b = -1;
+        for(int e = 0; e < es; ++e) {
+          if(it[e] != null && it[e].pre <= p) b = add(b, ir[e].bound());
+        }
+        if(score(b) + EPS > min) {
+          pivot = p;
+          break;
+        }
+      }
+      if(pivot == -1) break;
+
+      // check bounds of the blocks containing the pivot
+      double b = -1;
+      int skip = next(it, pivot);
+      if(skip == -1) skip = Integer.MAX_VALUE;
+      for(int e = 0; e < es; ++e) {
+        if(it[e] == null || it[e].pre > pivot) continue;
+        b = add(b, ir[e].bound(pivot));
+        skip = Math.min(skip, ir[e].block(pivot));
+      }
+      if(score(b) + EPS <= min) {
+        // skip all nodes up to the next block
+        for(int e = 0; e < es; ++e) {
+          if(it[e] == null || it[e].pre > pivot) continue;
+          it[e] = skip == Integer.MAX_VALUE ? null : ir[e].advance(skip);
+        }
+        continue;
+      }
+
+      // move operands with smaller pre values to the pivot
+      boolean found = true;
+      for(int e = 0; e < es; ++e) {
+        if(it[e] == null || it[e].pre >= pivot) continue;
+        it[e] = ir[e].advance(pivot);
+        found = false;
+      }
+      if(!found) continue;
+
+      // compute score of the pivot
+      FTNode node = null;
+      for(int e = 0; e < es; ++e) {
+        if(it[e] == null || it[e].pre != pivot) continue;
+        if(node == null) node = it[e];
+        else or.or(node, it[e]);
+      }
+      final double s = score(node.score());
+      if(s >= min) {
+        add(node, s);
+        if(hs == k) min = scores[0];
+      }
+      for(int e = 0; e < es; ++e) {
+        if(it[e] != null && it[e].pre == pivot) it[e] = ir[e].next();
+      }
+    }
+
+    // sort nodes by their pre values
+    final FTNode[] res = Arrays.copyOf(heap, hs);
+    Arrays.sort(res, new Comparator<FTNode>() {
+      @Override
+      public int compare(final FTNode a, final FTNode b) {
+        return a.pre - b.pre;
+      }
+    });
+    return res;
+  }
+
+  /**
+   * Adds a node to the heap if it belongs to the current top-k nodes.
+   * @param node node
+   * @param s score of the node or its parent
+   */
+  private void add(final FTNode node, final double s) {
+    int key = node.pre;
+    if(parent != null) {
+      final ANode par = node.parent();
+      if(par == null || !parent.eval(par)) return;
+      key = ((DBNode) par).pre;
+    }
+
+    int i = ids.id(key);
+    int p = i == 0 ? -1 : pos.get(i);
+    if(p != -1) {
+      // parent has already been added: keep text node with the higher score
+      if(s <= scores[p]) return;
+    } else if(hs < k) {
+      if(hs == heap.length) {
+        final int c = (int) Math.min(k, (long) hs << 1);
+        heap = Arrays.copyOf(heap, c);
+        scores = Arrays.copyOf(scores, c);
+        keys = Arrays.copyOf(keys, c);
+      }
+      p = hs++;
+    } else if(worse(s, key, scores[0], keys[0])) {
+      return;
+    } else {
+      // replace worst entry
+      pos.set(-1, ids.id(keys[0]));
+      p = 0;
+    }
+    if(i == 0) i = ids.add(key);
+
+    // copy matches, which will be reused by the index iterator
+    final FTMatches all = new FTMatches(node.all.sTokenNum);
+    for(final FTMatch m : node.all) all.add(m);
+    node.all = all;
+
+    heap[p] = node;
+    scores[p] = s;
+    keys[p] = key;
+    pos.set(p, i);
+    down(up(p));
+  }
+
+  /**
+   * Returns the smallest pre value of the current nodes that is greater
+   * than the specified value.
+   * @param it current nodes
+   * @param p pre value
+   * @return pre value, or {@code -1}
+   */
+  private static int next(final FTNode[] it, final int p) {
+    int m = -1;
+    for(final FTNode i : it) {
+      if(i != null && i.pre > p && (m == -1 || i.pre < m)) m = i.pre;
+    }
+    return m;
+  }
+
+  /**
+   * Adds a bound to the specified bound.
+   * @param b current bound ({@code -1}: no bound assigned yet)
+   * @param a bound to be added
+   * @return resulting bound
+   */
+  private double add(final double b, final double a) {
+    return b == -1 ? a : or != null ? Scoring.or(b, a) : a;
+  }
+
+  /**
+   * Returns the score of a result, or the bound for the score of a result.
+   * @param s score of a text node
+   * @return resulting score
+   */
+  private double score(final double s) {
+    return parent != null ? Scoring.step(s) : s;
+  }
+
+  /**
+   * Checks if the first entry is worse than the second entry, i.e., if it
+   * has a smaller score or, if the scores are equal, a larger key.
+   * @param s1 score of the first entry
+   * @param k1 key of the first entry
+   * @param s2 score of the second entry
+   * @param k2 key of the second entry
+   * @return result of check
+   */
+  private static boolean worse(final double s1, final int k1,
+      final double s2, final int k2) {
+    return s1 < s2 || s1 == s2 && k1 > k2;
+  }
+
+  /**
+   * Checks if the first heap entry is worse than the second entry.
+   * @param i position of the first entry
+   * @param j position of the second entry
+   * @return result of check
+   */
+  private boolean worse(final int i, final int j) {
+    return worse(scores[i], keys[i], scores[j], keys[j]);
+  }
+
+  /**
+   * Moves a heap entry up to its correct position.
+   * @param i position of the entry
+   * @return new position
+   */
+  private int up(final int i) {
+    int p = i;
+    while(p > 0) {
+      final int q = p - 1 >>> 1;
+      if(!worse(p, q)) break;
+      swap(p, q);
+      p = q;
+    }
+    return p;
+  }
+
+  /**
+   * Moves a heap entry down to its correct position.
+   * @param i position of the entry
+   */
+  private void down(final int i) {
+    int p = i;
+    while(true) {
+      int c = (p << 1) + 1;
+      if(c >= hs) break;
+      if(c + 1 < hs && worse(c + 1, c)) ++c;
+      if(!worse(c, p)) break;
+      swap(p, c);
+      p = c;
+    }
+  }
+
+  /**
+   * Swaps two heap entries and updates their positions.
+   * @param i position of the first entry
+   * @param j position of the second entry
+   */
+  private void swap(final int i, final int j) {
+    final FTNode n1 = heap[i];
+    heap[i] = heap[j];
+    heap[j] = n1;
+    final double s1 = scores[i];
+    scores[i] = scores[j];
+    scores[j] = s1;
+    final int k1 = keys[i];
+    keys[i] = keys[j];
+    keys[j] = k1;
+    pos.set(i, ids.id(keys[i]));
+    pos.set(j, ids.id(keys[j]));
+  }
+}
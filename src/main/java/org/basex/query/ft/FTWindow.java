@@ -41,7 +41,15 @@ public final class FTWindow extends FTFilter {
   @Override
   public FTExpr comp(final QueryContext ctx) throws QueryException {
     win = checkUp(win, ctx).comp(ctx);
-    return super.comp(ctx);
+    super.comp(ctx);
+
+    // matches that exceed a static window of words can be skipped early
+    if(unit == FTUnit.WORD && win.value()) {
+      final int n = (int) checkItr(win, ctx) - 1;
+      if(expr[0] instanceof FTWords) ((FTWords) expr[0]).win = n;
+      else if(expr[0] instanceof FTAnd) ((FTAnd) expr[0]).win = n;
+    }
+    return this;
   }
 
   @Override
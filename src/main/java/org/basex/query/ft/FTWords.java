@@ -56,6 +56,8 @@ public final class FTWords extends FTExpr {
   boolean first;
   /** Search mode; default: {@link FTMode#M_ANY}. */
   FTMode mode = FTMode.M_ANY;
+  /** Maximum distance between the positions of all matches (index access). */
+  int win = Integer.MAX_VALUE;
 
   /** Query expression. */
   private Expr query;
@@ -146,6 +148,47 @@ public final class FTWords extends FTExpr {
 
       @Override
       public FTNode next() {
+        init();
+        return iat.more() ? node() : null;
+      }
+
+      @Override
+      public FTNode advance(final int pre) {
+        init();
+        return iat.advance(pre) ? node() : null;
+      }
+
+      @Override
+      public double bound() {
+        init();
+        return iat.bound();
+      }
+
+      @Override
+      public double bound(final int pre) {
+        init();
+        return iat.bound(pre);
+      }
+
+      @Override
+      public int block(final int pre) {
+        init();
+        return iat.block(pre);
+      }
+
+      /**
+       * Returns a node for the current index entry.
+       * @return node
+       */
+      private FTNode node() {
+        return new FTNode(iat.matches(), data, iat.next(), tl,
+            iat.indexSize(), iat.score());
+      }
+
+      /**
+       * Initializes the index iterator.
+       */
+      private void init() {
         if(iat == null) {
           final FTLexer lex = new FTLexer(ftt.opt);
 
@@ -169,7 +212,7 @@ public final class FTWords extends FTExpr {
                 if(ia == null) {
                   ia = ir;
                 } else {
-                  ia = FTIndexIterator.intersect(ia, ir, ++d);
+                  ia = FTIndexIterator.intersect(ia, ir, ++d, win);
                   d = 0;
                 }
               }
@@ -178,7 +221,7 @@ public final class FTWords extends FTExpr {
               iat = ia;
               tl = t;
             } else if(mode == FTMode.M_ALL || mode == FTMode.M_ALLWORDS) {
-              iat = FTIndexIterator.intersect(ia, iat, 0);
+              iat = FTIndexIterator.intersect(ia, iat, 0, win);
               tl += t;
             } else {
               iat = FTIndexIterator.union(ia, iat);
@@ -187,8 +230,6 @@ public final class FTWords extends FTExpr {
             iat.tokenNum(++ctx.ftoknum);
           }
         }
-        return iat.more() ? new FTNode(iat.matches(), data, iat.next(),
-            tl, iat.indexSize(), iat.score()) : null;
       }
     };
   }
@@ -325,16 +366,8 @@ public final class FTWords extends FTExpr {
         if(tok.length > MAXLEN) return false;
         if(fto.sw != null && fto.sw.id(tok) != 0) continue;
 
-        if(wc) {
-          // don't use index if one of the terms starts with a wildcard
-          t = ft.get();
-          if(t[0] == '.') return false;
-          // don't use index if certain characters, or more than 1 dot are found
-          int d = 0;
-          for(final byte w : t) {
-            if(w == '{' || w == '\\' || w == '.' && ++d > 1) return false;
-          }
-        }
+        // don't use index if a wildcard pattern is invalid
+        if(wc && !FTTokenizer.valid(ft.get())) return false;
 
         // reduce number of expected results to favor full-text index requests
         final int s = ic.data.nrIDs(ft) + 3 >> 2;
@@ -358,6 +391,8 @@ public final class FTWords extends FTExpr {
 
   @Override
   public boolean uses(final Use u) {
+    // matches are stored in the expression
+    if(u == Use.SEQ) return true;
     if(occ != null) for(final Expr o : occ) if(o.uses(u)) return true;
     return query.uses(u);
   }
@@ -2,6 +2,8 @@ package org.basex.query.func;
 
 import static org.basex.query.util.Err.*;
 import static org.basex.query.item.Type.*;
+import static org.basex.query.QueryText.*;
+import org.basex.data.StatsKey;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
 import org.basex.query.expr.Calc;
@@ -64,6 +66,16 @@ final class FNAggr extends Fun {
       case COUNT:
         final long c = e.size();
         return c >= 0 && !ctx.grouping ? Itr.get(c) : this;
+      case MIN:
+      case MAX:
+        // integer values: return minimum or maximum from statistics
+        final StatsKey stats = stats(ctx);
+        // skip maximum of older databases, which were initialized with
+        // the smallest positive double
+        if(stats == null || stats.kind != StatsKey.Kind.INT ||
+            stats.max == Double.MIN_VALUE) return this;
+        ctx.compInfo(OPTSTATS, this);
+        return Dbl.get(def == FunDef.MIN ? stats.min : stats.max);
       default:
         return this;
     }
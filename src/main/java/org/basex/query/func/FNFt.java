@@ -1,5 +1,6 @@
 package org.basex.query.func;
 
+import static org.basex.query.QueryText.*;
 import static org.basex.query.util.Err.*;
 import static org.basex.util.Token.*;
 import static org.basex.util.ft.FTFlag.*;
@@ -46,7 +47,7 @@ final class FNFt extends Fun {
   @Override
   public Iter iter(final QueryContext ctx) throws QueryException {
     switch(def) {
-      case SEARCH:  return search(ctx);
+      case SEARCH:  return search(ctx).iter(ctx);
       case SCORE:   return score(ctx);
       case MARK:    return mark(ctx, false);
       case EXTRACT: return mark(ctx, true);
@@ -123,28 +124,38 @@ final class FNFt extends Fun {
     };
   }
 
+  @Override
+  public Expr cmp(final QueryContext ctx) throws QueryException {
+    // rewrite search function with static arguments to index access
+    if(def == FunDef.SEARCH && values()) {
+      ctx.compInfo(OPTFTXINDEX);
+      return search(ctx);
+    }
+    return this;
+  }
+
   /**
    * Performs the search function.
    * @param ctx query context
-   * @return iterator
+   * @return index access
    * @throws QueryException query exception
    */
-  Iter search(final QueryContext ctx) throws QueryException {
+  FTIndexAccess search(final QueryContext ctx) throws QueryException {
     return search(checkDBNode(checkItem(expr[0], ctx)).data,
         checkStr(expr[1], ctx), this, ctx);
   }
 
   /**
-   * Performs an index-based search.
+   * Returns an index-based search expression.
    * @param data data reference
    * @param str search string
    * @param fun calling function
    * @param ctx query context
-   * @return iterator
+   * @return index access
    * @throws QueryException query exception
    */
-  static Iter search(final Data data, final byte[] str, final Fun fun,
-      final QueryContext ctx) throws QueryException {
+  static FTIndexAccess search(final Data data, final byte[] str,
+      final Fun fun, final QueryContext ctx) throws QueryException {
 
     final IndexContext ic = new IndexContext(ctx, data, null, true);
     if(!data.meta.ftindex) NOIDX.thrw(fun.input, fun);
@@ -157,7 +168,7 @@ final class FNFt extends Fun {
     ctx.ftopt.ln = data.meta.language;
     final FTWords words = new FTWords(fun.input, ic.data, Str.get(str), ctx);
     ctx.ftopt = tmp;
-    return new FTIndexAccess(fun.input, words, ic).iter(ctx);
+    return new FTIndexAccess(fun.input, words, ic);
   }
 
   @Override
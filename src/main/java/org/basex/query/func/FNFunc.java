@@ -53,6 +53,6 @@ final class FNFunc extends Fun {
 
   @Override
   public boolean uses(final Use u) {
-    return u == Use.X30 || super.uses(u);
+    return u == Use.X30 || u == Use.SEQ || super.uses(u);
   }
 }
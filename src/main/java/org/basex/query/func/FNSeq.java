@@ -1,9 +1,13 @@
 package org.basex.query.func;
 
+import org.basex.data.StatsKey;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
+import org.basex.query.QueryText;
 import org.basex.query.expr.CmpV;
 import org.basex.query.expr.Expr;
+import org.basex.query.expr.GFLWOR;
+import org.basex.query.item.Atm;
 import org.basex.query.item.Empty;
 import org.basex.query.item.Item;
 import org.basex.query.item.Itr;
@@ -55,11 +59,22 @@ final class FNSeq extends Fun {
   }
 
   @Override
-  public Expr cmp(final QueryContext ctx) {
+  public Expr cmp(final QueryContext ctx) throws QueryException {
     // static typing:
     // index-of will create integers, insert-before might add new types
     if(def == FunDef.INDEXOF || def == FunDef.INSBEF) return this;
 
+    // return categories from statistics
+    if(def == FunDef.DISTINCT) {
+      final StatsKey stats = stats(ctx);
+      if(stats != null && stats.kind == StatsKey.Kind.CAT) {
+        ctx.compInfo(QueryText.OPTSTATS, this);
+        final ItemCache ic = new ItemCache(stats.cats.size());
+        for(final byte[] c : stats.cats) ic.add(new Atm(c));
+        return ic.finish();
+      }
+    }
+
     // all other types will return existing types
     final Type t = expr[0].type().type;
     SeqType.Occ o = SeqType.Occ.ZM;
@@ -67,6 +82,12 @@ final class FNSeq extends Fun {
     // head will return at most one item
     if(def == FunDef.HEAD) o = SeqType.Occ.ZO;
 
+    // only the first items of an ordered expression are requested
+    if(expr[0] instanceof GFLWOR) {
+      final long l = limit();
+      if(l != -1) ((GFLWOR) expr[0]).limit(l, ctx);
+    }
+
     // at most one returned item
     if(def == FunDef.SUBSEQ && expr[0].type().one()) o = SeqType.Occ.ZO;
 
@@ -74,6 +95,26 @@ final class FNSeq extends Fun {
     return this;
   }
 
+  /**
+   * Returns the maximum number of items that will be requested from the
+   * first argument, or {@code -1} if the number is unknown.
+   * @return limit
+   * @throws QueryException query exception
+   */
+  private long limit() throws QueryException {
+    if(def == FunDef.HEAD) return 1;
+    if(def != FunDef.SUBSEQ || expr.length < 3 || !expr[1].item() ||
+        !expr[2].item()) return -1;
+
+    final Item s = (Item) expr[1];
+    final Item l = (Item) expr[2];
+    if(!s.num() || !l.num()) return -1;
+    final double ds = s.dbl(input);
+    final double dl = l.dbl(input);
+    return Double.isNaN(ds) || Double.isNaN(dl) ? -1 :
+      StrictMath.round(ds) + StrictMath.round(dl) - 1;
+  }
+
   /**
    * Returns the first item in a sequence.
    * @param ctx query context
@@ -3,6 +3,7 @@ package org.basex.query.func;
 import static org.basex.query.QueryTokens.*;
 import java.io.IOException;
 import org.basex.data.Serializer;
+import org.basex.data.StatsKey;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
 import org.basex.query.expr.Arr;
@@ -11,6 +12,7 @@ import org.basex.query.item.Atm;
 import org.basex.query.item.Item;
 import org.basex.query.item.Str;
 import org.basex.query.item.Type;
+import org.basex.query.path.AxisPath;
 import org.basex.query.util.Err;
 import org.basex.util.InputInfo;
 import org.basex.util.Token;
@@ -69,6 +71,17 @@ public abstract class Fun extends Arr {
         Str.get(it.atom()) : new Atm(it.atom()) : it;
   }
 
+  /**
+   * Returns the database statistics for the single argument of this function,
+   * if it is a path that addresses all elements with a specific name.
+   * @param ctx query context
+   * @return statistics, or {@code null}
+   */
+  protected final StatsKey stats(final QueryContext ctx) {
+    return expr.length == 1 && expr[0] instanceof AxisPath && !ctx.grouping ?
+        ((AxisPath) expr[0]).stats(ctx) : null;
+  }
+
   @Override
   public boolean isFun(final FunDef f) {
     return def == f;
@@ -573,6 +573,17 @@ public enum FunDef {
         Expr[].class), ii, this, e);
   }
 
+  /**
+   * Checks if the function may access databases other than the context
+   * database.
+   * @return result of check
+   */
+  public boolean databases() {
+    return this == DOC || this == DOCAVL || this == COLL || this == URICOLL ||
+      this == OPEN || this == OPENPRE || this == OPENID || this == LIST ||
+      this == EVAL || this == RUN;
+  }
+
   @Override
   public final String toString() {
     return desc;
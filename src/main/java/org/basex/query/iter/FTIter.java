@@ -12,4 +12,45 @@ import org.basex.query.item.FTNode;
 public abstract class FTIter extends Iter {
   @Override
   public abstract FTNode next() throws QueryException;
+
+  /**
+   * Returns the next node with a pre value that is equal to or greater than
+   * the specified value.
+   * @param pre pre value
+   * @return node or {@code null}
+   * @throws QueryException query exception
+   */
+  public FTNode advance(final int pre) throws QueryException {
+    FTNode it;
+    while((it = next()) != null && it.pre < pre);
+    return it;
+  }
+
+  /**
+   * Returns an upper bound for the scores of all nodes.
+   * @return upper bound
+   */
+  public double bound() {
+    return Double.MAX_VALUE;
+  }
+
+  /**
+   * Returns an upper bound for the scores of all nodes that are stored in
+   * the same index block as the specified pre value.
+   * @param pre pre value
+   * @return upper bound
+   */
+  public double bound(final int pre) {
+    return bound();
+  }
+
+  /**
+   * Returns the first pre value of the index block following the block
+   * that contains the specified pre value.
+   * @param pre pre value
+   * @return pre value, or {@link Integer#MAX_VALUE} if no block follows
+   */
+  public int block(final int pre) {
+    return Integer.MAX_VALUE;
+  }
 }
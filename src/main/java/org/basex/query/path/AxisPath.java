@@ -18,6 +18,7 @@ import org.basex.query.expr.Expr;
 import org.basex.query.expr.Filter;
 import org.basex.query.item.Bln;
 import org.basex.query.item.DBNode;
+import org.basex.query.item.DBNodeSeq;
 import org.basex.query.item.Empty;
 import org.basex.query.item.Item;
 import org.basex.query.item.ANode;
@@ -48,7 +49,7 @@ public class AxisPath extends Path {
   /** Flag for result caching. */
   private boolean cache;
   /** Cached result. */
-  private NodeCache citer;
+  private Value cvalue;
   /** Last visited item. */
   private Value lvalue;
 
@@ -81,7 +82,15 @@ public class AxisPath extends Path {
    * @return resulting operator
    */
   private AxisPath iterator(final QueryContext ctx) {
-    return iterable(ctx) ? new IterPath(input, root, step, type, size) : this;
+    if(iterable(ctx)) return new IterPath(input, root, step, type, size);
+    if(!(this instanceof IterPath)) return this;
+
+    // steps of an iterative path have been merged with other steps
+    final AxisPath path = new AxisPath(input, root, step);
+    path.type = type;
+    path.size = size;
+    path.cache = cache;
+    return path;
   }
 
   /**
@@ -105,8 +114,11 @@ public class AxisPath extends Path {
         case ANC: case ANCORSELF: case PREC: case PRECSIBL:
           return false;
         // multiple, unsorted results - only iterate at last step,
-        // or if last step uses attribute axis
+        // or if last step uses attribute axis; root nodes must not be
+        // nested, as results of nested nodes would be returned twice
         case DESC: case DESCORSELF: case FOLL: case FOLLSIBL:
+          final SeqType rt = root.type();
+          if(s == 0 && !rt.zeroOrOne() && rt.type != Type.DOC) return false;
           return s + 1 == sl || s + 2 == sl && step[s + 1].axis == Axis.ATTR;
         // allow iteration for CHILD, ATTR, PARENT and SELF
         default:
@@ -121,22 +133,67 @@ public class AxisPath extends Path {
    * @return number of results
    */
   private long size(final QueryContext ctx) {
-    final Value rt = root(ctx);
-    final Data data = rt != null && rt.type == Type.DOC &&
-      rt instanceof DBNode ? ((DBNode) rt).data : null;
+    final ArrayList<PathNode> nodes = nodes(ctx);
+    if(nodes == null) return -1;
+
+    long sz = 0;
+    for(final PathNode pn : nodes) sz += pn.size;
+    return sz;
+  }
+
+  /**
+   * Returns the statistics of the elements that are addressed by this path.
+   * Statistics are only returned if the path yields all elements with the
+   * same name, and if the string value of each element is represented by
+   * exactly one text node.
+   * @param ctx query context
+   * @return statistics, or {@code null}
+   */
+  public StatsKey stats(final QueryContext ctx) {
+    final ArrayList<PathNode> nodes = nodes(ctx);
+    if(nodes == null || nodes.size() == 0) return null;
+    // whitespace-only texts are skipped in the statistics
+    final Data data = data(ctx);
+    if(!data.meta.chop) return null;
+
+    final int name = nodes.get(0).name;
+    long sz = 0;
+    for(final PathNode pn : nodes) {
+      if(pn.kind != Data.ELEM || pn.name != name || pn.texts() != pn.size)
+        return null;
+      sz += pn.size;
+    }
+    final StatsKey stats = data.tags.stat(name);
+    return stats != null && stats.counter == sz ? stats : null;
+  }
 
+  /**
+   * Returns the path nodes that are addressed by this path.
+   * @param ctx query context
+   * @return path nodes, or {@code null} if nodes cannot be determined
+   */
+  private ArrayList<PathNode> nodes(final QueryContext ctx) {
+    final Data data = data(ctx);
     if(data == null || !data.meta.pathindex || !data.meta.uptodate ||
-        !data.single()) return -1;
+        !data.single()) return null;
 
     ArrayList<PathNode> nodes = data.pthindex.root();
     for(final AxisStep s : step) {
       nodes = s.size(nodes, data);
-      if(nodes == null) return -1;
+      if(nodes == null) return null;
     }
+    return nodes;
+  }
 
-    long sz = 0;
-    for(final PathNode pn : nodes) sz += pn.size;
-    return sz;
+  /**
+   * Returns the data reference of the root document.
+   * @param ctx query context
+   * @return data reference, or {@code null}
+   */
+  private Data data(final QueryContext ctx) {
+    final Value rt = root(ctx);
+    return rt != null && rt.type == Type.DOC &&
+      rt instanceof DBNode ? ((DBNode) rt).data : null;
   }
 
   @Override
@@ -175,12 +232,13 @@ public class AxisPath extends Path {
           if(!doc) break;
         }
       }
-      if(doc && data.meta.uptodate) {
+      if(doc) {
         Expr e = this;
-        // check index access
+        // check index access; indexes are kept up-to-date by updates,
+        // whereas the path summary is only consulted if it is up-to-date
         if(root != null && !uses(Use.POS)) e = index(ctx, data);
         // check children path rewriting
-        if(e == this) e = children(ctx, data);
+        if(e == this && data.meta.uptodate) e = children(ctx, data);
         // return optimized expression
         if(e != this) return e.comp(ctx);
       }
@@ -394,50 +452,119 @@ public class AxisPath extends Path {
     final long cp = ctx.pos;
     Value r = root != null ? root.value(ctx) : c;
 
-    if(!cache || citer == null || lvalue.type != Type.DOC ||
+    if(!cache || cvalue == null || lvalue.type != Type.DOC ||
         r.type != Type.DOC || !((ANode) lvalue).is((ANode) r)) {
 
       lvalue = r;
-      citer = new NodeCache().random();
-      if(r != null) {
+      cvalue = eval(r, ctx);
+    }
+
+    ctx.value = c;
+    ctx.size = cs;
+    ctx.pos = cp;
+    return cvalue.iter();
+  }
+
+  /**
+   * Evaluates the location steps for the specified root value.
+   * Steps without positional predicates are evaluated set-at-a-time as
+   * structural joins if the results of the preceding steps are database
+   * nodes. As long as steps can be joined, intermediate results are
+   * represented as pre values, and nodes will only be created for the
+   * final result. All other steps are evaluated for each single context node.
+   * @param r root value
+   * @param ctx query context
+   * @return sorted nodes
+   * @throws QueryException query exception
+   */
+  private Value eval(final Value r, final QueryContext ctx)
+      throws QueryException {
+
+    // nodes of the current step, or null if the root is to be iterated
+    NodeCache nodes = null;
+    if(r != null && StaircaseJoin.supports(step[0])) {
+      nodes = new NodeCache().random();
+      final Iter ir = ctx.iter(r);
+      Item it;
+      while(nodes != null && (it = ir.next()) != null) {
+        if(it.node()) nodes.add((ANode) it);
+        else nodes = null;
+      }
+      if(nodes != null) nodes.sort();
+    }
+
+    // pre values of the current step, or null if they are not available
+    int[] pres = null;
+    Data data = null;
+    int l = 0;
+    while(l < step.length) {
+      if(StaircaseJoin.supports(step[l])) {
+        if(pres == null && nodes != null) {
+          pres = StaircaseJoin.pres(nodes);
+          if(pres != null) data = ((DBNode) nodes.get(0)).data;
+        }
+        if(pres != null) {
+          final int[] res = StaircaseJoin.join(step[l], pres, data, ctx);
+          if(res != null) {
+            pres = res;
+            nodes = null;
+            ++l;
+            continue;
+          }
+        }
+      }
+      // create nodes for the pre values
+      if(pres != null) {
+        if(nodes == null) nodes = StaircaseJoin.nodes(pres, data);
+        pres = null;
+      }
+
+      // evaluate steps for each context node, up to the next join
+      int e = l + 1;
+      while(e < step.length && !StaircaseJoin.supports(step[e])) ++e;
+      final NodeCache nc = new NodeCache().random();
+      if(nodes != null) {
+        final int ns = (int) nodes.size();
+        for(int n = 0; n < ns; ++n) {
+          ctx.value = nodes.get(n);
+          iter(l, e, nc, ctx);
+        }
+      } else if(r != null) {
         final Iter ir = ctx.iter(r);
-        while((r = ir.next()) != null) {
-          ctx.value = r;
-          iter(0, citer, ctx);
+        Item it;
+        while((it = ir.next()) != null) {
+          ctx.value = it;
+          iter(l, e, nc, ctx);
         }
       } else {
         ctx.value = null;
-        iter(0, citer, ctx);
+        iter(l, e, nc, ctx);
       }
-      citer.sort();
-    } else {
-      citer.reset();
+      nodes = nc.sort();
+      l = e;
     }
-
-    ctx.value = c;
-    ctx.size = cs;
-    ctx.pos = cp;
-    return citer;
+    return pres != null ? DBNodeSeq.get(pres, data) : nodes.finish();
   }
 
   /**
    * Recursive step iterator.
    * @param l current step
+   * @param e index after the last step to be evaluated
    * @param nc node builder
    * @param ctx query context
    * @throws QueryException query exception
    */
-  private void iter(final int l, final NodeCache nc, final QueryContext ctx)
-      throws QueryException {
+  private void iter(final int l, final int e, final NodeCache nc,
+      final QueryContext ctx) throws QueryException {
 
     // cast is safe (steps will always return a {@link NodIter} instance
     final NodeIter ni = (NodeIter) ctx.iter(step[l]);
-    final boolean more = l + 1 != step.length;
+    final boolean more = l + 1 != e;
     ANode node;
     while((node = ni.next()) != null) {
       if(more) {
         ctx.value = node;
-        iter(l + 1, nc, ctx);
+        iter(l + 1, e, nc, ctx);
       } else {
         ctx.checkStop();
         nc.add(node);
@@ -585,7 +712,8 @@ public class AxisPath extends Path {
 
   @Override
   public final boolean uses(final Use u) {
-    return uses(step, u);
+    // cached results are shared by all evaluations
+    return u == Use.SEQ && cache || uses(step, u);
   }
 
   @Override
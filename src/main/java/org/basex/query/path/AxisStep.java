@@ -4,6 +4,7 @@ import static org.basex.query.QueryTokens.*;
 import static org.basex.query.util.Err.*;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import org.basex.data.Data;
 import org.basex.data.Serializer;
 import org.basex.data.PathNode;
@@ -144,6 +145,15 @@ public class AxisStep extends Preds {
     return nb;
   }
 
+  /**
+   * Checks if this step has the specified axis and no predicates.
+   * @param ax axis to be checked
+   * @return result of check
+   */
+  public final boolean simple(final Axis ax) {
+    return axis == ax && pred.length == 0;
+  }
+
   /**
    * Checks if this is a simple axis without predicates.
    * @param ax axis to be checked
@@ -171,27 +181,40 @@ public class AxisStep extends Preds {
     int kind = -1, name = 0;
     if(test.type != null) {
       kind = ANode.kind(test.type);
-      // skip processing instructions and attributes
-      if(kind == Data.PI || kind == Data.ATTR) return null;
+      // skip processing instructions
+      if(kind == Data.PI) return null;
 
       if(test.test == Name.NAME) {
-        // element test (*:ln)
-        name = data.tags.id(((NameTest) test).ln);
+        // element or attribute test (*:ln)
+        final byte[] ln = ((NameTest) test).ln;
+        name = (kind == Data.ATTR ? data.atts : data.tags).id(ln);
+        if(name == 0) return null;
       } else if(test.test != null && test.test != Name.ALL) {
         // skip namespace and standard tests
         return null;
       }
     }
+    // attributes are only found on the attribute axis
+    if(axis == Axis.ATTR ? kind != Data.ATTR : kind == Data.ATTR) return null;
 
-    // skip axes other than descendant and child
-    final boolean desc = axis == Axis.DESC;
-    if(!desc && axis != Axis.CHILD) return null;
+    // skip axes other than descendant, child and attribute
+    final boolean self = axis == Axis.DESCORSELF;
+    final boolean desc = self || axis == Axis.DESC;
+    if(!desc && axis != Axis.CHILD && axis != Axis.ATTR) return null;
 
     final ArrayList<PathNode> out = new ArrayList<PathNode>();
     for(final PathNode pn : nodes) {
+      if(self && (kind == -1 || kind == pn.kind) &&
+          (name == 0 || name == pn.name)) out.add(pn);
       data.pthindex.desc(pn, out, name, kind, desc);
     }
-    return out;
+    if(!desc || nodes.size() < 2) return out;
+
+    // remove path nodes that are descendants of several input nodes
+    final HashSet<PathNode> set = new HashSet<PathNode>();
+    final ArrayList<PathNode> res = new ArrayList<PathNode>();
+    for(final PathNode pn : out) if(set.add(pn)) res.add(pn);
+    return res;
   }
 
   /**
@@ -0,0 +1,71 @@
+package org.basex.query.path;
+
+import org.basex.data.Data;
+import org.basex.query.item.ANode;
+import org.basex.query.item.Type;
+import org.basex.query.path.Test.Name;
+
+/**
+ * Node test, which is evaluated on the table of a database. In contrast to
+ * {@link Test#eval(ANode)}, no node instances need to be created.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class PreTest {
+  /** Data reference. */
+  private final Data data;
+  /** Node kind ({@code -1}: all kinds). */
+  private final int kind;
+  /** Name id ({@code 0}: all names, {@code -1}: no names). */
+  private final int name;
+
+  /**
+   * Constructor.
+   * @param d data reference
+   * @param k node kind
+   * @param n name id
+   */
+  private PreTest(final Data d, final int k, final int n) {
+    data = d;
+    kind = k;
+    name = n;
+  }
+
+  /**
+   * Returns a test instance for the specified node test.
+   * @param test node test
+   * @param data data reference
+   * @return test instance, or {@code null} if the node test cannot be
+   * evaluated on the database table
+   */
+  static PreTest get(final Test test, final Data data) {
+    if(test == Test.NOD) return new PreTest(data, -1, 0);
+    if(test.type == null || test.type == Type.NOD) return null;
+    final int kind = ANode.kind(test.type);
+
+    // kind test: skip tests with names (element(a), processing-instruction(a))
+    if(test instanceof KindTest) {
+      return test.name == null ? new PreTest(data, kind, 0) : null;
+    }
+    // skip document tests
+    if(!(test instanceof NameTest)) return null;
+    if(test.test == Name.ALL) return new PreTest(data, kind, 0);
+    // names are compared without prefixes, and thus without namespaces
+    if(test.test != Name.NAME || data.ns.size() != 0) return null;
+
+    final byte[] ln = ((NameTest) test).ln;
+    final int id = (kind == Data.ATTR ? data.atts : data.tags).id(ln);
+    return new PreTest(data, kind, id == 0 ? -1 : id);
+  }
+
+  /**
+   * Tests the specified node.
+   * @param pre pre value
+   * @param k node kind
+   * @return result of check
+   */
+  boolean eval(final int pre, final int k) {
+    return (kind == -1 || k == kind) && (name == 0 || data.name(pre) == name);
+  }
+}
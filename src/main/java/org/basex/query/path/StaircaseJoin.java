@@ -0,0 +1,321 @@
+package org.basex.query.path;
+
+import org.basex.data.Data;
+import org.basex.query.QueryContext;
+import org.basex.query.QueryException;
+import org.basex.query.expr.Expr.Use;
+import org.basex.query.item.ANode;
+import org.basex.query.item.DBNode;
+import org.basex.query.iter.NodeCache;
+import org.basex.util.IntList;
+import org.basex.util.IntSet;
+
+/**
+ * Structural join, which evaluates a location step for a sorted and
+ * duplicate-free sequence of database nodes.
+ *
+ * In contrast to the evaluation of the step for each single context node,
+ * all context nodes are processed at once: context nodes that are contained
+ * in the subtree of a preceding context node are pruned for descendant
+ * steps, and the traversal of ancestor steps stops at ancestors that have
+ * already been visited. As a result, each node of the database is visited
+ * at most once, and the results are returned in document order without
+ * duplicates.
+ *
+ * Context nodes and results are represented by pre values, and node tests
+ * are evaluated on the database table. Node instances will only be created
+ * if the step has predicates, and a single instance is reused for all nodes.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class StaircaseJoin {
+  /** Private constructor. */
+  private StaircaseJoin() { }
+
+  /**
+   * Checks if the specified step can be evaluated as structural join.
+   * @param step step
+   * @return result of check
+   */
+  static boolean supports(final AxisStep step) {
+    if(!(step instanceof IterStep) || step.uses(Use.SEQ)) return false;
+    switch(step.axis) {
+      case DESC: case DESCORSELF: case ANC: case ANCORSELF:
+      case CHILD: case ATTR: case PARENT: case SELF:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns the pre values of the specified nodes.
+   * @param nodes sorted, duplicate-free nodes
+   * @return pre values, or {@code null} if the nodes are no unscored
+   * database nodes of a single database
+   */
+  static int[] pres(final NodeCache nodes) {
+    if(!nodes.dbnodes()) return null;
+    final int ns = (int) nodes.size();
+    final int[] pres = new int[ns];
+    for(int n = 0; n < ns; ++n) {
+      final DBNode node = (DBNode) nodes.get(n);
+      if(node.score() != 0) return null;
+      pres[n] = node.pre;
+    }
+    return pres;
+  }
+
+  /**
+   * Creates nodes for the specified pre values.
+   * @param pres pre values
+   * @param data data reference
+   * @return nodes
+   */
+  static NodeCache nodes(final int[] pres, final Data data) {
+    final int ps = pres.length;
+    final ANode[] nodes = new ANode[Math.max(1, ps)];
+    for(int p = 0; p < ps; ++p) nodes[p] = new DBNode(data, pres[p]);
+    return new NodeCache(nodes, ps);
+  }
+
+  /**
+   * Evaluates the specified step for all context nodes.
+   * @param step step
+   * @param pres pre values of the sorted, duplicate-free context nodes
+   * @param data data reference
+   * @param ctx query context
+   * @return pre values of the resulting nodes, or {@code null} if the
+   * step cannot be evaluated as structural join
+   * @throws QueryException query exception
+   */
+  static int[] join(final AxisStep step, final int[] pres, final Data data,
+      final QueryContext ctx) throws QueryException {
+
+    final PreTest test = PreTest.get(step.test, data);
+    if(test == null) return null;
+
+    final Join join = new Join(step, test, data, ctx);
+    switch(step.axis) {
+      case DESC:       return join.desc(pres, false);
+      case DESCORSELF: return join.desc(pres, true);
+      case ANC:        return join.anc(pres, false);
+      case ANCORSELF:  return join.anc(pres, true);
+      case CHILD:      return join.child(pres);
+      case ATTR:       return join.attr(pres);
+      case PARENT:     return join.parent(pres);
+      default:         return join.self(pres);
+    }
+  }
+
+  /**
+   * Evaluation of a single step.
+   */
+  private static final class Join {
+    /** Step. */
+    private final AxisStep step;
+    /** Node test. */
+    private final PreTest test;
+    /** Data reference. */
+    private final Data data;
+    /** Query context. */
+    private final QueryContext ctx;
+    /** Resulting pre values. */
+    private final IntList res = new IntList();
+    /** Node instance, which is reused for evaluating predicates. */
+    private DBNode node;
+    /** Indicates that a predicate returned a scored item. */
+    private boolean scored;
+
+    /**
+     * Constructor.
+     * @param s step
+     * @param t node test
+     * @param d data reference
+     * @param c query context
+     */
+    Join(final AxisStep s, final PreTest t, final Data d,
+        final QueryContext c) {
+      step = s;
+      test = t;
+      data = d;
+      ctx = c;
+    }
+
+    /**
+     * Evaluates a descendant step.
+     * @param pres context nodes
+     * @param self include context nodes
+     * @return resulting nodes
+     * @throws QueryException query exception
+     */
+    int[] desc(final int[] pres, final boolean self) throws QueryException {
+      // attributes are no descendants of their parents
+      for(final int pre : pres) {
+        if(self && data.kind(pre) == Data.ATTR) return null;
+      }
+      // end of the last traversed subtree
+      int end = 0;
+      for(final int pre : pres) {
+        int k = data.kind(pre);
+        // skip context nodes that are descendants of the previous node
+        if(pre < end) continue;
+
+        end = pre + data.size(pre, k);
+        int p = self ? pre : pre + data.attSize(pre, k);
+        while(p < end) {
+          ctx.checkStop();
+          k = data.kind(p);
+          add(p, k);
+          p += data.attSize(p, k);
+        }
+      }
+      return finish(false);
+    }
+
+    /**
+     * Evaluates an ancestor step.
+     * @param pres context nodes
+     * @param self include context nodes
+     * @return resulting nodes
+     * @throws QueryException query exception
+     */
+    int[] anc(final int[] pres, final boolean self) throws QueryException {
+      // collect pre values of all ancestors
+      final IntSet visited = new IntSet();
+      final IntList anc = new IntList();
+      for(final int pre : pres) {
+        int p = pre;
+        int k = data.kind(p);
+        if(!self) p = data.parent(p, k);
+        // stop at nodes that have already been visited
+        while(p != -1 && visited.add(p) > 0) {
+          ctx.checkStop();
+          anc.add(p);
+          k = data.kind(p);
+          p = data.parent(p, k);
+        }
+      }
+      anc.sort();
+
+      // evaluate node test and predicates in document order
+      final int as = anc.size();
+      for(int a = 0; a < as; ++a) {
+        final int p = anc.get(a);
+        add(p, data.kind(p));
+      }
+      return finish(false);
+    }
+
+    /**
+     * Evaluates a child step.
+     * @param pres context nodes
+     * @return resulting nodes
+     * @throws QueryException query exception
+     */
+    int[] child(final int[] pres) throws QueryException {
+      // children of nested context nodes will be returned out of order
+      boolean sort = false;
+      int end = 0;
+      for(final int pre : pres) {
+        int k = data.kind(pre);
+        final int e = pre + data.size(pre, k);
+        sort |= pre < end;
+        end = Math.max(end, e);
+        for(int p = pre + data.attSize(pre, k); p < e; p += data.size(p, k)) {
+          ctx.checkStop();
+          k = data.kind(p);
+          add(p, k);
+        }
+      }
+      return finish(sort);
+    }
+
+    /**
+     * Evaluates an attribute step.
+     * @param pres context nodes
+     * @return resulting nodes
+     * @throws QueryException query exception
+     */
+    int[] attr(final int[] pres) throws QueryException {
+      for(final int pre : pres) {
+        final int k = data.kind(pre);
+        if(k != Data.ELEM) continue;
+        final int e = pre + data.attSize(pre, k);
+        for(int p = pre + 1; p < e; ++p) {
+          ctx.checkStop();
+          add(p, Data.ATTR);
+        }
+      }
+      return finish(false);
+    }
+
+    /**
+     * Evaluates a parent step.
+     * @param pres context nodes
+     * @return resulting nodes
+     * @throws QueryException query exception
+     */
+    int[] parent(final int[] pres) throws QueryException {
+      final IntList par = new IntList();
+      for(final int pre : pres) {
+        final int p = data.parent(pre, data.kind(pre));
+        if(p != -1) par.add(p);
+      }
+      par.sort();
+
+      // evaluate node test and predicates, skipping duplicates
+      final int ps = par.size();
+      for(int i = 0; i < ps; ++i) {
+        ctx.checkStop();
+        final int p = par.get(i);
+        if(i == 0 || p != par.get(i - 1)) add(p, data.kind(p));
+      }
+      return finish(false);
+    }
+
+    /**
+     * Evaluates a self step.
+     * @param pres context nodes
+     * @return resulting nodes
+     * @throws QueryException query exception
+     */
+    int[] self(final int[] pres) throws QueryException {
+      for(final int pre : pres) {
+        ctx.checkStop();
+        add(pre, data.kind(pre));
+      }
+      return finish(false);
+    }
+
+    /**
+     * Adds the specified node if it matches the node test and the
+     * predicates of the step.
+     * @param pre pre value
+     * @param k node kind
+     * @throws QueryException query exception
+     */
+    private void add(final int pre, final int k) throws QueryException {
+      if(scored || !test.eval(pre, k)) return;
+      if(step.pred.length != 0) {
+        if(node == null) node = new DBNode(data, pre, k);
+        else node.set(pre, k);
+        if(!step.preds(node, ctx)) return;
+        // scores cannot be represented by pre values
+        scored = node.score() != 0;
+      }
+      res.add(pre);
+    }
+
+    /**
+     * Returns the resulting pre values.
+     * @param sort sort values
+     * @return pre values, or {@code null} if scored nodes were found
+     */
+    private int[] finish(final boolean sort) {
+      if(scored) return null;
+      return sort ? res.sort().toArray() : res.toArray();
+    }
+  }
+}
@@ -37,6 +37,8 @@ public enum Err {
   QUERYNODES(BASX, 7, Text.QUERYNODESERR),
   /** BASX0008: Evaluation exception. */
   EXPSINGLE(BASX, 8, "Database contains more than one document."),
+  /** BASX0009: Evaluation exception. */
+  SPILLERR(BASX, 9, "Temporary file could not be accessed (%)."),
 
   /** FOAR0001: Evaluation exception. */
   DIVZERO(FOAR, 1, "'%' was divided by zero."),
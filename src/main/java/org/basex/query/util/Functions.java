@@ -99,6 +99,7 @@ public final class Functions extends ExprInfo {
       final Class<?> cls = Reflect.find(java.substring(0, i));
       if(cls == null) qp.error(FUNCJAVA, java);
       final String mth = java.substring(i + 1);
+      ctx.databases = true;
       return new FunJava(qp.input(), cls, mth, args);
     }
 
@@ -106,6 +107,7 @@ public final class Functions extends ExprInfo {
     final Fun fun = FNIndex.get().get(ln, uri, args, qp);
     if(fun != null) {
       ctx.updating |= fun.def == FunDef.PUT;
+      ctx.databases |= fun.def.databases();
       return fun;
     }
 
@@ -43,6 +43,23 @@ public final class Variables extends ExprInfo {
     local.add(v);
   }
 
+  /**
+   * Adds the global and local variables of the specified instance.
+   * @param vars variables
+   */
+  public void add(final Variables vars) {
+    for(int g = 0; g < vars.global.size; ++g) global.add(vars.global.vars[g]);
+    for(int l = 0; l < vars.local.size; ++l) local.add(vars.local.vars[l]);
+  }
+
+  /**
+   * Returns the local variables.
+   * @return local variables
+   */
+  public VarList local() {
+    return local;
+  }
+
   /**
    * Finds the specified variable.
    * @param var variable
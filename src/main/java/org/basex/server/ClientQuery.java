@@ -1,6 +1,7 @@
 package org.basex.server;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import org.basex.core.BaseXException;
 import org.basex.io.BufferInput;
 import org.basex.util.ByteList;
@@ -10,6 +11,10 @@ import org.basex.util.ByteList;
  * client/server architecture. All sent data is received by the
  * {@link ServerProcess} and interpreted by the {@link QueryProcess}.
  *
+ * Results are fetched in batches. As soon as a batch has been received,
+ * the next batch is requested, so that the server can evaluate and send
+ * further results while the current ones are processed by the client.
+ *
  * @author BaseX Team 2005-11, BSD License
  * @author Christian Gruen
  */
@@ -18,8 +23,17 @@ public final class ClientQuery extends Query {
   final ClientSession cs;
   /** Query id. */
   final String id;
-  /** Next result. */
-  ByteList next;
+  /** Maximum number of results requested per batch. */
+  private static final int BATCH = 1000;
+
+  /** Fetched results. */
+  private final ArrayList<ByteList> results = new ArrayList<ByteList>();
+  /** Position of the next result. */
+  private int pos;
+  /** Indicates if more results can be fetched. */
+  private boolean more = true;
+  /** Error message returned by the last fetch request. */
+  private String error;
 
   /**
    * Standard constructor.
@@ -48,15 +62,31 @@ public final class ClientQuery extends Query {
 
   @Override
   public boolean more() throws BaseXException {
-    next = exec(ServerCmd.NEXT, id);
-    return next.size() != 0;
+    if(pos == results.size()) {
+      results.clear();
+      pos = 0;
+      try {
+        if(cs.pending != this && more) request();
+        if(cs.pending == this) receive();
+        // request next results before the current ones are returned
+        if(more) request();
+      } catch(final IOException ex) {
+        throw new BaseXException(ex);
+      }
+      if(results.size() == 0 && error != null) {
+        final String msg = error;
+        error = null;
+        throw new BaseXException(msg);
+      }
+    }
+    return pos < results.size();
   }
 
   @Override
   public String next() throws BaseXException {
-    if(next == null) more();
-    final ByteList bl = next;
-    next = null;
+    if(!more()) return print(new ByteList());
+    final ByteList bl = results.get(pos);
+    results.set(pos++, null);
     return print(bl);
   }
 
@@ -84,9 +114,10 @@ public final class ClientQuery extends Query {
    */
   ByteList exec(final ServerCmd cmd, final String arg) throws BaseXException {
     try {
+      cs.drain();
       cs.sout.write(cmd.code);
       cs.send(arg);
-      final BufferInput bi = new BufferInput(cs.sin);
+      final BufferInput bi = cs.sin;
       final ByteList bl = bi.content();
       if(!cs.ok(bi)) throw new BaseXException(bi.readString());
       return bl;
@@ -95,6 +126,41 @@ public final class ClientQuery extends Query {
     }
   }
 
+  /**
+   * Sends a request for the next results.
+   * @throws IOException I/O exception
+   */
+  private void request() throws IOException {
+    cs.drain();
+    cs.sout.write(ServerCmd.FETCH.code);
+    cs.send(id + '\0' + BATCH);
+    cs.pending = this;
+  }
+
+  /**
+   * Receives the results of a pending request. The results are added to
+   * the fetched results, and errors are cached until all results
+   * have been returned.
+   * @throws IOException I/O exception
+   */
+  void receive() throws IOException {
+    cs.pending = null;
+    final BufferInput bi = cs.sin;
+    more = false;
+    for(int b; (b = bi.read()) != 0;) {
+      if(b == 2) {
+        more = true;
+      } else {
+        final ByteList bl = new ByteList();
+        for(int c; (c = bi.read()) != 0;) {
+          bl.add(c == EncodingOutput.ESCAPE ? bi.read() : c);
+        }
+        results.add(bl);
+      }
+    }
+    if(!cs.ok(bi)) error = bi.readString();
+  }
+
   /**
    * Returns the specified result.
    * @param bl result
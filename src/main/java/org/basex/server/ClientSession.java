@@ -5,6 +5,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import org.basex.core.BaseXException;
 import org.basex.core.Context;
 import org.basex.core.Command;
@@ -40,7 +41,10 @@ public final class ClientSession extends Session {
   /** Server output. */
   final PrintOutput sout;
   /** Server input. */
-  final InputStream sin;
+  final BufferInput sin;
+  /** Query with a pending fetch request ({@code null} if no request is
+   * pending). */
+  ClientQuery pending;
 
   /**
    * Constructor, specifying the database context and the
@@ -104,11 +108,14 @@ public final class ClientSession extends Session {
     // 5 seconds timeout
     socket = new Socket();
     socket.connect(new InetSocketAddress(host, port), 5000);
-    sin = socket.getInputStream();
+    // send requests without delay, as responses may be pipelined
+    socket.setTcpNoDelay(true);
+    // the input is shared by all responses, as pipelined requests may be
+    // answered before they are read
+    sin = new BufferInput(socket.getInputStream());
 
     // receive timestamp
-    final BufferInput bi = new BufferInput(sin);
-    final String ts = bi.readString();
+    final String ts = sin.readString();
 
     // send user name and hashed password/timestamp
     sout = PrintOutput.get(socket.getOutputStream());
@@ -117,13 +124,14 @@ public final class ClientSession extends Session {
     sout.flush();
 
     // receive success flag
-    if(!ok(bi)) throw new LoginException();
+    if(!ok(sin)) throw new LoginException();
   }
 
   @Override
   public void create(final String name, final InputStream input)
       throws BaseXException {
     try {
+      drain();
       sout.write(8);
       send(name);
       send(input);
@@ -136,6 +144,7 @@ public final class ClientSession extends Session {
   public void add(final String name, final String target,
       final InputStream input) throws BaseXException {
     try {
+      drain();
       sout.write(9);
       send(name);
       send(target);
@@ -155,9 +164,8 @@ public final class ClientSession extends Session {
     while((l = input.read()) != -1) sout.write(l);
     sout.write(0);
     sout.flush();
-    final BufferInput bi = new BufferInput(sin);
-    info = bi.readString();
-    if(!ok(bi)) throw new IOException(info);
+    info = sin.readString();
+    if(!ok(sin)) throw new IOException(info);
   }
 
   @Override
@@ -167,8 +175,27 @@ public final class ClientSession extends Session {
 
   @Override
   public void close() throws IOException {
-    send(Cmd.EXIT.toString());
-    socket.close();
+    // 5 seconds timeout
+    socket.setSoTimeout(5000);
+    try {
+      drain();
+      send(Cmd.EXIT.toString());
+      // wait until the server has closed the session
+      while(sin.read() != 0);
+    } catch(final SocketTimeoutException ex) {
+      // no response from the server: close the socket anyway
+    } finally {
+      socket.close();
+    }
+  }
+
+  /**
+   * Receives the results of a pending fetch request. Must be called
+   * before another request is sent to the server.
+   * @throws IOException I/O exception
+   */
+  void drain() throws IOException {
+    if(pending != null) pending.receive();
   }
 
   /**
@@ -197,12 +224,12 @@ public final class ClientSession extends Session {
       throws BaseXException {
 
     try {
+      drain();
       send(cmd);
-      final BufferInput bi = new BufferInput(sin);
       int l;
-      while((l = bi.read()) != 0) os.write(l);
-      info = bi.readString();
-      if(!ok(bi)) throw new BaseXException(info);
+      while((l = sin.read()) != 0) os.write(l);
+      info = sin.readString();
+      if(!ok(sin)) throw new BaseXException(info);
     } catch(final IOException ex) {
       throw new BaseXException(ex);
     }
@@ -0,0 +1,205 @@
+package org.basex.server;
+
+import static org.basex.core.Text.*;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.io.IO;
+import org.basex.util.Util;
+
+/**
+ * Dispatcher for client connections. A single thread accepts new connections
+ * and waits for the requests of all idle sessions. If input is available
+ * for a session, the session is handed over to a pool of worker threads,
+ * which process all pending requests of the session with blocking I/O and
+ * return it to the dispatcher. As a result, idle sessions do not occupy
+ * a thread.
+ *
+ * The maximum number of connections ({@link Prop#MAXCONNECTIONS}) can be
+ * limited. The number of worker threads is not limited, as a session may
+ * keep database locks between two requests, and a worker waiting for a lock
+ * must not block the session that holds it. Worker threads are created on
+ * demand and discarded after some idle time.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class Dispatcher {
+  /** Open connections. */
+  private final Set<ServerProcess> connections = Collections.newSetFromMap(
+      new ConcurrentHashMap<ServerProcess, Boolean>());
+  /** Sessions that wait for being registered with the selector. */
+  private final ConcurrentLinkedQueue<ServerProcess> idle =
+    new ConcurrentLinkedQueue<ServerProcess>();
+  /** Database context. */
+  private final Context context;
+  /** Log. */
+  private final Log log;
+  /** Server channel. */
+  private final ServerSocketChannel server;
+  /** Selector. */
+  private final Selector selector;
+  /** Worker threads. */
+  private final ThreadPoolExecutor workers;
+  /** Number of rejected connections. */
+  private int rejected;
+
+  /**
+   * Constructor, binding the server to the specified port.
+   * @param port server port
+   * @param ctx database context
+   * @param l log
+   * @throws IOException I/O exception
+   */
+  public Dispatcher(final int port, final Context ctx, final Log l)
+      throws IOException {
+
+    context = ctx;
+    log = l;
+    server = ServerSocketChannel.open();
+    server.socket().bind(new InetSocketAddress(port));
+    server.configureBlocking(false);
+    selector = Selector.open();
+    server.register(selector, SelectionKey.OP_ACCEPT);
+
+    workers = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+    ctx.sessions.dispatcher = this;
+  }
+
+  /**
+   * Accepts connections and dispatches requests until the dispatcher is
+   * closed, or until a connection is requested while the specified stop
+   * file exists.
+   * @param stop stop file
+   */
+  public void run(final IO stop) {
+    final ArrayList<ServerProcess> ready = new ArrayList<ServerProcess>();
+    try {
+      while(true) {
+        // register sessions whose requests have been processed
+        for(ServerProcess sp; (sp = idle.poll()) != null;) {
+          try {
+            sp.channel.configureBlocking(false);
+            sp.channel.register(selector, SelectionKey.OP_READ, sp);
+          } catch(final ClosedChannelException ex) {
+            // session has been closed in the meantime
+          }
+        }
+
+        selector.select();
+        do {
+          for(final SelectionKey key : selector.selectedKeys()) {
+            if(!key.isValid()) continue;
+            if(key.isAcceptable()) {
+              final SocketChannel ch = server.accept();
+              if(ch == null) continue;
+              if(stop.exists()) {
+                if(!stop.delete()) log.write(Util.info(DBNOTDELETED, stop));
+                ch.close();
+                return;
+              }
+              // send responses without delay, as they may span several packets
+              ch.socket().setTcpNoDelay(true);
+              final ServerProcess sp =
+                new ServerProcess(ch, context, log, this);
+              connections.add(sp);
+              ready.add(sp);
+            } else if(key.isReadable()) {
+              key.cancel();
+              ready.add((ServerProcess) key.attachment());
+            }
+          }
+          selector.selectedKeys().clear();
+          // cancelled keys must be removed before the channels can be
+          // switched to blocking mode; this is done by the next selection
+        } while(selector.selectNow() > 0);
+
+        // hand over sessions with available input to the workers
+        for(final ServerProcess sp : ready) {
+          try {
+            sp.channel.configureBlocking(true);
+            workers.execute(sp);
+          } catch(final IOException ex) {
+            sp.exit();
+          } catch(final RejectedExecutionException ex) {
+            sp.exit();
+          }
+        }
+        ready.clear();
+      }
+    } catch(final IOException ex) {
+      // dispatcher was closed
+      Util.debug(ex);
+    } catch(final ClosedSelectorException ex) {
+      // dispatcher was closed
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Returns a session to the dispatcher after its requests have been
+   * processed.
+   * @param sp server process
+   */
+  void resume(final ServerProcess sp) {
+    idle.add(sp);
+    selector.wakeup();
+  }
+
+  /**
+   * Checks if a new session can be admitted, or if the maximum number of
+   * connections has been reached.
+   * @return result of check
+   */
+  synchronized boolean admit() {
+    final int max = context.prop.num(Prop.MAXCONNECTIONS);
+    final boolean ok = max == 0 || connections.size() <= max;
+    if(!ok) rejected++;
+    return ok;
+  }
+
+  /**
+   * Removes a closed session.
+   * @param sp server process
+   */
+  void remove(final ServerProcess sp) {
+    connections.remove(sp);
+  }
+
+  /**
+   * Closes the server channel and the selector and stops all workers.
+   * Remaining sessions must be closed by the caller.
+   * @throws IOException I/O exception
+   */
+  public void close() throws IOException {
+    workers.shutdown();
+    try {
+      server.close();
+    } finally {
+      selector.close();
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    return Util.info("Connections: % (% rejected), Workers: % active, " +
+        "% max, Requests: % processed", connections.size(), rejected,
+        workers.getActiveCount(), workers.getLargestPoolSize(),
+        workers.getCompletedTaskCount());
+  }
+}
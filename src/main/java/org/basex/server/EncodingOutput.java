@@ -0,0 +1,35 @@
+package org.basex.server;
+
+import java.io.IOException;
+import org.basex.io.PrintOutput;
+
+/**
+ * This output stream is used to send multiple results in a single response.
+ * If encoding is enabled, all 0x00 and 0xFF bytes are prefixed with an
+ * additional 0xFF byte. As 0x00 bytes are used as delimiters in the
+ * client/server protocol, and as 0xFF bytes are invalid in UTF8,
+ * results can then contain arbitrary bytes.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class EncodingOutput extends PrintOutput {
+  /** Escape byte. */
+  static final int ESCAPE = 0xFF;
+  /** Encoding flag. */
+  boolean encode;
+
+  /**
+   * Constructor.
+   * @param out output stream reference
+   */
+  EncodingOutput(final PrintOutput out) {
+    super(out);
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    if(encode && (b == 0 || (b & 0xFF) == ESCAPE)) super.write(ESCAPE);
+    super.write(b);
+  }
+}
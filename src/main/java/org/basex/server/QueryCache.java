@@ -0,0 +1,128 @@
+package org.basex.server;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.User;
+import org.basex.data.Data;
+import org.basex.query.QueryProcessor;
+import org.basex.util.Util;
+
+/**
+ * Cache for compiled queries of a server session. If the same query is
+ * requested again, its parsed and compiled expression tree will be
+ * reused, and only the values of the external variables will be rebound.
+ *
+ * Queries are cached under a key that consists of the query string,
+ * the opened database and its modification time, the names and types of
+ * the bound variables, and all options that affect compilation. As a
+ * result, cached queries will not be reused if the database has been
+ * updated. The least recently used queries are discarded first.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+final class QueryCache {
+  /** Cached queries. */
+  private final LinkedHashMap<String, QueryProcessor> cache =
+    new LinkedHashMap<String, QueryProcessor>(16, 0.75f, true);
+  /** Number of cache hits. */
+  private int hits;
+  /** Number of cache misses. */
+  private int misses;
+
+  /**
+   * Returns a cached query with the specified string. The query is not
+   * removed from the cache.
+   * @param query query string
+   * @return query processor, or {@code null}
+   */
+  QueryProcessor find(final String query) {
+    final String pref = query + '\0';
+    for(final String k : cache.keySet()) {
+      if(k.startsWith(pref)) return cache.get(k);
+    }
+    return null;
+  }
+
+  /**
+   * Returns and removes the cached query for the specified key.
+   * @param key key
+   * @return query processor, or {@code null}
+   */
+  QueryProcessor get(final String key) {
+    final QueryProcessor qp = cache.remove(key);
+    if(qp != null) hits++;
+    else misses++;
+    return qp;
+  }
+
+  /**
+   * Caches a query. If the maximum number of queries is exceeded, the least
+   * recently used query is closed and discarded.
+   * @param key key
+   * @param qp query processor
+   * @param ctx database context
+   */
+  void add(final String key, final QueryProcessor qp, final Context ctx) {
+    close(cache.put(key, qp));
+    final int max = ctx.prop.num(Prop.QUERYCACHE);
+    final Iterator<QueryProcessor> it = cache.values().iterator();
+    while(cache.size() > max) {
+      close(it.next());
+      it.remove();
+    }
+  }
+
+  /**
+   * Closes all cached queries.
+   */
+  void close() {
+    for(final QueryProcessor qp : cache.values()) close(qp);
+    cache.clear();
+  }
+
+  /**
+   * Returns the key of a query.
+   * @param query query string
+   * @param bind names and types of the bound variables
+   * @param ctx database context
+   * @return key, or {@code null} if the query cannot be cached
+   */
+  static String key(final String query, final String bind,
+      final Context ctx) {
+
+    // only cache queries on all documents of the opened database
+    final Data data = ctx.data;
+    if(data != null && (!ctx.root() || !ctx.perm(User.READ, data.meta)))
+      return null;
+
+    final StringBuilder sb = new StringBuilder(query).append('\0');
+    if(data != null) sb.append(data.meta.name).append('/').append(
+        data.meta.time).append('/').append(System.identityHashCode(data));
+    final Prop prop = ctx.prop;
+    sb.append('\0').append(prop.is(Prop.XQUERY3)).append(
+        prop.is(Prop.QUERYINFO)).append(prop.get(Prop.SERIALIZER));
+    return sb.append('\0').append(bind).toString();
+  }
+
+  /**
+   * Closes the specified query processor.
+   * @param qp query processor (may be {@code null})
+   */
+  private static void close(final QueryProcessor qp) {
+    if(qp == null) return;
+    try {
+      qp.close();
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return Util.info("% cached, % hits, % misses", cache.size(), hits, misses);
+  }
+}
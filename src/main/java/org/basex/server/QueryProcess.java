@@ -2,17 +2,24 @@ package org.basex.server;
 
 import static org.basex.core.Text.*;
 import static org.basex.query.util.Err.*;
+import static org.basex.util.Token.*;
 import java.io.IOException;
 import org.basex.core.Context;
 import org.basex.core.Progress;
 import org.basex.core.Prop;
 import org.basex.data.XMLSerializer;
+import org.basex.io.Journal;
 import org.basex.io.PrintOutput;
 import org.basex.query.QueryException;
 import org.basex.query.QueryProcessor;
+import org.basex.query.expr.Expr;
 import org.basex.query.item.Item;
+import org.basex.query.item.QNm;
 import org.basex.query.iter.Iter;
+import org.basex.query.util.Var;
+import org.basex.query.util.VarList;
 import org.basex.util.Performance;
+import org.basex.util.StringList;
 import org.basex.util.TokenBuilder;
 
 /**
@@ -23,14 +30,30 @@ import org.basex.util.TokenBuilder;
  * @author Christian Gruen
  */
 final class QueryProcess extends Progress {
+  /** Maximum number of bytes returned by a single fetch. */
+  private static final int FETCHSIZE = 1 << 16;
   /** Performance. */
   private final Performance perf = new Performance();
-  /** Query processor. */
-  private final QueryProcessor qp;
   /** Database context. */
   private final Context ctx;
   /** Print output. */
   private final PrintOutput out;
+  /** Encoding output, used for serializing results. */
+  private final EncodingOutput enc;
+  /** Query string. */
+  private final String query;
+  /** Query cache ({@code null} if queries are not cached). */
+  private final QueryCache cache;
+  /** Names, values and types of variables that will be bound on
+   * initialization. */
+  private final StringList binds = new StringList();
+
+  /** Query processor ({@code null} if the query has not been parsed yet). */
+  private QueryProcessor qp;
+  /** Cache key ({@code null} if the query will not be cached). */
+  private String key;
+  /** Flag for completely evaluated queries. */
+  private boolean done;
 
   /** Query info. */
   private TokenBuilder info;
@@ -41,6 +64,8 @@ final class QueryProcess extends Progress {
   private XMLSerializer xml;
   /** Monitored flag. */
   private boolean monitored;
+  /** Name of the locked database, or {@code null}. */
+  private String db;
   /** Iterator. */
   private Iter iter;
   /** Closed. */
@@ -51,21 +76,34 @@ final class QueryProcess extends Progress {
    * @param qu query string
    * @param po output stream
    * @param c database context
+   * @param qc query cache ({@code null} if queries are not cached)
    * @throws QueryException query exception
    */
-  QueryProcess(final String qu, final PrintOutput po, final Context c)
-      throws QueryException {
+  QueryProcess(final String qu, final PrintOutput po, final Context c,
+      final QueryCache qc) throws QueryException {
 
-    qp = new QueryProcessor(qu, c);
+    query = qu;
+    out = po;
+    enc = new EncodingOutput(po);
+    ctx = c;
+    cache = qc;
+    // queries that have been cached before will be parsed on demand
+    if(cache == null || cache.find(qu) == null) parse();
+    startTimeout(ctx.prop.num(Prop.TIMEOUT));
+  }
+
+  /**
+   * Parses the query.
+   * @throws QueryException query exception
+   */
+  private void parse() throws QueryException {
+    qp = new QueryProcessor(query, ctx);
     try {
       qp.parse();
     } catch(final QueryException ex) {
       try { qp.close(); } catch(final Exception e) { }
       throw ex;
     }
-    out = po;
-    ctx = c;
-    startTimeout(ctx.prop.num(Prop.TIMEOUT));
   }
 
   /**
@@ -77,7 +115,15 @@ final class QueryProcess extends Progress {
    */
   void bind(final String n, final String o, final String t)
       throws QueryException {
-    qp.bind(n, o, t);
+
+    if(cache == null) {
+      qp.bind(n, o, t);
+    } else {
+      // cached queries are compiled before variables are bound
+      binds.add(n.replaceAll("^\\$", ""));
+      binds.add(o);
+      binds.add(t == null ? "" : t);
+    }
   }
 
   /**
@@ -86,12 +132,80 @@ final class QueryProcess extends Progress {
    * @throws QueryException query exception
    */
   void init() throws IOException, QueryException {
+    // the lock is acquired before the query is compiled and the cache key is
+    // built from the database state; a cached query with the same string has
+    // the same properties
+    QueryProcessor p = qp;
+    if(p == null) p = cache.find(query);
+    if(p == null) {
+      parse();
+      p = qp;
+    }
     monitored = true;
-    ctx.register(qp.ctx.updating);
-    xml = qp.getSerializer(out);
+    if(!p.ctx.databases && ctx.data != null) db = ctx.data.meta.name;
+    ctx.register(p.ctx.updating, db);
+    if(cache != null) prepare();
+    xml = qp.getSerializer(enc);
     iter = qp.iter();
   }
 
+  /**
+   * Prepares the evaluation of a query that may be cached. If the query has
+   * been cached before, the cached expression tree is reused. Otherwise, the
+   * query is compiled before the variables are bound, as their values must
+   * not be inlined. Instead, variables are typed with the types of the
+   * bound values, which will be part of the cache key.
+   * @throws QueryException query exception
+   */
+  private void prepare() throws QueryException {
+    final StringBuilder sb = new StringBuilder();
+    for(int b = 0; b < binds.size(); b += 3) {
+      sb.append(binds.get(b)).append(' ').append(binds.get(b + 2)).append(';');
+    }
+    final String k = QueryCache.key(query, sb.toString(), ctx);
+    final QueryProcessor cached = k != null ? cache.get(k) : null;
+    if(cached != null) {
+      if(qp != null) try { qp.close(); } catch(final IOException ex) { }
+      qp = cached;
+      // reset cached dates
+      qp.ctx.date = null;
+      qp.ctx.dtm = null;
+      qp.ctx.time = null;
+      key = k;
+    } else if(qp == null) {
+      parse();
+    }
+
+    final Expr[] vals = new Expr[binds.size() / 3];
+    for(int v = 0; v < vals.length; ++v) {
+      vals[v] = qp.value(binds.get(v * 3 + 1), binds.get(v * 3 + 2));
+    }
+    if(cached == null && k != null && cacheable()) {
+      key = k;
+      final VarList global = qp.ctx.vars.global();
+      for(int v = 0; v < vals.length; ++v) {
+        final Var var = global.get(new Var(new QNm(token(binds.get(v * 3)))));
+        if(var != null) var.ret = vals[v].type();
+      }
+      qp.compile();
+    }
+    for(int v = 0; v < vals.length; ++v) qp.bind(binds.get(v * 3), vals[v]);
+  }
+
+  /**
+   * Checks if the parsed query can be cached. This is the case if it
+   * performs no updates, and if all global variables are external.
+   * @return result of check
+   */
+  private boolean cacheable() {
+    if(qp.ctx.updating) return false;
+    final VarList global = qp.ctx.vars.global();
+    for(int v = 0; v < global.size; ++v) {
+      if(global.vars[v].expr() != null) return false;
+    }
+    return true;
+  }
+
   /**
    * Serializes the next item and tests if more items can be returned.
    * @throws IOException Exception
@@ -102,6 +216,40 @@ final class QueryProcess extends Progress {
     xml.init();
     final Item it = iter.next();
     if(it != null) next(it);
+    else done = true;
+  }
+
+  /**
+   * Serializes the next items, until the maximum number of items or bytes
+   * has been reached. Each item is preceded by a 1 byte and terminated by
+   * a 0 byte, and all contained 0x00 and 0xFF bytes are prefixed with 0xFF.
+   * A final 2 byte indicates that more items can be fetched.
+   * @param max maximum number of items
+   * @throws IOException Exception
+   * @throws QueryException query exception
+   */
+  void fetch(final int max) throws IOException, QueryException {
+    if(xml == null) init();
+    if(done) return;
+    final int size = enc.size();
+    for(int c = 0; c < max && enc.size() - size < FETCHSIZE; ++c) {
+      final Item it = iter.next();
+      if(it == null) {
+        done = true;
+        return;
+      }
+      out.write(1);
+      xml.init();
+      enc.encode = true;
+      try {
+        next(it);
+      } finally {
+        // terminate item, even if its serialization was interrupted
+        enc.encode = false;
+        out.write(0);
+      }
+    }
+    out.write(2);
   }
 
   /**
@@ -113,6 +261,7 @@ final class QueryProcess extends Progress {
     if(xml == null) init();
     Item it;
     while((it = iter.next()) != null) next(it);
+    done = true;
     close(false);
   }
 
@@ -133,9 +282,21 @@ final class QueryProcess extends Progress {
   void close(final boolean forced) throws IOException {
     if(closed) return;
     if(xml != null && !forced) xml.close();
-    qp.stopTimeout();
-    qp.close();
-    if(monitored) ctx.unregister(qp.ctx.updating);
+    if(qp != null) {
+      qp.stopTimeout();
+      // cache completely evaluated queries that opened no other databases
+      if(key != null && done && !forced && !stopped &&
+          qp.ctx.resource.opened() == 0) {
+        qp.ctx.resource.closeSpills();
+        cache.add(key, qp, ctx);
+      } else {
+        qp.close();
+      }
+    }
+    if(monitored) {
+      ctx.unregister(qp.ctx.updating, db);
+      if(qp.ctx.updating) Journal.sync();
+    }
     initInfo();
     closed = true;
   }
@@ -159,7 +320,7 @@ final class QueryProcess extends Progress {
    */
   private void initInfo() {
     if(info == null) {
-      final int up = qp.updates();
+      final int up = qp != null ? qp.updates() : 0;
       info = new TokenBuilder();
       info.addExt(QUERYHITS + "% %" + NL, hits, hits == 1 ? VALHIT : VALHITS);
       info.addExt(QUERYUPDATED + "% %" + NL, up, up == 1 ? VALHIT : VALHITS);
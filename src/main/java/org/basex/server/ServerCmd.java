@@ -15,6 +15,8 @@ public enum ServerCmd {
   INIT(4),
   /** Code for returning next query result: {id}0. */
   NEXT(1),
+  /** Code for returning multiple query results: {id}0{max}0. */
+  FETCH(7),
   /** Code for executing the complete query: {id}0. */
   EXEC(5),
   /** Code for showing the query info: {id}0. */
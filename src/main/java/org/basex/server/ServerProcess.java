@@ -5,6 +5,7 @@ import static org.basex.util.Token.*;
 import static org.basex.server.ServerCmd.*;
 import java.io.IOException;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.util.HashMap;
 import org.basex.build.Parser;
 import org.basex.core.BaseXException;
@@ -33,17 +34,24 @@ import org.basex.util.Util;
  * @author Andreas Weiler
  * @author Christian Gruen
  */
-public final class ServerProcess extends Thread {
+public final class ServerProcess implements Runnable {
   /** Active queries. */
   private final HashMap<String, QueryProcess> queries =
     new HashMap<String, QueryProcess>();
 
+  /** Cached queries. */
+  private final QueryCache cache = new QueryCache();
+
   /** Database context. */
   public final Context context;
+  /** Socket channel. */
+  final SocketChannel channel;
   /** Socket reference. */
   private final Socket socket;
   /** Log reference. */
   private final Log log;
+  /** Dispatcher. */
+  private final Dispatcher dispatcher;
 
   /** Input stream. */
   private BufferInput in;
@@ -53,26 +61,30 @@ public final class ServerProcess extends Thread {
   private Command cmd;
   /** Query id counter. */
   private int id;
-  /** Running of thread. */
-  private boolean running;
+  /** Flag for closed sessions. */
+  private boolean closed;
 
   /**
    * Constructor.
-   * @param s socket
+   * @param ch socket channel
    * @param c database context
    * @param l log reference
+   * @param d dispatcher
    */
-  public ServerProcess(final Socket s, final Context c, final Log l) {
+  ServerProcess(final SocketChannel ch, final Context c, final Log l,
+      final Dispatcher d) {
     context = new Context(c);
     log = l;
-    socket = s;
+    channel = ch;
+    socket = ch.socket();
+    dispatcher = d;
   }
 
   /**
    * Initializes the session via cram-md5 authentication.
    * @return success flag
    */
-  public boolean init() {
+  private boolean init() {
     try {
       final String ts = Long.toString(System.nanoTime());
 
@@ -90,12 +102,15 @@ public final class ServerProcess extends Thread {
       final boolean ok = context.user != null &&
         md5(string(context.user.password) + ts).equals(pw);
 
-      if(ok) {
-        start();
-      } else if(!us.isEmpty()) {
+      if(!ok && !us.isEmpty()) {
         // log failed login and delay feedback
         log.write(this, SERVERLOGIN + ": " + us);
         Performance.sleep(2000);
+      } else if(ok && !dispatcher.admit()) {
+        // reject connections that exceed the connection limit
+        log.write(this, SERVERLOGIN + ": " + us, "connection limit reached");
+        send(false);
+        return false;
       }
       // send {OK}
       send(ok);
@@ -107,97 +122,117 @@ public final class ServerProcess extends Thread {
     }
   }
 
+  /**
+   * Processes the pending requests of the client. This method is called by
+   * a worker thread of the {@link Dispatcher} whenever the channel is
+   * readable. When it is called for the first time, the client will be
+   * authenticated. As requests may be pipelined, all buffered input will be
+   * processed before the session is handed back to the dispatcher. Further
+   * input that has not been buffered yet is reported again by the selector.
+   */
   @Override
   public void run() {
-    log.write(this, "LOGIN " + context.user.name, OK);
     String input = null;
-    running = true;
     try {
-      while(running) {
-        try {
-          final byte b = in.readByte();
-          final ServerCmd sc = ServerCmd.get(b);
-          if(sc == CREATE) {
-            create();
-            continue;
-          }
-          if(sc == ADD) {
-            add();
-            continue;
-          }
-          if(sc != CMD) {
-            query(sc);
-            continue;
-          }
-
+      if(in == null) {
+        if(!init()) {
+          socket.close();
+          dispatcher.remove(this);
+          return;
+        }
+        context.add(this);
+        log.write(this, "LOGIN " + context.user.name, OK);
+      } else if(!in.more()) {
+        // channel is readable, but the input has ended:
+        // the connection was closed by the client
+        exit();
+        return;
+      }
+      while(in.buffered() != 0) {
+        input = null;
+        cmd = null;
+        final byte b = in.readByte();
+        final ServerCmd sc = ServerCmd.get(b);
+        if(sc == CREATE) {
+          create();
+        } else if(sc == ADD) {
+          add();
+        } else if(sc != CMD) {
+          query(sc);
+        } else {
           // database command
           input = new ByteList().add(b).add(in.content().toArray()).toString();
-        } catch(final IOException ex) {
-          // this exception is thrown for each session if the server is stopped
-          exit();
-          break;
+          if(!command(input)) return;
         }
+      }
+      dispatcher.resume(this);
+    } catch(final IOException ex) {
+      // this exception is thrown for each session if the server is stopped
+      if(input != null) log.write(this, input, INFOERROR + ex.getMessage());
+      exit();
+    }
+  }
 
-        // parse input and create command instance
-        final Performance perf = new Performance();
-        cmd = null;
-        try {
-          cmd = new CommandParser(input, context).parseSingle();
-        } catch(final QueryException ex) {
-          // log invalid command
-          final String msg = ex.getMessage();
-          log.write(this, input, INFOERROR + msg);
-          // send 0 to mark end of potential result
-          out.write(0);
-          // send {INFO}0
-          out.writeString(msg);
-          // send 1 to mark error
-          send(false);
-          continue;
-        }
+  /**
+   * Parses and executes a database command.
+   * @param input command string
+   * @return {@code false} if the session was closed
+   * @throws IOException I/O exception
+   */
+  private boolean command(final String input) throws IOException {
+    // parse input and create command instance
+    final Performance perf = new Performance();
+    try {
+      cmd = new CommandParser(input, context).parseSingle();
+    } catch(final QueryException ex) {
+      // log invalid command
+      final String msg = ex.getMessage();
+      log.write(this, input, INFOERROR + msg);
+      // send 0 to mark end of potential result
+      out.write(0);
+      // send {INFO}0
+      out.writeString(msg);
+      // send 1 to mark error
+      send(false);
+      return true;
+    }
 
-        // stop console
-        if(cmd instanceof Exit) {
-          exit();
-          running = false;
-          break;
-        }
+    // stop console
+    if(cmd instanceof Exit) {
+      exit();
+      log.write(this, "LOGOUT " + context.user.name, OK);
+      return false;
+    }
 
-        // start timeout
-        cmd.startTimeout(context.prop.num(Prop.TIMEOUT));
-
-        final String c = cmd.toString().replace('\r', ' ').replace('\n', ' ');
-        log.write(this, c);
-
-        // execute command and send {RESULT}
-        boolean ok = true;
-        String info = null;
-        try {
-          cmd.execute(context, out);
-          info = cmd.info();
-        } catch(final BaseXException ex) {
-          ok = false;
-          info = ex.getMessage();
-          if(info.equals(PROGERR)) info = SERVERTIMEOUT;
-        }
-        // stop timeout
-        cmd.stopTimeout();
+    // start timeout
+    cmd.startTimeout(context.prop.num(Prop.TIMEOUT));
 
-        // send 0 to mark end of result
-        out.write(0);
-        // send {INFO}0
-        out.writeString(info);
-        // send {OK}
-        send(ok);
+    final String c = cmd.toString().replace('\r', ' ').replace('\n', ' ');
+    log.write(this, c);
 
-        log.write(this, ok ? OK : INFOERROR + info, perf);
-      }
-      if(!running) log.write(this, "LOGOUT " + context.user.name, OK);
-    } catch(final IOException ex) {
-      log.write(this, input, INFOERROR + ex.getMessage());
-      Util.stack(ex);
-      exit();
+    // execute command and send {RESULT}
+    boolean ok = true;
+    String info = null;
+    try {
+      cmd.execute(context, out);
+      info = cmd.info();
+    } catch(final BaseXException ex) {
+      ok = false;
+      info = ex.getMessage();
+      if(info.equals(PROGERR)) info = SERVERTIMEOUT;
     }
+    // stop timeout
+    cmd.stopTimeout();
+
+    // send 0 to mark end of result
+    out.write(0);
+    // send {INFO}0
+    out.writeString(info);
+    // send {OK}
+    send(ok);
+
+    log.write(this, ok ? OK : INFOERROR + info, perf);
+    return true;
   }
 
   /**
@@ -273,7 +308,8 @@ public final class ServerProcess extends Thread {
     try {
       if(sc == QUERY) {
         final String query = arg;
-        qp = new QueryProcess(query, out, context);
+        qp = new QueryProcess(query, out, context,
+            context.prop.num(Prop.QUERYCACHE) > 0 ? cache : null);
         arg = Integer.toString(id++);
         queries.put(arg, qp);
         // send {ID}0
@@ -298,6 +334,10 @@ public final class ServerProcess extends Thread {
           qp.init();
         } else if(sc == NEXT) {
           qp.next();
+        } else if(sc == FETCH) {
+          final int max = Integer.parseInt(in.readString());
+          if(max < 1) throw new IOException("Invalid Result Number: " + max);
+          qp.fetch(max);
         } else if(sc == EXEC) {
           qp.execute();
         } else if(sc == INFO) {
@@ -313,7 +353,9 @@ public final class ServerProcess extends Thread {
       out.write(0);
 
       // write log file (skip next calls; bind has been logged before)
-      if(sc != NEXT && sc != BIND) log.write(this, sc + "(" + arg + ")", OK);
+      if(sc != NEXT && sc != FETCH && sc != BIND) {
+        log.write(this, sc + "(" + arg + ")", OK);
+      }
     } catch(final Exception ex) {
       // log exception (static or runtime)
       err = ex.getMessage();
@@ -345,10 +387,15 @@ public final class ServerProcess extends Thread {
    * Exits the session.
    */
   public void exit() {
+    synchronized(this) {
+      if(closed) return;
+      closed = true;
+    }
     // close remaining query processes
     for(final QueryProcess q : queries.values()) {
       try { q.close(true); } catch(final IOException ex) { }
     }
+    cache.close();
 
     try {
       new Close().execute(context);
@@ -359,6 +406,7 @@ public final class ServerProcess extends Thread {
       log.write(ex.getMessage());
       Util.stack(ex);
     }
+    dispatcher.remove(this);
   }
 
   /**
@@ -367,7 +415,8 @@ public final class ServerProcess extends Thread {
    */
   String info() {
     final Data data = context.data;
-    return this + (data != null ? ": " + data.meta.name : "");
+    return this + (data != null ? ": " + data.meta.name : "") +
+      (context.prop.num(Prop.QUERYCACHE) > 0 ? " (" + cache + ")" : "");
   }
 
   @Override
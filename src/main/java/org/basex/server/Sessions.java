@@ -18,6 +18,8 @@ public final class Sessions implements Iterable<ServerProcess> {
   ServerProcess[] list = new ServerProcess[1];
   /** Number of entries. */
   int size;
+  /** Dispatcher of the server ({@code null} if no server is running). */
+  Dispatcher dispatcher;
 
   /**
    * Adds a session to the array.
@@ -67,6 +69,7 @@ public final class Sessions implements Iterable<ServerProcess> {
     tb.addExt(SRVSESSIONS, size).add(size != 0 ? COL : DOT);
     for(int i = 0; i < size; ++i)
       tb.add(NL + LI + list[i].context.user.name + " " + list[i].info());
+    if(dispatcher != null) tb.add(NL + NL + dispatcher);
     return tb.toString();
   }
 
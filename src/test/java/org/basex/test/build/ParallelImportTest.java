@@ -0,0 +1,146 @@
+package org.basex.test.build;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.io.IO;
+import org.basex.io.IOFile;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the parallel import of directories.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelImportTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(ParallelImportTest.class);
+  /** Test directory. */
+  private static final String DIR = Prop.TMP + NAME;
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Database files. */
+  private static final String[] FILES = {
+    "tbl", "tbli", "txt", "atv", "inf", "txtl", "txtr", "atvl", "atvr"
+  };
+  /** Number of test files. */
+  private static final int SIZE = 200;
+
+  /**
+   * Creates the test files.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void init() throws IOException {
+    new File(DIR + "/sub").mkdirs();
+    for(int i = 0; i < SIZE; ++i) {
+      new IOFile(DIR + (i % 3 == 0 ? "/sub/" : "/") + i + IO.XMLSUFFIX).write(
+          ("<?xml version='1.0'?><!-- " + i + " --><x xmlns:p='p" + i % 5 +
+          "' a='" + i + "'><p:y>" + i + "</p:y><?pi " + i + "?>" +
+          "<z b='" + i % 7 + "'/> t " + i + " </x>").getBytes());
+    }
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void drop() throws BaseXException {
+    new DropDB(NAME + '1').execute(CONTEXT);
+    new DropDB(NAME + '4').execute(CONTEXT);
+  }
+
+  /**
+   * Deletes the test files and closes the database context.
+   */
+  @AfterClass
+  public static void finish() {
+    CONTEXT.prop.set(Prop.THREADS, 0);
+    CONTEXT.prop.set(Prop.INTPARSE, false);
+    CONTEXT.prop.set(Prop.CHOP, true);
+    for(final File f : new File(DIR + "/sub").listFiles()) f.delete();
+    for(final File f : new File(DIR).listFiles()) f.delete();
+    new File(DIR).delete();
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares imports with the internal parser.
+   * @throws Exception exception
+   */
+  @Test
+  public void internal() throws Exception {
+    CONTEXT.prop.set(Prop.INTPARSE, true);
+    CONTEXT.prop.set(Prop.CHOP, false);
+    compare();
+  }
+
+  /**
+   * Compares imports with the default parser.
+   * @throws Exception exception
+   */
+  @Test
+  public void sax() throws Exception {
+    CONTEXT.prop.set(Prop.INTPARSE, false);
+    CONTEXT.prop.set(Prop.CHOP, true);
+    compare();
+  }
+
+  /**
+   * Checks if parsing errors are reported.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void error() throws IOException {
+    final IOFile io = new IOFile(DIR + "/error" + IO.XMLSUFFIX);
+    io.write("<x></y>".getBytes());
+    try {
+      CONTEXT.prop.set(Prop.INTPARSE, true);
+      CONTEXT.prop.set(Prop.THREADS, 4);
+      try {
+        new CreateDB(NAME + '4', DIR).execute(CONTEXT);
+        fail("Error expected.");
+      } catch(final BaseXException ex) {
+        assertTrue(ex.getMessage(), ex.getMessage().contains("error"));
+      }
+    } finally {
+      new File(io.path()).delete();
+    }
+  }
+
+  /**
+   * Creates databases with one and four threads and compares the files.
+   * @throws Exception exception
+   */
+  private void compare() throws Exception {
+    CONTEXT.prop.set(Prop.THREADS, 1);
+    new CreateDB(NAME + '1', DIR).execute(CONTEXT);
+    assertEquals(SIZE, CONTEXT.data.meta.ndocs);
+    CONTEXT.prop.set(Prop.THREADS, 4);
+    new CreateDB(NAME + '4', DIR).execute(CONTEXT);
+    assertEquals(SIZE, CONTEXT.data.meta.ndocs);
+    new Close().execute(CONTEXT);
+
+    for(final String f : FILES) {
+      final String n = f + IO.BASEXSUFFIX;
+      final File f1 = new File(CONTEXT.prop.dbpath(NAME + '1'), n);
+      final File f4 = new File(CONTEXT.prop.dbpath(NAME + '4'), n);
+      assertTrue(f, f1.exists() && f4.exists());
+      assertTrue(f, Arrays.equals(IO.get(f1.getPath()).content(),
+          IO.get(f4.getPath()).content()));
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package org.basex.test.build;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.io.IO;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the parallel construction of index structures.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelIndexTest {
+  /** Test file. */
+  private static final String FILE = "etc/xml/factbook.zip";
+  /** Test database name. */
+  private static final String NAME = Util.name(ParallelIndexTest.class);
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Index files. */
+  private static final String[] FILES = {
+    "atvl", "atvr", "atvn", "txtl", "txtr", "txtn",
+    "ftxx", "ftxy", "ftxz", "ftxa", "ftxb", "ftxc"
+  };
+  /** Test query. */
+  private static final String QUERY =
+    "count(//*[text() contains text 'german']), " +
+    "count(//city[name = 'Berlin'])";
+
+  /**
+   * Activates all indexes.
+   */
+  @BeforeClass
+  public static void init() {
+    CONTEXT.prop.set(Prop.TEXTINDEX, true);
+    CONTEXT.prop.set(Prop.ATTRINDEX, true);
+    CONTEXT.prop.set(Prop.FTINDEX, true);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void drop() throws BaseXException {
+    new DropDB(NAME + '1').execute(CONTEXT);
+    new DropDB(NAME + '4').execute(CONTEXT);
+  }
+
+  /**
+   * Closes the database context.
+   */
+  @AfterClass
+  public static void finish() {
+    CONTEXT.prop.set(Prop.THREADS, 0);
+    CONTEXT.prop.set(Prop.FTINDEX, false);
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares indexes built with a single and multiple threads.
+   * @throws Exception exception
+   */
+  @Test
+  public void fuzzy() throws Exception {
+    compare();
+  }
+
+  /**
+   * Compares indexes built with a single and multiple threads, using scoring.
+   * @throws Exception exception
+   */
+  @Test
+  public void scoring() throws Exception {
+    CONTEXT.prop.set(Prop.SCORING, 1);
+    try {
+      compare();
+    } finally {
+      CONTEXT.prop.set(Prop.SCORING, 0);
+    }
+  }
+
+  /**
+   * Compares indexes built with a single and multiple threads, using
+   * a wildcard index.
+   * @throws Exception exception
+   */
+  @Test
+  public void wildcards() throws Exception {
+    CONTEXT.prop.set(Prop.WILDCARDS, true);
+    try {
+      compare();
+    } finally {
+      CONTEXT.prop.set(Prop.WILDCARDS, false);
+    }
+  }
+
+  /**
+   * Creates databases with one and four threads and compares the index files.
+   * @throws Exception exception
+   */
+  private void compare() throws Exception {
+    CONTEXT.prop.set(Prop.THREADS, 1);
+    new CreateDB(NAME + '1', FILE).execute(CONTEXT);
+    final String exp = new XQuery(QUERY).execute(CONTEXT);
+    CONTEXT.prop.set(Prop.THREADS, 4);
+    new CreateDB(NAME + '4', FILE).execute(CONTEXT);
+    assertEquals(exp, new XQuery(QUERY).execute(CONTEXT));
+
+    for(final String f : FILES) {
+      final String n = f + IO.BASEXSUFFIX;
+      final File f1 = new File(CONTEXT.prop.dbpath(NAME + '1'), n);
+      final File f4 = new File(CONTEXT.prop.dbpath(NAME + '4'), n);
+      assertEquals(f, f1.exists(), f4.exists());
+      if(f1.exists()) assertTrue(f, Arrays.equals(read(f1), read(f4)));
+    }
+  }
+
+  /**
+   * Reads the contents of the specified file.
+   * @param file file
+   * @return contents
+   * @throws IOException I/O exception
+   */
+  private static byte[] read(final File file) throws IOException {
+    return IO.get(file.getPath()).content();
+  }
+}
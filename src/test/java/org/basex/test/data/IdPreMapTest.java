@@ -0,0 +1,115 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.Data;
+import org.basex.data.IdPreMap;
+import org.basex.util.IntList;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * This class tests the id/pre mapping.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class IdPreMapTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(IdPreMapTest.class);
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Number of update operations. */
+  private static final int ITERATIONS = 2000;
+  /** Random number generator. */
+  private final Random rnd = new Random(0);
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares random inserts and deletes with a simple list of ids.
+   */
+  @Test
+  public void update() {
+    final IntList list = new IntList();
+    for(int i = 0; i < 100; ++i) list.add(i);
+    final IdPreMap map = new IdPreMap(list.size());
+    int id = list.size();
+
+    for(int i = 0; i < ITERATIONS; ++i) {
+      final int s = list.size();
+      if(s == 0 || rnd.nextBoolean()) {
+        final int pre = rnd.nextInt(s + 1), c = rnd.nextInt(5) + 1;
+        final IntList l = new IntList();
+        for(int p = 0; p < pre; ++p) l.add(list.get(p));
+        for(int n = 0; n < c; ++n) l.add(id + n);
+        for(int p = pre; p < s; ++p) l.add(list.get(p));
+        map.insert(pre, id, c);
+        list.reset();
+        for(int p = 0; p < l.size(); ++p) list.add(l.get(p));
+        id += c;
+      } else {
+        final int pre = rnd.nextInt(s);
+        final int c = Math.min(s - pre, rnd.nextInt(5) + 1);
+        final IntList l = new IntList();
+        for(int p = 0; p < s; ++p) {
+          if(p < pre || p >= pre + c) l.add(list.get(p));
+        }
+        map.delete(pre, c);
+        list.reset();
+        for(int p = 0; p < l.size(); ++p) list.add(l.get(p));
+      }
+      final int[] pres = new int[id];
+      for(int p = 0; p < id; ++p) pres[p] = -1;
+      for(int p = 0; p < list.size(); ++p) pres[list.get(p)] = p;
+      for(int p = 0; p < id; ++p) assertEquals(pres[p], map.pre(p));
+    }
+  }
+
+  /**
+   * Checks the mapping of an updated database, and after reopening it.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void database() throws BaseXException {
+    new CreateDB(NAME, "<x><a/><b>t</b></x>").execute(CONTEXT);
+    for(int i = 0; i < 50; ++i) {
+      final String upd = i % 3 == 2 ? "delete node (//c)[1]" :
+        "insert node <c n='" + i + "'><d/></c> into (//*)[" +
+        (rnd.nextInt(4) + 1) + "]";
+      new XQuery(upd).execute(CONTEXT);
+      check();
+    }
+    new Close().execute(CONTEXT);
+    new Open(NAME).execute(CONTEXT);
+    check();
+    assertEquals("1", new XQuery("count(db:open-id('" + NAME + "', " +
+        CONTEXT.data.id(3) + "))").execute(CONTEXT));
+  }
+
+  /**
+   * Checks if all ids of the opened database are mapped to their pre values.
+   */
+  private void check() {
+    final Data data = CONTEXT.data;
+    for(int p = 0; p < data.meta.size; ++p) {
+      assertEquals(p, data.pre(data.id(p)));
+    }
+  }
+}
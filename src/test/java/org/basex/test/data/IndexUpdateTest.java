@@ -0,0 +1,316 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.Optimize;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.Data;
+import org.basex.data.DataText;
+import org.basex.index.IndexIterator;
+import org.basex.index.IndexToken;
+import org.basex.index.IndexToken.IndexType;
+import org.basex.index.RangeToken;
+import org.basex.index.ValuesToken;
+import org.basex.query.QueryText;
+import org.basex.util.IntList;
+import org.basex.util.Token;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the incremental update of the value indexes.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexUpdateTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(IndexUpdateTest.class);
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Number of update operations. */
+  private static final int ITERATIONS = 100;
+  /** Random number generator. */
+  private final Random rnd = new Random(0);
+
+  /**
+   * Creates the test database.
+   */
+  @BeforeClass
+  public static void init() {
+    CONTEXT.prop.set(Prop.TEXTINDEX, true);
+    CONTEXT.prop.set(Prop.ATTRINDEX, true);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    CONTEXT.close();
+  }
+
+  /**
+   * Runs random updates and compares the index results with the table.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    new CreateDB(NAME, "<x><a v='1'>1</a><b v='2'>2</b><a v='3'>3</a>" +
+        "<c v='-1.5'>x</c><c v='1e0'>2.0</c></x>").
+      execute(CONTEXT);
+    for(int i = 0; i < ITERATIONS; ++i) {
+      final int v = rnd.nextInt(5);
+      final String upd;
+      switch(rnd.nextInt(4)) {
+        case 0:
+          upd = "delete node (//*[text()])[" + (rnd.nextInt(3) + 1) + "]";
+          break;
+        case 1:
+          upd = "for $n in (//text())[last()] " +
+            "return replace value of node $n with '" + v + "'";
+          break;
+        case 2:
+          upd = "for $n in (//@v)[1] " +
+            "return replace value of node $n with '" + v + "'";
+          break;
+        default:
+          upd = "insert node <a v='" + v + "'>" + v + "</a> into " +
+            "(//*)[min((" + (rnd.nextInt(3) + 1) + ", last()))]";
+      }
+      new XQuery(upd).execute(CONTEXT);
+      check();
+      if(i % 20 == 0) {
+        new Close().execute(CONTEXT);
+        new Open(NAME).execute(CONTEXT);
+        check();
+      }
+    }
+    assertTrue(CONTEXT.data.meta.textindex);
+    assertTrue(CONTEXT.data.meta.attrindex);
+    new Optimize().execute(CONTEXT);
+    check();
+  }
+
+  /**
+   * Checks if the indexes are still used for rewriting queries after updates.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void rewrite() throws BaseXException {
+    new CreateDB(NAME, "<x><a v='1'>1</a><b v='1'>1</b><a v='2'>2</a></x>").
+      execute(CONTEXT);
+    final String[] updates = {
+      "insert node <a v='1'>1</a> into /x",
+      "replace value of node (//a/text())[. = '2'] with '1'",
+      "replace value of node (//a/@v)[. = '2'] with '1'",
+      "rename node /x/b as 'a'",
+      "delete node (//a)[1]"
+    };
+    for(final String upd : updates) {
+      new XQuery(upd).execute(CONTEXT);
+      assertFalse(upd, CONTEXT.data.meta.uptodate);
+      rewrite(upd, "//a[text() = '1']/text()", QueryText.OPTTXTINDEX,
+          Data.TEXT);
+      rewrite(upd, "//a[@v = '1']/@v", QueryText.OPTATVINDEX, Data.ATTR);
+    }
+  }
+
+  /**
+   * Checks if the range index is still used after updates, and if it is
+   * skipped as soon as non-numeric values have been added.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void range() throws BaseXException {
+    new CreateDB(NAME, "<x><a v='1'>1</a><a v='5'>5</a><b>50</b></x>").
+      execute(CONTEXT);
+    final String text =
+      "for $a in //a[text() >= 2 and text() <= 200] return string($a)";
+    final String attr =
+      "for $a in //a[@v >= 2 and @v <= 200] return string($a/@v)";
+
+    new XQuery("insert node <a v='20'>20</a> into /x").execute(CONTEXT);
+    range(text, "5 20");
+    range(attr, "5 20");
+    new XQuery("replace value of node (//a)[1]/text() with '100'").
+      execute(CONTEXT);
+    new XQuery("replace value of node (//a)[1]/@v with '100'").
+      execute(CONTEXT);
+    range(text, "100 5 20");
+    range(attr, "100 5 20");
+    new XQuery("rename node //b as 'a'").execute(CONTEXT);
+    range(text, "100 5 50 20");
+    new XQuery("delete node (//a)[1]").execute(CONTEXT);
+    range(text, "5 50 20");
+
+    // non-numeric values: index must not be applied
+    new XQuery("insert node <a v='x'>x</a> into /x").execute(CONTEXT);
+    for(final String q : new String[] { text, attr }) {
+      try {
+        new XQuery(q).execute(CONTEXT);
+        fail("Error expected: " + q);
+      } catch(final BaseXException ex) {
+        assertTrue(ex.getMessage().contains("FORG0001"));
+      }
+    }
+  }
+
+  /**
+   * Runs the specified range query and checks if the range index is applied.
+   * @param query query
+   * @param exp expected result
+   * @throws BaseXException database exception
+   */
+  private void range(final String query, final String exp)
+      throws BaseXException {
+    final XQuery xq = new XQuery(query);
+    CONTEXT.prop.set(Prop.QUERYINFO, true);
+    try {
+      assertEquals(exp, xq.execute(CONTEXT));
+    } finally {
+      CONTEXT.prop.set(Prop.QUERYINFO, false);
+    }
+    assertTrue(query, xq.info().contains(QueryText.OPTRNGINDEX));
+  }
+
+  /**
+   * Checks if the update state is merged into the index after a large number
+   * of updates.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void merge() throws BaseXException {
+    new CreateDB(NAME, "<x><a v='1'>1</a></x>").execute(CONTEXT);
+    new XQuery("insert node <a v='2'>2</a> into /x").execute(CONTEXT);
+    assertTrue(state());
+
+    new XQuery("insert node (for $i in 1 to 5000 return " +
+        "<a v='{ $i mod 5 }'>{ $i mod 5 }</a>) into /x").execute(CONTEXT);
+    assertFalse(state());
+    assertTrue(CONTEXT.data.meta.textindex);
+    assertTrue(CONTEXT.data.meta.attrindex);
+    check();
+    new XQuery("delete node //a[text() = '3']").execute(CONTEXT);
+    check();
+  }
+
+  /**
+   * Checks if an update state exists for the text index.
+   * @return result of check
+   * @throws BaseXException database exception
+   */
+  private static boolean state() throws BaseXException {
+    // write back journaled files
+    new Close().execute(CONTEXT);
+    new Open(NAME).execute(CONTEXT);
+    return CONTEXT.data.meta.file(DataText.DATATXT + 'd').exists();
+  }
+
+  /**
+   * Runs the specified query, checks if the index is applied and compares
+   * the result with the matching nodes in the table.
+   * @param upd last update
+   * @param query query
+   * @param info expected query info
+   * @param kind node kind
+   * @throws BaseXException database exception
+   */
+  private void rewrite(final String upd, final String query,
+      final String info, final int kind) throws BaseXException {
+
+    final Data data = CONTEXT.data;
+    final IntList exp = new IntList();
+    for(int p = 0; p < data.meta.size; ++p) {
+      final int par = data.parent(p, data.kind(p));
+      if(data.kind(p) == kind && Token.eq(data.text(p, kind == Data.TEXT),
+          Token.token(1)) && Token.eq(data.name(par, Data.ELEM),
+          Token.token("a"))) exp.add(p);
+    }
+    final StringBuilder sb = new StringBuilder();
+    for(int e = 0; e < exp.size(); ++e) {
+      if(e != 0) sb.append(' ');
+      sb.append(exp.get(e));
+    }
+
+    final XQuery xq = new XQuery("db:node-pre(" + query + ")");
+    CONTEXT.prop.set(Prop.QUERYINFO, true);
+    try {
+      assertEquals(upd, sb.toString(), xq.execute(CONTEXT));
+    } finally {
+      CONTEXT.prop.set(Prop.QUERYINFO, false);
+    }
+    assertTrue(upd, xq.info().contains(info));
+  }
+
+  /**
+   * Compares the index results with the values in the table.
+   */
+  private void check() {
+    for(int v = 0; v < 5; ++v) {
+      final byte[] tok = Token.token(v);
+      check(new ValuesToken(IndexType.TEXT, tok), Data.TEXT, tok);
+      check(new ValuesToken(IndexType.ATTRIBUTE, tok), Data.ATTR, tok);
+      check(new RangeToken(true, v, v + 1), Data.TEXT);
+      check(new RangeToken(false, v - 1, v), Data.ATTR);
+    }
+  }
+
+  /**
+   * Compares the index results for the specified range with the table.
+   * @param rt range token
+   * @param kind node kind
+   */
+  private void check(final RangeToken rt, final int kind) {
+    final Data data = CONTEXT.data;
+    final IntList exp = new IntList();
+    for(int p = 0; p < data.meta.size; ++p) {
+      if(data.kind(p) != kind) continue;
+      final double d = data.textDbl(p, kind == Data.TEXT);
+      if(d >= rt.min && d <= rt.max) exp.add(p);
+    }
+    check(rt, exp);
+  }
+
+  /**
+   * Compares the index results for the specified token with the table.
+   * @param it index token
+   * @param kind node kind
+   * @param tok token
+   */
+  private void check(final IndexToken it, final int kind, final byte[] tok) {
+    final Data data = CONTEXT.data;
+    final IntList exp = new IntList();
+    for(int p = 0; p < data.meta.size; ++p) {
+      if(data.kind(p) == kind &&
+          Token.eq(data.text(p, kind == Data.TEXT), tok)) exp.add(p);
+    }
+    check(it, exp);
+  }
+
+  /**
+   * Compares the index results for the specified token with the expected
+   * pre values.
+   * @param it index token
+   * @param exp expected pre values
+   */
+  private void check(final IndexToken it, final IntList exp) {
+    final Data data = CONTEXT.data;
+    final IntList res = new IntList();
+    final IndexIterator ii = data.ids(it);
+    while(ii.more()) res.add(ii.next());
+    assertEquals(exp.toString(), res.toString());
+    assertTrue(data.nrIDs(it) >= exp.size());
+  }
+}
@@ -0,0 +1,157 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.RandomAccessFile;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.io.IO;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests the recovery of databases from the write-ahead journal.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class JournalTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(JournalTest.class);
+  /** Name of the recovered database. */
+  private static final String COPY = NAME + "Copy";
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Test query. */
+  private static final String QUERY =
+    "count(//b), count(//b[text() = 'x50']), string(/a/@n)";
+
+  /**
+   * Creates the test database and performs two updates.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void create() throws BaseXException {
+    new CreateDB(NAME, "<a n='0'/>").execute(CONTEXT);
+    new XQuery("for $i in 1 to 100 return " +
+        "insert node <b>x{ $i }</b> into /a").execute(CONTEXT);
+    new XQuery("(insert node <b>x50</b> into /a, " +
+        "replace value of node /a/@n with 'n')").execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void drop() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    new DropDB(COPY).execute(CONTEXT);
+  }
+
+  /**
+   * Closes the database context.
+   */
+  @AfterClass
+  public static void finish() {
+    CONTEXT.close();
+  }
+
+  /**
+   * Checks if committed updates are replayed.
+   * @throws Exception exception
+   */
+  @Test
+  public void replay() throws Exception {
+    final String exp = new XQuery(QUERY).execute(CONTEXT);
+    assertEquals("101 2 n", exp);
+    crash(0);
+    assertEquals(exp, new XQuery(QUERY).execute(CONTEXT));
+  }
+
+  /**
+   * Checks if an incomplete record at the end of the journal is discarded.
+   * @throws Exception exception
+   */
+  @Test
+  public void tornRecord() throws Exception {
+    final String exp = new XQuery(QUERY).execute(CONTEXT);
+    crash(-1);
+    assertEquals(exp, new XQuery(QUERY).execute(CONTEXT));
+  }
+
+  /**
+   * Checks if an incomplete transaction is discarded.
+   * @throws Exception exception
+   */
+  @Test
+  public void incomplete() throws Exception {
+    crash(1);
+    assertEquals("100 1 0", new XQuery(QUERY).execute(CONTEXT));
+  }
+
+  /**
+   * Checks if the journal is deleted when the database is closed.
+   * @throws Exception exception
+   */
+  @Test
+  public void close() throws Exception {
+    final String exp = new XQuery(QUERY).execute(CONTEXT);
+    assertTrue(journal(NAME).exists());
+    new Close().execute(CONTEXT);
+    assertFalse(journal(NAME).exists());
+    new Open(NAME).execute(CONTEXT);
+    assertEquals(exp, new XQuery(QUERY).execute(CONTEXT));
+  }
+
+  /**
+   * Simulates a crash by copying the files of the opened database,
+   * and opens the copy.
+   * @param cut number of bytes to be removed from the end of the journal;
+   * if negative, an incomplete record will be appended
+   * @throws Exception exception
+   */
+  private void crash(final int cut) throws Exception {
+    final File src = CONTEXT.prop.dbpath(NAME);
+    final File trg = CONTEXT.prop.dbpath(COPY);
+    trg.mkdirs();
+    for(final File f : src.listFiles()) {
+      new File(trg, f.getName()).delete();
+      final byte[] data = IO.get(f.getPath()).content();
+      final RandomAccessFile out =
+        new RandomAccessFile(new File(trg, f.getName()), "rw");
+      out.write(data);
+      out.close();
+    }
+    final File jrn = journal(COPY);
+    assertTrue(jrn.exists());
+    final RandomAccessFile ra = new RandomAccessFile(jrn, "rw");
+    if(cut > 0) {
+      ra.setLength(ra.length() - cut);
+    } else if(cut < 0) {
+      ra.seek(ra.length());
+      ra.write(new byte[] { 1, 0, 3, 't' });
+    }
+    ra.close();
+
+    new Open(COPY).execute(CONTEXT);
+    assertFalse(jrn.exists());
+  }
+
+  /**
+   * Returns the journal file of the specified database.
+   * @param db name of the database
+   * @return file
+   */
+  private static File journal(final String db) {
+    return new File(CONTEXT.prop.dbpath(db), "jrn" + IO.BASEXSUFFIX);
+  }
+}
@@ -0,0 +1,153 @@
+package org.basex.test.io;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.basex.core.Prop;
+import org.basex.io.DataAccess;
+import org.basex.io.IO;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests the replacement strategy and the shared memory budget
+ * of the block buffers.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class BuffersTest {
+  /** Test file. */
+  private static final File FILE =
+    new File(Prop.TMP + Util.name(BuffersTest.class));
+  /** Number of blocks in the test file. */
+  private static final int BLOCKS = 64;
+  /** Number of shared buffers in the memory budget. */
+  private static final int SHARED = 16;
+
+  /**
+   * Creates the test file.
+   * @throws IOException I/O exception
+   */
+  @Before
+  public void setUp() throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(FILE, "rw");
+    for(int b = 0; b < BLOCKS; ++b) {
+      raf.seek((long) b * IO.BLOCKSIZE);
+      raf.write(b);
+    }
+    raf.setLength((long) BLOCKS * IO.BLOCKSIZE);
+    raf.close();
+  }
+
+  /**
+   * Deletes the test file.
+   */
+  @After
+  public void tearDown() {
+    FILE.delete();
+  }
+
+  /**
+   * Tests the order in which buffers are replaced: blocks that have been read
+   * only once are replaced first, whereas blocks that are requested again
+   * after their replacement survive a subsequent scan.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void evictionOrder() throws IOException {
+    // instance with the minimum number of four buffers
+    final DataAccess da = new DataAccess(FILE);
+    for(int b = 0; b < 4; ++b) read(da, b);
+    long[] st = stats(da);
+    assertEquals(4, st[1]);
+    assertEquals(0, st[2]);
+
+    // first block is the oldest one in the FIFO queue and will be replaced
+    read(da, 4);
+    for(int b = 4; b > 0; --b) read(da, b);
+    st = stats(da);
+    assertEquals(5, st[1]);
+    assertEquals(1, st[2]);
+    read(da, 0);
+    assertEquals(6, stats(da)[1]);
+
+    // block 0 has been requested again: a scan will not replace it
+    for(int b = 5; b < BLOCKS; ++b) read(da, b);
+    st = stats(da);
+    read(da, 0);
+    final long[] st2 = stats(da);
+    assertEquals(st[0] + 1, st2[0]);
+    assertEquals(st[1], st2[1]);
+
+    // blocks of the scan have been replaced
+    read(da, 5);
+    assertEquals(st[1] + 1, stats(da)[1]);
+    da.close();
+  }
+
+  /**
+   * Tests that buffers are returned to the shared memory budget when a file
+   * is closed.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void budget() throws IOException {
+    final Prop prop = new Prop(false);
+    prop.set(Prop.BUFFERSIZE, SHARED * IO.BLOCKSIZE / 1024);
+
+    // first instance allocates all shared buffers
+    final DataAccess da1 = new DataAccess(FILE, prop);
+    for(int b = 0; b < BLOCKS; ++b) read(da1, b);
+    assertEquals(0, misses(da1, SHARED));
+
+    // second instance only has its minimum number of buffers
+    final DataAccess da2 = new DataAccess(FILE, prop);
+    assertTrue(misses(da2, SHARED) > 0);
+    da2.close();
+
+    // closed instance returns its buffers to the budget
+    da1.close();
+    final DataAccess da3 = new DataAccess(FILE, prop);
+    assertEquals(0, misses(da3, SHARED));
+    da3.close();
+  }
+
+  /**
+   * Reads the specified number of blocks twice and returns the number of
+   * misses of the second pass.
+   * @param da data access
+   * @param n number of blocks
+   * @return number of misses
+   */
+  private static long misses(final DataAccess da, final int n) {
+    for(int b = 0; b < n; ++b) read(da, b);
+    final long m = stats(da)[1];
+    for(int b = 0; b < n; ++b) read(da, b);
+    return stats(da)[1] - m;
+  }
+
+  /**
+   * Reads the first byte of the specified block and checks its value.
+   * @param da data access
+   * @param b block
+   */
+  private static void read(final DataAccess da, final int b) {
+    da.cursor((long) b * IO.BLOCKSIZE);
+    assertEquals(b, da.read1());
+  }
+
+  /**
+   * Returns the buffer statistics.
+   * @param da data access
+   * @return hits, misses and evictions
+   */
+  private static long[] stats(final DataAccess da) {
+    final long[] st = new long[3];
+    da.stats(st);
+    return st;
+  }
+}
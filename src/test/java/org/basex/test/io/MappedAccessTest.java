@@ -0,0 +1,130 @@
+package org.basex.test.io;
+
+import static org.junit.Assert.*;
+import static org.basex.util.Token.*;
+import java.io.File;
+import java.io.IOException;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.io.DataAccess;
+import org.basex.io.IO;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * This class tests the memory-mapped read path and the switch to buffered
+ * access after data has been written.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class MappedAccessTest {
+  /** Test name. */
+  private static final String NAME = Util.name(MappedAccessTest.class);
+  /** Test file. */
+  private static final File FILE = new File(Prop.TMP + NAME);
+  /** Test tokens. */
+  private static final byte[][] TOKENS = {
+    token("abc"), EMPTY, new byte[IO.BLOCKSIZE * 3 + 17], token("xyz")
+  };
+
+  /**
+   * Deletes the test file.
+   */
+  @After
+  public void tearDown() {
+    FILE.delete();
+  }
+
+  /**
+   * Reads tokens from a mapped file before and after it has been written.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void tokens() throws IOException {
+    final long[] pos = new long[TOKENS.length + 1];
+    DataAccess da = new DataAccess(FILE);
+    for(int t = 0; t < TOKENS.length; ++t) {
+      pos[t] = da.length();
+      da.writeBytes(pos[t], TOKENS[t]);
+    }
+    da.close();
+
+    final Prop prop = new Prop(false);
+    prop.set(Prop.MAPPED, true);
+    da = new DataAccess(FILE, prop);
+    for(int t = 0; t < TOKENS.length; ++t) {
+      assertTrue(eq(TOKENS[t], da.readToken(pos[t])));
+      assertTrue(eq(TOKENS[t], da.token(pos[t])));
+    }
+
+    // writing switches to buffered access
+    final byte[] tok = token("new");
+    pos[TOKENS.length] = da.length();
+    da.writeBytes(pos[TOKENS.length], tok);
+    for(int t = 0; t < TOKENS.length; ++t) {
+      assertTrue(eq(TOKENS[t], da.readToken(pos[t])));
+      assertTrue(eq(TOKENS[t], da.token(pos[t])));
+    }
+    assertTrue(eq(tok, da.token(pos[TOKENS.length])));
+    da.close();
+
+    // written data is persistent
+    da = new DataAccess(FILE, prop);
+    assertTrue(eq(tok, da.token(pos[TOKENS.length])));
+    assertTrue(eq(TOKENS[2], da.token(pos[2])));
+    da.close();
+  }
+
+  /**
+   * Queries and updates a database whose files are mapped into memory.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void database() throws BaseXException {
+    final Context ctx = new Context();
+    ctx.prop.set(Prop.MAPPED, true);
+    ctx.prop.set(Prop.TEXTINDEX, true);
+    ctx.prop.set(Prop.ATTRINDEX, true);
+    try {
+      new CreateDB(NAME, "<a><b id='1'>x</b><b id='2'>y</b></a>").
+        execute(ctx);
+      new Close().execute(ctx);
+      new Open(NAME).execute(ctx);
+      assertEquals("x,y", query("string-join(//b, ',')", ctx));
+      assertEquals("2", query("//b[text() = 'y']/@id/string()", ctx));
+
+      query("insert node <b id='3'>z</b> into /a", ctx);
+      query("replace value of node //b[1]/text() with 'w'", ctx);
+      assertEquals("w,y,z", query("string-join(//b, ',')", ctx));
+      assertEquals("3", query("//b[text() = 'z']/@id/string()", ctx));
+      assertEquals("w", query("//b[@id = '1']/text()/string()", ctx));
+
+      new Close().execute(ctx);
+      new Open(NAME).execute(ctx);
+      assertEquals("w,y,z", query("string-join(//b, ',')", ctx));
+    } finally {
+      new DropDB(NAME).execute(ctx);
+      ctx.close();
+    }
+  }
+
+  /**
+   * Runs the specified query.
+   * @param qu query
+   * @param ctx database context
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String qu, final Context ctx)
+      throws BaseXException {
+    return new XQuery(qu).execute(ctx);
+  }
+}
@@ -0,0 +1,296 @@
+package org.basex.test.query;
+
+import static org.junit.Assert.*;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Add;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * This class tests the evaluation of full-text queries with large posting
+ * lists, which are skipped via the index.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class FTIndexTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(FTIndexTest.class);
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Number of appended documents. */
+  private static final int ADD = 8;
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "//a[text() contains text 'foo']",
+    "//a[text() contains text 'foo' ftand 'bar']",
+    "//a[text() contains text 'qux' ftand 'bar' ftand 'foo']",
+    "//a[text() contains text 'foo bar']",
+    "//a[text() contains text 'bar qux baz']",
+    "//a[text() contains text 'foo' ftand ftnot 'qux']",
+    "//a[text() contains text 'foo' not in 'foo bar']",
+    "//a[text() contains text { 'quux', 'qux' } all]",
+    "//a[text() contains text 'qux' ftor 'bar']",
+    "//a[text() contains text 'foo baz' all words window 3 words]",
+    "//a[text() contains text 'baz bar qux' all words window 4 words]",
+    "//a[text() contains text 'foo' ftand 'baz' window 4 words]",
+    "//a[text() contains text 'bar baz' all words ordered]",
+    "(//a[text() contains text 'qux' ftand 'quux'])[1]",
+    "//a[text() contains text 'quuz' using fuzzy]",
+    "//a[text() contains text 'bazar' using fuzzy]",
+    "//a[text() contains text 'fo' using fuzzy]",
+    "//a[text() contains text '.*ux' using wildcards]",
+    "//a[text() contains text '.+ar' using wildcards]",
+    "//a[text() contains text '.?u.x' using wildcards]",
+    "//a[text() contains text '.{1,2}ob.*' using wildcards]",
+    "//a[text() contains text '.*a.*' using wildcards]",
+    "//a[text() contains text '.*zz' using wildcards]",
+    "//a[text() contains text 'f.o.a.' using wildcards]",
+    "//a[text() contains text 'b.{0,3}r' using wildcards]",
+    "//a[text() contains text 'fo\\o.*' using wildcards]",
+    "//a[text() contains text '.*' using wildcards]"
+  };
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void drop() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+  }
+
+  /**
+   * Closes the database context.
+   */
+  @AfterClass
+  public static void finish() {
+    CONTEXT.prop.set(Prop.FTINDEX, false);
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares the results of the fuzzy index.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void fuzzy() throws BaseXException {
+    compare();
+  }
+
+  /**
+   * Compares the results of the index with scoring.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void scoring() throws BaseXException {
+    CONTEXT.prop.set(Prop.SCORING, 1);
+    try {
+      compare();
+    } finally {
+      CONTEXT.prop.set(Prop.SCORING, 0);
+    }
+  }
+
+  /**
+   * Compares the results of the wildcard index.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void wildcards() throws BaseXException {
+    CONTEXT.prop.set(Prop.WILDCARDS, true);
+    try {
+      compare();
+    } finally {
+      CONTEXT.prop.set(Prop.WILDCARDS, false);
+    }
+  }
+
+  /**
+   * Compares the results of indexes that have been updated with appended
+   * documents, which are stored in separate index segments.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void segments() throws BaseXException {
+    for(final boolean wc : new boolean[] { false, true }) {
+      CONTEXT.prop.set(Prop.WILDCARDS, wc);
+      try {
+        final String[][] exp = new String[ADD][QUERIES.length];
+        CONTEXT.prop.set(Prop.FTINDEX, false);
+        new CreateDB(NAME, doc(1, 5000)).execute(CONTEXT);
+        for(int a = 0; a < ADD; ++a) {
+          add(a);
+          for(int q = 0; q < QUERIES.length; ++q) {
+            exp[a][q] = query("db:node-pre(" + QUERIES[q] + ")");
+          }
+        }
+
+        CONTEXT.prop.set(Prop.FTINDEX, true);
+        new CreateDB(NAME, doc(1, 5000)).execute(CONTEXT);
+        for(int a = 0; a < ADD; ++a) {
+          add(a);
+          // reopen database to read the segments from disk
+          if(a % 3 == 2) {
+            new Close().execute(CONTEXT);
+            new Open(NAME).execute(CONTEXT);
+          }
+          for(int q = 0; q < QUERIES.length; ++q) {
+            final String in = QUERIES[q] + " (" + a + ")";
+            final XQuery xq = new XQuery("db:node-pre(" + QUERIES[q] + ")");
+            CONTEXT.prop.set(Prop.QUERYINFO, true);
+            assertEquals(in, exp[a][q], xq.execute(CONTEXT));
+            CONTEXT.prop.set(Prop.QUERYINFO, false);
+            if(q == 0) assertTrue(in, xq.info().contains("index"));
+          }
+        }
+      } finally {
+        CONTEXT.prop.set(Prop.QUERYINFO, false);
+        CONTEXT.prop.set(Prop.WILDCARDS, false);
+      }
+    }
+  }
+
+  /**
+   * Compares the nodes with the highest scores, which are retrieved from the
+   * index, with the first results of a complete sort.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void topk() throws BaseXException {
+    CONTEXT.prop.set(Prop.FTINDEX, true);
+    CONTEXT.prop.set(Prop.SCORING, 2);
+    try {
+      new CreateDB(NAME, doc(1, 5000)).execute(CONTEXT);
+      final String[] inputs = {
+        "//a[text() contains text 'foo']",
+        "//a[text() contains text 'qux' ftor 'bar' ftor 'quux']",
+        "ft:search(db:open('" + NAME + "'), 'bar')",
+        "ft:search(db:open('" + NAME + "'), 'nope')"
+      };
+      for(final String in : inputs) {
+        for(final int k : new int[] { 1, 10, 1000 }) {
+          final String q = "db:node-pre((for $n score $s in " + in +
+            " order by $s descending%s return $n)[position() <= " + k + "])";
+          // second order key: all results will be sorted
+          final String exp = query(String.format(q, ", 1"));
+          final XQuery xq = new XQuery(String.format(q, ""));
+          CONTEXT.prop.set(Prop.QUERYINFO, true);
+          assertEquals(in, exp, xq.execute(CONTEXT));
+          CONTEXT.prop.set(Prop.QUERYINFO, false);
+          assertTrue(in, xq.info().contains("highest scores"));
+        }
+      }
+    } finally {
+      CONTEXT.prop.set(Prop.QUERYINFO, false);
+      CONTEXT.prop.set(Prop.SCORING, 0);
+    }
+  }
+
+  /**
+   * Checks that the index results are not limited if a tuple may yield
+   * no or more than one item.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void topkEmpty() throws BaseXException {
+    CONTEXT.prop.set(Prop.FTINDEX, true);
+    CONTEXT.prop.set(Prop.SCORING, 2);
+    try {
+      new CreateDB(NAME, doc(1, 5000)).execute(CONTEXT);
+      final String in = "ft:search(db:open('" + NAME + "'), 'foo')";
+      final String[] rets = {
+        "$n/..[@id = '1']", "$n[db:node-pre(.) mod 3 = 0]", "($n, $n)"
+      };
+      for(final String ret : rets) {
+        final String q = "count(subsequence(for $n in " + in +
+          " order by ft:score($n) descending%s return " + ret + ", 1, 5))";
+        final String exp = query(String.format(q, ", 1"));
+        final XQuery xq = new XQuery(String.format(q, ""));
+        CONTEXT.prop.set(Prop.QUERYINFO, true);
+        assertEquals(ret, exp, xq.execute(CONTEXT));
+        CONTEXT.prop.set(Prop.QUERYINFO, false);
+        assertFalse(ret, xq.info().contains("highest scores"));
+      }
+    } finally {
+      CONTEXT.prop.set(Prop.QUERYINFO, false);
+      CONTEXT.prop.set(Prop.SCORING, 0);
+    }
+  }
+
+  /**
+   * Compares the results of all queries with and without index.
+   * @throws BaseXException database exception
+   */
+  private static void compare() throws BaseXException {
+    final String[] exp = new String[QUERIES.length];
+    CONTEXT.prop.set(Prop.FTINDEX, false);
+    new CreateDB(NAME, doc(1, 5000)).execute(CONTEXT);
+    for(int q = 0; q < QUERIES.length; ++q) {
+      exp[q] = query("db:node-pre(" + QUERIES[q] + ")");
+    }
+
+    CONTEXT.prop.set(Prop.FTINDEX, true);
+    new CreateDB(NAME, doc(1, 5000)).execute(CONTEXT);
+    for(int q = 0; q < QUERIES.length; ++q) {
+      final XQuery xq = new XQuery("db:node-pre(" + QUERIES[q] + ")");
+      assertEquals(QUERIES[q], exp[q], xq.execute(CONTEXT));
+    }
+    // check if index is used
+    final XQuery xq = new XQuery(QUERIES[0]);
+    CONTEXT.prop.set(Prop.QUERYINFO, true);
+    xq.execute(CONTEXT);
+    CONTEXT.prop.set(Prop.QUERYINFO, false);
+    assertTrue(xq.info().contains("index"));
+  }
+
+  /**
+   * Returns the result of the specified query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String query) throws BaseXException {
+    return new XQuery(query).execute(CONTEXT);
+  }
+
+  /**
+   * Appends a document to the database.
+   * @param a number of the document
+   * @throws BaseXException database exception
+   */
+  private static void add(final int a) throws BaseXException {
+    final int s = 5001 + a * 500;
+    new Add(doc(s, s + 499), "add" + a + ".xml").execute(CONTEXT);
+  }
+
+  /**
+   * Creates a document with tokens of different frequencies.
+   * @param s first number
+   * @param e last number
+   * @return document
+   */
+  private static String doc(final int s, final int e) {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = s; i <= e; ++i) {
+      sb.append("<a>");
+      if(i % 2 == 0) sb.append("foo ");
+      if(i % 3 == 0) sb.append("bar ");
+      if(i % 7 == 0) sb.append("qux ");
+      if(i % 997 == 0) sb.append("quux ");
+      if(i % 5 == 0) sb.append("foobar ");
+      if(i % 13 == 0) sb.append("bazaar ");
+      sb.append("baz</a>");
+    }
+    return sb.append("</x>").toString();
+  }
+}
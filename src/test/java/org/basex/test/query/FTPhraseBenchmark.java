@@ -0,0 +1,75 @@
+package org.basex.test.query;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.util.Performance;
+import org.basex.util.Util;
+
+/**
+ * This class measures the evaluation times of the {@link FTPhraseTest}
+ * queries with and without full-text index. It is not part of the unit
+ * tests and can be run from the command line; the optional argument
+ * specifies the number of document copies.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class FTPhraseBenchmark {
+  /** Test database name. */
+  private static final String NAME = Util.name(FTPhraseBenchmark.class);
+  /** Default number of document copies. */
+  private static final int COPIES = 20000;
+  /** Number of runs per query. */
+  private static final int RUNS = 5;
+
+  /** Private constructor. */
+  private FTPhraseBenchmark() { }
+
+  /**
+   * Main method.
+   * @param args command-line arguments
+   * @throws BaseXException database exception
+   */
+  public static void main(final String[] args) throws BaseXException {
+    final String doc = FTPhraseTest.doc(
+        args.length > 0 ? Integer.parseInt(args[0]) : COPIES);
+    final String[] qu = FTPhraseTest.QUERIES;
+    final String[] seq = new String[qu.length];
+    final Context ctx = new Context();
+    try {
+      ctx.prop.set(Prop.FTINDEX, false);
+      new CreateDB(NAME, doc).execute(ctx);
+      for(int q = 0; q < qu.length; ++q) seq[q] = time(qu[q], ctx);
+
+      ctx.prop.set(Prop.FTINDEX, true);
+      new CreateDB(NAME, doc).execute(ctx);
+      for(int q = 0; q < qu.length; ++q) {
+        Util.outln(qu[q] + ": " + seq[q] + " (sequential), " +
+            time(qu[q], ctx) + " (index)");
+      }
+    } finally {
+      new DropDB(NAME).execute(ctx);
+      ctx.close();
+    }
+  }
+
+  /**
+   * Returns the average evaluation time of the specified query.
+   * @param query query
+   * @param ctx database context
+   * @return time
+   * @throws BaseXException database exception
+   */
+  private static String time(final String query, final Context ctx)
+      throws BaseXException {
+    final Performance p = new Performance();
+    for(int r = 0; r < RUNS; ++r) {
+      new XQuery("count(" + query + ")").execute(ctx);
+    }
+    return p.getTimer(RUNS);
+  }
+}
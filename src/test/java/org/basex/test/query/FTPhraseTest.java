@@ -0,0 +1,94 @@
+package org.basex.test.query;
+
+import static org.junit.Assert.*;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * This class compares the results of phrase and proximity queries with and
+ * without full-text index. The corpus consists of copies of the
+ * {@link XPathMarkFTTest} document. The evaluation times are measured by
+ * {@link FTPhraseBenchmark}.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class FTPhraseTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(FTPhraseTest.class);
+  /** Number of document copies. */
+  private static final int COPIES = 2000;
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Queries. */
+  static final String[] QUERIES = {
+    "//*[text() contains text 'the letter l is followed']",
+    "//*[text() contains text 'is followed by the letter']",
+    "//*[text() contains text 'happy go lucky man']",
+    "//*[text() contains text 'letter followed by' all words window 4 words]",
+    "//*[text() contains text 'letter' ftand 'followed' distance at most " +
+      "1 words]",
+    "//*[text() contains text 'which is' ftand 'the letter' ordered]",
+    "//*[text() contains text 'letter is nice']"
+  };
+
+  /**
+   * Closes the database context.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    CONTEXT.prop.set(Prop.FTINDEX, false);
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares the results of all queries.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void phrases() throws BaseXException {
+    final String doc = doc(COPIES);
+    final String[] exp = new String[QUERIES.length];
+    CONTEXT.prop.set(Prop.FTINDEX, false);
+    new CreateDB(NAME, doc).execute(CONTEXT);
+    for(int q = 0; q < QUERIES.length; ++q) exp[q] = query(QUERIES[q]);
+
+    CONTEXT.prop.set(Prop.FTINDEX, true);
+    new CreateDB(NAME, doc).execute(CONTEXT);
+    for(int q = 0; q < QUERIES.length; ++q) {
+      assertEquals(QUERIES[q], exp[q], query(QUERIES[q]));
+    }
+  }
+
+  /**
+   * Returns the pre values of the specified query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String query) throws BaseXException {
+    return new XQuery("db:node-pre(" + query + ")").execute(CONTEXT);
+  }
+
+  /**
+   * Creates a document with copies of the XPathMark document.
+   * @param copies number of copies
+   * @return document
+   */
+  static String doc(final int copies) {
+    final String d = XPathMarkFTTest.DOC;
+    final String a = d.substring(d.indexOf("<A "));
+    final StringBuilder sb = new StringBuilder("<X>");
+    for(int i = 0; i < copies; ++i) sb.append(a);
+    return sb.append("</X>").toString();
+  }
+}
@@ -0,0 +1,127 @@
+package org.basex.test.query;
+
+import static org.junit.Assert.*;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.XQuery;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the rewriting of equality joins to hash joins.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class HashJoinTest {
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Outer and inner input. */
+  private static final String INPUT =
+    "let $o := for $i in 1 to 300 return " +
+    "<o cid='{ $i mod 37 }' n='{ $i }'/> " +
+    "let $c := for $i in 0 to 40 return " +
+    "<c id='{ $i }'>{ $i mod 5 }</c> ";
+  /** Join conditions, which will be rewritten to hash joins. */
+  private static final String[] QUERIES = {
+    "$x/@cid = $y/@id",
+    "$y/@id = $x/@cid",
+    "$x/@cid = $y/@id and $x/@n > 100",
+    "$x/@cid = $y/@id and $y = '2'",
+    "$x/@n mod 5 = $y",
+    "xs:integer($x/@cid) = $y/@id",
+    "number($x/@cid) = ($y/@id, $y/@id + 1)",
+    "string($x/@cid) = data($y/@id)",
+    "($x/@cid, 'x') = $y/@id",
+  };
+
+  /**
+   * Enables the query info.
+   */
+  @BeforeClass
+  public static void init() {
+    CONTEXT.prop.set(Prop.QUERYINFO, true);
+  }
+
+  /**
+   * Closes the database context.
+   */
+  @AfterClass
+  public static void finish() {
+    CONTEXT.prop.set(Prop.QUERYINFO, false);
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares the results of join queries with and without hash join.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void join() throws BaseXException {
+    for(final String q : QUERIES) {
+      final XQuery xq = new XQuery(query(q));
+      final String res = xq.execute(CONTEXT);
+      assertTrue(q, xq.info().contains("hash join"));
+
+      // evaluate nested loop, using a where clause that cannot be rewritten
+      final XQuery nl =
+        new XQuery(query("boolean($x) and not(not(" + q + "))"));
+      assertEquals(q, nl.execute(CONTEXT), res);
+      assertFalse(q, nl.info().contains("hash join"));
+    }
+  }
+
+  /**
+   * Checks if join keys of different types are compared correctly.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void types() throws BaseXException {
+    final String query = "let $b := (<b>1</b>, <b>2.0</b>, <b>3</b>, 4, " +
+      "<b>5</b>, 5, 6) for $x in (1, 2.0, 3e0, <a>4</a>, " +
+      "xs:untypedAtomic('5.0'), xs:float(6)) for $y in $b where $x = $y " +
+      "return concat($x, '=', $y)";
+    final XQuery xq = new XQuery(query);
+    assertEquals("1=1 2=2.0 3=3 4=4 5.0=5 6=6", xq.execute(CONTEXT));
+    assertTrue(xq.info().contains("hash join"));
+  }
+
+  /**
+   * Checks if incomparable join keys raise errors.
+   */
+  @Test
+  public void error() {
+    try {
+      new XQuery("for $x in (1, 2) for $y in ('1', '2') " +
+        "where $x = $y return $y").execute(CONTEXT);
+      fail("Error expected.");
+    } catch(final BaseXException ex) {
+      assertTrue(ex.getMessage(), ex.getMessage().contains("XPTY0004"));
+    }
+  }
+
+  /**
+   * Checks if where clauses are not rewritten if the inner clause depends
+   * on the outer clauses.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void dependent() throws BaseXException {
+    final XQuery xq = new XQuery("for $x in 1 to 3 for $y in $x to 3 " +
+      "where $x = $y - 1 return $y");
+    assertEquals("2 3", xq.execute(CONTEXT));
+    assertFalse(xq.info().contains("hash join"));
+  }
+
+  /**
+   * Returns a join query with the specified where clause.
+   * @param where where clause
+   * @return query
+   */
+  private static String query(final String where) {
+    return INPUT + "for $x in $o for $y in $c where " + where +
+      " return concat($x/@n, '-', $y/@id)";
+  }
+}
@@ -0,0 +1,134 @@
+package org.basex.test.query;
+
+import static org.junit.Assert.*;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the parallel evaluation of FLWOR expressions.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelTest {
+  /** Test file. */
+  private static final String FILE = "etc/xml/factbook.zip";
+  /** Test database name. */
+  private static final String NAME = Util.name(ParallelTest.class);
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Queries, which will be evaluated in parallel. */
+  private static final String[] QUERIES = {
+    "for $i in 1 to 10000 return $i * $i",
+    "for $i in 1 to 10000 where $i mod 3 = 0 return string($i)",
+    "for $i in 1 to 1000 for $j in 1 to 3 let $k := $i * $j return $k",
+    "for $c in //country return string-length(replace($c/@name, 'a', 'bb'))",
+    "for $c in //city[name] return ($c/name/text(), count($c/*))",
+    "declare variable $v := 5; for $i in 1 to 1000 return $i + $v",
+    "declare function local:f($i) { $i * 2 }; " +
+      "for $i in 1 to 1000 return local:f($i)",
+    "let $m := max(//city/population) " +
+      "for $c in //city return $c/population = $m",
+    "for $i in 1 to 100 return for $j in 1 to $i return $j",
+  };
+  /** Queries, which will be evaluated sequentially. */
+  private static final String[] SEQUENTIAL = {
+    "for $i at $p in 1 to 100 return $p",
+    "for $i in 1 to 100 return <a>{ $i }</a>",
+    "for $i in 1 to 100 order by -$i return $i",
+    "for $i in 1 to 100 return for $j in 1 to 2 order by $j return $j",
+    "for $i in 1 to 100 return math:random()",
+    "for $i in 1 to 100 return 'a' contains text { 'a' }",
+    "for $i in 1 to 100 return try { $i } catch * { () }",
+    "declare function local:f() { <a/> }; " +
+      "for $i in 1 to 100 return local:f()",
+    "for $i in 1 to 100 return //country[$i]",
+  };
+
+  /**
+   * Creates the test database and enables the parallel evaluation.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    new CreateDB(NAME, FILE).execute(CONTEXT);
+    CONTEXT.prop.set(Prop.QUERYINFO, true);
+    CONTEXT.prop.set(Prop.THREADS, 4);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    CONTEXT.prop.set(Prop.QUERYINFO, false);
+    CONTEXT.prop.set(Prop.THREADS, 0);
+    CONTEXT.prop.set(Prop.PARALLELFLWOR, false);
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares the results of parallel and sequential evaluations.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void parallel() throws BaseXException {
+    for(final String q : QUERIES) {
+      CONTEXT.prop.set(Prop.PARALLELFLWOR, false);
+      final String seq = new XQuery(q).execute(CONTEXT);
+      CONTEXT.prop.set(Prop.PARALLELFLWOR, true);
+      final XQuery xq = new XQuery(q);
+      assertEquals(q, seq, xq.execute(CONTEXT));
+      assertTrue(q, xq.info().contains("in parallel"));
+    }
+  }
+
+  /**
+   * Checks if expressions are evaluated sequentially if they use positional
+   * variables, create nodes, have side effects or store evaluation state.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void sequential() throws BaseXException {
+    CONTEXT.prop.set(Prop.PARALLELFLWOR, true);
+    for(final String q : SEQUENTIAL) {
+      final XQuery xq = new XQuery(q);
+      xq.execute(CONTEXT);
+      assertFalse(q, xq.info().contains("in parallel"));
+    }
+  }
+
+  /**
+   * Checks if errors of parallel threads are returned.
+   */
+  @Test
+  public void error() {
+    CONTEXT.prop.set(Prop.PARALLELFLWOR, true);
+    try {
+      new XQuery("for $i in 1 to 1000 return " +
+          "xs:integer(if($i = 500) then 'x' else $i)").execute(CONTEXT);
+      fail("Error expected.");
+    } catch(final BaseXException ex) {
+      assertTrue(ex.getMessage(), ex.getMessage().contains("FORG0001"));
+    }
+    // stack overflow in a parallel thread
+    try {
+      new XQuery("declare function local:f($i) { if($i = 0) then 0 " +
+          "else local:f($i - 1) + 1 }; " +
+          "for $i in 1 to 100 return local:f($i * 1000000)").execute(CONTEXT);
+      fail("Error expected.");
+    } catch(final BaseXException ex) {
+      assertTrue(ex.getMessage(), ex.getMessage().contains("XQST0054"));
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package org.basex.test.query;
+
+import static org.junit.Assert.*;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.CreateIndex;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.DropIndex;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.Data;
+import org.basex.index.IndexIterator;
+import org.basex.index.RangeToken;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests numeric range queries on the value indexes.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class RangeIndexTest {
+  /** Test file. */
+  private static final String FILE = "etc/xml/factbook.zip";
+  /** Test database name. */
+  private static final String NAME = Util.name(RangeIndexTest.class);
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Range queries. */
+  private static final String[] QUERIES = {
+    "count(//country[@population >= 1000000 and @population <= 5000000])",
+    "count(//city[population >= 100000 and population <= 200000])",
+    "count(//city[population >= -1 and population <= 1])",
+    "count(//country[@infant_mortality >= 5.5 and @infant_mortality <= 7])",
+    "sum(//country[@total_area >= 100 and @total_area <= 1000]/@total_area)"
+  };
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    CONTEXT.prop.set(Prop.TEXTINDEX, true);
+    CONTEXT.prop.set(Prop.ATTRINDEX, true);
+    new CreateDB(NAME, FILE).execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares the results of range queries with and without index.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void range() throws BaseXException {
+    final String[] exp = new String[QUERIES.length];
+    for(int q = 0; q < QUERIES.length; ++q) {
+      exp[q] = new XQuery(QUERIES[q]).execute(CONTEXT);
+    }
+    new DropIndex("text").execute(CONTEXT);
+    new DropIndex("attribute").execute(CONTEXT);
+    for(int q = 0; q < QUERIES.length; ++q) {
+      assertEquals(QUERIES[q], new XQuery(QUERIES[q]).execute(CONTEXT),
+          exp[q]);
+    }
+  }
+
+  /**
+   * Compares the estimated number of results of range queries with the
+   * number of returned ids.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void costs() throws BaseXException {
+    new CreateIndex("text").execute(CONTEXT);
+    new CreateIndex("attribute").execute(CONTEXT);
+    final RangeToken[] tokens = {
+      new RangeToken(false, 1000000, 5000000),
+      new RangeToken(true, 100000, 200000),
+      new RangeToken(true, -1, 1),
+      new RangeToken(false, 5.5, 7),
+      new RangeToken(false, 1, 1)
+    };
+    final Data data = CONTEXT.data;
+    for(final RangeToken rt : tokens) {
+      final IndexIterator ii = data.ids(rt);
+      int c = 0;
+      while(ii.more()) {
+        ii.next();
+        ++c;
+      }
+      assertEquals(rt.min + "-" + rt.max, c, data.nrIDs(rt));
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package org.basex.test.query;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.Text;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the evaluation of order and group by clauses with
+ * temporary files.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class SpillTest {
+  /** Test file. */
+  private static final String FILE = "etc/xml/factbook.zip";
+  /** Test database name. */
+  private static final String NAME = Util.name(SpillTest.class);
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "for $i in 1 to 5000 order by $i mod 17 return $i",
+    "for $i in 1 to 5000 stable order by $i mod 3 descending, " +
+      "string($i) return ($i, -$i, $i div 7, $i * 1e0, $i > 2500)",
+    "for $i in 1 to 5000 order by (if($i mod 5 = 0) then () else $i mod 7) " +
+      "empty greatest return <a>{ $i }</a>",
+    "for $c in //city order by $c/name[1] return $c",
+    "for $c in //city order by number($c/population) descending " +
+      "return ($c/@id, $c/name/text(), xs:untypedAtomic($c/name[1]))",
+    "for $i in 1 to 5000 let $g := $i mod 37 group by $g " +
+      "order by $g return <g k='{ $g }'>{ sum($i) }</g>",
+    "for $c in //city let $n := $c/ancestor::country/@car_code " +
+      "group by $n order by $n return ($n, count($c), $c[1])",
+    "for $i in 1 to 5000 let $g := $i mod 3 let $x := <x>{ $i }</x> " +
+      "group by $g order by $g descending return sum($x)",
+    "subsequence(for $i in 1 to 5000 order by -$i return $i, 1, 4000)",
+  };
+  /** Queries that are stopped before all temporary files have been read. */
+  private static final String[] ABANDONED = {
+    "(for $i in 1 to 10000 order by -$i return $i)[. < 5000][1]",
+    "exists(for $i in 1 to 10000 order by -$i return $i)",
+    "for $i in 1 to 10000 order by -$i " +
+      "return if($i = 9000) then error() else $i",
+    "for $i in 1 to 10000 order by -$i return $i div (9000 - $i)",
+    "for $i in 1 to 10000 let $g := $i mod 500 group by $g " +
+      "return if($g = 499) then error() else $g",
+    "for $i in 1 to 10000 let $g := $i mod 500 group by $g " +
+      "order by $g return $g[. = 100] div 0",
+  };
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    new CreateDB(NAME, FILE).execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    CONTEXT.prop.set(Prop.SPILLSIZE, 0);
+    new DropDB(NAME).execute(CONTEXT);
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares the results of queries with and without temporary files.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void spill() throws BaseXException {
+    for(final String q : QUERIES) {
+      CONTEXT.prop.set(Prop.SPILLSIZE, 0);
+      final String res = new XQuery(q).execute(CONTEXT);
+      for(final int s : new int[] { 10, 1000 }) {
+        CONTEXT.prop.set(Prop.SPILLSIZE, s);
+        assertEquals(q, res, new XQuery(q).execute(CONTEXT));
+      }
+    }
+  }
+
+  /**
+   * Checks if all temporary files are deleted if queries are stopped
+   * or fail.
+   */
+  @Test
+  public void delete() {
+    final int c = files();
+    CONTEXT.prop.set(Prop.SPILLSIZE, 100);
+    for(final String q : ABANDONED) {
+      try {
+        new XQuery(q).execute(CONTEXT);
+      } catch(final BaseXException ex) {
+        // expected for some queries
+      }
+      assertEquals(q, c, files());
+    }
+  }
+
+  /**
+   * Returns the number of temporary files.
+   * @return number of files
+   */
+  private static int files() {
+    int c = 0;
+    final File[] files = new File(Prop.TMP).listFiles();
+    if(files != null) {
+      for(final File f : files) {
+        final String n = f.getName();
+        if(n.startsWith(Text.NAME) && n.endsWith(".spill")) ++c;
+      }
+    }
+    return c;
+  }
+}
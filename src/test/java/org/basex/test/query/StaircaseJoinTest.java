@@ -0,0 +1,118 @@
+package org.basex.test.query;
+
+import static org.junit.Assert.*;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the evaluation of location steps as structural joins.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class StaircaseJoinTest {
+  /** Test file. */
+  private static final String FILE = "etc/xml/factbook.zip";
+  /** Test database name. */
+  private static final String NAME = Util.name(StaircaseJoinTest.class);
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Context node sequences. */
+  private static final String[] CONTEXT_NODES = {
+    "//country", "//province", "//city", "//*", "//@*", "//text()",
+    "(//country[@car_code = 'D'], //country[@car_code = 'D']//city)",
+    "//name/text()", "//city/@id", "/mondial", "()"
+  };
+  /** Steps. */
+  private static final String[] STEPS = {
+    "descendant::city", "descendant::*", "descendant::node()",
+    "descendant-or-self::*", "descendant-or-self::node()",
+    "descendant::city[population > 100000]", "ancestor::*",
+    "ancestor::country", "ancestor-or-self::*", "ancestor-or-self::node()",
+    "ancestor::*[@car_code]", "child::*", "child::city", "child::node()",
+    "child::text()", "city[name]", "attribute::*", "@car_code", "parent::*",
+    "parent::node()", "..[@id]", "self::city", "self::node()",
+    "name/text()", "*/*/@*", "descendant::city/.."
+  };
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    new CreateDB(NAME, FILE).execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares the results of structural joins with the results of
+   * single evaluations.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void join() throws BaseXException {
+    for(final String c : CONTEXT_NODES) {
+      for(final String s : STEPS) {
+        final String join = "(" + c + ")/" + s;
+        // positional predicates enforce the evaluation for single nodes
+        final String single = "(for $n in " + c + " return $n/" + s +
+          "[last() > 0])/.";
+        final String res;
+        try {
+          res = query("db:node-pre(" + join + ")");
+        } catch(final BaseXException ex) {
+          // skip steps that will statically yield no results
+          assertTrue(ex.getMessage(), ex.getMessage().contains("XPST0005"));
+          continue;
+        }
+        assertEquals(join, query("db:node-pre(" + single + ")"), res);
+      }
+    }
+  }
+
+  /**
+   * Checks if the results are returned in document order.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void order() throws BaseXException {
+    assertEquals("true", query("let $n := (//province, //country)" +
+        "/descendant::city return every $i in 2 to count($n) " +
+        "satisfies $n[$i - 1] << $n[$i]"));
+    assertEquals("true", query("let $n := (//city, //province)" +
+        "/ancestor::* return every $i in 2 to count($n) " +
+        "satisfies $n[$i - 1] << $n[$i]"));
+    assertEquals("true", query("let $n := (//country, //province)" +
+        "/* return every $i in 2 to count($n) " +
+        "satisfies $n[$i - 1] << $n[$i]"));
+    assertEquals("true", query("let $n := //city/../.. return " +
+        "every $i in 2 to count($n) satisfies $n[$i - 1] << $n[$i]"));
+  }
+
+  /**
+   * Runs the specified query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String query) throws BaseXException {
+    return new XQuery(query).execute(CONTEXT);
+  }
+}
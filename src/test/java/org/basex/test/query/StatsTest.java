@@ -0,0 +1,150 @@
+package org.basex.test.query;
+
+import static org.junit.Assert.*;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the evaluation of aggregate functions via the database
+ * statistics.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class StatsTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(StatsTest.class);
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Test document. */
+  private static final String DOC = "<shop>" +
+    "<item id='1' type='a'><price>5</price><cat>books</cat></item>" +
+    "<item id='2' type='b'><price>-3</price><cat>music</cat></item>" +
+    "<item id='3'><price>12</price><cat>books</cat><note/></item>" +
+    "<item><price>7</price><cat>games</cat><note>x</note></item>" +
+    "<sale><price>1</price></sale></shop>";
+  /** Queries, which will be answered from the statistics. */
+  private static final String[] QUERIES = {
+    "max(//price)", "min(//price)", "max(/shop/*/price)",
+    "distinct-values(//cat)", "distinct-values(/shop/item/cat)"
+  };
+  /** Queries, which will not be answered from the statistics. */
+  private static final String[] SKIPPED = {
+    "max(//item/price)", "distinct-values(//note)", "max(//price[. > 0])",
+    "distinct-values(//item)", "max(//item[@id]/price)"
+  };
+
+  /**
+   * Enables the query info.
+   */
+  @BeforeClass
+  public static void init() {
+    CONTEXT.prop.set(Prop.QUERYINFO, true);
+  }
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void create() throws BaseXException {
+    new CreateDB(NAME, DOC).execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    CONTEXT.prop.set(Prop.QUERYINFO, false);
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares the results of aggregates that are answered from the statistics
+   * with the results of a sequential evaluation.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void stats() throws BaseXException {
+    for(final String q : QUERIES) {
+      final XQuery xq = new XQuery(q);
+      final String res = xq.execute(CONTEXT);
+      assertTrue(q, xq.info().contains("from statistics"));
+      assertEquals(q, sequential(q), res);
+    }
+  }
+
+  /**
+   * Checks if aggregates are evaluated sequentially if the statistics do not
+   * cover all values of the argument.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void skipped() throws BaseXException {
+    for(final String q : SKIPPED) {
+      final XQuery xq = new XQuery(q);
+      xq.execute(CONTEXT);
+      assertFalse(q, xq.info().contains("from statistics"));
+    }
+    // empty elements are not represented in the statistics
+    assertEquals(" x", query("distinct-values(//note)"));
+  }
+
+  /**
+   * Checks if outdated statistics are ignored.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updated() throws BaseXException {
+    query("replace value of node //price[. = '12'] with '20'");
+    final XQuery xq = new XQuery("max(//price)");
+    assertEquals("20", xq.execute(CONTEXT));
+    assertFalse(xq.info().contains("from statistics"));
+  }
+
+  /**
+   * Checks if the number of attributes is computed from the path summary.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void count() throws BaseXException {
+    assertEquals("3", query("count(//@id)"));
+    assertEquals("2", query("count(/shop/item/@type)"));
+    assertEquals("5", query("count(//@*)"));
+    assertEquals("0", query("count(//sale/@*)"));
+  }
+
+  /**
+   * Evaluates the specified aggregate query sequentially.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String sequential(final String query)
+      throws BaseXException {
+    // positional predicates enforce a sequential evaluation
+    return query(query.replaceAll("\\((.*)\\)$", "(($1)[last() > 0])"));
+  }
+
+  /**
+   * Runs the specified query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String query) throws BaseXException {
+    return new XQuery(query).execute(CONTEXT);
+  }
+}
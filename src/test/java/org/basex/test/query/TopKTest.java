@@ -0,0 +1,104 @@
+package org.basex.test.query;
+
+import static org.junit.Assert.*;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.XQuery;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the limited evaluation of order clauses.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class TopKTest {
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Ordered expressions. */
+  private static final String[] QUERIES = {
+    "for $i in 1 to 1000 order by $i mod 7 return $i",
+    "for $i in 1 to 1000 stable order by $i mod 7 descending return $i",
+    "for $i in 1 to 1000 order by $i mod 13, $i descending return $i",
+    "for $i in 1 to 1000 order by $i mod 5 return ($i, -$i)",
+    "for $i in 1 to 1000 order by $i mod 3 return (1 to $i mod 4)",
+    "for $i in 1 to 1000 order by (if($i mod 9 = 0) then () else $i mod 4) " +
+      "empty greatest return $i",
+    "for $i in 1 to 1000 let $j := $i * 7 mod 101 " +
+      "order by string($j) return $j",
+  };
+  /** Positions: start and length. */
+  private static final int[][] POS = {
+    { 1, 1 }, { 1, 5 }, { 3, 4 }, { 60, 70 }, { 990, 20 }, { 1, 1000 }
+  };
+  /** Dynamic expression, which yields {@code 0}. */
+  private static final String DYN = "count(<a/>/b)";
+
+  /**
+   * Enables the query info.
+   */
+  @BeforeClass
+  public static void init() {
+    CONTEXT.prop.set(Prop.QUERYINFO, true);
+  }
+
+  /**
+   * Closes the database context.
+   */
+  @AfterClass
+  public static void finish() {
+    CONTEXT.prop.set(Prop.QUERYINFO, false);
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares limited and complete results of subsequences.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void subsequence() throws BaseXException {
+    for(final String q : QUERIES) {
+      for(final int[] p : POS) {
+        check("subsequence(" + q + ", " + p[0] + ", " + p[1] + ")",
+          "subsequence(" + q + ", " + p[0] + ", " + p[1] + " + " + DYN + ")");
+      }
+    }
+  }
+
+  /**
+   * Compares limited and complete results of positional predicates.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void filter() throws BaseXException {
+    for(final String q : QUERIES) {
+      for(final int[] p : POS) {
+        final int e = p[0] + p[1] - 1;
+        check("(" + q + ")[position() = " + p[0] + " to " + e + "]",
+          "(" + q + ")[position() = " + p[0] + " to " + e + " + " + DYN + "]");
+      }
+      check("(" + q + ")[3]", "(" + q + ")[3 + " + DYN + "]");
+      check("head(" + q + ")", "(" + q + ")[1 + " + DYN + "]");
+    }
+  }
+
+  /**
+   * Checks if the limited query yields the same result as the unlimited
+   * query.
+   * @param limited limited query
+   * @param full unlimited query
+   * @throws BaseXException database exception
+   */
+  private static void check(final String limited, final String full)
+      throws BaseXException {
+    final XQuery xq = new XQuery(limited);
+    final String res = xq.execute(CONTEXT);
+    assertTrue(limited, xq.info().contains("limiting ordered results"));
+    final XQuery fq = new XQuery(full);
+    assertEquals(limited, fq.execute(CONTEXT), res);
+    assertFalse(full, fq.info().contains("limiting ordered results"));
+  }
+}
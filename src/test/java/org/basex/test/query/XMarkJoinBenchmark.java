@@ -0,0 +1,64 @@
+package org.basex.test.query;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.util.Performance;
+import org.basex.util.Util;
+
+/**
+ * This class measures the evaluation times of the {@link XMarkJoinTest}
+ * queries with and without structural joins. It is not part of the unit
+ * tests and can be run from the command line.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class XMarkJoinBenchmark {
+  /** Test database name. */
+  private static final String NAME = Util.name(XMarkJoinBenchmark.class);
+  /** Number of runs per query. */
+  private static final int RUNS = 5;
+
+  /** Private constructor. */
+  private XMarkJoinBenchmark() { }
+
+  /**
+   * Main method.
+   * @param args command-line arguments
+   * @throws Exception exception
+   */
+  public static void main(final String[] args) throws Exception {
+    final Context ctx = new Context();
+    try {
+      new CreateDB(NAME, XMarkJoinTest.doc()).execute(ctx);
+      for(final String q : XMarkJoinTest.QUERIES) {
+        final String join = XMarkJoinTest.join(q);
+        final String single = XMarkJoinTest.single(q);
+        Util.outln(join + ": " + time(single, ctx) + " (single), " +
+            time(join, ctx) + " (join)");
+      }
+    } finally {
+      new DropDB(NAME).execute(ctx);
+      ctx.close();
+    }
+  }
+
+  /**
+   * Returns the average evaluation time of the specified query.
+   * @param query query
+   * @param ctx database context
+   * @return time
+   * @throws BaseXException database exception
+   */
+  private static String time(final String query, final Context ctx)
+      throws BaseXException {
+    final Performance p = new Performance();
+    for(int r = 0; r < RUNS; ++r) {
+      new XQuery("count(" + query + ")").execute(ctx);
+    }
+    return p.getTimer(RUNS);
+  }
+}
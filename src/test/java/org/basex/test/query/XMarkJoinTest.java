@@ -0,0 +1,111 @@
+package org.basex.test.query;
+
+import static org.junit.Assert.*;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.io.IO;
+import org.basex.util.Token;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * This class compares the results of XMark path queries with and without
+ * structural joins on pre values. The joins are disabled by wrapping steps in parentheses, and by adding
+ * positional predicates, which enforce the evaluation of each step for single
+ * nodes. The document consists of copies of the XMark test document.
+ * The evaluation times are measured by {@link XMarkJoinBenchmark}.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class XMarkJoinTest {
+  /** Test file. */
+  private static final String FILE = "etc/xml/xmark.xml";
+  /** Test database name. */
+  private static final String NAME = Util.name(XMarkJoinTest.class);
+  /** Number of document copies. */
+  private static final int COPIES = 100;
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Queries; steps in braces will not be joined in the second run. */
+  static final String[] QUERIES = {
+    "/X/{site}/{regions}/{*}/{item}/{name}",
+    "//{item}/{description}//{keyword}",
+    "//{open_auction}/{bidder}/{increase}",
+    "//{closed_auction}/{annotation}/{description}/{parlist}/{listitem}" +
+      "/{text}/{keyword}",
+    "//{person}/{profile}/{@income}",
+    "//{keyword}/{ancestor::listitem}",
+    "//{keyword}/{ancestor-or-self::*}/{parent::*}",
+    "//{category}/{name}/{..}/{@id}",
+    "/X/{site}/{people}/{person[profile/interest]}/{name}/{text()}"
+  };
+
+  /**
+   * Closes the database context.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    CONTEXT.close();
+  }
+
+  /**
+   * Compares the results of all queries.
+   * @throws Exception exception
+   */
+  @Test
+  public void paths() throws Exception {
+    new CreateDB(NAME, doc()).execute(CONTEXT);
+    for(final String q : QUERIES) {
+      assertEquals(join(q), query(single(q)), query(join(q)));
+    }
+  }
+
+  /**
+   * Returns the specified query with joined steps.
+   * @param query query
+   * @return query
+   */
+  static String join(final String query) {
+    return query.replaceAll("[{}]", "");
+  }
+
+  /**
+   * Returns the specified query in which the marked steps are evaluated
+   * for single nodes.
+   * @param query query
+   * @return query
+   */
+  static String single(final String query) {
+    return query.replace("{", "(").replace("}", "[last() > 0])");
+  }
+
+  /**
+   * Returns the pre values of the specified query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String query) throws BaseXException {
+    return new XQuery("db:node-pre(" + query + ")").execute(CONTEXT);
+  }
+
+  /**
+   * Creates a document with copies of the XMark document.
+   * @return document
+   * @throws Exception exception
+   */
+  static String doc() throws Exception {
+    final String d = Token.string(IO.get(FILE).content());
+    final String s = d.substring(d.indexOf("<site>"));
+    final StringBuilder sb = new StringBuilder("<X>");
+    for(int i = 0; i < COPIES; ++i) sb.append(s);
+    return sb.append("</X>").toString();
+  }
+}
@@ -0,0 +1,154 @@
+package org.basex.test.server;
+
+import static org.junit.Assert.*;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the locking of single databases.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class DatabaseLockingTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(DatabaseLockingTest.class);
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Client context, operating on the first database. */
+  private static final Context CTX1 = new Context(CONTEXT);
+  /** Client context, operating on the second database. */
+  private static final Context CTX2 = new Context(CONTEXT);
+  /** Maximum waiting time for processes that are expected to finish. */
+  private static final int WAIT = 5000;
+
+  /**
+   * Creates the test databases.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    new CreateDB(NAME + '1', "<x/>").execute(CONTEXT);
+    new CreateDB(NAME + '2', "<x/>").execute(CONTEXT);
+    CTX1.user = CONTEXT.user;
+    CTX2.user = CONTEXT.user;
+    new Open(NAME + '1').execute(CTX1);
+    new Open(NAME + '2').execute(CTX2);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new Close().execute(CTX1);
+    new Close().execute(CTX2);
+    new DropDB(NAME + '1').execute(CONTEXT);
+    new DropDB(NAME + '2').execute(CONTEXT);
+    CONTEXT.close();
+  }
+
+  /**
+   * Checks if processes on other databases are not blocked by a writer.
+   * @throws Exception exception
+   */
+  @Test
+  public void otherDatabase() throws Exception {
+    CONTEXT.register(true, NAME + '1');
+    try {
+      final Query read = new Query(CTX2, "count(//x)");
+      read.join(WAIT);
+      assertEquals("1", read.result);
+      final Query write = new Query(CTX2, "insert node <y/> into /x");
+      write.join(WAIT);
+      assertEquals("", write.result);
+    } finally {
+      CONTEXT.unregister(true, NAME + '1');
+    }
+  }
+
+  /**
+   * Checks if readers of the same database wait for a writer.
+   * @throws Exception exception
+   */
+  @Test
+  public void sameDatabase() throws Exception {
+    CONTEXT.register(true, NAME + '1');
+    final Query read = new Query(CTX1, "count(//x)");
+    read.join(200);
+    assertNull(read.result);
+    CONTEXT.unregister(true, NAME + '1');
+    read.join(WAIT);
+    assertEquals("1", read.result);
+  }
+
+  /**
+   * Checks if queries that open other databases wait for a writer.
+   * @throws Exception exception
+   */
+  @Test
+  public void openedDatabase() throws Exception {
+    CONTEXT.register(true, NAME + '1');
+    final Query read = new Query(CTX2, "count(doc('" + NAME + "1')//x)");
+    read.join(200);
+    assertNull(read.result);
+    CONTEXT.unregister(true, NAME + '1');
+    read.join(WAIT);
+    assertEquals("1", read.result);
+  }
+
+  /**
+   * Checks if processes on single databases wait for a global writer.
+   * @throws Exception exception
+   */
+  @Test
+  public void global() throws Exception {
+    CONTEXT.register(true);
+    final Query read = new Query(CTX2, "count(//x)");
+    read.join(200);
+    assertNull(read.result);
+    CONTEXT.unregister(true);
+    read.join(WAIT);
+    assertNotNull(read.result);
+  }
+
+  /** Query thread. */
+  private static final class Query extends Thread {
+    /** Context. */
+    private final Context ctx;
+    /** Query. */
+    private final String query;
+    /** Result, or {@code null} if the query has not been finished. */
+    volatile String result;
+
+    /**
+     * Constructor, starting the thread.
+     * @param c context
+     * @param q query
+     */
+    Query(final Context c, final String q) {
+      ctx = c;
+      query = q;
+      start();
+    }
+
+    @Override
+    public void run() {
+      try {
+        result = new XQuery(query).execute(ctx);
+      } catch(final BaseXException ex) {
+        result = ex.getMessage();
+      }
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package org.basex.test.server;
+
+import static org.basex.core.Text.*;
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import org.basex.BaseXServer;
+import org.basex.core.BaseXException;
+import org.basex.core.Prop;
+import org.basex.io.BufferInput;
+import org.basex.server.ClientSession;
+import org.basex.server.LoginException;
+import org.basex.util.Performance;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the dispatching of client connections to worker threads.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class DispatcherTest {
+  /** Number of sessions. */
+  private static final int SESSIONS = 200;
+  /** Server reference. */
+  private static BaseXServer server;
+  /** Opened sessions. */
+  private final ArrayList<ClientSession> sessions =
+    new ArrayList<ClientSession>();
+
+  /** Starts the server. */
+  @BeforeClass
+  public static void start() {
+    server = new BaseXServer("-z");
+  }
+
+  /**
+   * Closes all sessions and resets the connection limit.
+   * @throws IOException I/O exception
+   */
+  @After
+  public void close() throws IOException {
+    for(final ClientSession cs : sessions) cs.close();
+    sessions.clear();
+    server.context.prop.set(Prop.MAXCONNECTIONS, 0);
+  }
+
+  /** Stops the server. */
+  @AfterClass
+  public static void stop() {
+    server.stop();
+  }
+
+  /**
+   * Runs commands in many sessions, which do not occupy a thread each.
+   * @throws Exception exception
+   */
+  @Test
+  public void sessions() throws Exception {
+    final int threads = Thread.activeCount();
+    for(int s = 0; s < SESSIONS; ++s) sessions.add(session());
+    for(int s = 0; s < SESSIONS; ++s) {
+      assertEquals(String.valueOf(s), sessions.get(s).execute("xquery " + s));
+    }
+    assertTrue(Thread.activeCount() - threads < SESSIONS / 2);
+    assertTrue(info(), info().contains("Connections: " + SESSIONS));
+  }
+
+  /**
+   * Rejects connections that exceed the connection limit.
+   * @throws Exception exception
+   */
+  @Test
+  public void limit() throws Exception {
+    server.context.prop.set(Prop.MAXCONNECTIONS, 2);
+    sessions.add(session());
+    sessions.add(session());
+    try {
+      session();
+      fail("Connection limit was not considered.");
+    } catch(final LoginException ex) {
+    }
+    sessions.remove(0).close();
+    await("Connections: 1 ");
+    sessions.add(session());
+    assertTrue(info(), info().contains("1 rejected"));
+  }
+
+  /**
+   * Removes connections that have been closed by the client.
+   * @throws Exception exception
+   */
+  @Test
+  public void closed() throws Exception {
+    sessions.add(session());
+    new Socket(LOCALHOST, server.context.prop.num(Prop.SERVERPORT)).close();
+    await("Connections: 1 ");
+  }
+
+  /**
+   * Processes pipelined requests, and removes a connection that has been
+   * closed by the client after the login.
+   * @throws Exception exception
+   */
+  @Test
+  public void pipelined() throws Exception {
+    sessions.add(session());
+    final Socket s = new Socket(LOCALHOST,
+        server.context.prop.num(Prop.SERVERPORT));
+    final BufferInput in = new BufferInput(s.getInputStream());
+    final OutputStream out = s.getOutputStream();
+    final String ts = in.readString();
+    out.write(token(ADMIN + '\0' + md5(md5(ADMIN) + ts) + '\0'));
+    assertEquals(0, in.read());
+
+    // send both requests at once
+    out.write(token("xquery 1\0xquery 2\0"));
+    for(final String r : new String[] { "1", "2" }) {
+      assertEquals(r, in.readString());
+      in.readString();
+      assertEquals(0, in.read());
+    }
+    await("Connections: 2 ");
+    s.close();
+    await("Connections: 1 ");
+  }
+
+  /**
+   * Waits until the session info contains the specified string.
+   * Closed connections are processed asynchronously by the server.
+   * @param string string to be found
+   * @throws BaseXException command exception
+   */
+  private void await(final String string) throws BaseXException {
+    for(int i = 0; i < 50 && !info().contains(string); ++i) {
+      Performance.sleep(100);
+    }
+    assertTrue(info(), info().contains(string));
+  }
+
+  /**
+   * Creates a new session.
+   * @return session
+   * @throws IOException I/O exception
+   */
+  private static ClientSession session() throws IOException {
+    return new ClientSession(server.context, ADMIN, ADMIN);
+  }
+
+  /**
+   * Returns the session info.
+   * @return info
+   * @throws BaseXException command exception
+   */
+  private String info() throws BaseXException {
+    return sessions.get(0).execute("show sessions");
+  }
+}
@@ -0,0 +1,163 @@
+package org.basex.test.server;
+
+import static org.junit.Assert.*;
+import java.io.IOException;
+import org.basex.BaseXServer;
+import org.basex.core.BaseXException;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.server.ClientSession;
+import org.basex.server.Session;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests concurrent read-only queries on a single database.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelReadTest {
+  /** Test file. */
+  private static final String FILE = "etc/xml/factbook.zip";
+  /** Test name. */
+  private static final String NAME = Util.name(ParallelReadTest.class);
+  /** Read query, traversing the whole table. */
+  private static final String READ =
+    "count(doc('" + NAME + "')//*[@id]/descendant::text())";
+  /** Maximum number of clients. */
+  private static final int CLIENTS = 8;
+  /** Number of queries per client. */
+  private static final int RUNS = 10;
+  /** Minimum speedup of parallel clients on multi-core machines. */
+  private static final double SPEEDUP = 1.2;
+
+  /** Server reference. */
+  static BaseXServer server;
+  /** Expected result. */
+  static String expected;
+
+  /**
+   * Starts the server and creates the test database.
+   * @throws Exception exception
+   */
+  @BeforeClass
+  public static void start() throws Exception {
+    server = new BaseXServer("-z");
+    final Session s = newSession();
+    s.execute(new CreateDB(NAME, FILE));
+    expected = s.execute(new XQuery(READ));
+    s.close();
+  }
+
+  /**
+   * Drops the database and stops the server.
+   * @throws Exception exception
+   */
+  @AfterClass
+  public static void stop() throws Exception {
+    final Session s = newSession();
+    s.execute(new DropDB(NAME));
+    s.close();
+    server.stop();
+  }
+
+  /**
+   * Checks that a query is evaluated while another reader is active.
+   * @throws Exception exception
+   */
+  @Test
+  public void concurrent() throws Exception {
+    server.context.register(false, NAME);
+    try {
+      final Client cl = new Client();
+      cl.start();
+      cl.join(60000);
+      assertFalse("Reader was blocked by another reader.", cl.isAlive());
+      cl.session.close();
+      if(cl.error != null) fail(cl.error);
+    } finally {
+      server.context.unregister(false, NAME);
+    }
+  }
+
+  /**
+   * Runs the read query with 1, 2, 4 and 8 parallel clients. On multi-core
+   * machines, the throughput of parallel clients must exceed the throughput
+   * of a single client.
+   * @throws Exception exception
+   */
+  @Test
+  public void scale() throws Exception {
+    final double single = throughput(1);
+    double max = 0;
+    for(int c = 2; c <= CLIENTS; c <<= 1) max = Math.max(max, throughput(c));
+    if(Runtime.getRuntime().availableProcessors() > 1) {
+      assertTrue("No speedup: " + single + " vs. " + max + " queries/sec",
+          max >= single * SPEEDUP);
+    }
+  }
+
+  /**
+   * Runs the read query with the specified number of parallel clients and
+   * returns the number of queries per second.
+   * @param c number of clients
+   * @return queries per second
+   * @throws Exception exception
+   */
+  private static double throughput(final int c) throws Exception {
+    final Client[] cl = new Client[c];
+    for(int i = 0; i < c; ++i) cl[i] = new Client();
+
+    final long time = System.nanoTime();
+    for(final Client t : cl) t.start();
+    for(final Client t : cl) t.join();
+    final double secs = (System.nanoTime() - time) / 1e9;
+
+    for(final Client t : cl) {
+      t.session.close();
+      if(t.error != null) fail(t.error);
+    }
+    return c * RUNS / secs;
+  }
+
+  /**
+   * Returns a session instance.
+   * @return session
+   * @throws IOException exception
+   */
+  static ClientSession newSession() throws IOException {
+    return new ClientSession("localhost", 1984, "admin", "admin");
+  }
+
+  /** Single client. */
+  static final class Client extends Thread {
+    /** Client session. */
+    final ClientSession session;
+    /** Error message. */
+    String error;
+
+    /**
+     * Default constructor.
+     * @throws IOException exception
+     */
+    Client() throws IOException {
+      session = newSession();
+    }
+
+    @Override
+    public void run() {
+      try {
+        for(int r = 0; r < RUNS; ++r) {
+          final String res = session.execute(new XQuery(READ));
+          if(!res.equals(expected)) error = "Wrong result: " + res;
+        }
+      } catch(final BaseXException ex) {
+        error = ex.getMessage();
+      }
+    }
+  }
+}
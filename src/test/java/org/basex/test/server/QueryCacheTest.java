@@ -0,0 +1,146 @@
+package org.basex.test.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import org.basex.BaseXServer;
+import org.basex.core.BaseXException;
+import org.basex.server.ClientQuery;
+import org.basex.server.ClientSession;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the caching of compiled queries in server sessions.
+ *
+ * @author BaseX Team 2005-11, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCacheTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(QueryCacheTest.class);
+  /** Server reference. */
+  private static BaseXServer server;
+  /** Client session. */
+  private ClientSession cs;
+
+  /** Starts the server. */
+  @BeforeClass
+  public static void start() {
+    server = new BaseXServer("-z");
+  }
+
+  /**
+   * Starts a session and creates a test database.
+   * @throws BaseXException command exception
+   */
+  @Before
+  public void startSession() throws BaseXException {
+    try {
+      cs = new ClientSession(server.context, ADMIN, ADMIN);
+    } catch(final IOException ex) {
+      fail(ex.toString());
+    }
+    cs.execute("set querycache 8");
+    cs.execute("create db " + NAME +
+        " <xml><a id='1'>A</a><a id='2'>B</a></xml>");
+  }
+
+  /**
+   * Drops the test database and stops the session.
+   * @throws BaseXException command exception
+   */
+  @After
+  public void stopSession() throws BaseXException {
+    cs.execute("drop db " + NAME);
+    try {
+      cs.close();
+    } catch(final IOException ex) {
+      fail(ex.toString());
+    }
+  }
+
+  /** Stops the server. */
+  @AfterClass
+  public static void stop() {
+    server.stop();
+  }
+
+  /**
+   * Reuses a query with different variable bindings.
+   * @throws BaseXException command exception
+   */
+  @Test
+  public void rebind() throws BaseXException {
+    final String query = "declare variable $id external; //a[@id = $id]/text()";
+    assertEquals("A", query(query, "1"));
+    assertEquals("B", query(query, "2"));
+    assertEquals("", query(query, "3"));
+    assertTrue(sessions(), sessions().contains("2 hits"));
+  }
+
+  /**
+   * Does not reuse queries after the database has been updated.
+   * @throws BaseXException command exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    final String query = "declare variable $id external; count(//a[@id = $id])";
+    assertEquals("1", query(query, "1"));
+    cs.execute("xquery insert node <a id='1'/> into /xml");
+    assertEquals("2", query(query, "1"));
+    assertEquals("2", query(query, "1"));
+    assertTrue(sessions(), sessions().contains("1 hits"));
+  }
+
+  /**
+   * Does not cache updating and incompletely evaluated queries.
+   * @throws BaseXException command exception
+   */
+  @Test
+  public void uncached() throws BaseXException {
+    final String update = "declare variable $id external; " +
+      "insert node <a id='{ $id }'/> into /xml";
+    query(update, "3");
+    query(update, "4");
+    assertEquals("4", cs.execute("xquery count(//a)"));
+
+    final String query = "declare variable $id external; 1 to $id";
+    for(int i = 0; i < 2; ++i) {
+      final ClientQuery cq = cs.query(query);
+      cq.bind("$id", "1000000", "xs:integer");
+      assertEquals("1", cq.next());
+      cq.close();
+    }
+    assertTrue(sessions(), sessions().contains("0 cached"));
+  }
+
+  /**
+   * Runs a query with a bound string variable.
+   * @param query query
+   * @param id value to be bound
+   * @return result
+   * @throws BaseXException command exception
+   */
+  private String query(final String query, final String id)
+      throws BaseXException {
+    final ClientQuery cq = cs.query(query);
+    cq.bind("$id", id, "");
+    final String result = cq.execute();
+    cq.close();
+    return result;
+  }
+
+  /**
+   * Returns the session info.
+   * @return info
+   * @throws BaseXException command exception
+   */
+  private String sessions() throws BaseXException {
+    return cs.execute("show sessions");
+  }
+}
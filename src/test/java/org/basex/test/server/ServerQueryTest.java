@@ -350,4 +350,41 @@ public final class ServerQueryTest {
       assertEquals(q, Integer.parseInt(cqs[q].next()));
     for(final ClientQuery cq : cqs) cq.close();
   }
+
+  /** Iterates large results, which are fetched in several batches, and
+   * runs commands and other queries in between.
+   * @throws BaseXException command exception */
+  @Test
+  public void queryBatches() throws BaseXException {
+    final int size = 5000;
+    final ClientQuery cq1 = cs.query("1 to " + size);
+    final ClientQuery cq2 = cs.query("for $i in 1 to " + size +
+        " return <a>{ $i }</a>");
+    int c = 0;
+    while(cq1.more()) {
+      assertEquals(++c, Integer.parseInt(cq1.next()));
+      assertEquals("<a>" + c + "</a>", cq2.next());
+      if(c % 1500 == 0) assertEquals("X", cs.execute("xquery 'X'"));
+    }
+    assertEquals(size, c);
+    assertFalse(cq2.more());
+    cq1.close();
+    cq2.close();
+  }
+
+  /** Runs a query that raises an error after the first batch of results.
+   * @throws BaseXException command exception */
+  @Test
+  public void queryBatchError() throws BaseXException {
+    final ClientQuery cq = cs.query(
+        "for $i in 1 to 2000 return if($i = 1500) then error() else $i");
+    int c = 0;
+    try {
+      while(cq.more()) assertEquals(++c, Integer.parseInt(cq.next()));
+      fail("Error expected.");
+    } catch(final BaseXException ex) {
+      assertEquals(1499, c);
+    }
+    cq.close();
+  }
 }